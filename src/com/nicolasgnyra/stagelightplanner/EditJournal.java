@@ -0,0 +1,936 @@
+package com.nicolasgnyra.stagelightplanner;
+
+import com.nicolasgnyra.stagelightplanner.components.JStageElement;
+import com.nicolasgnyra.stagelightplanner.exceptions.InvalidFileVersionException;
+import com.nicolasgnyra.stagelightplanner.helpers.FileHelper;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * EditJournal Class:
+ * An append-only journal of the changes made to a stage plan since it was last saved, kept next to the plan so the
+ * changes can be recovered if the program doesn't exit normally. Changes are recorded in memory & written to the disk
+ * in batches by a background thread, so recording one never waits for the disk.
+ *
+ * Elements are identified by their ID in the plan, which they keep when the plan is saved. When the plan is saved, a
+ * checkpoint is recorded, and once the save is on the disk, everything before the checkpoint is removed from the
+ * journal.
+ *
+ * A journal locks a file next to the journal file once it starts writing, so another instance of the program that
+ * edits the same plan neither offers to recover the changes nor writes over them; it doesn't record its changes.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.3
+ */
+public class EditJournal implements Closeable {
+
+    private static final byte journalVersion = 1;   // journal file version
+    private static final int headerLength = 6;      // length of the versions & plan ID at the start of the file
+    private static final int flushInterval = 500;   // time between writes to the disk, in ms
+
+    // these values SHOULD NOT change between versions
+    private static final byte OPERATION_PUT = 1;            // element added or changed, followed by the whole element
+    private static final byte OPERATION_MOVE = 2;           // element moved, followed by its coordinates
+    private static final byte OPERATION_REMOVE = 3;         // element removed
+    private static final byte OPERATION_CHECKPOINT = 4;     // plan saved, followed by the ID of the saved file
+
+    private File file;                                      // journal file
+    private int planId;                                     // ID of the plan to which the journal applies
+    private FileChannel channel = null;                     // open journal file (null until something is written)
+    private FileChannel lockChannel = null;                 // locked lock file (null until something is written)
+    private boolean shared = false;                         // whether another instance writes to the file, so nothing is recorded
+    private long end = 0;                                   // end of the valid batches in the file (0 if it must be recreated)
+    private long discarded = 0;                             // bytes removed from the start of the file by compactions
+    private boolean hasOperations = false;                  // whether the file contains operations
+    private boolean closed = false;                         // whether the journal was closed or discarded
+    private IOException failure = null;                     // error that happened on the background thread
+    private final Object fileLock = new Object();           // held while the file is being written
+    private final ScheduledExecutorService flusher;         // writes recorded operations periodically
+
+    private ArrayList<JStageElement> stageElements = new ArrayList<>();     // elements recovered from the file, by ID
+
+    private FileStreamWriter pending = new FileStreamWriter();  // operations that haven't been written yet
+    private int lastMoveId = -1;                                // element of the last pending operation if it's a move
+    private long lastMovePosition = 0;                          // position of that move's coordinates
+
+    /**
+     * EditJournal(File, int) Constructor:
+     * Creates a new, empty journal for a stage plan.
+     *
+     * Input: Journal file, ID of the plan.
+     *
+     * Process: Sets values & starts writing recorded operations in the background. The file is only created (or
+     * replaced if it exists) once the first operation is written.
+     *
+     * Output: A new instance of the EditJournal class.
+     *
+     * @param file Journal file
+     * @param planId ID of the plan to which the journal applies (see FileHelper.getStagePlanId)
+     */
+    public EditJournal(File file, int planId) {
+
+        // set values
+        this.file = file;
+        this.planId = planId;
+
+        // write operations periodically on a thread that doesn't keep the program running
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Edit journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (IOException ex) {
+                synchronized (this) {
+                    failure = ex;
+                }
+            }
+        }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+
+    }
+
+    /**
+     * getJournalFile(File) Method:
+     * Gets the journal file of a stage plan.
+     *
+     * Input: Stage plan file.
+     *
+     * Process: Adds the journal extension to the plan file, or uses the journal of untitled plans in the working
+     * directory if there is no plan file.
+     *
+     * Output: Journal file.
+     *
+     * @param planFile Stage plan file (null if the plan was never saved)
+     * @return Journal file
+     */
+    public static File getJournalFile(File planFile) {
+        return planFile == null ? new File("untitled.slpsp.journal") : new File(FileHelper.getStagePlanFile(planFile).getAbsolutePath() + ".journal");
+    }
+
+    /**
+     * hasChanges(File) Method:
+     * Checks whether the journal of a stage plan contains changes, i.e. the program didn't exit normally.
+     *
+     * Input: Stage plan file.
+     *
+     * Process: Checks whether the journal file has more than its header & isn't being written by another journal,
+     * possibly of another instance of the program.
+     *
+     * Output: Whether there are changes to recover.
+     *
+     * @param planFile Stage plan file (null if the plan was never saved)
+     * @return Whether there are changes to recover
+     */
+    public static boolean hasChanges(File planFile) {
+
+        // nothing to recover if the journal only has a header
+        File file = getJournalFile(planFile);
+
+        if (file.length() <= headerLength)
+            return false;
+
+        // changes that are still being recorded can't be recovered (if the lock can't be checked, the journal can't
+        // be written by another instance either)
+        try {
+            return !isInUse(file);
+        } catch (IOException ex) {
+            return true;
+        }
+
+    }
+
+    /**
+     * isInUse(File) Method:
+     * Checks whether a journal file is being written by another journal.
+     *
+     * Input: Journal file.
+     *
+     * Process: Tries to lock the journal's lock file & releases it straight away.
+     *
+     * Output: Whether the lock is held.
+     *
+     * @param file Journal file
+     * @return Whether the lock is held
+     * @throws IOException Thrown when the lock file can't be opened.
+     */
+    private static boolean isInUse(File file) throws IOException {
+
+        // nobody writes to the journal if there is no lock file
+        if (!getLockFile(file).exists())
+            return false;
+
+        // try to lock it
+        FileChannel lock = tryLock(file);
+
+        if (lock == null)
+            return true;
+
+        lock.close();
+        return false;
+
+    }
+
+    /**
+     * tryLock(File) Method:
+     * Locks the lock file of a journal file.
+     *
+     * Input: Journal file.
+     *
+     * Process: Opens the lock file, creating it if needed, & tries to lock it without waiting.
+     *
+     * Output: Locked lock file, which stays locked until it is closed.
+     *
+     * @param file Journal file
+     * @return Locked lock file (null if another journal holds the lock)
+     * @throws IOException Thrown when the lock file can't be opened.
+     */
+    private static FileChannel tryLock(File file) throws IOException {
+
+        // open lock file
+        FileChannel lock = FileChannel.open(getLockFile(file).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+        // lock it
+        try {
+            if (lock.tryLock() != null)
+                return lock;
+        } catch (OverlappingFileLockException ex) {
+
+            // held by another journal of this instance
+
+        }
+
+        lock.close();
+        return null;
+
+    }
+
+    private static File getLockFile(File file) {
+        return new File(file.getPath() + ".lock");
+    }
+
+    /**
+     * recover(File) Method:
+     * Recovers the changes recorded in the journal of a stage plan.
+     *
+     * Input: Stage plan file.
+     *
+     * Process: Reads the batches of operations until one is incomplete or doesn't match its checksum (i.e. the last
+     * one, if the program stopped while it was being written). Finds where the operations that aren't in the plan
+     * file start: after the last checkpoint of a save that reached the file, or at the start if the journal applies
+     * to the file as it is. Then maps the plan & replays those operations on its elements, which are found by ID. The
+     * returned journal keeps appending to the same file, after the valid batches.
+     *
+     * Output: Journal containing the recovered elements.
+     *
+     * @param planFile Stage plan file (null if the plan was never saved)
+     * @return Journal containing the recovered elements (see getStageElements)
+     * @throws IOException Thrown when the journal can't be read or doesn't apply to the plan file.
+     * @throws InvalidFileVersionException Thrown when the journal or plan was created in a different version.
+     */
+    public static EditJournal recover(File planFile) throws IOException, InvalidFileVersionException {
+
+        // read journal
+        File file = getJournalFile(planFile);
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+
+        // check header
+        if (data.remaining() < headerLength || data.get() != journalVersion)
+            throw new InvalidFileVersionException("Invalid journal version.");
+
+        byte recordVersion = data.get();
+        int journalPlanId = data.getInt();
+
+        // read operations of every valid batch, keeping where the last one ends
+        ArrayList<Operation> operations = new ArrayList<>();
+        long end = headerLength;
+
+        while (data.remaining() >= 8) {
+            int length = data.getInt();
+            int batchChecksum = data.getInt();
+
+            // stop at an incomplete batch
+            if (length < 0 || length > data.remaining())
+                break;
+
+            ByteBuffer batch = data.slice();
+            batch.limit(length);
+
+            // stop at a batch that doesn't match its checksum
+            CRC32 checksum = new CRC32();
+            checksum.update(batch.duplicate());
+
+            if ((int) checksum.getValue() != batchChecksum)
+                break;
+
+            // read operations
+            FileStreamReader reader = new FileStreamReader(batch);
+
+            while (reader.getPosition() < length)
+                operations.add(Operation.read(reader, recordVersion));
+
+            data.position(data.position() + length);
+            end = data.position();
+        }
+
+        // find first operation that isn't in the plan file
+        int planId = planFile == null ? 0 : FileHelper.getStagePlanId(planFile);
+        int start = journalPlanId == planId ? 0 : -1;
+
+        for (int i = 0; i < operations.size(); i++)
+            if (operations.get(i).type == OPERATION_CHECKPOINT && operations.get(i).planId == planId)
+                start = i + 1;
+
+        if (start < 0)
+            throw new IOException("The edit journal doesn't match the stage plan.");
+
+        // create journal that continues the file
+        EditJournal journal = new EditJournal(file, journalPlanId);
+        journal.end = end;
+        journal.hasOperations = true;
+
+        // get elements of the plan, by ID
+        TreeMap<Integer, JStageElement> stageElements = new TreeMap<>();
+
+        if (planFile != null && planFile.isFile()) {
+            MappedStagePlan mappedPlan = FileHelper.mapStagePlan(planFile);
+
+            for (int i = 0; i < mappedPlan.size(); i++) {
+                JStageElement stageElement = mappedPlan.getStageElement(i);
+
+                if (stageElement != null)
+                    stageElements.put(stageElement.getId(), stageElement);
+            }
+        }
+
+        // replay operations (checkpoints don't change the elements)
+        for (Operation operation : operations.subList(start, operations.size())) {
+            switch (operation.type) {
+                case OPERATION_PUT:
+                    if (operation.stageElement != null) {
+                        operation.stageElement.setId(operation.id);
+                        stageElements.put(operation.id, operation.stageElement);
+                    }
+                    break;
+
+                case OPERATION_MOVE:
+                    if (stageElements.containsKey(operation.id))
+                        stageElements.get(operation.id).setGridLocation(operation.x, operation.y);
+                    break;
+
+                case OPERATION_REMOVE:
+                    stageElements.remove(operation.id);
+                    break;
+            }
+        }
+
+        // keep the recovered elements
+        journal.stageElements = new ArrayList<>(stageElements.values());
+
+        return journal;
+
+    }
+
+    /**
+     * delete(File) Method:
+     * Deletes the journal of a stage plan, dropping the changes it contains.
+     *
+     * Input: Stage plan file.
+     *
+     * Process: Deletes the journal file if it exists.
+     *
+     * Output: None.
+     *
+     * @param planFile Stage plan file (null if the plan was never saved)
+     * @throws IOException Thrown when the file can't be deleted.
+     */
+    public static void delete(File planFile) throws IOException {
+        Files.deleteIfExists(getJournalFile(planFile).toPath());
+    }
+
+    /**
+     * put(JStageElement) Method:
+     * Records that an element was added or changed.
+     *
+     * Input: Stage element.
+     *
+     * Process: Appends the element's ID & all its values to the pending operations, unless another instance writes to
+     * the journal. Light definitions are written with the light, as the plan's list changes between saves.
+     *
+     * Output: None.
+     *
+     * @param stageElement Stage element
+     * @throws IOException Thrown when a previous write to the journal failed.
+     */
+    public synchronized void put(JStageElement stageElement) throws IOException {
+
+        // report failed writes & don't record anything if another instance writes to the journal
+        checkFailure();
+
+        if (shared)
+            return;
+
+        // write operation
+        pending.write(OPERATION_PUT);
+        pending.writeInt(stageElement.getId());
+        FileHelper.writeStageElement(pending, stageElement, null);
+        lastMoveId = -1;
+
+    }
+
+    /**
+     * move(JStageElement) Method:
+     * Records that an element was moved.
+     *
+     * Input: Stage element.
+     *
+     * Process: If the last pending operation moved the same element, replaces its coordinates, so dragging an element
+     * only keeps its last position between two writes. Otherwise appends a move operation.
+     *
+     * Output: None.
+     *
+     * @param stageElement Stage element
+     * @throws IOException Thrown when a previous write to the journal failed.
+     */
+    public synchronized void move(JStageElement stageElement) throws IOException {
+
+        // report failed writes & don't record anything if another instance writes to the journal
+        checkFailure();
+
+        if (shared)
+            return;
+
+        // get ID
+        int id = stageElement.getId();
+
+        // replace coordinates of the last move, or write a new one
+        if (id == lastMoveId) {
+            pending.seek(lastMovePosition);
+        } else {
+            pending.write(OPERATION_MOVE);
+            pending.writeInt(id);
+            lastMoveId = id;
+            lastMovePosition = pending.getPosition();
+        }
+
+        pending.writeInt(stageElement.getGridX());
+        pending.writeInt(stageElement.getGridY());
+
+    }
+
+    /**
+     * remove(JStageElement) Method:
+     * Records that an element was removed.
+     *
+     * Input: Stage element.
+     *
+     * Process: Appends a remove operation, unless the element was never added to the plan.
+     *
+     * Output: None.
+     *
+     * @param stageElement Stage element
+     * @throws IOException Thrown when a previous write to the journal failed.
+     */
+    public synchronized void remove(JStageElement stageElement) throws IOException {
+
+        // report failed writes
+        checkFailure();
+
+        // nothing to record if the element doesn't have an ID or another instance writes to the journal
+        if (stageElement.getId() < 0 || shared)
+            return;
+
+        // write operation
+        pending.write(OPERATION_REMOVE);
+        pending.writeInt(stageElement.getId());
+        lastMoveId = -1;
+
+    }
+
+    /**
+     * checkpoint(int) Method:
+     * Records that the plan is being saved.
+     *
+     * Input: ID of the saved snapshot.
+     *
+     * Process: Appends a checkpoint & writes everything to the disk. Called before the snapshot is encoded, so the
+     * changes made while it's written come after the checkpoint.
+     *
+     * Output: Position of the end of the checkpoint, to give to compact once the save is on the disk.
+     *
+     * @param planId ID of the saved snapshot (see StagePlanSnapshot.getId)
+     * @return Position of the end of the checkpoint
+     * @throws IOException Thrown when the journal can't be written.
+     */
+    public long checkpoint(int planId) throws IOException {
+
+        // write operation
+        synchronized (this) {
+            checkFailure();
+
+            if (!shared) {
+                pending.write(OPERATION_CHECKPOINT);
+                pending.writeInt(planId);
+                lastMoveId = -1;
+            }
+        }
+
+        // write everything up to the checkpoint
+        synchronized (fileLock) {
+            flush();
+            return discarded + end;
+        }
+
+    }
+
+    /**
+     * compact(long, File, int) Method:
+     * Removes the operations that were saved from the journal.
+     *
+     * Input: Position returned by checkpoint, journal file of the saved plan, ID of the saved snapshot.
+     *
+     * Process: Writes the pending operations, reads the ones after the checkpoint & replaces the journal with a file
+     * that only contains those. The journal moves to the saved plan's journal file if it's a different one, unless
+     * another instance writes to that one, in which case the journal stops recording. Nothing is removed if a later
+     * checkpoint was already compacted.
+     *
+     * Output: None.
+     *
+     * @param position Position returned by checkpoint
+     * @param file Journal file of the saved plan
+     * @param planId ID of the saved snapshot
+     * @throws IOException Thrown when the journal can't be written.
+     */
+    public void compact(long position, File file, int planId) throws IOException {
+        synchronized (fileLock) {
+
+            // nothing to do if the journal was closed, doesn't record anything or the checkpoint was already compacted
+            if (closed || shared || position - discarded < headerLength)
+                return;
+
+            // write pending operations
+            flush();
+
+            // lock the saved plan's journal if the journal moves, or stop recording if another instance writes to it
+            boolean moved = !file.getAbsoluteFile().equals(this.file.getAbsoluteFile());
+            FileChannel newLock = moved ? tryLock(file) : lockChannel;
+
+            if (newLock == null) {
+                synchronized (this) {
+                    shared = true;
+                    pending = new FileStreamWriter();
+                }
+
+                return;
+            }
+
+            // read operations after the checkpoint
+            ByteBuffer remaining = ByteBuffer.allocate((int) (end - (position - discarded)));
+
+            while (remaining.hasRemaining())
+                if (channel.read(remaining, position - discarded + remaining.position()) < 0)
+                    throw new IOException("The edit journal is shorter than expected.");
+
+            remaining.flip();
+
+            // close current file
+            channel.close();
+            channel = null;
+
+            // replace journal with the remaining operations, or delete it if there are none
+            if (remaining.hasRemaining()) {
+                FileHelper.replaceAtomically(file, newChannel -> {
+                    ByteBuffer header = createHeader(planId);
+
+                    while (header.hasRemaining())
+                        newChannel.write(header);
+
+                    while (remaining.hasRemaining())
+                        newChannel.write(remaining);
+                });
+
+                end = headerLength + remaining.limit();
+            } else {
+                Files.deleteIfExists(file.toPath());
+                end = 0;
+            }
+
+            // delete previous file & release its lock if the journal moved
+            if (moved) {
+                Files.deleteIfExists(this.file.toPath());
+                unlock();
+                lockChannel = newLock;
+            }
+
+            // set values
+            discarded = position - headerLength;
+            hasOperations = end > 0;
+            this.file = file;
+            this.planId = planId;
+
+        }
+    }
+
+    /**
+     * flush() Method:
+     * Writes the pending operations to the disk.
+     *
+     * Input: None.
+     *
+     * Process: Takes the pending operations, locks & opens the file if needed & appends them as a batch made of their
+     * length, their checksum & the operations themselves, then forces the file to the disk. If another instance holds
+     * the lock, the operations are dropped & the journal stops recording.
+     *
+     * Output: None.
+     *
+     * @throws IOException Thrown when the journal can't be written.
+     */
+    public void flush() throws IOException {
+        synchronized (fileLock) {
+
+            // take pending operations
+            ByteBuffer operations;
+
+            synchronized (this) {
+                if (closed || shared || pending.getPosition() == 0)
+                    return;
+
+                operations = pending.getContents();
+                pending = new FileStreamWriter();
+                lastMoveId = -1;
+            }
+
+            // lock & open file, or stop recording if another instance writes to it
+            if (channel == null) {
+                if (lockChannel == null)
+                    lockChannel = tryLock(file);
+
+                if (lockChannel == null) {
+                    synchronized (this) {
+                        shared = true;
+                        pending = new FileStreamWriter();
+                    }
+
+                    return;
+                }
+
+                open();
+            }
+
+            // get checksum
+            CRC32 checksum = new CRC32();
+            checksum.update(operations.duplicate());
+
+            // write batch
+            ByteBuffer header = ByteBuffer.allocate(8);
+            header.putInt(operations.remaining()).putInt((int) checksum.getValue()).flip();
+
+            while (header.hasRemaining())
+                end += channel.write(header, end);
+
+            while (operations.hasRemaining())
+                end += channel.write(operations, end);
+
+            // force it to the disk (the file's size is part of the data, but not its modification time)
+            channel.force(false);
+            hasOperations = true;
+
+        }
+    }
+
+    /**
+     * open() Method:
+     * Opens the journal file for writing.
+     *
+     * Input: None.
+     *
+     * Process: Opens the file & cuts it after the last valid batch, or writes a new header if it must be recreated.
+     *
+     * Output: Open journal file.
+     *
+     * @throws IOException Thrown when the journal can't be opened.
+     */
+    private void open() throws IOException {
+
+        // open file
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        // continue after the valid batches
+        if (end > 0) {
+            channel.truncate(end);
+            return;
+        }
+
+        // otherwise replace the file
+        channel.truncate(0);
+        ByteBuffer header = createHeader(planId);
+
+        while (header.hasRemaining())
+            end += channel.write(header, end);
+
+    }
+
+    /**
+     * createHeader(int) Method:
+     * Creates the header of a journal file.
+     *
+     * Input: ID of the plan to which the journal applies.
+     *
+     * Process: Writes the journal version, the version of the element records & the plan ID.
+     *
+     * Output: Header.
+     *
+     * @param planId ID of the plan
+     * @return Header, ready to be written
+     */
+    private static ByteBuffer createHeader(int planId) {
+
+        // write header
+        ByteBuffer header = ByteBuffer.allocate(headerLength);
+        header.put(journalVersion).put(FileHelper.getStagePlanVersion()).putInt(planId).flip();
+
+        return header;
+
+    }
+
+    /**
+     * close() Method:
+     * Closes the journal, keeping the changes it contains.
+     *
+     * Input: None.
+     *
+     * Process: Writes the pending operations, stops the background thread & closes the file, which is deleted if it
+     * doesn't contain any operations. Then releases the lock. A journal that never wrote the file leaves it alone.
+     *
+     * Output: None.
+     *
+     * @throws IOException Thrown when the journal can't be written.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (fileLock) {
+
+            // write pending operations & stop
+            flush();
+            stop();
+
+            // delete file if there is nothing to recover, as long as this journal wrote it
+            if (lockChannel != null && !hasOperations)
+                Files.deleteIfExists(file.toPath());
+
+            unlock();
+
+        }
+    }
+
+    /**
+     * discard() Method:
+     * Closes the journal & deletes it, dropping the changes it contains.
+     *
+     * Input: None.
+     *
+     * Process: Stops the background thread, closes & deletes the file if this journal wrote it, & releases the lock.
+     *
+     * Output: None.
+     *
+     * @throws IOException Thrown when the file can't be deleted.
+     */
+    public void discard() throws IOException {
+        synchronized (fileLock) {
+            stop();
+
+            if (lockChannel != null)
+                Files.deleteIfExists(file.toPath());
+
+            unlock();
+        }
+    }
+
+    /**
+     * stop() Method:
+     * Stops recording operations.
+     *
+     * Input: None.
+     *
+     * Process: Stops the background thread, closes the file & marks the journal as closed.
+     *
+     * Output: None.
+     *
+     * @throws IOException Thrown when the file can't be closed.
+     */
+    private void stop() throws IOException {
+
+        // stop background thread
+        flusher.shutdown();
+
+        // close file
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+
+        synchronized (this) {
+            closed = true;
+        }
+
+    }
+
+    /**
+     * unlock() Method:
+     * Releases the lock on the journal file.
+     *
+     * Input: None.
+     *
+     * Process: Closes the lock file, which releases the lock, & deletes it. Another instance may already have opened
+     * it, in which case it can't be deleted on some systems & is left for that instance.
+     *
+     * Output: None.
+     *
+     * @throws IOException Thrown when the lock file can't be closed.
+     */
+    private void unlock() throws IOException {
+
+        // nothing to do if the journal isn't locked
+        if (lockChannel == null)
+            return;
+
+        // release lock
+        lockChannel.close();
+        lockChannel = null;
+
+        // delete lock file
+        try {
+            Files.deleteIfExists(getLockFile(file).toPath());
+        } catch (IOException ex) {
+
+            // opened by another instance
+
+        }
+
+    }
+
+    /**
+     * getStageElements() Method:
+     * Gets the elements recovered from the journal.
+     *
+     * Input: None.
+     *
+     * Process: Copies the list of recovered elements.
+     *
+     * Output: Stage elements.
+     *
+     * @return Stage elements recovered by recover, sorted by ID (empty for other journals)
+     */
+    public synchronized ArrayList<JStageElement> getStageElements() {
+        return new ArrayList<>(stageElements);
+    }
+
+    /**
+     * checkFailure() Method:
+     * Reports an error that happened while writing in the background.
+     *
+     * Input: None.
+     *
+     * Process: Throws the error if there is one & clears it, so it's only reported once.
+     *
+     * Output: None.
+     *
+     * @throws IOException Error that happened while writing in the background.
+     */
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            IOException ex = failure;
+            failure = null;
+            throw ex;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Operation Class:
+     * An operation read from a journal file.
+     *
+     * Date: 2026-10-19
+     *
+     * @author Nicolas Gnyra
+     * @version 1.0
+     */
+    private static class Operation {
+        private byte type;                          // operation type
+        private int id;                             // ID of the element
+        private JStageElement stageElement;         // element that was added or changed
+        private int x;                              // x coordinate of a move
+        private int y;                              // y coordinate of a move
+        private int planId;                         // ID of the snapshot saved at a checkpoint
+
+        /**
+         * read(FileStreamReader, byte) Method:
+         * Reads an operation.
+         *
+         * Input: File stream reader, version of the element records.
+         *
+         * Process: Reads the type, then the values of that type.
+         *
+         * Output: Operation.
+         *
+         * @param reader File stream reader
+         * @param recordVersion Version of the element records
+         * @return Operation
+         * @throws IOException Thrown when the operation can't be read or has an unknown type.
+         */
+        private static Operation read(FileStreamReader reader, byte recordVersion) throws IOException {
+
+            // read type
+            Operation operation = new Operation();
+            operation.type = reader.readByte();
+
+            // read values based on type
+            switch (operation.type) {
+                case OPERATION_PUT:
+                    operation.id = reader.readInt();
+                    operation.stageElement = FileHelper.readStageElement(reader, recordVersion, null);
+                    break;
+
+                case OPERATION_MOVE:
+                    operation.id = reader.readInt();
+                    operation.x = reader.readInt();
+                    operation.y = reader.readInt();
+                    break;
+
+                case OPERATION_REMOVE:
+                    operation.id = reader.readInt();
+                    break;
+
+                case OPERATION_CHECKPOINT:
+                    operation.planId = reader.readInt();
+                    break;
+
+                default:
+                    throw new IOException("Unknown edit journal operation: " + operation.type);
+            }
+
+            return operation;
+
+        }
+    }
+}
@@ -1,21 +1,28 @@
 package com.nicolasgnyra.stagelightplanner;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 
 /**
  * FileStreamReader Class:
- * Helper methods for the FileInputStream class.
+ * Buffered reader for the primitives & strings used in files, backed by a file channel or a byte buffer.
  *
  * Date: 2016-09-27
  *
  * @author Nicolas Gnyra
- * @version 5.0
+ * @version 9.0
  */
-public class FileStreamReader extends FileInputStream {
+public class FileStreamReader extends InputStream {
+
+    private static final int bufferSize = 64 * 1024;    // size of the read buffer, in bytes
+
+    private final FileChannel channel;      // channel from which the buffer is filled (null if reading from a buffer)
+    private final ByteBuffer buffer;        // buffered bytes that haven't been read yet
 
     /**
      * FileStreamReader(File) Constructor:
@@ -23,7 +30,7 @@ public class FileStreamReader extends FileInputStream {
      *
      * Input: File to be read.
      *
-     * Process: Calls the superclass' constructor.
+     * Process: Opens a channel to the file & creates an empty buffer.
      *
      * Output: New FileStreamReader class.
      *
@@ -34,8 +41,249 @@ public class FileStreamReader extends FileInputStream {
      */
     public FileStreamReader(File file) throws IOException {
 
-        // call superclass constructor
-        super(file);
+        // open channel
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+        // create empty buffer
+        buffer = ByteBuffer.allocate(bufferSize);
+        buffer.flip();
+
+    }
+
+    /**
+     * FileStreamReader(ByteBuffer) Constructor:
+     * Creates a new instance of the FileStreamReader class that reads the remaining bytes of a buffer.
+     *
+     * Input: Buffer to be read.
+     *
+     * Process: Slices the buffer so its position isn't changed.
+     *
+     * Output: New FileStreamReader class.
+     *
+     * @since 6.0
+     *
+     * @param source Input buffer (e.g. a mapped file).
+     */
+    public FileStreamReader(ByteBuffer source) {
+
+        // read directly from a slice of the buffer
+        channel = null;
+        buffer = source.slice();
+
+    }
+
+    /**
+     * fill(int) Method:
+     * Makes sure the specified amount of bytes is buffered.
+     *
+     * Input: Amount of bytes.
+     *
+     * Process: If there aren't enough bytes left in the buffer, moves the remaining bytes to the start of the buffer
+     * and reads from the channel until there are enough bytes or the end of the file is reached.
+     *
+     * Output: Whether the bytes are available.
+     *
+     * @param count Amount of bytes needed (at most the buffer size)
+     * @return Whether the bytes are available
+     * @throws IOException Thrown when a reading error occurs
+     */
+    private boolean fill(int count) throws IOException {
+
+        // nothing to do if there are enough bytes or nothing to read from
+        if (buffer.remaining() >= count || channel == null)
+            return buffer.remaining() >= count;
+
+        // move remaining bytes to the start & read until there are enough bytes
+        buffer.compact();
+
+        while (buffer.position() < count)
+            if (channel.read(buffer) < 0)
+                break;
+
+        // switch back to reading
+        buffer.flip();
+
+        return buffer.remaining() >= count;
+
+    }
+
+    /**
+     * read() Method:
+     * Reads a single byte from the file.
+     *
+     * Input: None.
+     *
+     * Process: Makes sure a byte is buffered & returns it.
+     *
+     * Output: Read byte, from 0 to 255, or -1 at the end of the file.
+     *
+     * @since 6.0
+     *
+     * @return The read byte or -1 at the end of the file
+     * @throws IOException Thrown when a reading error occurs
+     */
+    @Override
+    public int read() throws IOException {
+        return fill(1) ? buffer.get() & 0xFF : -1;
+    }
+
+    /**
+     * read(byte[], int, int) Method:
+     * Reads up to the specified amount of bytes into an array.
+     *
+     * Input: Array, offset, length.
+     *
+     * Process: Copies buffered bytes. If the buffer is empty, reads large requests directly from the channel and
+     * refills the buffer for small ones.
+     *
+     * Output: Amount of bytes read, or -1 at the end of the file.
+     *
+     * @since 6.0
+     *
+     * @param b Destination array
+     * @param off Offset in the array
+     * @param len Maximum amount of bytes to read
+     * @return Amount of bytes read, or -1 at the end of the file
+     * @throws IOException Thrown when a reading error occurs
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        // nothing to read
+        if (len == 0)
+            return 0;
+
+        // read large requests directly from the channel once the buffer is empty
+        if (!buffer.hasRemaining() && channel != null && len >= bufferSize)
+            return channel.read(ByteBuffer.wrap(b, off, len));
+
+        // make sure something is buffered
+        if (!fill(1))
+            return -1;
+
+        // copy buffered bytes
+        int count = Math.min(len, buffer.remaining());
+        buffer.get(b, off, count);
+
+        return count;
+
+    }
+
+    /**
+     * skip(long) Method:
+     * Skips the specified amount of bytes.
+     *
+     * Input: Amount of bytes.
+     *
+     * Process: Moves past buffered bytes, then moves the channel's position for the rest.
+     *
+     * Output: Amount of bytes skipped.
+     *
+     * @since 6.0
+     *
+     * @param n Amount of bytes to skip
+     * @return Amount of bytes skipped
+     * @throws IOException Thrown when a reading error occurs
+     */
+    @Override
+    public long skip(long n) throws IOException {
+
+        // nothing to skip
+        if (n <= 0)
+            return 0;
+
+        // skip buffered bytes
+        int buffered = (int) Math.min(n, buffer.remaining());
+        buffer.position(buffer.position() + buffered);
+
+        // skip the rest in the channel
+        if (buffered == n || channel == null)
+            return buffered;
+
+        long skipped = Math.min(n - buffered, channel.size() - channel.position());
+        channel.position(channel.position() + skipped);
+
+        return buffered + skipped;
+
+    }
+
+    /**
+     * getPosition() Method:
+     * Gets the position of the next byte that will be read.
+     *
+     * Input: None.
+     *
+     * Process: Gets the buffer's position, or the channel's position minus the bytes that are still buffered.
+     *
+     * Output: Position, from the start of the file or buffer.
+     *
+     * @since 6.0
+     *
+     * @return Position of the next byte
+     * @throws IOException Thrown when the channel's position can't be read
+     */
+    public long getPosition() throws IOException {
+        return channel == null ? buffer.position() : channel.position() - buffer.remaining();
+    }
+
+    /**
+     * seek(long) Method:
+     * Moves to the specified position.
+     *
+     * Input: Position.
+     *
+     * Process: Moves the buffer's position, or moves the channel's position & empties the buffer.
+     *
+     * Output: None.
+     *
+     * @since 7.0
+     *
+     * @param position Position of the next byte to read, from the start of the file or buffer
+     * @throws IOException Thrown when the channel's position can't be changed
+     */
+    public void seek(long position) throws IOException {
+
+        // move in the buffer if reading from a buffer
+        if (channel == null) {
+            buffer.position((int) position);
+            return;
+        }
+
+        // move the channel & discard buffered bytes
+        channel.position(position);
+        buffer.clear();
+        buffer.flip();
+
+    }
+
+    /**
+     * readFully(byte[]) Method:
+     * Reads exactly enough bytes to fill the specified array.
+     *
+     * Input: Array.
+     *
+     * Process: Reads until the array is full.
+     *
+     * Output: Filled array.
+     *
+     * @since 7.0
+     *
+     * @param b Destination array
+     * @throws IOException Thrown when a reading error occurs or the end of the file is reached
+     */
+    public void readFully(byte[] b) throws IOException {
+
+        // read until the array is full
+        int offset = 0;
+
+        while (offset < b.length) {
+            int read = read(b, offset, b.length - offset);
+
+            if (read < 0)
+                throw new IOException("Failed to read " + b.length + " bytes");
+
+            offset += read;
+        }
 
     }
 
@@ -45,7 +293,7 @@ public class FileStreamReader extends FileInputStream {
      *
      * Input: None.
      *
-     * Process: Creates a buffer byte array, reads a byte into the array, and returns the byte.
+     * Process: Makes sure a byte is buffered & returns it.
      *
      * Output: Read byte.
      *
@@ -56,17 +304,11 @@ public class FileStreamReader extends FileInputStream {
      */
     public byte readByte() throws IOException {
 
-        // create buffer
-        byte[] buffer = new byte[1];
-
-        // read byes from file
-        int read = read(buffer, 0, buffer.length);
-
-        // check if correct amount of bytes was read
-        if(read != buffer.length) throw new IOException("Failed to read 1 byte");
+        // check if a byte is available
+        if (!fill(1)) throw new IOException("Failed to read 1 byte");
 
         // return byte
-        return buffer[0];
+        return buffer.get();
 
     }
 
@@ -76,7 +318,7 @@ public class FileStreamReader extends FileInputStream {
      *
      * Input: None.
      *
-     * Process: Creates a buffer byte array, reads two bytes into the array, converts the bytes to a short, and returns it.
+     * Process: Makes sure two bytes are buffered & converts them to a short.
      *
      * Output: Read short.
      *
@@ -87,17 +329,11 @@ public class FileStreamReader extends FileInputStream {
      */
     public short readShort() throws IOException {
 
-        // create buffer
-        byte[] buffer = new byte[2];
-
-        // read byes from file
-        int read = read(buffer, 0, buffer.length);
-
-        // check if correct amount of bytes was read
-        if(read != buffer.length) throw new IOException("Failed to read 2 bytes");
+        // check if the bytes are available
+        if (!fill(2)) throw new IOException("Failed to read 2 bytes");
 
         // convert bytes to short & return
-        return ByteBuffer.wrap(buffer).getShort();
+        return buffer.getShort();
 
     }
 
@@ -107,7 +343,7 @@ public class FileStreamReader extends FileInputStream {
      *
      * Input: None.
      *
-     * Process: Creates a buffer byte array, reads four bytes into the array, converts the bytes to an integer, and returns it.
+     * Process: Makes sure four bytes are buffered & converts them to an integer.
      *
      * Output: Read integer.
      *
@@ -118,17 +354,36 @@ public class FileStreamReader extends FileInputStream {
      */
     public int readInt() throws IOException {
 
-        // create buffer
-        byte[] buffer = new byte[4];
+        // check if the bytes are available
+        if (!fill(4)) throw new IOException("Failed to read 4 bytes");
+
+        // convert bytes to integer & return
+        return buffer.getInt();
+
+    }
 
-        // read byes from file
-        int read = read(buffer, 0, buffer.length);
+    /**
+     * readLong Method:
+     * Reads a long (eight bytes) from a file and returns it.
+     *
+     * Input: None.
+     *
+     * Process: Makes sure eight bytes are buffered & converts them to a long.
+     *
+     * Output: Read long.
+     *
+     * @since 9.0
+     *
+     * @return The read long
+     * @throws IOException Thrown when a reading error occurs
+     */
+    public long readLong() throws IOException {
 
-        // check if correct amount of bytes was read
-        if(read != buffer.length) throw new IOException("Failed to read 4 bytes");
+        // check if the bytes are available
+        if (!fill(8)) throw new IOException("Failed to read 8 bytes");
 
-        // convert bytes to integer & return
-        return ByteBuffer.wrap(buffer).getInt();
+        // convert bytes to long & return
+        return buffer.getLong();
 
     }
 
@@ -138,7 +393,7 @@ public class FileStreamReader extends FileInputStream {
      *
      * Input: None.
      *
-     * Process: Creates a buffer byte array, reads four bytes into the array, converts the bytes to a float, and returns it.
+     * Process: Makes sure four bytes are buffered & converts them to a float.
      *
      * Output: Read float.
      *
@@ -149,17 +404,11 @@ public class FileStreamReader extends FileInputStream {
      */
     public float readFloat() throws IOException {
 
-        // create buffer
-        byte[] buffer = new byte[4];
-
-        // read byes from file
-        int read = read(buffer, 0, buffer.length);
-
-        // check if correct amount of bytes was read
-        if(read != buffer.length) throw new IOException("Failed to read 4 bytes");
+        // check if the bytes are available
+        if (!fill(4)) throw new IOException("Failed to read 4 bytes");
 
         // convert bytes to float & return
-        return ByteBuffer.wrap(buffer).getFloat();
+        return buffer.getFloat();
 
     }
 
@@ -169,7 +418,7 @@ public class FileStreamReader extends FileInputStream {
      *
      * Input: String length.
      *
-     * Process: Creates a buffer byte array, reads the specified amount of bytes into the array, converts the bytes to a string, and returns it.
+     * Process: Decodes the string directly from the buffer if it's buffered, otherwise reads it into an array first.
      *
      * Output: Read string.
      *
@@ -181,18 +430,172 @@ public class FileStreamReader extends FileInputStream {
      */
     public String readString(int length) throws IOException {
 
-        // create buffer
-        byte[] buffer = new byte[length];
+        // check length
+        if (length < 0) throw new IOException("Invalid string length: " + length);
+
+        // decode directly from the buffer if the whole string fits in it
+        if (length <= bufferSize && fill(length)) {
+            String str;
 
-        // read byes from file
-        int read = read(buffer, 0, buffer.length);
+            if (buffer.hasArray()) {
+                str = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            } else {
+                ByteBuffer slice = buffer.slice();
+                slice.limit(length);
+                str = StandardCharsets.UTF_8.decode(slice).toString();
+            }
 
-        // check if correct amount of bytes was read
-        if(read != buffer.length) throw new IOException("Failed to read " + length + " bytes");
+            buffer.position(buffer.position() + length);
+            return str;
+        }
+
+        // otherwise read bytes into an array
+        byte[] bytes = new byte[length];
+        readFully(bytes);
 
         // convert bytes to string using UTF-8 encoding & return
-        return new String(buffer, StandardCharsets.UTF_8);
+        return new String(bytes, StandardCharsets.UTF_8);
 
     }
 
+    /**
+     * readVarInt() Method:
+     * Reads an unsigned integer written by FileStreamWriter.writeVarInt.
+     *
+     * Input: None.
+     *
+     * Process: Reads 7 bits per byte, lowest bits first, until a byte without its highest bit set.
+     *
+     * Output: Read integer.
+     *
+     * @since 6.0
+     *
+     * @return The read integer
+     * @throws IOException Thrown when a reading error occurs or the integer is longer than 5 bytes
+     */
+    public int readVarInt() throws IOException {
+
+        // read 7 bits at a time
+        int value = 0;
+
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = readByte();
+            value |= (b & 0x7F) << shift;
+
+            if (b >= 0)
+                return value;
+        }
+
+        throw new IOException("Variable-length integer is too long");
+
+    }
+
+    /**
+     * readSignedVarInt() Method:
+     * Reads a signed integer written by FileStreamWriter.writeSignedVarInt.
+     *
+     * Input: None.
+     *
+     * Process: Reads a variable-length integer & reverses its zigzag encoding.
+     *
+     * Output: Read integer.
+     *
+     * @since 8.0
+     *
+     * @return The read integer
+     * @throws IOException Thrown when a reading error occurs or the integer is longer than 5 bytes
+     */
+    public int readSignedVarInt() throws IOException {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * readUTF8String() Method:
+     * Reads a string written by FileStreamWriter.writeUTF8String.
+     *
+     * Input: None.
+     *
+     * Process: Reads the length in bytes & decodes the string.
+     *
+     * Output: Read string.
+     *
+     * @since 6.0
+     *
+     * @return The read string
+     * @throws IOException Thrown when a reading error occurs
+     */
+    public String readUTF8String() throws IOException {
+        return readString(readVarInt());
+    }
+
+    /**
+     * readStringOfChars(int) Method:
+     * Reads a UTF-8 string whose length is a number of UTF-16 characters, like the strings of version 1 files.
+     *
+     * Input: Amount of characters.
+     *
+     * Process: Decodes UTF-8 sequences one at a time until the amount of characters is reached. Characters outside
+     * the basic multilingual plane count as two, like in String.length.
+     *
+     * Output: Read string.
+     *
+     * @since 6.0
+     *
+     * @param charCount Amount of UTF-16 characters
+     * @return The read string
+     * @throws IOException Thrown when a reading error occurs
+     */
+    public String readStringOfChars(int charCount) throws IOException {
+
+        // check length
+        if (charCount < 0) throw new IOException("Invalid string length: " + charCount);
+
+        // decode characters
+        StringBuilder builder = new StringBuilder(charCount);
+
+        while (builder.length() < charCount) {
+
+            // get first byte of the sequence
+            int b = readByte() & 0xFF;
+
+            // decode sequence based on its first byte
+            if (b < 0x80) {
+                builder.append((char) b);
+            } else if (b >> 5 == 0x6) {
+                builder.append((char) ((b & 0x1F) << 6 | readByte() & 0x3F));
+            } else if (b >> 4 == 0xE) {
+                builder.append((char) ((b & 0x0F) << 12 | (readByte() & 0x3F) << 6 | readByte() & 0x3F));
+            } else if (b >> 3 == 0x1E) {
+                builder.appendCodePoint((b & 0x07) << 18 | (readByte() & 0x3F) << 12 | (readByte() & 0x3F) << 6 | readByte() & 0x3F);
+            } else {
+                builder.append('\uFFFD');
+            }
+
+        }
+
+        return builder.toString();
+
+    }
+
+    /**
+     * close() Method:
+     * Closes the underlying channel.
+     *
+     * Input: None.
+     *
+     * Process: Closes the channel if there is one.
+     *
+     * Output: None.
+     *
+     * @since 6.0
+     *
+     * @throws IOException Thrown when an error occurs while closing
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null)
+            channel.close();
+    }
+
 }
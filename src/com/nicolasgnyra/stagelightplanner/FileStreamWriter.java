@@ -1,22 +1,30 @@
 package com.nicolasgnyra.stagelightplanner;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 
 /**
  * FileStreamWriter Class:
- * Helper methods for the FileOutputStream class.
+ * Buffered writer for the primitives & strings used in files, backed by a file channel or kept in memory.
  *
  * Date: 2016-09-27
  *
  * @author Nicolas Gnyra
- * @version 1.0
+ * @version 7.1
  */
-public class FileStreamWriter extends FileOutputStream {
+public class FileStreamWriter extends OutputStream {
+
+    private static final int bufferSize = 64 * 1024;    // size of the write buffer, in bytes
+
+    private final FileChannel channel;                                  // channel to which the buffer is written (null if kept in memory)
+    private ByteBuffer buffer = ByteBuffer.allocate(bufferSize);        // bytes that haven't been written yet
+    private int end = 0;                                                // end of the written bytes when kept in memory
 
     /**
      * FileStreamWriter(File) Constructor:
@@ -24,7 +32,7 @@ public class FileStreamWriter extends FileOutputStream {
      *
      * Input: File to be written.
      *
-     * Process: Calls the superclass' constructor.
+     * Process: Opens a channel to the file, replacing its contents.
      *
      * Output: New FileStreamWriter class.
      *
@@ -33,8 +41,154 @@ public class FileStreamWriter extends FileOutputStream {
      */
     public FileStreamWriter(File file) throws IOException {
 
-        // call superclass constructor
-        super(file);
+        // open channel
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+    }
+
+    /**
+     * FileStreamWriter(FileChannel) Constructor:
+     * Creates a new instance of the FileStreamWriter class that writes to an open channel.
+     *
+     * Input: Channel to be written.
+     *
+     * Process: Sets the channel.
+     *
+     * Output: New FileStreamWriter class.
+     *
+     * @param channel Output channel (closed by close).
+     */
+    public FileStreamWriter(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * FileStreamWriter() Constructor:
+     * Creates a new instance of the FileStreamWriter class that keeps everything in memory.
+     *
+     * Input: None.
+     *
+     * Process: Sets the channel to null so the buffer grows instead of being written.
+     *
+     * Output: New FileStreamWriter class.
+     */
+    public FileStreamWriter() {
+        channel = null;
+    }
+
+    /**
+     * ensureCapacity(int) Method:
+     * Makes sure the specified amount of bytes can be put in the buffer.
+     *
+     * Input: Amount of bytes.
+     *
+     * Process: Writes the buffer to the channel if there isn't enough room left, or grows it if it's kept in memory.
+     *
+     * Output: None.
+     *
+     * @param count Amount of bytes (at most the buffer size if writing to a file)
+     * @throws IOException Thrown when an error occurs while writing.
+     */
+    private void ensureCapacity(int count) throws IOException {
+
+        // nothing to do if there is enough room
+        if (buffer.remaining() >= count)
+            return;
+
+        // write buffer to the channel
+        if (channel != null) {
+            flush();
+            return;
+        }
+
+        // grow buffer, at least doubling its size
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + count));
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+
+    }
+
+    /**
+     * write(int) Method:
+     * Writes a single byte to the file.
+     *
+     * Input: Byte to write.
+     *
+     * Process: Puts the lowest 8 bits in the buffer.
+     *
+     * Output: Written byte.
+     *
+     * @param b Byte to write.
+     * @throws IOException Thrown when an error occurs while writing.
+     */
+    @Override
+    public void write(int b) throws IOException {
+        ensureCapacity(1);
+        buffer.put((byte) b);
+    }
+
+    /**
+     * write(byte[], int, int) Method:
+     * Writes bytes from an array to the file.
+     *
+     * Input: Array, offset, length.
+     *
+     * Process: Puts the bytes in the buffer, or writes them directly to the channel if they don't fit in it.
+     *
+     * Output: Written bytes.
+     *
+     * @param b Source array.
+     * @param off Offset in the array.
+     * @param len Amount of bytes to write.
+     * @throws IOException Thrown when an error occurs while writing.
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+
+        // make room in the buffer
+        ensureCapacity(len);
+
+        // write large arrays directly, buffer the others
+        if (len > buffer.remaining()) {
+            ByteBuffer source = ByteBuffer.wrap(b, off, len);
+
+            while (source.hasRemaining())
+                channel.write(source);
+        } else {
+            buffer.put(b, off, len);
+        }
+
+    }
+
+    /**
+     * write(ByteBuffer) Method:
+     * Writes the remaining bytes of a buffer to the file.
+     *
+     * Input: Source buffer.
+     *
+     * Process: Puts the bytes in the buffer, or writes them directly to the channel if they don't fit in it. The
+     * position of the source isn't changed.
+     *
+     * Output: Written bytes.
+     *
+     * @param source Source buffer.
+     * @throws IOException Thrown when an error occurs while writing.
+     */
+    public void write(ByteBuffer source) throws IOException {
+
+        // make room in the buffer
+        ensureCapacity(source.remaining());
+
+        // write large buffers directly, buffer the others
+        source = source.duplicate();
+
+        if (source.remaining() > buffer.remaining()) {
+            while (source.hasRemaining())
+                channel.write(source);
+        } else {
+            buffer.put(source);
+        }
 
     }
 
@@ -44,7 +198,7 @@ public class FileStreamWriter extends FileOutputStream {
      *
      * Input: Short to write.
      *
-     * Process: Creates a byte buffer, puts the short, converts it to a byte array, and writes it.
+     * Process: Puts the short in the buffer.
      *
      * Output: Written short.
      *
@@ -52,7 +206,8 @@ public class FileStreamWriter extends FileOutputStream {
      * @throws IOException Thrown when an error occurs while writing.
      */
     public void writeShort(short s) throws IOException {
-        write(ByteBuffer.allocate(2).putShort(s).array());
+        ensureCapacity(2);
+        buffer.putShort(s);
     }
 
     /**
@@ -61,7 +216,7 @@ public class FileStreamWriter extends FileOutputStream {
      *
      * Input: Integer to write.
      *
-     * Process: Creates a byte buffer, puts the integer, converts it to a byte array, and writes it.
+     * Process: Puts the integer in the buffer.
      *
      * Output: Written int.
      *
@@ -69,7 +224,26 @@ public class FileStreamWriter extends FileOutputStream {
      * @throws IOException Thrown when an error occurs while writing.
      */
     public void writeInt(int i) throws IOException {
-        write(ByteBuffer.allocate(4).putInt(i).array());
+        ensureCapacity(4);
+        buffer.putInt(i);
+    }
+
+    /**
+     * writeLong(long) Method:
+     * Writes a long (8 bytes) to the file.
+     *
+     * Input: Long to write.
+     *
+     * Process: Puts the long in the buffer.
+     *
+     * Output: Written long.
+     *
+     * @param l Long to write.
+     * @throws IOException Thrown when an error occurs while writing.
+     */
+    public void writeLong(long l) throws IOException {
+        ensureCapacity(8);
+        buffer.putLong(l);
     }
 
     /**
@@ -78,7 +252,7 @@ public class FileStreamWriter extends FileOutputStream {
      *
      * Input: Float to write.
      *
-     * Process: Creates a byte buffer, puts the float, converts it to a byte array, and writes it.
+     * Process: Puts the float in the buffer.
      *
      * Output: Written float.
      *
@@ -86,7 +260,8 @@ public class FileStreamWriter extends FileOutputStream {
      * @throws IOException Thrown when an error occurs while writing.
      */
     public void writeFloat(float f) throws IOException {
-        write(ByteBuffer.allocate(4).putFloat(f).array());
+        ensureCapacity(4);
+        buffer.putFloat(f);
     }
 
     /**
@@ -124,4 +299,266 @@ public class FileStreamWriter extends FileOutputStream {
         write(str.getBytes(charset));
     }
 
+    /**
+     * writeVarInt(int) Method:
+     * Writes an unsigned integer using 1 to 5 bytes.
+     *
+     * Input: Integer to write.
+     *
+     * Process: Writes 7 bits per byte, lowest bits first, with the highest bit set on every byte but the last.
+     *
+     * Output: Written integer.
+     *
+     * @param i Integer to write (treated as unsigned).
+     * @throws IOException Thrown when an error occurs while writing.
+     */
+    public void writeVarInt(int i) throws IOException {
+
+        // make sure the longest encoding fits
+        ensureCapacity(5);
+
+        // write 7 bits at a time
+        while ((i & ~0x7F) != 0) {
+            buffer.put((byte) ((i & 0x7F) | 0x80));
+            i >>>= 7;
+        }
+
+        buffer.put((byte) i);
+
+    }
+
+    /**
+     * writeSignedVarInt(int) Method:
+     * Writes a signed integer using 1 to 5 bytes, so values close to zero are short whatever their sign.
+     *
+     * Input: Integer to write.
+     *
+     * Process: Zigzag-encodes the integer (0, -1, 1, -2, ... become 0, 1, 2, 3, ...) & writes it with writeVarInt.
+     *
+     * Output: Written integer.
+     *
+     * @param i Integer to write.
+     * @throws IOException Thrown when an error occurs while writing.
+     */
+    public void writeSignedVarInt(int i) throws IOException {
+        writeVarInt((i << 1) ^ (i >> 31));
+    }
+
+    /**
+     * writeUTF8String(String) Method:
+     * Writes a string as UTF-8, prefixed with its length in bytes.
+     *
+     * Input: String to write.
+     *
+     * Process: Writes the encoded length as a variable-length integer, then encodes the characters directly into the
+     * buffer. Unpaired surrogates are written as '?', like String.getBytes does.
+     *
+     * Output: Written string.
+     *
+     * @param str String to write.
+     * @throws IOException Thrown when an error occurs while writing.
+     */
+    public void writeUTF8String(String str) throws IOException {
+
+        // write length in bytes
+        writeVarInt(getUTF8Length(str));
+
+        // encode characters
+        for (int i = 0; i < str.length(); i++) {
+
+            // make sure the longest sequence fits
+            ensureCapacity(4);
+
+            // get character
+            char c = str.charAt(i);
+
+            // write 1 to 4 bytes depending on the code point
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, str.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18));
+                buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12));
+                buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            }
+
+        }
+
+    }
+
+    /**
+     * getUTF8Length(String) Method:
+     * Gets the amount of bytes a string takes when encoded by writeUTF8String.
+     *
+     * Input: String.
+     *
+     * Process: Adds the length of the encoding of each character.
+     *
+     * Output: Length in bytes.
+     *
+     * @param str String.
+     * @return Length in bytes.
+     */
+    public static int getUTF8Length(String str) {
+
+        // add length of each character
+        int length = 0;
+
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+
+        return length;
+
+    }
+
+    /**
+     * getPosition() Method:
+     * Gets the position at which the next byte will be written.
+     *
+     * Input: None.
+     *
+     * Process: Adds the amount of buffered bytes to the channel's position.
+     *
+     * Output: Position, from the start of the file.
+     *
+     * @return Position of the next byte
+     * @throws IOException Thrown when the channel's position can't be read
+     */
+    public long getPosition() throws IOException {
+        return channel == null ? buffer.position() : channel.position() + buffer.position();
+    }
+
+    /**
+     * seek(long) Method:
+     * Moves to the specified position, e.g. to fill in a header once the rest of the file is written.
+     *
+     * Input: Position.
+     *
+     * Process: Writes the buffered bytes & moves the channel's position, or moves in the buffer if it's kept in
+     * memory.
+     *
+     * Output: None.
+     *
+     * @param position Position at which the next byte will be written
+     * @throws IOException Thrown when an error occurs while writing or moving
+     */
+    public void seek(long position) throws IOException {
+
+        // move in the buffer if kept in memory, remembering where the written bytes end
+        if (channel == null) {
+            end = Math.max(end, buffer.position());
+            buffer.position((int) position);
+            return;
+        }
+
+        // write buffer & move channel
+        flush();
+        channel.position(position);
+
+    }
+
+    /**
+     * getContents() Method:
+     * Gets the bytes written to a writer that is kept in memory.
+     *
+     * Input: None.
+     *
+     * Process: Creates a read-only view of the buffer from the start to the end of the written bytes.
+     *
+     * Output: Written bytes.
+     *
+     * @return Written bytes.
+     */
+    public ByteBuffer getContents() {
+
+        // create view of the written bytes
+        ByteBuffer contents = buffer.duplicate();
+        contents.limit(Math.max(end, buffer.position()));
+        contents.position(0);
+
+        return contents.asReadOnlyBuffer();
+
+    }
+
+    /**
+     * flush() Method:
+     * Writes the buffered bytes to the channel.
+     *
+     * Input: None.
+     *
+     * Process: Writes until the buffer is empty & clears it.
+     *
+     * Output: Written bytes.
+     *
+     * @throws IOException Thrown when an error occurs while writing.
+     */
+    @Override
+    public void flush() throws IOException {
+
+        // nothing to write if kept in memory
+        if (channel == null)
+            return;
+
+        // switch to reading & write everything
+        buffer.flip();
+
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+
+        // switch back to writing
+        buffer.clear();
+
+    }
+
+    /**
+     * close() Method:
+     * Writes the buffered bytes & closes the channel.
+     *
+     * Input: None.
+     *
+     * Process: Flushes the buffer & closes the channel, if there is one.
+     *
+     * Output: None.
+     *
+     * @throws IOException Thrown when an error occurs while writing or closing.
+     */
+    @Override
+    public void close() throws IOException {
+
+        // nothing to close if kept in memory
+        if (channel == null)
+            return;
+
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+
+    }
+
 }
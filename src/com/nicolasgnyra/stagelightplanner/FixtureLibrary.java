@@ -0,0 +1,245 @@
+package com.nicolasgnyra.stagelightplanner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+
+/**
+ * FixtureLibrary Class:
+ * The light definitions known on this computer, by content hash. The element sections of stage plans only store the
+ * content hash of the definitions that are in the library, and the plan keeps a single copy of each of them, so plans
+ * still load on computers that don't have them. The local library only has the listed fixtures, so definitions that
+ * are removed or changed in the fixture editor are dropped from it. Its definitions can come from the indexed
+ * fixtures file, in which case they are found by name & only decoded when looked up. A library can also be made of
+ * the copies of one plan, falling back on another library for plans saved without copies.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.2
+ */
+public class FixtureLibrary {
+    private static final FixtureLibrary local = new FixtureLibrary();                               // library of fixtures.slpfd
+
+    private final LinkedHashMap<Long, LightDefinition> lightDefinitions = new LinkedHashMap<>();    // definitions, by content hash
+    private final FixtureLibrary fallback;                                                          // library searched for missing definitions (null if none)
+    private MappedLightDefinitions indexed = null;                                                  // fixtures file decoded as definitions are looked up (null if none)
+
+    /**
+     * FixtureLibrary() Constructor:
+     * Creates a new, empty instance of the FixtureLibrary class.
+     *
+     * Input: None.
+     *
+     * Process: Creates a library without a fallback.
+     *
+     * Output: A new instance of the FixtureLibrary class.
+     */
+    public FixtureLibrary() {
+        this(null);
+    }
+
+    /**
+     * FixtureLibrary(FixtureLibrary) Constructor:
+     * Creates a new, empty instance of the FixtureLibrary class that falls back on another library.
+     *
+     * Input: Fallback library.
+     *
+     * Process: Sets values.
+     *
+     * Output: A new instance of the FixtureLibrary class.
+     *
+     * @param fallback Library searched for the definitions that aren't in this one (null for none)
+     */
+    public FixtureLibrary(FixtureLibrary fallback) {
+        this.fallback = fallback;
+    }
+
+    /**
+     * add(LightDefinition) Method:
+     * Adds a light definition to the library.
+     *
+     * Input: Light definition.
+     *
+     * Process: Adds the shared instance of the definition under its content hash, unless a definition already has
+     * that hash.
+     *
+     * Output: None.
+     *
+     * @param lightDefinition Light definition
+     */
+    public synchronized void add(LightDefinition lightDefinition) {
+        lightDefinitions.putIfAbsent(lightDefinition.getContentHash(), lightDefinition.intern());
+    }
+
+    /**
+     * addAll(Collection<LightDefinition>) Method:
+     * Adds light definitions to the library.
+     *
+     * Input: Light definitions.
+     *
+     * Process: Adds each definition.
+     *
+     * Output: None.
+     *
+     * @param lightDefinitions Light definitions
+     */
+    public synchronized void addAll(Collection<LightDefinition> lightDefinitions) {
+        for (LightDefinition lightDefinition : lightDefinitions)
+            add(lightDefinition);
+    }
+
+    /**
+     * setLightDefinitions(Collection<LightDefinition>) Method:
+     * Replaces the definitions of the library.
+     *
+     * Input: Light definitions.
+     *
+     * Process: Removes every definition, then adds the specified ones. Plans keep copies of the definitions they refer
+     * to, so the removed ones aren't needed to load them.
+     *
+     * Output: None.
+     *
+     * @param lightDefinitions Light definitions
+     */
+    public synchronized void setLightDefinitions(Collection<LightDefinition> lightDefinitions) {
+        this.lightDefinitions.clear();
+        indexed = null;
+        addAll(lightDefinitions);
+    }
+
+    /**
+     * setLightDefinitions(MappedLightDefinitions) Method:
+     * Replaces the definitions of the library with the ones of an indexed fixtures file.
+     *
+     * Input: Indexed light definitions.
+     *
+     * Process: Removes every definition & keeps the file, whose definitions are added as they are looked up.
+     *
+     * Output: None.
+     *
+     * @param indexed Indexed light definitions
+     */
+    public synchronized void setLightDefinitions(MappedLightDefinitions indexed) {
+        this.lightDefinitions.clear();
+        this.indexed = indexed;
+    }
+
+    /**
+     * get(long) Method:
+     * Gets the light definition with the specified content hash.
+     *
+     * Input: Content hash.
+     *
+     * Process: Looks the hash up, then in the fallback library if it isn't found. Content hashes aren't in the name
+     * index, so the definitions of the fixtures file are all decoded the first time a hash isn't found (only plans
+     * saved without copies of their definitions get there).
+     *
+     * Output: Light definition (null if it isn't in the library).
+     *
+     * @param contentHash Content hash
+     * @return Light definition (null if it isn't in the library)
+     */
+    public LightDefinition get(long contentHash) {
+        LightDefinition lightDefinition;
+
+        synchronized (this) {
+            lightDefinition = lightDefinitions.get(contentHash);
+
+            if (lightDefinition == null && indexed != null) {
+                decodeIndexed();
+                lightDefinition = lightDefinitions.get(contentHash);
+            }
+        }
+
+        return lightDefinition == null && fallback != null ? fallback.get(contentHash) : lightDefinition;
+    }
+
+    /**
+     * contains(LightDefinition) Method:
+     * Checks if the library can give back the specified light definition from its content hash.
+     *
+     * Input: Light definition.
+     *
+     * Process: Looks the content hash up & compares the definition found with the specified one, in case two
+     * definitions have the same hash. If it isn't found, looks its name up in the name index of the fixtures file &
+     * decodes the definitions with that name, adding the one that is equal.
+     *
+     * Output: Whether the definition is in the library.
+     *
+     * @param lightDefinition Light definition
+     * @return Whether the definition is in the library
+     */
+    public synchronized boolean contains(LightDefinition lightDefinition) {
+        LightDefinition found = lightDefinitions.get(lightDefinition.getContentHash());
+
+        if (found == null && indexed != null) {
+            try {
+                for (int index : indexed.findAll(lightDefinition.getDisplayName())) {
+                    LightDefinition named = indexed.get(index);
+
+                    if (named.equals(lightDefinition)) {
+                        add(named);
+                        return true;
+                    }
+                }
+            } catch (IOException ex) {
+                // the plan then keeps the whole definition
+                ex.printStackTrace();
+            }
+        }
+
+        return found != null && found.equals(lightDefinition);
+    }
+
+    /**
+     * getLightDefinitions() Method:
+     * Gets every light definition of the library.
+     *
+     * Input: None.
+     *
+     * Process: Decodes the fixtures file if there is one, then copies the definitions.
+     *
+     * Output: Light definitions, in the order in which they were added.
+     *
+     * @return Light definitions
+     */
+    public synchronized ArrayList<LightDefinition> getLightDefinitions() {
+        decodeIndexed();
+        return new ArrayList<>(lightDefinitions.values());
+    }
+
+    /**
+     * decodeIndexed() Method:
+     * Adds every definition of the fixtures file to the library.
+     *
+     * Input: None.
+     *
+     * Process: Decodes & adds the definitions, then drops the file since they are all in the library. A file that
+     * can't be decoded is dropped too, so it isn't decoded again on every lookup.
+     *
+     * Output: None.
+     */
+    private void decodeIndexed() {
+        if (indexed == null)
+            return;
+
+        try {
+            addAll(indexed.getLightDefinitions());
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+
+        indexed = null;
+    }
+
+    public synchronized int size() {
+        decodeIndexed();
+        return lightDefinitions.size();
+    }
+
+    public static FixtureLibrary getLocal() {
+        return local;
+    }
+}
@@ -0,0 +1,198 @@
+package com.nicolasgnyra.stagelightplanner;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * FixtureSearchIndex Class:
+ * Prefix index over the words of the display names & labels of light definitions. A query matches the definitions
+ * that have, for each word of the query, a word that starts with it, without regard to case. Definitions can be added
+ * & removed one at a time as they change.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.0
+ */
+public class FixtureSearchIndex {
+    private final TreeMap<String, Set<LightDefinition>> definitionsByWord = new TreeMap<>();   // definitions that contain each word
+    private final HashMap<LightDefinition, Integer> counts = new HashMap<>();                  // amount of times each definition was added
+
+    /**
+     * add(LightDefinition) Method:
+     * Adds a light definition to the index.
+     *
+     * Input: Light definition.
+     *
+     * Process: Counts the definition & indexes its words the first time it's added.
+     *
+     * Output: None.
+     *
+     * @param lightDefinition Light definition
+     */
+    public void add(LightDefinition lightDefinition) {
+        if (counts.merge(lightDefinition, 1, Integer::sum) > 1)
+            return;
+
+        for (String word : getWords(lightDefinition))
+            definitionsByWord.computeIfAbsent(word, w -> new HashSet<>()).add(lightDefinition);
+    }
+
+    /**
+     * addAll(Collection<LightDefinition>) Method:
+     * Adds light definitions to the index.
+     *
+     * Input: Light definitions.
+     *
+     * Process: Adds each definition.
+     *
+     * Output: None.
+     *
+     * @param lightDefinitions Light definitions
+     */
+    public void addAll(Collection<LightDefinition> lightDefinitions) {
+        for (LightDefinition lightDefinition : lightDefinitions)
+            add(lightDefinition);
+    }
+
+    /**
+     * remove(LightDefinition) Method:
+     * Removes a light definition from the index.
+     *
+     * Input: Light definition.
+     *
+     * Process: Uncounts the definition & removes its words once it was removed as many times as it was added.
+     *
+     * Output: None.
+     *
+     * @param lightDefinition Light definition
+     */
+    public void remove(LightDefinition lightDefinition) {
+
+        // check the definition was added & is no longer needed
+        Integer count = counts.get(lightDefinition);
+
+        if (count == null)
+            return;
+
+        if (count > 1) {
+            counts.put(lightDefinition, count - 1);
+            return;
+        }
+
+        counts.remove(lightDefinition);
+
+        // remove its words
+        for (String word : getWords(lightDefinition)) {
+            Set<LightDefinition> definitions = definitionsByWord.get(word);
+            definitions.remove(lightDefinition);
+
+            if (definitions.isEmpty())
+                definitionsByWord.remove(word);
+        }
+
+    }
+
+    /**
+     * clear() Method:
+     * Removes every light definition from the index.
+     *
+     * Input: None.
+     *
+     * Process: Clears the words & counts.
+     *
+     * Output: Empty index.
+     */
+    public void clear() {
+        definitionsByWord.clear();
+        counts.clear();
+    }
+
+    /**
+     * search(String) Method:
+     * Finds the light definitions that match a query.
+     *
+     * Input: Query.
+     *
+     * Process: For each word of the query, gets the definitions of the indexed words that start with it (a range of
+     * the sorted words), & keeps the definitions found for every word of the query.
+     *
+     * Output: Matching definitions (null if the query has no words, meaning every definition matches).
+     *
+     * @param query Query
+     * @return Matching definitions (null if the query has no words)
+     */
+    public Set<LightDefinition> search(String query) {
+        Set<LightDefinition> matches = null;
+
+        for (String term : splitWords(query)) {
+
+            // get definitions with a word that starts with the term
+            Set<LightDefinition> termMatches = new HashSet<>();
+
+            for (Set<LightDefinition> definitions : definitionsByWord.subMap(term, term + Character.MAX_VALUE).values())
+                termMatches.addAll(definitions);
+
+            // keep the ones that matched every other term
+            if (matches == null)
+                matches = termMatches;
+            else
+                matches.retainAll(termMatches);
+
+            if (matches.isEmpty())
+                break;
+
+        }
+
+        return matches;
+    }
+
+    /**
+     * getWords(LightDefinition) Method:
+     * Gets the words of a light definition.
+     *
+     * Input: Light definition.
+     *
+     * Process: Splits the display name & label into words.
+     *
+     * Output: Words of the definition.
+     *
+     * @param lightDefinition Light definition
+     * @return Words of the definition
+     */
+    private static Set<String> getWords(LightDefinition lightDefinition) {
+        Set<String> words = splitWords(lightDefinition.getDisplayName());
+        words.addAll(splitWords(lightDefinition.getLabel()));
+        return words;
+    }
+
+    /**
+     * splitWords(String) Method:
+     * Splits a string into lowercase words.
+     *
+     * Input: String.
+     *
+     * Process: Splits the string on every character that isn't a letter or a digit.
+     *
+     * Output: Words.
+     *
+     * @param str String
+     * @return Words
+     */
+    private static Set<String> splitWords(String str) {
+        Set<String> words = new HashSet<>();
+
+        for (String word : str.toLowerCase().split("[^\\p{L}\\p{N}]+"))
+            if (!word.isEmpty())
+                words.add(word);
+
+        return words;
+    }
+
+    public int size() {
+        return counts.size();
+    }
+}
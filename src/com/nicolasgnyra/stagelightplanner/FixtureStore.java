@@ -0,0 +1,235 @@
+package com.nicolasgnyra.stagelightplanner;
+
+import com.nicolasgnyra.stagelightplanner.helpers.FileHelper;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FixtureStore Class:
+ * Saves the fixtures file in the background shortly after the fixtures change, so edits aren't lost if the program
+ * doesn't exit normally. Changes made while a write is waiting are merged into it: only the latest version of the
+ * list is written, once, and the file is replaced atomically so it's never left partially written.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.1
+ */
+public class FixtureStore implements Closeable {
+
+    private static final int defaultWriteDelay = 1000;      // time between a change & the write that saves it, in ms
+
+    private final File file;                                    // fixtures file
+    private final int writeDelay;                               // time between a change & the write that saves it, in ms
+    private ArrayList<LightDefinition> pending = null;          // latest version of the list that hasn't been written yet
+    private boolean scheduled = false;                          // whether a write is waiting
+    private boolean closed = false;                             // whether the store was closed
+    private IOException failure = null;                         // error that happened on the background thread
+    private final Object writeLock = new Object();              // held while the file is being written
+    private final ScheduledExecutorService writer;              // writes changes after a delay
+
+    /**
+     * FixtureStore(File) Constructor:
+     * Creates a new instance of the FixtureStore class that saves to the specified file.
+     *
+     * Input: Fixtures file.
+     *
+     * Process: Sets values & creates the background thread.
+     *
+     * Output: A new instance of the FixtureStore class.
+     *
+     * @param file Fixtures file
+     */
+    public FixtureStore(File file) {
+        this(file, defaultWriteDelay);
+    }
+
+    /**
+     * FixtureStore(File, int) Constructor:
+     * Creates a new instance of the FixtureStore class that saves to the specified file after the specified delay.
+     *
+     * Input: Fixtures file, delay.
+     *
+     * Process: Sets values & creates the background thread.
+     *
+     * Output: A new instance of the FixtureStore class.
+     *
+     * @param file Fixtures file
+     * @param writeDelay Time between a change & the write that saves it, in ms
+     */
+    public FixtureStore(File file, int writeDelay) {
+
+        // set values
+        this.file = file;
+        this.writeDelay = writeDelay;
+
+        // write changes on a thread that doesn't keep the program running
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Fixture store");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    }
+
+    /**
+     * markChanged(List<LightDefinition>) Method:
+     * Records that the fixtures changed.
+     *
+     * Input: Light definitions.
+     *
+     * Process: Copies the list as the version to write, replacing any version that hasn't been written yet, & schedules
+     * a write if none is waiting. Reports an error that happened during a previous write.
+     *
+     * Output: None.
+     *
+     * @param lightDefinitions Light definitions, as they are now
+     * @throws IOException Error that happened during a previous write.
+     */
+    public synchronized void markChanged(List<LightDefinition> lightDefinitions) throws IOException {
+
+        if (closed)
+            return;
+
+        // schedule a write unless one is waiting, which will write this version instead
+        pending = new ArrayList<>(lightDefinitions);
+
+        if (!scheduled) {
+            writer.schedule(this::writeInBackground, writeDelay, TimeUnit.MILLISECONDS);
+            scheduled = true;
+        }
+
+        // report previous error
+        checkFailure();
+
+    }
+
+    /**
+     * flush() Method:
+     * Writes the changes that haven't been written yet.
+     *
+     * Input: None.
+     *
+     * Process: Takes the latest version of the list & saves it, replacing the file atomically. If it fails, the version
+     * is kept to be written with the next change, unless there already is a newer one.
+     *
+     * Output: None.
+     *
+     * @throws IOException Thrown when the file can't be written.
+     */
+    public void flush() throws IOException {
+        synchronized (writeLock) {
+
+            // take the latest version
+            ArrayList<LightDefinition> lightDefinitions;
+
+            synchronized (this) {
+                lightDefinitions = pending;
+                pending = null;
+            }
+
+            // write it
+            if (lightDefinitions == null)
+                return;
+
+            try {
+                FileHelper.saveLightDefinitions(lightDefinitions, file);
+            } catch (IOException ex) {
+                synchronized (this) {
+                    if (pending == null)
+                        pending = lightDefinitions;
+                }
+
+                throw ex;
+            }
+
+        }
+    }
+
+    /**
+     * writeInBackground() Method:
+     * Writes the changes on the background thread.
+     *
+     * Input: None.
+     *
+     * Process: Flushes the changes & keeps the error if it fails, to report it on the next change.
+     *
+     * Output: None.
+     */
+    private void writeInBackground() {
+        synchronized (this) {
+            scheduled = false;
+        }
+
+        try {
+            flush();
+        } catch (IOException ex) {
+            synchronized (this) {
+                failure = ex;
+            }
+        }
+    }
+
+    /**
+     * close() Method:
+     * Writes the changes that haven't been written yet & stops the background thread.
+     *
+     * Input: None.
+     *
+     * Process: Stops accepting changes & the background thread, then flushes. An error from a previous write no longer
+     * matters once the last changes are written.
+     *
+     * Output: None.
+     *
+     * @throws IOException Thrown when the file can't be written.
+     */
+    @Override
+    public void close() throws IOException {
+
+        // stop
+        synchronized (this) {
+            closed = true;
+        }
+
+        writer.shutdown();
+
+        // write the last changes
+        flush();
+
+        synchronized (this) {
+            failure = null;
+        }
+
+    }
+
+    /**
+     * checkFailure() Method:
+     * Reports an error that happened while writing in the background.
+     *
+     * Input: None.
+     *
+     * Process: Throws the error if there is one & clears it, so it's only reported once.
+     *
+     * Output: None.
+     *
+     * @throws IOException Error that happened while writing in the background.
+     */
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            IOException ex = failure;
+            failure = null;
+            throw ex;
+        }
+    }
+
+    public synchronized boolean hasPendingChanges() {
+        return pending != null;
+    }
+}
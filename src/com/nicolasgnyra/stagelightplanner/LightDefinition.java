@@ -1,24 +1,33 @@
 package com.nicolasgnyra.stagelightplanner;
 
 import java.awt.*;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.WeakHashMap;
 
 /**
  * LightDefinition Class:
- * Contains information on a stage light.
+ * Contains information on a stage light. Definitions are immutable, so lights using the same fixture can share a
+ * single instance obtained through intern().
  *
  * Date: 2016-09-27
  *
  * @author Nicolas Gnyra
- * @version 1.0
+ * @version 1.3
  */
-public class LightDefinition implements Cloneable {
-    private String displayName  = "";                   // display name
-    private String label        = "";                   // label (short name)
-    private LightShape shape    = LightShape.SQUARE;    // display shape
-    private Color displayColor  = Color.black;          // display color
-    private float fieldAngle    = 0.0f;                 // field angle (if fixed)
-    private float fieldAngleMin = 0.0f;                 // minimum field angle (if dynamic)
-    private float fieldAngleMax = 0.0f;                 // maximum field angle (if dynamic)
+public class LightDefinition {
+    private static final WeakHashMap<LightDefinition, WeakReference<LightDefinition>> interned = new WeakHashMap<>();   // shared instance of each distinct definition
+
+    private final String displayName;       // display name
+    private final String label;             // label (short name)
+    private final LightShape shape;         // display shape
+    private final Color displayColor;       // display color
+    private final float fieldAngle;         // field angle (if fixed)
+    private final float fieldAngleMin;      // minimum field angle (if dynamic)
+    private final float fieldAngleMax;      // maximum field angle (if dynamic)
+    private final int hash;                 // hash code, computed once since nothing can change
+    private final long contentHash;         // hash of the saved values, the same in every session
 
     /**
      * LightDefinition(String, String, LightShape, Color, float) Method:
@@ -37,11 +46,7 @@ public class LightDefinition implements Cloneable {
      * @param fieldAngle Field angle
      */
     public LightDefinition(String displayName, String label, LightShape shape, Color displayColor, float fieldAngle) {
-        this.displayName = displayName;
-        this.label = label;
-        this.shape = shape;
-        this.displayColor = displayColor;
-        this.fieldAngle = fieldAngle;
+        this(displayName, label, shape, displayColor, fieldAngle, 0.0f, 0.0f);
     }
 
     /**
@@ -62,44 +67,109 @@ public class LightDefinition implements Cloneable {
      * @param fieldAngleMax Maximum field angle
      */
     public LightDefinition(String displayName, String label, LightShape shape, Color displayColor, float fieldAngleMin, float fieldAngleMax) {
+        this(displayName, label, shape, displayColor, 0.0f, fieldAngleMin, fieldAngleMax);
+    }
+
+    /**
+     * LightDefinition(String, String, LightShape, Color, float, float, float) Method:
+     * Creates a new light definition with all values.
+     *
+     * Input: Display name, short name, shape, color, field angle & field angle range.
+     *
+     * Process: Sets values & computes the hash code.
+     *
+     * Output: A new instance of the LightDefinition class.
+     *
+     * @param displayName Display name
+     * @param label Short name
+     * @param shape Display shape
+     * @param displayColor Display color
+     * @param fieldAngle Field angle (0 if dynamic)
+     * @param fieldAngleMin Minimum field angle (0 if fixed)
+     * @param fieldAngleMax Maximum field angle (0 if fixed)
+     */
+    private LightDefinition(String displayName, String label, LightShape shape, Color displayColor, float fieldAngle, float fieldAngleMin, float fieldAngleMax) {
         this.displayName = displayName;
         this.label = label;
         this.shape = shape;
         this.displayColor = displayColor;
+        this.fieldAngle = fieldAngle;
         this.fieldAngleMin = fieldAngleMin;
         this.fieldAngleMax = fieldAngleMax;
+        this.hash = Objects.hash(displayName, label, shape, displayColor, fieldAngle + 0.0f, fieldAngleMin + 0.0f, fieldAngleMax + 0.0f);
+        this.contentHash = getContentHash(displayName, label, shape, displayColor, fieldAngle, fieldAngleMin, fieldAngleMax);
     }
 
     /**
-     * clone() Method:
-     * Creates a clone/copy of this class.
+     * getContentHash(String, String, LightShape, Color, float, float, float) Method:
+     * Computes the content hash of a light definition, which identifies it in the fixture library.
+     *
+     * Input: Display name, short name, shape, color, field angle & field angle range.
+     *
+     * Process: Runs the 64-bit FNV-1a hash over the UTF-8 name & label and the bytes of the shape, RGB color and field
+     * angles, which are the values saved in files. Unlike hashCode, it doesn't depend on the session, so it can be
+     * written to files.
+     *
+     * Output: Content hash.
+     *
+     * @param displayName Display name
+     * @param label Short name
+     * @param shape Display shape
+     * @param displayColor Display color
+     * @param fieldAngle Field angle (0 if dynamic)
+     * @param fieldAngleMin Minimum field angle (0 if fixed)
+     * @param fieldAngleMax Maximum field angle (0 if fixed)
+     * @return Content hash
+     */
+    private static long getContentHash(String displayName, String label, LightShape shape, Color displayColor, float fieldAngle, float fieldAngleMin, float fieldAngleMax) {
+
+        // hash name & label, separated by a null character
+        long hash = 0xcbf29ce484222325L;
+
+        for (byte b : (displayName + '\0' + label).getBytes(StandardCharsets.UTF_8))
+            hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+
+        // hash the other values one byte at a time (adding 0 turns -0 into 0, like in hashCode)
+        int[] values = { shape.ordinal(), displayColor.getRGB() & 0xFFFFFF, Float.floatToIntBits(fieldAngle + 0.0f), Float.floatToIntBits(fieldAngleMin + 0.0f), Float.floatToIntBits(fieldAngleMax + 0.0f) };
+
+        for (int value : values)
+            for (int shift = 0; shift < 32; shift += 8)
+                hash = (hash ^ ((value >>> shift) & 0xFF)) * 0x100000001b3L;
+
+        return hash;
+
+    }
+
+    /**
+     * intern() Method:
+     * Gets the shared instance of this light definition.
      *
      * Input: None.
      *
-     * Process: Calls the clone() method of the Cloneable interface in a try/catch statement.
+     * Process: Looks for an equal definition that was already interned, and registers this one if there is none. The
+     * registry only keeps definitions that are still used somewhere.
      *
-     * Output: A clone of this class.
+     * Output: Shared instance equal to this definition.
      *
-     * @return A clone of this class.
+     * @return Shared instance equal to this definition.
      */
-    @Override
-    public LightDefinition clone() {
+    public LightDefinition intern() {
 
-        try {
+        synchronized (interned) {
 
-            // return casted clone
-            return (LightDefinition) super.clone();
+            // return the registered instance if it's still in use
+            WeakReference<LightDefinition> reference = interned.get(this);
+            LightDefinition existing = reference != null ? reference.get() : null;
 
-        } catch (CloneNotSupportedException ex) {
+            if (existing != null)
+                return existing;
 
-            // this should never happen since we implemented the Cloneable interface
-            ex.printStackTrace();
+            // register this instance
+            interned.put(this, new WeakReference<>(this));
+            return this;
 
         }
 
-        // return this if it doesn't work for some reason
-        return this;
-
     }
 
     /**
@@ -134,6 +204,10 @@ public class LightDefinition implements Cloneable {
     @Override
     public boolean equals(Object obj) {
 
+        // shared instances are only equal to themselves
+        if (obj == this)
+            return true;
+
         // check type
         if (!(obj instanceof LightDefinition))
             return false;
@@ -151,60 +225,83 @@ public class LightDefinition implements Cloneable {
                 getFieldAngleMax() == otherLightDefinition.getFieldAngleMax();
     }
 
+    /**
+     * hashCode() Method:
+     * Gets a hash code that is the same for equal light definitions.
+     *
+     * Input: None.
+     *
+     * Process: Returns the hash code computed by the constructor, which combines the hash codes of all properties
+     * compared by equals. Field angles are compared with ==, which treats 0 & -0 as equal, so 0 is added to them to
+     * turn -0 into 0 before hashing.
+     *
+     * Output: Hash code.
+     *
+     * @return Hash code.
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
     public String getDisplayName() {
         return displayName;
     }
 
-    public void setDisplayName(String displayName) {
-        this.displayName = displayName;
+    public LightDefinition withDisplayName(String displayName) {
+        return new LightDefinition(displayName, label, shape, displayColor, fieldAngle, fieldAngleMin, fieldAngleMax);
     }
 
     public String getLabel() {
         return label;
     }
 
-    public void setLabel(String label) {
-        this.label = label;
+    public LightDefinition withLabel(String label) {
+        return new LightDefinition(displayName, label, shape, displayColor, fieldAngle, fieldAngleMin, fieldAngleMax);
     }
 
     public LightShape getShape() {
         return shape;
     }
 
-    public void setShape(LightShape shape) {
-        this.shape = shape;
+    public LightDefinition withShape(LightShape shape) {
+        return new LightDefinition(displayName, label, shape, displayColor, fieldAngle, fieldAngleMin, fieldAngleMax);
     }
 
     public Color getDisplayColor() {
         return displayColor;
     }
 
-    public void setDisplayColor(Color displayColor) {
-        this.displayColor = displayColor;
+    public LightDefinition withDisplayColor(Color displayColor) {
+        return new LightDefinition(displayName, label, shape, displayColor, fieldAngle, fieldAngleMin, fieldAngleMax);
     }
 
     public float getFieldAngle() {
         return fieldAngle;
     }
 
-    public void setFieldAngle(float fieldAngle) {
-        this.fieldAngle = fieldAngle;
+    public LightDefinition withFieldAngle(float fieldAngle) {
+        return new LightDefinition(displayName, label, shape, displayColor, fieldAngle, fieldAngleMin, fieldAngleMax);
     }
 
     public float getFieldAngleMin() {
         return fieldAngleMin;
     }
 
-    public void setFieldAngleMin(float fieldAngleMin) {
-        this.fieldAngleMin = fieldAngleMin;
+    public LightDefinition withFieldAngleMin(float fieldAngleMin) {
+        return new LightDefinition(displayName, label, shape, displayColor, fieldAngle, fieldAngleMin, fieldAngleMax);
     }
 
     public float getFieldAngleMax() {
         return fieldAngleMax;
     }
 
-    public void setFieldAngleMax(float fieldAngleMax) {
-        this.fieldAngleMax = fieldAngleMax;
+    public LightDefinition withFieldAngleMax(float fieldAngleMax) {
+        return new LightDefinition(displayName, label, shape, displayColor, fieldAngle, fieldAngleMin, fieldAngleMax);
+    }
+
+    public long getContentHash() {
+        return contentHash;
     }
 
     @Override
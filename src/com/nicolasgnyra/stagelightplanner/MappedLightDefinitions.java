@@ -0,0 +1,389 @@
+package com.nicolasgnyra.stagelightplanner;
+
+import com.nicolasgnyra.stagelightplanner.helpers.FileHelper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MappedLightDefinitions Class:
+ * An indexed fixtures file held in memory. Light definitions are stored in small blocks that are only decoded when
+ * one of their definitions is needed, and a name index sorted without regard to case allows searching by name or
+ * prefix without decoding any definition. The file is read rather than mapped, so it can be replaced while its
+ * definitions are in use.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.4
+ */
+public class MappedLightDefinitions {
+    private final ByteBuffer buffer;                    // contents of the file
+    private final int count;                            // amount of listed definitions
+    private final int archivedCount;                    // amount of definitions archived after the listed ones by older versions
+    private final int blockSize;                        // amount of definitions per block
+    private final int[] blockOffsets;                   // offset of each block of definitions
+    private final int nameTable;                        // offset of the name index (offsets of the entries, by name)
+    private final LightDefinition[][] blocks;           // decoded blocks (null until needed)
+
+    /**
+     * MappedLightDefinitions(ByteBuffer, int, int, int, int[], int) Constructor:
+     * Creates a new instance of the MappedLightDefinitions class with the specified index.
+     *
+     * Input: Contents of the file, amount of listed & archived definitions, block size, block offsets, name index
+     * offset.
+     *
+     * Process: Sets values & creates the array of decoded blocks.
+     *
+     * Output: A new instance of the MappedLightDefinitions class.
+     *
+     * @param buffer Contents of the file, read or encoded in memory
+     * @param count Amount of listed definitions
+     * @param archivedCount Amount of definitions archived after the listed ones by older versions (skipped)
+     * @param blockSize Amount of definitions per block
+     * @param blockOffsets Offset of each block of definitions
+     * @param nameTable Offset of the name index
+     */
+    public MappedLightDefinitions(ByteBuffer buffer, int count, int archivedCount, int blockSize, int[] blockOffsets, int nameTable) {
+        this.buffer = buffer;
+        this.count = count;
+        this.archivedCount = archivedCount;
+        this.blockSize = blockSize;
+        this.blockOffsets = blockOffsets;
+        this.nameTable = nameTable;
+        this.blocks = new LightDefinition[blockOffsets.length][];
+    }
+
+    /**
+     * get(int) Method:
+     * Gets the light definition at the specified index of the list.
+     *
+     * Input: Index of the definition.
+     *
+     * Process: Decodes the block that contains the definition if it hasn't been decoded yet.
+     *
+     * Output: Light definition.
+     *
+     * @param index Index of the definition
+     * @return Light definition
+     * @throws IOException Thrown when the block can't be decoded.
+     */
+    public LightDefinition get(int index) throws IOException {
+
+        // check index
+        if (index < 0 || index >= count)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+
+        return getStored(index);
+
+    }
+
+    /**
+     * getStored(int) Method:
+     * Gets the light definition at the specified index of the file, listed or archived.
+     *
+     * Input: Index of the definition in the file.
+     *
+     * Process: Decodes the block that contains the definition if it hasn't been decoded yet.
+     *
+     * Output: Light definition.
+     *
+     * @param index Index of the definition in the file
+     * @return Light definition
+     * @throws IOException Thrown when the block can't be decoded.
+     */
+    private synchronized LightDefinition getStored(int index) throws IOException {
+
+        // decode block if needed
+        int block = index / blockSize;
+
+        if (blocks[block] == null) {
+            ByteBuffer view = buffer.duplicate();
+            view.position(blockOffsets[block]);
+            blocks[block] = FileHelper.readLightDefinitionBlock(view, Math.min(blockSize, count + archivedCount - block * blockSize));
+        }
+
+        return blocks[block][index % blockSize];
+
+    }
+
+    /**
+     * getLightDefinitions() Method:
+     * Gets every listed light definition.
+     *
+     * Input: None.
+     *
+     * Process: Gets each definition, decoding every block of listed definitions.
+     *
+     * Output: Light definitions, in list order.
+     *
+     * @return Light definitions
+     * @throws IOException Thrown when a block can't be decoded.
+     */
+    public ArrayList<LightDefinition> getLightDefinitions() throws IOException {
+        ArrayList<LightDefinition> lightDefinitions = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++)
+            lightDefinitions.add(getStored(i));
+
+        return lightDefinitions;
+    }
+
+    /**
+     * asList() Method:
+     * Gets a view of the listed light definitions that decodes their blocks as they are accessed.
+     *
+     * Input: None.
+     *
+     * Process: Calls asList() with every index of the list.
+     *
+     * Output: List of the definitions, in list order.
+     *
+     * @return List of the definitions
+     */
+    public List<LightDefinition> asList() {
+        return asList(null);
+    }
+
+    /**
+     * asList(int[]) Method:
+     * Gets a view of some of the light definitions that decodes their blocks as they are accessed, e.g. to show the
+     * results of a search.
+     *
+     * Input: Indices of the definitions in the list.
+     *
+     * Process: Creates a list that gets the definition at each index when it is accessed. Blocks that can't be decoded
+     * are thrown as unchecked exceptions, since the list interface doesn't allow checked ones.
+     *
+     * Output: List of the definitions, in the order of the indices.
+     *
+     * @param indices Indices of the definitions in the list (null for every definition)
+     * @return List of the definitions
+     */
+    public List<LightDefinition> asList(int[] indices) {
+        return new AbstractList<LightDefinition>() {
+            @Override
+            public LightDefinition get(int index) {
+                try {
+                    return MappedLightDefinitions.this.get(indices != null ? indices[index] : index);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+
+            @Override
+            public int size() {
+                return indices != null ? indices.length : count;
+            }
+        };
+    }
+
+    /**
+     * getIndexByName(int) Method:
+     * Gets the list index of the definition at the specified position in name order.
+     *
+     * Input: Position in name order.
+     *
+     * Process: Reads the list index from the name index entry.
+     *
+     * Output: Index of the definition in the list.
+     *
+     * @param position Position in name order
+     * @return Index of the definition in the list
+     */
+    public int getIndexByName(int position) {
+        return buffer.getInt(getNameEntry(position));
+    }
+
+    /**
+     * getNameAt(int) Method:
+     * Gets the display name of the definition at the specified position in name order, without decoding it.
+     *
+     * Input: Position in name order.
+     *
+     * Process: Reads the name from the name index entry.
+     *
+     * Output: Display name.
+     *
+     * @param position Position in name order
+     * @return Display name
+     * @throws IOException Thrown when the name can't be read.
+     */
+    public String getNameAt(int position) throws IOException {
+        ByteBuffer entry = buffer.duplicate();
+        entry.position(getNameEntry(position) + 4);
+        return new FileStreamReader(entry).readUTF8String();
+    }
+
+    /**
+     * find(String) Method:
+     * Finds a light definition by display name, without regard to case.
+     *
+     * Input: Display name.
+     *
+     * Process: Finds the first name in the name index that isn't smaller than the specified one with a binary search &
+     * checks if it is equal.
+     *
+     * Output: Index of the definition in the list (-1 if there is none).
+     *
+     * @param displayName Display name
+     * @return Index of the definition in the list (-1 if there is none)
+     * @throws IOException Thrown when a name can't be read.
+     */
+    public int find(String displayName) throws IOException {
+        int position = lowerBound(displayName);
+        return position < count && getNameAt(position).equalsIgnoreCase(displayName) ? getIndexByName(position) : -1;
+    }
+
+    /**
+     * findAll(String) Method:
+     * Finds every light definition with the specified display name, without regard to case.
+     *
+     * Input: Display name.
+     *
+     * Process: Finds the first name that isn't smaller than the specified one with a binary search, then goes through
+     * the names that follow it while they are equal.
+     *
+     * Output: Indices of the definitions in the list, in list order.
+     *
+     * @param displayName Display name
+     * @return Indices of the definitions in the list, in list order
+     * @throws IOException Thrown when a name can't be read.
+     */
+    public int[] findAll(String displayName) throws IOException {
+        int first = lowerBound(displayName);
+        int last = first;
+
+        while (last < count && getNameAt(last).equalsIgnoreCase(displayName))
+            last++;
+
+        return getIndicesByName(first, last);
+    }
+
+    /**
+     * findPrefix(String) Method:
+     * Finds the light definitions whose display name starts with the specified prefix, without regard to case.
+     *
+     * Input: Prefix.
+     *
+     * Process: Finds the first name that isn't smaller than the prefix with a binary search, then goes through the
+     * names that follow it while they start with the prefix (they are all next to each other in name order).
+     *
+     * Output: Indices of the definitions in the list, in name order.
+     *
+     * @param prefix Prefix
+     * @return Indices of the definitions in the list, in name order
+     * @throws IOException Thrown when a name can't be read.
+     */
+    public int[] findPrefix(String prefix) throws IOException {
+        int first = lowerBound(prefix);
+        int last = first;
+
+        while (last < count && getNameAt(last).regionMatches(true, 0, prefix, 0, prefix.length()))
+            last++;
+
+        return getIndicesByName(first, last);
+    }
+
+    /**
+     * getIndicesByName(int, int) Method:
+     * Gets the list indices of the definitions in a range of positions in name order.
+     *
+     * Input: First position, position after the last one.
+     *
+     * Process: Reads the list index of each name index entry of the range.
+     *
+     * Output: Indices of the definitions in the list, in name order (equal names are in list order).
+     *
+     * @param first First position in name order
+     * @param last Position after the last one
+     * @return Indices of the definitions in the list
+     */
+    private int[] getIndicesByName(int first, int last) {
+        int[] indices = new int[last - first];
+
+        for (int i = 0; i < indices.length; i++)
+            indices[i] = getIndexByName(first + i);
+
+        return indices;
+    }
+
+    /**
+     * lowerBound(String) Method:
+     * Finds the first position in name order whose name isn't smaller than the specified string, without regard to
+     * case.
+     *
+     * Input: String.
+     *
+     * Process: Binary search over the name index.
+     *
+     * Output: Position in name order (the amount of definitions if every name is smaller).
+     *
+     * @param str String
+     * @return Position in name order
+     * @throws IOException Thrown when a name can't be read.
+     */
+    private int lowerBound(String str) throws IOException {
+        int low = 0;
+        int high = count;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (String.CASE_INSENSITIVE_ORDER.compare(getNameAt(middle), str) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        return low;
+    }
+
+    /**
+     * getNameEntry(int) Method:
+     * Gets the offset of the name index entry at the specified position.
+     *
+     * Input: Position in name order.
+     *
+     * Process: Reads the offset from the name index.
+     *
+     * Output: Offset of the entry.
+     *
+     * @param position Position in name order
+     * @return Offset of the entry
+     */
+    private int getNameEntry(int position) {
+
+        // check position
+        if (position < 0 || position >= count)
+            throw new IndexOutOfBoundsException("Position: " + position + ", Size: " + count);
+
+        return buffer.getInt(nameTable + position * 4);
+
+    }
+
+    /**
+     * isDecoded(int) Method:
+     * Checks if the block of the definition at the specified index was decoded.
+     *
+     * Input: Index of the definition.
+     *
+     * Process: Checks if the block of the definition is in the array of decoded blocks.
+     *
+     * Output: Whether the block was decoded.
+     *
+     * @param index Index of the definition
+     * @return Whether the block was decoded
+     */
+    public synchronized boolean isDecoded(int index) {
+        return blocks[index / blockSize] != null;
+    }
+
+    public int size() {
+        return count;
+    }
+}
@@ -0,0 +1,442 @@
+package com.nicolasgnyra.stagelightplanner;
+
+import com.nicolasgnyra.stagelightplanner.components.JStageElement;
+import com.nicolasgnyra.stagelightplanner.helpers.FileHelper;
+import com.nicolasgnyra.stagelightplanner.helpers.MappedSection;
+import com.nicolasgnyra.stagelightplanner.helpers.SectionCache;
+import com.nicolasgnyra.stagelightplanner.helpers.StageElementColumns;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * MappedStagePlan Class:
+ * A stage plan file mapped in memory, whose stage elements are only decoded when they are first needed. The sections
+ * of columnar files are only decoded once one of their elements, or an area they cover, is first needed. Elements
+ * whose bounds are known are indexed in a grid of cells, so finding the elements in an area doesn't check all of them.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.8
+ */
+public class MappedStagePlan {
+    private static final int cellSize = 256;                                 // width & height of the cells of the index, without zoom
+
+    private ByteBuffer[] lists;                                              // element records (null for columnar files or once every element is decoded)
+    private final MappedSection[] sections;                                  // element sections (null for older files)
+    private final BitSet indexedSections;                                    // sections whose element bounds are known (null for older files)
+    private final int[] listStarts;                                          // index of the first element of each list
+    private final byte fileVersion;                                          // version of the mapped file
+    private final ArrayList<LightDefinition> lightDefinitions;               // light definitions of the plan (null for columnar files)
+    private final int[] offsets;                                             // offset of each element record in its list (null for columnar files)
+    private final Rectangle[] bounds;                                        // approximate bounds of each element, without zoom (null in sections that aren't indexed)
+    private final JStageElement[] stageElements;                             // decoded elements
+    private final BitSet decoded;                                            // which elements have been decoded
+    private int decodedCount = 0;                                            // amount of elements that have been decoded
+    private final int nextId;                                                // ID following the highest ID of the plan
+    private final SectionCache sectionCache;                                 // encoded sections of the file
+    private final HashMap<Long, ArrayList<Integer>> cells = new HashMap<>(); // indices of the elements touching each cell, by cell key
+    private Rectangle indexedArea = null;                                    // union of the bounds of the indexed elements (null if there are none)
+
+    /**
+     * MappedStagePlan(ByteBuffer[], int[], byte, ArrayList<LightDefinition>, int[], Rectangle[]) Constructor:
+     * Creates a new instance of the MappedStagePlan class with the specified index.
+     *
+     * Input: Element lists, index of the first element of each list, file version, light definitions, element offsets
+     * & bounds.
+     *
+     * Process: Sets values, creates the array of decoded elements & indexes every element.
+     *
+     * Output: A new instance of the MappedStagePlan class.
+     *
+     * @param lists Element lists (views of the mapped file, or decoded blocks)
+     * @param listStarts Index of the first element of each list
+     * @param fileVersion Version of the mapped file
+     * @param lightDefinitions Light definitions of the plan
+     * @param offsets Offset of each element record in its list
+     * @param bounds Approximate bounds of each element, without zoom
+     */
+    public MappedStagePlan(ByteBuffer[] lists, int[] listStarts, byte fileVersion, ArrayList<LightDefinition> lightDefinitions, int[] offsets, Rectangle[] bounds) {
+        this.lists = lists;
+        this.sections = null;
+        this.indexedSections = null;
+        this.listStarts = listStarts;
+        this.fileVersion = fileVersion;
+        this.lightDefinitions = lightDefinitions;
+        this.offsets = offsets;
+        this.bounds = bounds;
+        this.stageElements = new JStageElement[offsets.length];
+        this.decoded = new BitSet(offsets.length);
+        this.nextId = offsets.length;
+        this.sectionCache = new SectionCache();
+
+        // index every element, as their bounds are already known
+        for (int i = 0; i < bounds.length; i++)
+            addToIndex(i);
+    }
+
+    /**
+     * MappedStagePlan(MappedSection[], int, SectionCache) Constructor:
+     * Creates a new instance of the MappedStagePlan class from the element sections of a columnar file.
+     *
+     * Input: Element sections, next ID, encoded sections.
+     *
+     * Process: Sets values, gets the index of the first element of each section from the amount of elements in the
+     * sections before it & creates the arrays of decoded elements & bounds.
+     *
+     * Output: A new instance of the MappedStagePlan class.
+     *
+     * @param sections Element sections, none of which has to be decoded yet
+     * @param nextId ID following the highest ID of the plan
+     * @param sectionCache Encoded sections of the file
+     */
+    public MappedStagePlan(MappedSection[] sections, int nextId, SectionCache sectionCache) {
+        this.sections = sections;
+        this.indexedSections = new BitSet(sections.length);
+        this.listStarts = new int[sections.length];
+        this.fileVersion = 0;
+        this.lightDefinitions = null;
+        this.offsets = null;
+        this.nextId = nextId;
+        this.sectionCache = sectionCache;
+
+        // get index of the first element of each section
+        int stageElementCount = 0;
+
+        for (int i = 0; i < sections.length; i++) {
+            listStarts[i] = stageElementCount;
+            stageElementCount += sections[i].getCount();
+        }
+
+        this.bounds = new Rectangle[stageElementCount];
+        this.stageElements = new JStageElement[stageElementCount];
+        this.decoded = new BitSet(stageElementCount);
+    }
+
+    /**
+     * getStageElement(int) Method:
+     * Gets the element at the specified index, decoding it if it hasn't been decoded yet.
+     *
+     * Input: Index of the element.
+     *
+     * Process: Returns the cached element, or finds its list & creates it from the columns of its section or reads it
+     * from its offset in the list, in which case its index is its ID. The lists & columns are released once every
+     * element has been decoded.
+     *
+     * Output: Stage element (null if its type is unknown).
+     *
+     * @param index Index of the element
+     * @return Stage element (null if its type is unknown)
+     * @throws IOException File loading exception
+     */
+    public JStageElement getStageElement(int index) throws IOException {
+
+        // decode element if needed
+        if (!decoded.get(index)) {
+
+            // find list
+            int list = getList(index);
+
+            // create element from the columns, or read it from a view of its list starting at its offset
+            if (sections != null) {
+                stageElements[index] = sections[list].getColumns().getStageElement(index - listStarts[list]);
+            } else {
+                ByteBuffer source = lists[list].duplicate();
+                source.position(offsets[index]);
+                stageElements[index] = FileHelper.readStageElement(new FileStreamReader(source), fileVersion, lightDefinitions);
+
+                if (stageElements[index] != null)
+                    stageElements[index].setId(index);
+            }
+
+            decoded.set(index);
+            decodedCount++;
+
+            // release lists & columns when everything is decoded
+            if (decodedCount == stageElements.length) {
+                lists = null;
+
+                if (sections != null)
+                    for (MappedSection section : sections)
+                        section.release();
+            }
+
+        }
+
+        return stageElements[index];
+
+    }
+
+    /**
+     * indexSection(int) Method:
+     * Gets the bounds of the elements of a section, decoding it if needed.
+     *
+     * Input: Index of the section.
+     *
+     * Process: Gets the bounds of each element from the columns of the section & adds it to the index, the first time
+     * only.
+     *
+     * Output: Bounds of the section's elements.
+     *
+     * @param section Index of the section
+     * @throws IOException File loading exception
+     */
+    private void indexSection(int section) throws IOException {
+
+        // nothing to do if it was already indexed
+        if (indexedSections.get(section))
+            return;
+
+        // get bounds of every element
+        StageElementColumns columns = sections[section].getColumns();
+
+        for (int i = 0; i < columns.size(); i++) {
+            bounds[listStarts[section] + i] = columns.getBounds(i);
+            addToIndex(listStarts[section] + i);
+        }
+
+        indexedSections.set(section);
+
+    }
+
+    /**
+     * addToIndex(int) Method:
+     * Adds an element whose bounds are known to the index.
+     *
+     * Input: Index of the element.
+     *
+     * Process: Adds the element to every cell its bounds touch & grows the indexed area. Elements with empty bounds
+     * can't intersect any area, so they aren't added.
+     *
+     * Output: None.
+     *
+     * @param index Index of the element
+     */
+    private void addToIndex(int index) {
+
+        // nothing to do if the bounds are empty
+        Rectangle rect = bounds[index];
+
+        if (rect.isEmpty())
+            return;
+
+        // add element to every cell covered by its bounds
+        for (int cellY = Math.floorDiv(rect.y, cellSize); cellY <= Math.floorDiv(rect.y + rect.height - 1, cellSize); cellY++)
+            for (int cellX = Math.floorDiv(rect.x, cellSize); cellX <= Math.floorDiv(rect.x + rect.width - 1, cellSize); cellX++)
+                cells.computeIfAbsent(getCellKey(cellX, cellY), key -> new ArrayList<>()).add(index);
+
+        // grow indexed area
+        indexedArea = indexedArea == null ? new Rectangle(rect) : indexedArea.union(rect);
+
+    }
+
+    /**
+     * getCellKey(int, int) Method:
+     * Packs cell coordinates into a single key.
+     *
+     * Input: Cell coordinates.
+     *
+     * Process: Puts the Y coordinate in the high 32 bits and the X coordinate in the low 32 bits.
+     *
+     * Output: Cell key.
+     *
+     * @param cellX Cell column
+     * @param cellY Cell row
+     * @return Cell key
+     */
+    private static long getCellKey(int cellX, int cellY) {
+        return ((long) cellY << 32) | (cellX & 0xFFFFFFFFL);
+    }
+
+    /**
+     * getList(int) Method:
+     * Finds the list that contains an element.
+     *
+     * Input: Index of the element.
+     *
+     * Process: Finds the last list starting at or before the element with binary search. Lists without elements share
+     * their start with the next one, so those are skipped.
+     *
+     * Output: Index of the list.
+     *
+     * @param index Index of the element
+     * @return Index of the list
+     */
+    private int getList(int index) {
+
+        // find the last list starting at or before the element
+        int list = Arrays.binarySearch(listStarts, index);
+
+        if (list < 0)
+            list = -list - 2;
+
+        // lists without elements share their start with the next one
+        while (list + 1 < listStarts.length && listStarts[list + 1] <= index)
+            list++;
+
+        return list;
+
+    }
+
+    /**
+     * find(Rectangle) Method:
+     * Finds the elements whose approximate bounds intersect the specified area.
+     *
+     * Input: Area, without zoom.
+     *
+     * Process: In columnar files, indexes the sections whose bounds intersect the area if they weren't already. Then
+     * checks the bounds of the elements in the cells covered by the part of the area where there are indexed elements.
+     *
+     * Output: Indices of the elements in the area, in ascending order.
+     *
+     * @param area Area, without zoom
+     * @return Indices of the elements in the area, in ascending order
+     * @throws IOException File loading exception
+     */
+    public ArrayList<Integer> find(Rectangle area) throws IOException {
+
+        // index the sections in the area
+        if (sections != null)
+            for (int section = 0; section < sections.length; section++)
+                if (sections[section].getBounds().intersects(area))
+                    indexSection(section);
+
+        // nothing to find outside of the indexed area
+        ArrayList<Integer> indices = new ArrayList<>();
+
+        if (indexedArea == null || !indexedArea.intersects(area))
+            return indices;
+
+        Rectangle rect = indexedArea.intersection(area);
+
+        // check bounds of the elements in every cell covered by the area (elements can be in several cells)
+        BitSet found = new BitSet(bounds.length);
+
+        for (int cellY = Math.floorDiv(rect.y, cellSize); cellY <= Math.floorDiv(rect.y + rect.height - 1, cellSize); cellY++) {
+            for (int cellX = Math.floorDiv(rect.x, cellSize); cellX <= Math.floorDiv(rect.x + rect.width - 1, cellSize); cellX++) {
+                ArrayList<Integer> cell = cells.get(getCellKey(cellX, cellY));
+
+                if (cell != null)
+                    for (int index : cell)
+                        if (bounds[index].intersects(area))
+                            found.set(index);
+            }
+        }
+
+        for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1))
+            indices.add(i);
+
+        return indices;
+
+    }
+
+    /**
+     * copyToHeap() Method:
+     * Stops reading the mapped file, so it can be replaced while the plan is open.
+     *
+     * Input: None.
+     *
+     * Process: Copies the element lists that weren't released & the sections' blocks to the heap. The section cache is
+     * copied first, so sections that it still has as they are in the file share its copy. Some systems don't allow
+     * replacing a mapped file, so this is called before saving over the plan's file.
+     *
+     * Output: None.
+     */
+    public void copyToHeap() {
+
+        // copy lists
+        if (lists != null)
+            for (int i = 0; i < lists.length; i++)
+                if (lists[i].isDirect())
+                    lists[i] = FileHelper.copyToHeap(lists[i]);
+
+        // copy cache, then sections
+        sectionCache.copyToHeap();
+
+        if (sections != null)
+            for (MappedSection section : sections)
+                section.copyToHeap(sectionCache);
+
+    }
+
+    /**
+     * isMapped() Method:
+     * Checks whether the plan still reads the mapped file.
+     *
+     * Input: None.
+     *
+     * Process: Checks whether an element list that wasn't released or a section's block is a view of the file.
+     *
+     * Output: Whether the plan reads the mapped file.
+     *
+     * @return Whether the plan reads the mapped file
+     */
+    public boolean isMapped() {
+        if (lists != null)
+            for (ByteBuffer list : lists)
+                if (list.isDirect())
+                    return true;
+
+        if (sections != null)
+            for (MappedSection section : sections)
+                if (section.isMapped())
+                    return true;
+
+        return false;
+    }
+
+    public int size() {
+        return bounds.length;
+    }
+
+    /**
+     * getBounds(int) Method:
+     * Gets the approximate bounds of an element without creating it.
+     *
+     * Input: Index of the element.
+     *
+     * Process: Decodes the section of the element if its bounds aren't known yet.
+     *
+     * Output: Bounds of the element, without zoom.
+     *
+     * @param index Index of the element
+     * @return Bounds of the element, without zoom
+     * @throws IOException File loading exception
+     */
+    public Rectangle getBounds(int index) throws IOException {
+        if (sections != null)
+            indexSection(getList(index));
+
+        return new Rectangle(bounds[index]);
+    }
+
+    public boolean hasSections() {
+        return sections != null;
+    }
+
+    public int getSectionCount() {
+        return sections != null ? sections.length : 0;
+    }
+
+    public MappedSection getSection(int section) {
+        return sections[section];
+    }
+
+    public int getSectionStart(int section) {
+        return listStarts[section];
+    }
+
+    public int getNextId() {
+        return nextId;
+    }
+
+    public SectionCache getSectionCache() {
+        return sectionCache;
+    }
+}
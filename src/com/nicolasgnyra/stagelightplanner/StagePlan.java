@@ -2,19 +2,21 @@ package com.nicolasgnyra.stagelightplanner;
 
 import com.nicolasgnyra.stagelightplanner.components.JStageElement;
 
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 
 /**
  * StagePlan Class:
- * Contains information on a stage plan. Currently only contains list of stage elements.
+ * Contains information on a stage plan: its stage elements & an optional thumbnail.
  *
  * Date: 2016-09-27
  *
  * @author Nicolas Gnyra
- * @version 1.0
+ * @version 1.1
  */
 public class StagePlan {
     private final ArrayList<JStageElement> stageElements; // list of stage elements
+    private BufferedImage thumbnail = null;               // small preview of the plan (null if there is none)
 
     /**
      * StagePlan(ArrayList<JStageElement>) Constructor:
@@ -72,6 +74,14 @@ public class StagePlan {
         return stageElements;
     }
 
+    public BufferedImage getThumbnail() {
+        return thumbnail;
+    }
+
+    public void setThumbnail(BufferedImage thumbnail) {
+        this.thumbnail = thumbnail;
+    }
+
     @Override
     public String toString() {
         return String.format("[stageElements=%s]", stageElements);
@@ -0,0 +1,130 @@
+package com.nicolasgnyra.stagelightplanner.components;
+
+import com.nicolasgnyra.stagelightplanner.LightDefinition;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * FixtureIconAtlas Class:
+ * Cache of rendered fixture icons, packed as cells of a few large images. Only a limited amount of icons are kept;
+ * the least recently drawn icon gives its cell to a new one once the atlas is full.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.0
+ */
+class FixtureIconAtlas {
+
+    private static final int cellsPerSide = 16;     // amount of cells per row & column of a page
+    private static final int pageCount = 4;         // amount of pages
+
+    private final int cellSize;                                                                         // size of an icon
+    private final BufferedImage[] pages = new BufferedImage[pageCount];                                 // pages (null until needed)
+    private final LinkedHashMap<LightDefinition, Integer> cells = new LinkedHashMap<>(16, 0.75f, true); // cell of each icon, least recently drawn first
+
+    /**
+     * FixtureIconAtlas(int) Constructor:
+     * Creates a new instance of the FixtureIconAtlas class with the specified icon size.
+     *
+     * Input: Size of an icon.
+     *
+     * Process: Sets values.
+     *
+     * Output: A new instance of the FixtureIconAtlas class.
+     *
+     * @param cellSize Size of an icon, in pixels
+     */
+    FixtureIconAtlas(int cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * drawIcon(Graphics, LightDefinition, int, int) Method:
+     * Draws the icon of a light definition.
+     *
+     * Input: Graphics class, light definition, position.
+     *
+     * Process: Renders the icon into a cell if it isn't in the atlas yet, then copies the cell to the graphics.
+     *
+     * Output: Icon drawn at the specified position.
+     *
+     * @param g Graphics class to draw with
+     * @param definition Light definition
+     * @param x X coordinate
+     * @param y Y coordinate
+     */
+    void drawIcon(Graphics g, LightDefinition definition, int x, int y) {
+
+        // get the icon's cell
+        int cell = getCell(definition);
+        BufferedImage page = pages[cell / (cellsPerSide * cellsPerSide)];
+        int sourceX = cell % cellsPerSide * cellSize;
+        int sourceY = cell / cellsPerSide % cellsPerSide * cellSize;
+
+        // copy it
+        g.drawImage(page, x, y, x + cellSize, y + cellSize, sourceX, sourceY, sourceX + cellSize, sourceY + cellSize, null);
+
+    }
+
+    /**
+     * getCell(LightDefinition) Method:
+     * Gets the cell that holds the icon of a light definition, rendering the icon if needed.
+     *
+     * Input: Light definition.
+     *
+     * Process: Looks the definition up. If it isn't there, takes the next free cell, or the cell of the least recently
+     * drawn icon if the atlas is full, & renders the icon into it.
+     *
+     * Output: Index of the cell.
+     *
+     * @param definition Light definition
+     * @return Index of the cell
+     */
+    private int getCell(LightDefinition definition) {
+
+        // icon already rendered
+        Integer cell = cells.get(definition);
+
+        if (cell != null)
+            return cell;
+
+        // take a free cell, or the cell of the least recently drawn icon
+        if (cells.size() < pageCount * cellsPerSide * cellsPerSide) {
+            cell = cells.size();
+        } else {
+            Iterator<Map.Entry<LightDefinition, Integer>> eldest = cells.entrySet().iterator();
+            cell = eldest.next().getValue();
+            eldest.remove();
+        }
+
+        cells.put(definition, cell);
+
+        // create page if needed
+        int pageIndex = cell / (cellsPerSide * cellsPerSide);
+
+        if (pages[pageIndex] == null)
+            pages[pageIndex] = new BufferedImage(cellsPerSide * cellSize, cellsPerSide * cellSize, BufferedImage.TYPE_INT_ARGB);
+
+        // clear the cell & render the icon into it
+        Graphics2D g2d = pages[pageIndex].createGraphics();
+        g2d.translate(cell % cellsPerSide * cellSize, cell / cellsPerSide % cellsPerSide * cellSize);
+        g2d.setComposite(AlphaComposite.Clear);
+        g2d.fillRect(0, 0, cellSize, cellSize);
+        g2d.setComposite(AlphaComposite.SrcOver);
+        g2d.clipRect(0, 0, cellSize, cellSize);
+        JLightDefinition.paintDefinition(g2d, definition, cellSize, cellSize);
+        g2d.dispose();
+
+        return cell;
+
+    }
+
+    int size() {
+        return cells.size();
+    }
+}
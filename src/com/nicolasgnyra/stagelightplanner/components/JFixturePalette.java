@@ -0,0 +1,394 @@
+package com.nicolasgnyra.stagelightplanner.components;
+
+import com.nicolasgnyra.stagelightplanner.LightDefinition;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.dnd.*;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JFixturePalette Class:
+ * Grid of stage element definitions that can be drag-and-dropped onto the stage planner. Cells aren't components: only
+ * the cells in view are painted, light definitions from a cache of rendered icons, and every cell is dragged through
+ * a single drag gesture recognizer. Light definitions are only fetched as their cells are painted, so they can come
+ * from a list that decodes them on demand, and only some of them can be shown, e.g. the results of a search.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.2
+ */
+public class JFixturePalette extends JComponent implements Scrollable, DragGestureListener {
+
+    private static final int cellSize = 50;         // size of a cell
+    private static final int gap = 5;               // space around cells
+    private static final int visibleRows = 3;       // amount of rows shown without scrolling
+
+    private final ArrayList<JStageElementDefinition> elements = new ArrayList<>();  // elements shown before the lights
+    private List<LightDefinition> lights = Collections.emptyList();                 // light definitions
+    private List<LightDefinition> shownLights = lights;                             // light definitions shown (all of them or some)
+    private final FixtureIconAtlas atlas = new FixtureIconAtlas(cellSize);          // rendered light definitions
+    private final CellRendererPane rendererPane = new CellRendererPane();           // pane used to paint the elements
+    private DragGestureRecognizer dragGestureRecognizer = null;                     // recognizer for drags from any cell
+
+    /**
+     * JFixturePalette() Constructor:
+     * Creates a new instance of the JFixturePalette class.
+     *
+     * Input: None.
+     *
+     * Process: Adds the renderer pane & registers with the tooltip manager.
+     *
+     * Output: A new instance of the JFixturePalette class.
+     */
+    public JFixturePalette() {
+        add(rendererPane);
+        ToolTipManager.sharedInstance().registerComponent(this);
+    }
+
+    /**
+     * clear() Method:
+     * Removes every cell from the palette.
+     *
+     * Input: None.
+     *
+     * Process: Clears the elements & light definitions, then revalidates & repaints.
+     *
+     * Output: Empty palette.
+     */
+    public void clear() {
+        elements.clear();
+        setLights(Collections.emptyList());
+    }
+
+    /**
+     * addElement(JStageElementDefinition) Method:
+     * Adds an element to the palette. Elements are shown before the light definitions.
+     *
+     * Input: Element to add.
+     *
+     * Process: Adds the element, then revalidates & repaints.
+     *
+     * Output: New cell in the palette.
+     *
+     * @param element Element to add
+     */
+    public void addElement(JStageElementDefinition element) {
+        elements.add(element);
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * setLights(List<LightDefinition>) Method:
+     * Sets the light definitions of the palette & shows all of them.
+     *
+     * Input: Light definitions.
+     *
+     * Process: Keeps the list without copying it, so definitions are only fetched when their cell is painted, then
+     * revalidates & repaints.
+     *
+     * Output: Palette with the light definitions.
+     *
+     * @param definitions Light definitions
+     */
+    public void setLights(List<LightDefinition> definitions) {
+        lights = definitions;
+        setShownLights(null);
+    }
+
+    /**
+     * setShownLights(List<LightDefinition>) Method:
+     * Sets which light definitions are shown. Elements are always shown.
+     *
+     * Input: Light definitions to show, in order (null for all).
+     *
+     * Process: Keeps the list without copying it, then revalidates & repaints.
+     *
+     * Output: Filtered palette.
+     *
+     * @param definitions Light definitions to show, in order (null for all)
+     */
+    public void setShownLights(List<LightDefinition> definitions) {
+        shownLights = definitions != null ? definitions : lights;
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * getCellBounds(int) Method:
+     * Gets the bounds of a cell.
+     *
+     * Input: Index of the cell.
+     *
+     * Process: Calculates the row & column of the cell from the amount of columns that fit in the palette.
+     *
+     * Output: Bounds of the cell.
+     *
+     * @param index Index of the cell
+     * @return Bounds of the cell
+     */
+    public Rectangle getCellBounds(int index) {
+        int columns = getColumnCount();
+        return new Rectangle(gap + index % columns * (cellSize + gap), gap + index / columns * (cellSize + gap), cellSize, cellSize);
+    }
+
+    /**
+     * getCellAt(Point) Method:
+     * Gets the cell at a point of the palette.
+     *
+     * Input: Point.
+     *
+     * Process: Calculates the row & column of the point & checks that it isn't in the space around the cell.
+     *
+     * Output: Index of the cell (-1 if there is none).
+     *
+     * @param point Point
+     * @return Index of the cell (-1 if there is none)
+     */
+    public int getCellAt(Point point) {
+
+        // get row & column
+        int columns = getColumnCount();
+        int column = (point.x - gap) / (cellSize + gap);
+        int row = (point.y - gap) / (cellSize + gap);
+
+        // make sure the point is in a cell
+        if (point.x < gap || point.y < gap || column >= columns || (point.x - gap) % (cellSize + gap) >= cellSize || (point.y - gap) % (cellSize + gap) >= cellSize)
+            return -1;
+
+        int index = row * columns + column;
+
+        return index < getCellCount() ? index : -1;
+
+    }
+
+    /**
+     * getColumnCount() Method:
+     * Gets the amount of columns that fit in the palette.
+     *
+     * Input: None.
+     *
+     * Process: Divides the width by the width of a cell & the space after it.
+     *
+     * Output: Amount of columns (at least 1).
+     *
+     * @return Amount of columns
+     */
+    private int getColumnCount() {
+        return Math.max(1, (getWidth() - gap) / (cellSize + gap));
+    }
+
+    /**
+     * getRowsHeight(int) Method:
+     * Gets the height taken by the specified amount of rows.
+     *
+     * Input: Amount of rows.
+     *
+     * Process: Multiplies the height of a row by the amount of rows.
+     *
+     * Output: Height.
+     *
+     * @param rows Amount of rows
+     * @return Height
+     */
+    private int getRowsHeight(int rows) {
+        return gap + rows * (cellSize + gap);
+    }
+
+    /**
+     * paintComponent(Graphics) Method:
+     * Called when the component needs to be repainted.
+     *
+     * Input: Graphics class.
+     *
+     * Process: Paints the cells of the rows that intersect the clip: elements through the renderer pane & light
+     * definitions from the icon atlas.
+     *
+     * Output: Painted component.
+     *
+     * @param g Graphics class used to draw the window.
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+
+        // call superclass method
+        super.paintComponent(g);
+
+        // get rows in the clip
+        Rectangle clip = g.getClipBounds();
+        int columns = getColumnCount();
+        int firstRow = Math.max(0, (clip.y - gap) / (cellSize + gap));
+        int lastRow = (clip.y + clip.height) / (cellSize + gap);
+
+        // paint the cells of those rows
+        for (int index = firstRow * columns; index < Math.min(getCellCount(), (lastRow + 1) * columns); index++) {
+            Rectangle bounds = getCellBounds(index);
+
+            if (index < elements.size())
+                rendererPane.paintComponent(g, elements.get(index), this, bounds);
+            else
+                atlas.drawIcon(g, shownLights.get(index - elements.size()), bounds.x, bounds.y);
+        }
+
+    }
+
+    /**
+     * getToolTipText(MouseEvent) Method:
+     * Gets the tooltip of the cell under the mouse.
+     *
+     * Input: Mouse event.
+     *
+     * Process: Finds the cell under the mouse & gets its tooltip.
+     *
+     * Output: Tooltip (null if there is no cell under the mouse).
+     *
+     * @param e Mouse event
+     * @return Tooltip
+     */
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        int index = getCellAt(e.getPoint());
+
+        if (index == -1)
+            return null;
+
+        return index < elements.size() ? elements.get(index).getToolTipText() : shownLights.get(index - elements.size()).getDisplayName();
+    }
+
+    /**
+     * setBounds(int, int, int, int) Method:
+     * Moves & resizes the palette.
+     *
+     * Input: New bounds.
+     *
+     * Process: Calls the superclass method & revalidates if the amount of columns changed, since the height of the
+     * palette depends on it.
+     *
+     * Output: None.
+     *
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @param width Width
+     * @param height Height
+     */
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+        int columns = getColumnCount();
+
+        super.setBounds(x, y, width, height);
+
+        if (getColumnCount() != columns)
+            revalidate();
+    }
+
+    /**
+     * getPreferredSize() Method:
+     * Gets the preferred size of the palette.
+     *
+     * Input: None.
+     *
+     * Process: Calculates the size taken by every row at the current amount of columns.
+     *
+     * Output: Preferred size.
+     *
+     * @return Preferred size
+     */
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet())
+            return super.getPreferredSize();
+
+        int columns = getColumnCount();
+        return new Dimension(gap + columns * (cellSize + gap), getRowsHeight((getCellCount() + columns - 1) / columns));
+    }
+
+    /**
+     * addNotify() Method:
+     * Called when the palette is added to a displayable container.
+     *
+     * Input: None.
+     *
+     * Process: Calls the superclass method & creates the drag gesture recognizer the first time.
+     *
+     * Output: None.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+
+        if (dragGestureRecognizer == null)
+            dragGestureRecognizer = DragSource.getDefaultDragSource().createDefaultDragGestureRecognizer(this, DnDConstants.ACTION_COPY_OR_MOVE, this);
+    }
+
+    /**
+     * dragGestureRecognized(DragGestureEvent) Method:
+     * Fired when a drag gesture is recognized on the palette.
+     *
+     * Input: Drag gesture event.
+     *
+     * Process: Finds the dragged cell, gets its transferable and initializes the drag.
+     *
+     * Output: None.
+     *
+     * @param e Drag gesture event.
+     */
+    @Override
+    public void dragGestureRecognized(DragGestureEvent e) {
+
+        // get dragged cell
+        int index = getCellAt(e.getDragOrigin());
+
+        if (index == -1)
+            return;
+
+        JStageElementDefinition element = index < elements.size() ? elements.get(index) : new JLightDefinition(shownLights.get(index - elements.size()));
+
+        try {
+
+            // begin drag
+            e.startDrag(DragSource.DefaultCopyNoDrop, element.getTransferable(), element);
+
+        } catch (InvalidDnDOperationException ex) {
+
+            // print error
+            ex.printStackTrace();
+
+        }
+
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        Dimension size = getPreferredSize();
+        return new Dimension(size.width, Math.min(size.height, getRowsHeight(visibleRows)));
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return cellSize + gap;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return Math.max(cellSize + gap, visibleRect.height / (cellSize + gap) * (cellSize + gap));
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+
+    public int getCellCount() {
+        return elements.size() + shownLights.size();
+    }
+}
@@ -1,23 +1,28 @@
 package com.nicolasgnyra.stagelightplanner.components;
 
-import com.nicolasgnyra.stagelightplanner.LightDefinition;
-import com.nicolasgnyra.stagelightplanner.layouts.WrapLayout;
+import com.nicolasgnyra.stagelightplanner.MappedLightDefinitions;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
+import java.util.Collections;
 
 /**
  * JFixturesContainer Class:
- * Panel that contains fixture definitions that can be drag-and-dropped onto the stage planner.
+ * Panel that contains fixture definitions that can be drag-and-dropped onto the stage planner, with a search box that
+ * filters them by name. Fixtures come from an indexed fixtures file: they are searched through its name index & only
+ * decoded as they are shown.
  *
  * Date: 2016-09-26
  *
  * @author Nicolas Gnyra
- * @version 1.0
+ * @version 1.4
  */
 public class JFixturesContainer extends JPanel {
 
-    private final JPanel definitionContainer;     // Light definition container
+    private final JFixturePalette palette;                                  // Palette of definitions
+    private final JSearchField searchField = new JSearchField(this::search);  // Search box
+    private MappedLightDefinitions lights = null;                            // Indexed light definitions (null if none)
 
     /**
      * JFixturesContainer() Constructor:
@@ -25,7 +30,7 @@ public class JFixturesContainer extends JPanel {
      *
      * Input: None.
      *
-     * Process: Sets up the panel's components.
+     * Process: Sets up the panel's components, with the search box above the palette.
      *
      * Output: A new instance of the JFixtureContainer class.
      */
@@ -34,14 +39,17 @@ public class JFixturesContainer extends JPanel {
         // setup JPanel with border layout
         super(new BorderLayout());
 
-        // initialize definitions container with wrap layout
-        definitionContainer = new JPanel(new WrapLayout(WrapLayout.LEFT));
+        // initialize palette
+        palette = new JFixturePalette();
 
-        // create scroll pane from definition container, remove border & add to main panel
-        JScrollPane scrollPane = new JScrollPane(definitionContainer);
+        // create scroll pane from palette, remove border & add to main panel
+        JScrollPane scrollPane = new JScrollPane(palette);
         scrollPane.setBorder(null);
         add(scrollPane);
 
+        // add search box
+        add(searchField, BorderLayout.PAGE_START);
+
     }
 
     /**
@@ -50,12 +58,13 @@ public class JFixturesContainer extends JPanel {
      *
      * Input: None.
      *
-     * Process: Removes all components from the light definition container.
+     * Process: Removes all cells from the palette & drops the light definitions.
      *
-     * Output: Empty definitions container.
+     * Output: Empty palette.
      */
     public void clear() {
-        definitionContainer.removeAll();
+        palette.clear();
+        lights = null;
     }
 
     /**
@@ -64,32 +73,67 @@ public class JFixturesContainer extends JPanel {
      *
      * Input: JStageElementDefinition to add to the container.
      *
-     * Process: Adds the specified element and repaints & revalidates the container.
+     * Process: Adds the specified element to the palette.
      *
-     * Output: New element in the definitions container.
+     * Output: New element in the palette.
      *
      * @param stageElementDefinition JStageElementDefinition to add to the container.
      */
     public void addElement(JStageElementDefinition stageElementDefinition) {
-        definitionContainer.add(stageElementDefinition);
-        definitionContainer.revalidate();
-        definitionContainer.repaint();
+        palette.addElement(stageElementDefinition);
     }
 
     /**
-     * addLight(LightDefinition) Method:
-     * Adds a light definition to the container.
+     * setLights(MappedLightDefinitions) Method:
+     * Sets the light definitions of the container.
      *
-     * Input: Light definition to add.
+     * Input: Indexed light definitions.
      *
-     * Process: Calls addElement() with a new JLightDefinition.
+     * Process: Gives the palette a list that decodes the definitions as they are painted, then shows the results of
+     * the current search.
      *
-     * Output: New light in the definitions container.
+     * Output: Lights in the palette.
      *
-     * @param def Light definition to add.
+     * @param lights Indexed light definitions (null for none)
      */
-    public void addLight(LightDefinition def) {
-        addElement(new JLightDefinition(def));
+    public void setLights(MappedLightDefinitions lights) {
+        this.lights = lights;
+        palette.setLights(lights != null ? lights.asList() : Collections.emptyList());
+        search(searchField.getText());
+    }
+
+    /**
+     * search(String) Method:
+     * Shows the light definitions that match a query.
+     *
+     * Input: Query.
+     *
+     * Process: Finds the definitions whose name starts with the query in the name index, without decoding any of them,
+     * & shows them in name order, then scrolls back to the top.
+     *
+     * Output: Filtered palette.
+     *
+     * @param query Query (every definition is shown if it's empty)
+     */
+    private void search(String query) {
+        String prefix = query.trim();
+
+        if (lights == null || prefix.isEmpty()) {
+            palette.setShownLights(null);
+        } else {
+            try {
+                palette.setShownLights(lights.asList(lights.findPrefix(prefix)));
+            } catch (IOException ex) {
+                palette.setShownLights(Collections.emptyList());
+                ex.printStackTrace();
+            }
+        }
+
+        palette.scrollRectToVisible(new Rectangle(0, 0, 1, 1));
+    }
+
+    public JFixturePalette getPalette() {
+        return palette;
     }
 
 }
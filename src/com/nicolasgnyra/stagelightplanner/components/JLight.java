@@ -12,11 +12,11 @@ import java.awt.*;
  * Date: 2016-09-27
  *
  * @author Nicolas Gnyra
- * @version 1.0
+ * @version 1.1
  */
 public class JLight extends JStageElement {
 
-    private final LightDefinition model;    // light definition used as a "model"
+    private LightDefinition model;          // light definition used as a "model"
     private float rotation;                 // light rotation (flat on screen)
     private float angle;                    // light angle (in/out of screen)
     private float fieldAngle;               // field angle (if the definition field angle is a range)
@@ -48,7 +48,7 @@ public class JLight extends JStageElement {
      *
      * Input: Coordinates, light definition, beam color, rotation, angle, field angle, connection ID, beam intensity.
      *
-     * Process: Calls the superclass constructor & sets values.
+     * Process: Calls the superclass constructor & sets values, using the shared instance of the light definition.
      *
      * Output: New instance of the JLight class with specified values.
      *
@@ -64,7 +64,7 @@ public class JLight extends JStageElement {
      */
     public JLight(int x, int y, LightDefinition model, Color beamColor, float rotation, float angle, float fieldAngle, String connectionId, int beamIntensity) {
         super(x, y, 30, 30, model.getDisplayColor());
-        this.model = model;
+        this.model = model.intern();
         this.beamColor = beamColor;
         this.rotation = rotation;
         this.angle = angle;
@@ -167,7 +167,8 @@ public class JLight extends JStageElement {
      *
      * Input: Object to compare.
      *
-     * Process: Compares all properties of this class.
+     * Process: Compares all properties of this class. Light definitions are interned, so equal ones are the same
+     * instance.
      *
      * Output: Whether the objects are equal or not.
      *
@@ -185,7 +186,7 @@ public class JLight extends JStageElement {
         JLight otherLight = (JLight) obj;
 
         // check variables
-        return getModel().equals(otherLight.getModel()) &&
+        return getModel() == otherLight.getModel() &&
                 getRotation() == otherLight.getRotation() &&
                 getAngle() == otherLight.getAngle() &&
                 getFieldAngle() == otherLight.getFieldAngle() &&
@@ -200,6 +201,34 @@ public class JLight extends JStageElement {
         return model;
     }
 
+    /**
+     * setModel(LightDefinition) Method:
+     * Replaces the light definition of this light after it was changed in the fixture editor.
+     *
+     * Input: New light definition.
+     *
+     * Process: Sets the shared instance of the definition & its display color, and keeps the field angle within what
+     * the new definition allows. Doesn't record the change, so the planner can update many lights at once.
+     *
+     * Output: None.
+     *
+     * @param model New light definition
+     */
+    void setModel(LightDefinition model) {
+
+        // set definition & color
+        this.model = model.intern();
+        this.color = model.getDisplayColor();
+        setBackground(color);
+
+        // keep field angle within the definition's range, or use its fixed angle
+        if (model.isFieldAngleRange())
+            fieldAngle = Math.max(model.getFieldAngleMin(), Math.min(model.getFieldAngleMax(), fieldAngle));
+        else
+            fieldAngle = model.getFieldAngle();
+
+    }
+
     public float getRotation() {
         return rotation;
     }
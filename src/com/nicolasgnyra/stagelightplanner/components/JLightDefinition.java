@@ -14,7 +14,7 @@ import java.awt.datatransfer.Transferable;
  * Date: 2016-09-27
  *
  * @author Nicolas Gnyra
- * @version 1.0
+ * @version 1.1
  */
 public class JLightDefinition extends JStageElementDefinition {
     private final LightDefinition definition;
@@ -55,18 +55,37 @@ public class JLightDefinition extends JStageElementDefinition {
         // call superclass method
         super.paintComponent(g);
 
-        // cast graphics to 2D graphics
-        Graphics2D g2d = (Graphics2D)g;
+        // draw the definition
+        paintDefinition((Graphics2D)g, definition, getWidth(), getHeight());
+    }
+
+    /**
+     * paintDefinition(Graphics2D, LightDefinition, int, int) Method:
+     * Draws a representation of a light definition.
+     *
+     * Input: Graphics class, light definition, size.
+     *
+     * Process: Draws the shape of the light definition with the label (short name) of the light on top.
+     *
+     * Output: Painted light definition.
+     *
+     * @param g2d Graphics class to draw with.
+     * @param definition Light definition to draw.
+     * @param width Width of the drawing.
+     * @param height Height of the drawing.
+     */
+    static void paintDefinition(Graphics2D g2d, LightDefinition definition, int width, int height) {
 
         // enable anti-aliasing, set the color to display color, and draw the shape
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g2d.setColor(definition.getDisplayColor());
-        PaintHelper.drawShape(g2d, definition.getShape(), 0, 0, getWidth(), getHeight());
+        PaintHelper.drawShape(g2d, definition.getShape(), 0, 0, width, height);
 
         // set the color & font & draw the label
         g2d.setColor(PaintHelper.getHueBasedOnBackgroundColor(definition.getDisplayColor()));
         g2d.setFont(g2d.getFont().deriveFont(50.0f));
-        PaintHelper.drawScaledString(g2d, definition.getLabel(), 0, 0, getWidth(), getHeight(), 5);
+        PaintHelper.drawScaledString(g2d, definition.getLabel(), 0, 0, width, height, 5);
+
     }
 
     /**
@@ -0,0 +1,357 @@
+package com.nicolasgnyra.stagelightplanner.components;
+
+import com.nicolasgnyra.stagelightplanner.helpers.PaintHelper;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+
+/**
+ * JMinimap Class:
+ * A low-resolution overview of a stage planner that can be clicked or dragged to move the planner's viewport.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.0
+ */
+public class JMinimap extends JComponent implements MouseListener, MouseMotionListener {
+
+    private static final int maxDirtyRegions = 32;      // amount of dirty regions after which the whole image is redrawn
+
+    private final JStagePlanner stagePlanner;                           // stage planner being shown
+    private final ArrayList<Rectangle> dirtyRegions = new ArrayList<>(); // regions to redraw, in plan coordinates
+    private BufferedImage image = null;                                 // cached low-resolution image of the plan
+    private boolean fullyDirty = true;                                  // whether the whole image must be redrawn
+
+    /**
+     * JMinimap(JStagePlanner) Constructor:
+     * Creates a new instance of the JMinimap class for the specified stage planner.
+     *
+     * Input: Stage planner.
+     *
+     * Process: Sets values, registers with the stage planner, listens to viewport changes & adds mouse listeners.
+     *
+     * Output: A new instance of the JMinimap class.
+     *
+     * @param stagePlanner Stage planner to show.
+     */
+    public JMinimap(JStagePlanner stagePlanner) {
+
+        // set stage planner & register with it
+        this.stagePlanner = stagePlanner;
+        stagePlanner.setMinimap(this);
+
+        // repaint the viewport rectangle when the planner scrolls
+        stagePlanner.getScrollPane().getViewport().addChangeListener(e -> repaint());
+
+        // add listeners
+        addMouseListener(this);
+        addMouseMotionListener(this);
+
+        // set cursor & preferred size
+        setCursor(new Cursor(Cursor.HAND_CURSOR));
+        setPreferredSize(new Dimension(250, 188));
+
+    }
+
+    /**
+     * invalidateRegion(Rectangle) Method:
+     * Marks a region of the plan as changed.
+     *
+     * Input: Changed region, in plan coordinates.
+     *
+     * Process: Adds the region to the dirty regions, or marks the whole image as dirty if there are too many.
+     *
+     * Output: None.
+     *
+     * @param region Changed region, in plan coordinates
+     */
+    void invalidateRegion(Rectangle region) {
+
+        // nothing to do if the whole image is already dirty
+        if (fullyDirty)
+            return;
+
+        // add region, or redraw everything if there are too many regions
+        if (dirtyRegions.size() >= maxDirtyRegions)
+            invalidateAll();
+        else
+            dirtyRegions.add(region);
+
+        // repaint
+        repaint();
+
+    }
+
+    /**
+     * invalidateAll() Method:
+     * Marks the whole plan as changed.
+     *
+     * Input: None.
+     *
+     * Process: Sets fully dirty to true & clears the dirty regions.
+     *
+     * Output: None.
+     */
+    void invalidateAll() {
+        fullyDirty = true;
+        dirtyRegions.clear();
+        repaint();
+    }
+
+    /**
+     * createThumbnail() Method:
+     * Creates a copy of the cached image of the plan.
+     *
+     * Input: None.
+     *
+     * Process: Copies the cached image, which is at most the size of the minimap.
+     *
+     * Output: Thumbnail, or null if the minimap hasn't been painted yet.
+     *
+     * @return Thumbnail, or null if the minimap hasn't been painted yet
+     */
+    BufferedImage createThumbnail() {
+
+        // nothing to copy if the minimap hasn't been painted
+        if (image == null)
+            return null;
+
+        // copy image
+        BufferedImage thumbnail = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics g = thumbnail.getGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+
+        return thumbnail;
+
+    }
+
+    /**
+     * getScale() Method:
+     * Gets the scale at which the plan is drawn in the minimap.
+     *
+     * Input: None.
+     *
+     * Process: Gets the largest scale at which the whole plan fits in the component.
+     *
+     * Output: Scale.
+     *
+     * @return Scale.
+     */
+    private double getScale() {
+        Dimension planSize = stagePlanner.getPlanSize();
+        return Math.min((double) getWidth() / planSize.width, (double) getHeight() / planSize.height);
+    }
+
+    /**
+     * paintComponent(Graphics) Method:
+     * Paints the minimap & the viewport rectangle.
+     *
+     * Input: Graphics instance.
+     *
+     * Process: Recreates the image if the size changed, redraws the dirty regions, draws the image & draws the
+     * rectangle of the visible area of the planner.
+     *
+     * Output: Painted component.
+     *
+     * @param g Graphics instance.
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+
+        // call superclass method
+        super.paintComponent(g);
+
+        // nothing to do if the component has no size
+        if (getWidth() <= 0 || getHeight() <= 0)
+            return;
+
+        // get scale & size of the plan in the minimap
+        double scale = getScale();
+        Dimension planSize = stagePlanner.getPlanSize();
+        int width = Math.max(1, (int) Math.ceil(planSize.width * scale));
+        int height = Math.max(1, (int) Math.ceil(planSize.height * scale));
+
+        // recreate image if the size changed
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            fullyDirty = true;
+        }
+
+        // redraw dirty regions
+        if (fullyDirty) {
+            redrawRegion(new Rectangle(planSize), scale);
+        } else {
+            for (Rectangle region : dirtyRegions)
+                redrawRegion(region, scale);
+        }
+
+        // clear dirty regions
+        fullyDirty = false;
+        dirtyRegions.clear();
+
+        // draw image
+        g.drawImage(image, 0, 0, null);
+
+        // get visible area of the planner in plan coordinates
+        Rectangle view = stagePlanner.getScrollPane().getViewport().getViewRect();
+        float zoom = stagePlanner.getZoom();
+
+        // draw visible area
+        g.setColor(Color.red);
+        g.drawRect((int) (view.x / zoom * scale), (int) (view.y / zoom * scale), (int) (view.width / zoom * scale), (int) (view.height / zoom * scale));
+
+        // draw border
+        g.setColor(Color.gray);
+        g.drawRect(0, 0, width - 1, height - 1);
+
+    }
+
+    /**
+     * redrawRegion(Rectangle, double) Method:
+     * Redraws a region of the cached image.
+     *
+     * Input: Region, in plan coordinates, and scale.
+     *
+     * Process: Clears the region & draws every stage element that intersects it.
+     *
+     * Output: Updated cached image.
+     *
+     * @param region Region to redraw, in plan coordinates
+     * @param scale Scale of the minimap
+     */
+    private void redrawRegion(Rectangle region, double scale) {
+
+        // create graphics, scale it & clip to the region (with a margin for rounding)
+        Graphics2D g2d = image.createGraphics();
+        g2d.scale(scale, scale);
+        g2d.clip(new Rectangle(region.x - 1, region.y - 1, region.width + 2, region.height + 2));
+
+        // clear region
+        g2d.setColor(Color.white);
+        g2d.fill(g2d.getClip());
+
+        // enable anti-aliasing
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        // draw battens first, then lights, then labels
+        for (JBatten batten : stagePlanner.getBattens()) {
+            Rectangle bounds = stagePlanner.toPlanCoordinates(batten.getBounds());
+
+            if (bounds.intersects(region)) {
+                g2d.setColor(batten.getBackground());
+                g2d.fill(bounds);
+            }
+        }
+
+        for (JLight light : stagePlanner.getLights()) {
+            Rectangle bounds = stagePlanner.toPlanCoordinates(light.getBounds());
+
+            if (bounds.intersects(region)) {
+                g2d.setColor(light.getBackground());
+                PaintHelper.drawShape(g2d, light.getModel().getShape(), bounds.x, bounds.y, bounds.width, bounds.height);
+            }
+        }
+
+        for (JDraggableLabel label : stagePlanner.getLabels()) {
+            Rectangle bounds = stagePlanner.toPlanCoordinates(label.getBounds());
+
+            if (bounds.intersects(region)) {
+                g2d.setColor(Color.lightGray);
+                g2d.fill(bounds);
+            }
+        }
+
+        // dispose of graphics
+        g2d.dispose();
+
+    }
+
+    /**
+     * mousePressed(MouseEvent) Method:
+     * Moves the planner's viewport to the clicked point.
+     *
+     * Input: Mouse event.
+     *
+     * Process: Centers the viewport on the clicked point.
+     *
+     * Output: None.
+     *
+     * @param e Mouse event.
+     */
+    @Override
+    public void mousePressed(MouseEvent e) {
+        centerViewOn(e.getPoint());
+    }
+
+    /**
+     * mouseDragged(MouseEvent) Method:
+     * Moves the planner's viewport while the mouse is dragged.
+     *
+     * Input: Mouse event.
+     *
+     * Process: Centers the viewport on the current point.
+     *
+     * Output: None.
+     *
+     * @param e Mouse event.
+     */
+    @Override
+    public void mouseDragged(MouseEvent e) {
+        centerViewOn(e.getPoint());
+    }
+
+    /**
+     * centerViewOn(Point) Method:
+     * Centers the planner's viewport on the specified point of the minimap.
+     *
+     * Input: Point, in minimap coordinates.
+     *
+     * Process: Converts the point to drawing pane coordinates and moves the view position so it is centered on the
+     * point, without going outside the drawing pane.
+     *
+     * Output: None.
+     *
+     * @param point Point, in minimap coordinates
+     */
+    private void centerViewOn(Point point) {
+
+        // get viewport, view size & zoom
+        JViewport viewport = stagePlanner.getScrollPane().getViewport();
+        Dimension extent = viewport.getExtentSize();
+        Dimension viewSize = viewport.getViewSize();
+        float zoom = stagePlanner.getZoom();
+        double scale = getScale();
+
+        // get centered view position in drawing pane coordinates
+        int x = (int) (point.x / scale * zoom) - extent.width / 2;
+        int y = (int) (point.y / scale * zoom) - extent.height / 2;
+
+        // keep view inside the drawing pane & move it
+        x = Math.max(0, Math.min(x, viewSize.width - extent.width));
+        y = Math.max(0, Math.min(y, viewSize.height - extent.height));
+        viewport.setViewPosition(new Point(x, y));
+
+    }
+
+    @Override
+    public void mouseClicked(MouseEvent e) { }
+
+    @Override
+    public void mouseReleased(MouseEvent e) { }
+
+    @Override
+    public void mouseEntered(MouseEvent e) { }
+
+    @Override
+    public void mouseExited(MouseEvent e) { }
+
+    @Override
+    public void mouseMoved(MouseEvent e) { }
+}
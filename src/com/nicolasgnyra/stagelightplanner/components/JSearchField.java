@@ -0,0 +1,55 @@
+package com.nicolasgnyra.stagelightplanner.components;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.util.function.Consumer;
+
+/**
+ * JSearchField Class:
+ * A JTextField that calls a listener with its text after every keystroke, to search as the user types.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.0
+ */
+public class JSearchField extends JTextField {
+
+    /**
+     * JSearchField(Consumer<String>) Constructor:
+     * Creates a new instance of the JSearchField class with the specified search listener.
+     *
+     * Input: Search listener.
+     *
+     * Process: Sets the tooltip & adds a document listener that calls the search listener with the text.
+     *
+     * Output: A new instance of the JSearchField class.
+     *
+     * @param onSearch Called with the query when the text changes
+     */
+    public JSearchField(Consumer<String> onSearch) {
+
+        // set tooltip
+        setToolTipText("Search by name or label");
+
+        // add document listener
+        getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                onSearch.accept(getText());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                onSearch.accept(getText());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                onSearch.accept(getText());
+            }
+        });
+
+    }
+}
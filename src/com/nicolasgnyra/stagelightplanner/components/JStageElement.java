@@ -11,19 +11,20 @@ import java.awt.event.*;
  * Date: 2016-09-27
  *
  * @author Nicolas Gnyra
- * @version 1.0
+ * @version 1.2
  */
 public abstract class JStageElement extends JComponent implements MouseListener, MouseMotionListener, KeyListener {
 
     private boolean dragging = false;                           // whether the component is currently being dragged
     private Point relativeMouseLocation = new Point();          // relative mouse position at start of drag
-    protected JStagePlanner parent = new JStagePlanner(null);   // parent stage planner
+    protected JStagePlanner parent = DetachedParent.planner;    // parent stage planner
 
     protected int width = 0;        // element width
     protected int height = 0;       // element height
     protected int x = 0;            // element x coord
     protected int y = 0;            // element y coord
     protected Color color;          // element color
+    private int id = -1;            // ID of the element in its plan (-1 until it is added to one or saved)
 
     private boolean focus = false;      // whether the component is currently focused or not
     private final JPopupMenu popupMenu; // popup menu
@@ -42,6 +43,24 @@ public abstract class JStageElement extends JComponent implements MouseListener,
      */
     protected abstract void paintElement(Graphics g);
 
+    /**
+     * DetachedParent Class:
+     * Holds the stage planner used as a parent by elements that haven't been added to a planner yet. It is never shown
+     * and nothing is added to it, so every element shares it instead of creating a planner per element. The class is
+     * only initialized when the first element is created, which the JVM does once even if several threads create
+     * elements at the same time.
+     *
+     * Date: 2026-10-19
+     *
+     * @author Nicolas Gnyra
+     * @version 1.0
+     */
+    private static class DetachedParent {
+
+        private static final JStagePlanner planner = new JStagePlanner(null);   // detached stage planner
+
+    }
+
     /**
      * JStageElement(int, int, int, int, Color) Constructor:
      * Creates a new instance of the JStageElement class.
@@ -103,15 +122,81 @@ public abstract class JStageElement extends JComponent implements MouseListener,
      *
      * Input: None.
      *
-     * Process: Sets unsaved changes to "true" and repaints the parent.
+     * Process: Sets unsaved changes to "true", records the change in the edit journal, invalidates the element's
+     * cached layer and repaints the parent.
      *
      * Output: None.
      */
     protected void propertyUpdated() {
         parent.setHasUnsavedChanges(true);
+        parent.recordChange(this);
+        parent.invalidateElement(this);
         parent.repaint();
     }
 
+    /**
+     * setBounds(int, int, int, int) Method:
+     * Moves & resizes the component, invalidating its cached layer & minimap regions if the bounds changed.
+     *
+     * Input: Coordinates & dimensions.
+     *
+     * Process: Compares the new bounds with the current ones, invalidates the old bounds if needed, calls the
+     * superclass method & invalidates the new bounds.
+     *
+     * Output: None.
+     *
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @param width Width
+     * @param height Height
+     */
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+
+        // check if the bounds changed
+        boolean changed = parent != null && (x != getX() || y != getY() || width != getWidth() || height != getHeight());
+
+        // invalidate the old bounds
+        if (changed)
+            parent.invalidateElement(this);
+
+        // call superclass method
+        super.setBounds(x, y, width, height);
+
+        // invalidate the new bounds
+        if (changed)
+            parent.invalidateElement(this);
+
+    }
+
+    /**
+     * repaint(long, int, int, int, int) Method:
+     * Invalidates the element's cached layer and repaints the element.
+     *
+     * Input: Maximum time before update, region to repaint.
+     *
+     * Process: Invalidates the layer & calls the superclass method.
+     *
+     * Output: None.
+     *
+     * @param tm Maximum time in milliseconds before update
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @param width Width
+     * @param height Height
+     */
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+
+        // invalidate layer (parent isn't set yet while the superclass is being constructed)
+        if (parent != null)
+            parent.invalidateElement(this);
+
+        // call superclass method
+        super.repaint(tm, x, y, width, height);
+
+    }
+
     /**
      * setSize(int, int) Method:
      * Sets the size of the component and applies parent zoom.
@@ -303,6 +388,9 @@ public abstract class JStageElement extends JComponent implements MouseListener,
             this.x = (int) (x / parent.getZoom());
             this.y = (int) (y / parent.getZoom());
 
+            // record move in the edit journal
+            parent.recordMove(this);
+
             // scroll drawing pane
             drawingPane.scrollRectToVisible(scrolledView);
 
@@ -379,11 +467,12 @@ public abstract class JStageElement extends JComponent implements MouseListener,
      *
      * Input: None.
      *
-     * Process: Removes this component from the parent & repaints it.
+     * Process: Records the removal in the edit journal, removes this component from the parent & repaints it.
      *
      * Output: None.
      */
     protected void removeSelf() {
+        parent.recordRemoval(this);
         getParent().remove(this);
         parent.repaint();
     }
@@ -418,7 +507,7 @@ public abstract class JStageElement extends JComponent implements MouseListener,
             parent.addLight(new JLight(
                     light.getGridX() + parent.getCellSize() * 2,
                     light.getGridY() + parent.getCellSize() * 2,
-                    light.getModel().clone(),
+                    light.getModel(),
                     light.getBeamColor(),
                     light.getRotation(),
                     light.getAngle(),
@@ -473,10 +562,38 @@ public abstract class JStageElement extends JComponent implements MouseListener,
 
     }
 
+    /**
+     * setGridLocation(int, int) Method:
+     * Moves the element to the specified coordinates, without zoom.
+     *
+     * Input: X/Y coordinates.
+     *
+     * Process: Sets the coordinates, repositions the component & updates it like any other property.
+     *
+     * Output: Moved element.
+     *
+     * @param x X coordinate
+     * @param y Y coordinate
+     */
+    public void setGridLocation(int x, int y) {
+        this.x = x;
+        this.y = y;
+        reposition();
+        propertyUpdated();
+    }
+
     void setParent(JStagePlanner parent) {
         this.parent = parent;
     }
 
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
     public int getGridX() {
         return x;
     }
@@ -7,14 +7,15 @@ import java.awt.dnd.*;
 
 /**
  * JStageElementDefinition Class:
- * A generic, abstract drag-and-drop component to be used on a JStagePlanner instance.
+ * A generic, abstract drag-and-drop component to be used on a JStagePlanner instance. Definitions are shown & dragged
+ * by a JFixturePalette, which uses them to paint their cell & to follow the drag.
  *
  * Date: 2016-09-27
  *
  * @author Nicolas Gnyra
- * @version 1.0
+ * @version 1.1
  */
-abstract class JStageElementDefinition extends JComponent implements DragGestureListener, DragSourceListener {
+abstract class JStageElementDefinition extends JComponent implements DragSourceListener {
 
     abstract Transferable getTransferable();
 
@@ -24,53 +25,17 @@ abstract class JStageElementDefinition extends JComponent implements DragGesture
      *
      * Input: None.
      *
-     * Process: Initializes a new drag source on this component and sets the preferred size.
+     * Process: Sets the preferred size.
      *
      * Output: A new instance of the JStageElementDefinition class.
      */
     JStageElementDefinition() {
 
-        // create drag source & create gesture recognizer
-        DragSource dragSource = new DragSource();
-        dragSource.createDefaultDragGestureRecognizer(this, DnDConstants.ACTION_COPY_OR_MOVE, this);
-
         // set preferred size
         setPreferredSize(new Dimension(50, 50));
 
     }
 
-    /**
-     * dragGestureRecognized(DragGestureEvent) Method:
-     * Fired when a drag gesture is recognized on this component.
-     *
-     * Input: Drag gesture event.
-     *
-     * Process: Creates a transferable and initializes the drag.
-     *
-     * Output: None.
-     *
-     * @param e Drag gesture event.
-     */
-    @Override
-    public void dragGestureRecognized(DragGestureEvent e) {
-
-        try {
-
-            // get transferable
-            Transferable transferable = getTransferable();
-
-            // begin drag
-            e.startDrag(DragSource.DefaultCopyNoDrop, transferable, this);
-
-        } catch (InvalidDnDOperationException ex) {
-
-            // print error
-            ex.printStackTrace();
-
-        }
-
-    }
-
     /**
      * dragEnter(DragSourceDragEvent) Method:
      * Defines what cursor to show when entering a new drag target.
@@ -1,9 +1,16 @@
 package com.nicolasgnyra.stagelightplanner.components;
 
+import com.nicolasgnyra.stagelightplanner.EditJournal;
 import com.nicolasgnyra.stagelightplanner.LightDefinition;
+import com.nicolasgnyra.stagelightplanner.MappedStagePlan;
 import com.nicolasgnyra.stagelightplanner.Orientation;
 import com.nicolasgnyra.stagelightplanner.StagePlan;
+import com.nicolasgnyra.stagelightplanner.helpers.ExceptionHelper;
 import com.nicolasgnyra.stagelightplanner.helpers.PaintHelper;
+import com.nicolasgnyra.stagelightplanner.helpers.SectionCache;
+import com.nicolasgnyra.stagelightplanner.helpers.StagePlanSnapshot;
+import com.nicolasgnyra.stagelightplanner.rendering.BeamCompositor;
+import com.nicolasgnyra.stagelightplanner.rendering.LayerCache;
 import com.nicolasgnyra.stagelightplanner.transferables.StageElementTransferable;
 
 import javax.swing.*;
@@ -16,6 +23,12 @@ import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -26,17 +39,28 @@ import java.util.regex.Pattern;
  * Date: 2016-09-27
  *
  * @author Nicolas Gnyra
- * @version 1.0
+ * @version 1.5
  */
 public class JStagePlanner extends JPanel implements MouseListener, MouseMotionListener, DropTargetListener {
 
     private static final int cellSize = 10;             // cell size, in px
     private static final int largeCellMultiplier = 10;  // large cell size, multiplier of cellSize
+    private static final int decodeMargin = 256;        // distance around the view in which mapped elements are decoded, in px
 
     private final JScrollPane scrollPane;       // drawing pane scroll pane
     private final DrawingPane drawingPane;     // graphics container
+    private JMinimap minimap = null;            // overview of the drawing pane
     private Point dragOrigin = null;            // drag origin (for scroll pane)
 
+    private MappedStagePlan mappedPlan = null;              // mapped plan whose elements are added as they come into view
+    private final BitSet pendingElements = new BitSet();    // elements of the mapped plan that haven't been added yet
+    private EditJournal journal = null;                     // journal in which changes are recorded (null if none)
+    private SectionCache sectionCache = new SectionCache(); // encoded sections of the plan, reused by the next save
+    private int nextStageElementId = 0;                     // ID of the next element added to the plan
+
+    private final HashMap<LightDefinition, Set<JLight>> lightsByModel = new HashMap<>();          // lights of the drawing pane, by light definition
+    private final HashMap<LightDefinition, LightDefinition> replacedModels = new HashMap<>();    // changed definitions, applied to mapped lights as they're decoded
+
     private final int acceptableDnDActions = DnDConstants.ACTION_COPY;    // acceptable drag and drop actions
     private final JPropertiesContainer propertiesContainer;               // properties container
 
@@ -74,6 +98,9 @@ public class JStagePlanner extends JPanel implements MouseListener, MouseMotionL
         // create scroll pane
         scrollPane = new JScrollPane(drawingPane, ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS, ScrollPaneConstants.HORIZONTAL_SCROLLBAR_ALWAYS);
 
+        // add elements of the mapped plan when they come into view
+        scrollPane.getViewport().addChangeListener(e -> addVisibleStageElements());
+
         // create bottom toolbar & set layout
         JPanel bottomToolbar = new JPanel();
         bottomToolbar.setLayout(new BoxLayout(bottomToolbar, BoxLayout.X_AXIS));
@@ -82,8 +109,20 @@ public class JStagePlanner extends JPanel implements MouseListener, MouseMotionL
         JCheckBox showOutlinesCheckBox = new JCheckBox("Show beam outlines", showLightOutlines);
         showOutlinesCheckBox.addItemListener((e) -> {
 
-            // if checked, show outlines & repaint
+            // if checked, show outlines, invalidate beams & repaint
             showLightOutlines = e.getStateChange() == ItemEvent.SELECTED;
+            drawingPane.beamLayer.invalidate();
+            repaint();
+
+        });
+
+        // create check box for soft beam edges & add listener
+        JCheckBox softEdgesCheckBox = new JCheckBox("Soft beam edges", false);
+        softEdgesCheckBox.addItemListener((e) -> {
+
+            // if checked, draw beams from soft-edged sprites, invalidate beams & repaint
+            drawingPane.beamCompositor.setSoftEdges(e.getStateChange() == ItemEvent.SELECTED);
+            drawingPane.beamLayer.invalidate();
             repaint();
 
         });
@@ -116,8 +155,13 @@ public class JStagePlanner extends JPanel implements MouseListener, MouseMotionL
                 // set zoom to parsed float
                 zoom = Math.max(minZoom, Math.min(Float.parseFloat(matcher.group(1)) / 100f, maxZoom));
 
-                // reposition all stage elements
+                // reposition all stage elements & invalidate cached layers
                 getStageElements().forEach(JStageElement::reposition);
+                drawingPane.invalidateAllLayers();
+
+                // redraw minimap since elements were repositioned with the new zoom
+                if (minimap != null)
+                    minimap.invalidateAll();
 
                 // repaint
                 repaint();
@@ -133,6 +177,7 @@ public class JStagePlanner extends JPanel implements MouseListener, MouseMotionL
 
         // add elements to bottom toolbar
         bottomToolbar.add(showOutlinesCheckBox);
+        bottomToolbar.add(softEdgesCheckBox);
         bottomToolbar.add(Box.createHorizontalGlue());
         bottomToolbar.add(zoomComboBox);
 
@@ -154,7 +199,7 @@ public class JStagePlanner extends JPanel implements MouseListener, MouseMotionL
      *
      * Input: JStageElement to add.
      *
-     * Process: Set unsaved changes to true, set stage element parent, add to drawing pane, request inner focus, repaint, reposition
+     * Process: Set unsaved changes to true, set stage element parent & ID, add to drawing pane, record in journal, request inner focus, repaint, reposition
      *
      * Output: New stage element in the planner.
      *
@@ -165,11 +210,15 @@ public class JStagePlanner extends JPanel implements MouseListener, MouseMotionL
         // set unsaved changes to true
         setHasUnsavedChanges(true);
 
-        // set parent
+        // set parent & give new elements an ID
         stageElement.setParent(this);
 
-        // add to drawing pane
+        if (stageElement.getId() < 0)
+            stageElement.setId(nextStageElementId++);
+
+        // add to drawing pane & record it in the edit journal
         drawingPane.add(stageElement);
+        recordChange(stageElement);
 
         // request focus, reposition, repaint
         stageElement.requestInnerFocus();
@@ -180,6 +229,84 @@ public class JStagePlanner extends JPanel implements MouseListener, MouseMotionL
 
     }
 
+    /**
+     * addLoadedStageElement(JStageElement) Method:
+     * Adds a stage element loaded from a file to the drawing pane.
+     *
+     * Input: JStageElement to add.
+     *
+     * Process: Sets the stage element parent, adds it to the drawing pane in the layer of its type & repositions it.
+     * Unlike addStageElement, it doesn't count as a change and doesn't take focus.
+     *
+     * Output: New stage element in the planner.
+     *
+     * @param stageElement JStageElement to add.
+     */
+    private void addLoadedStageElement(JStageElement stageElement) {
+
+        // set parent & add to drawing pane
+        stageElement.setParent(this);
+        drawingPane.add(stageElement);
+
+        // set layer based on type
+        if (stageElement instanceof JBatten)
+            drawingPane.setLayer(stageElement, DrawingPane.BATTEN_LAYER);
+        else if (stageElement instanceof JLight)
+            drawingPane.setLayer(stageElement, DrawingPane.LIGHT_LAYER);
+        else
+            drawingPane.setLayer(stageElement, DrawingPane.LABEL_LAYER);
+
+        // reposition
+        stageElement.reposition();
+
+    }
+
+    /**
+     * addVisibleStageElements() Method:
+     * Adds the elements of the mapped plan that are in or near the visible area.
+     *
+     * Input: None.
+     *
+     * Process: Finds the pending elements whose bounds intersect the view (with a margin), decodes them & adds them.
+     *
+     * Output: New stage elements in the planner.
+     */
+    private void addVisibleStageElements() {
+
+        // nothing to do if there are no pending elements
+        if (mappedPlan == null || pendingElements.isEmpty())
+            return;
+
+        // get visible area with a margin, in plan coordinates
+        Rectangle view = scrollPane.getViewport().getViewRect();
+        view.grow(decodeMargin, decodeMargin);
+        Rectangle area = toPlanCoordinates(view);
+
+        // decode & add pending elements in the area
+        try {
+            for (int index : mappedPlan.find(area)) {
+                if (pendingElements.get(index)) {
+                    JStageElement stageElement = getMappedStageElement(index);
+                    pendingElements.clear(index);
+
+                    if (stageElement != null)
+                        addLoadedStageElement(stageElement);
+                }
+            }
+        } catch (IOException ex) {
+
+            // stop decoding the plan
+            mappedPlan = null;
+            pendingElements.clear();
+            ExceptionHelper.showErrorDialog(this, ex);
+
+        }
+
+        // repaint
+        repaint();
+
+    }
+
     /**
      * addBatten(JBatten) Method:
      * Add a JBatten to the drawing pane.
@@ -428,7 +555,7 @@ public class JStagePlanner extends JPanel implements MouseListener, MouseMotionL
 
             // add element based on data class
             if (data instanceof LightDefinition)
-                addLight(new JLight(x, y, ((LightDefinition)data).clone()));
+                addLight(new JLight(x, y, (LightDefinition)data));
             else if (data instanceof String)
                 addLabel(new JDraggableLabel(x, y, "Text"));
             else
@@ -464,12 +591,13 @@ public class JStagePlanner extends JPanel implements MouseListener, MouseMotionL
 
     /**
      * DrawingPane Class:
-     * A JLayeredPane that contains all the JStageElements.
+     * A JLayeredPane that contains all the JStageElements. Every layer is cached in an image in which only the regions
+     * of the elements that changed are repainted, and only the beams of the lights that changed are rebuilt.
      *
      * Date: 2016-09-27
      *
      * @author Nicolas Gnyra
-     * @version 1.0
+     * @version 1.1
      */
     private class DrawingPane extends JLayeredPane {
 
@@ -478,7 +606,19 @@ public class JStagePlanner extends JPanel implements MouseListener, MouseMotionL
         static final int LIGHT_LAYER = 1;
         static final int LABEL_LAYER = 2;
 
-        private final Dimension size;     // size without zoom
+        private final Dimension size;                                           // size without zoom
+        private final BeamCompositor beamCompositor = new BeamCompositor();     // additive beam compositor
+
+        private final LayerCache gridLayer = new LayerCache();                  // cached grid
+        private final LayerCache beamLayer = new LayerCache();                  // cached beams & outlines
+        private final LayerCache[] elementLayers = {                            // cached elements, by layer
+                new LayerCache(),
+                new LayerCache(),
+                new LayerCache()
+        };
+
+        private final Set<JLight> changedLights = Collections.newSetFromMap(new IdentityHashMap<>());   // lights whose beam must be rebuilt
+        private final Map<JLight, JBatten> overlappingBattens = new IdentityHashMap<>();                // batten under each light that has a beam
 
         /**
          * DrawingPane(width, height) Constructor:
@@ -525,13 +665,187 @@ public class JStagePlanner extends JPanel implements MouseListener, MouseMotionL
 
         }
 
+        /**
+         * invalidateLayerOf(Component) Method:
+         * Invalidates the region of the specified element in its cached layer, as well as what depends on it.
+         *
+         * Input: Changed element.
+         *
+         * Process: Invalidates the element's bounds in its layer. Battens also invalidate the lights on top of them
+         * (which are drawn differently when they aren't on a batten) & mark them as changed, and lights mark
+         * themselves as changed, so their beams are rebuilt before the beams are painted. Called with the old & new
+         * bounds when an element moves. Elements that aren't in the drawing pane are ignored.
+         *
+         * Output: None.
+         *
+         * @param comp Changed element.
+         */
+        void invalidateLayerOf(Component comp) {
+
+            // nothing to do if the element isn't in the drawing pane
+            if (comp.getParent() != this)
+                return;
+
+            // invalidate the element's bounds in its layer
+            int layer = getLayer(comp);
+
+            if (layer >= 0 && layer < elementLayers.length)
+                elementLayers[layer].invalidate(comp.getBounds());
+
+            // invalidate the lights on top of battens & mark changed lights so their beams are rebuilt
+            if (comp instanceof JBatten) {
+                for (JLight light : getLights()) {
+                    if (light.getBounds().intersects(comp.getBounds())) {
+                        elementLayers[LIGHT_LAYER].invalidate(light.getBounds());
+                        changedLights.add(light);
+                    }
+                }
+            } else if (comp instanceof JLight) {
+                changedLights.add((JLight) comp);
+            }
+
+        }
+
+        /**
+         * invalidateAllLayers() Method:
+         * Invalidates every cached layer.
+         *
+         * Input: None.
+         *
+         * Process: Invalidates the grid, beam & element layers & marks every light as changed.
+         *
+         * Output: None.
+         */
+        void invalidateAllLayers() {
+            gridLayer.invalidate();
+            beamLayer.invalidate();
+
+            for (LayerCache elementLayer : elementLayers)
+                elementLayer.invalidate();
+
+            changedLights.addAll(getLights());
+        }
+
+        /**
+         * setLayer(Component, int, int) Method:
+         * Moves the specified component to a layer and invalidates both the old and new layer.
+         *
+         * Input: Component, layer, position.
+         *
+         * Process: Invalidates the old layer, calls the superclass method & invalidates the new layer.
+         *
+         * Output: None.
+         *
+         * @param c Component
+         * @param layer Layer
+         * @param position Position in the layer
+         */
+        @Override
+        public void setLayer(Component c, int layer, int position) {
+            invalidateLayerOf(c);
+            super.setLayer(c, layer, position);
+            invalidateLayerOf(c);
+        }
+
+        /**
+         * addImpl(Component, Object, int) Method:
+         * Adds the specified component and indexes it by light definition if it's a light.
+         *
+         * Input: Component, constraints, index.
+         *
+         * Process: Calls the superclass method, adds lights to the index of lights by definition & invalidates the
+         * component's layer.
+         *
+         * Output: None.
+         *
+         * @param comp Component
+         * @param constraints Constraints (the layer)
+         * @param index Position in the layer
+         */
+        @Override
+        protected void addImpl(Component comp, Object constraints, int index) {
+            super.addImpl(comp, constraints, index);
+
+            if (comp instanceof JLight)
+                getIndexedLights(((JLight) comp).getModel()).add((JLight) comp);
+
+            invalidateLayerOf(comp);
+        }
+
+        /**
+         * remove(int) Method:
+         * Removes the component at the specified index and invalidates its layer.
+         *
+         * Input: Component index.
+         *
+         * Process: Removes lights from the index of lights by definition, invalidates the component's layer & minimap
+         * region and calls the superclass method.
+         *
+         * Output: None.
+         *
+         * @param index Component index
+         */
+        @Override
+        public void remove(int index) {
+            Component comp = getComponent(index);
+
+            if (comp instanceof JLight) {
+                Set<JLight> lights = lightsByModel.get(((JLight) comp).getModel());
+
+                if (lights != null && lights.remove(comp) && lights.isEmpty())
+                    lightsByModel.remove(((JLight) comp).getModel());
+            }
+
+            invalidateLayerOf(comp);
+
+            if (minimap != null)
+                minimap.invalidateRegion(toPlanCoordinates(comp.getBounds()));
+
+            super.remove(index);
+        }
+
+        /**
+         * removeAll() Method:
+         * Removes all components and invalidates all layers.
+         *
+         * Input: None.
+         *
+         * Process: Calls the superclass method & invalidates all layers and the minimap.
+         *
+         * Output: None.
+         */
+        @Override
+        public void removeAll() {
+            super.removeAll();
+            invalidateAllLayers();
+
+            // forget the beams of the removed lights
+            beamCompositor.setBeams(new IdentityHashMap<>());
+            overlappingBattens.clear();
+            changedLights.clear();
+
+            // forget the elements of the mapped plan that weren't added & the lights of each definition
+            mappedPlan = null;
+            pendingElements.clear();
+            replacedModels.clear();
+            lightsByModel.clear();
+
+            // start numbering elements from scratch
+            sectionCache = new SectionCache();
+            nextStageElementId = 0;
+
+            if (minimap != null)
+                minimap.invalidateAll();
+        }
+
         /**
          * paintComponent(Graphics) Method:
          * Paints the drawing pane & the light beams.
          *
          * Input: Graphics instance.
          *
-         * Process: Draws cells & light beams if the light is on top of a batten.
+         * Process: Rebuilds the beams of changed lights & draws the cached grid & beam layers, repainting their outdated
+         * regions first.
          *
          * Output: Painted component.
          *
@@ -549,8 +863,55 @@ public class JStagePlanner extends JPanel implements MouseListener, MouseMotionL
             // call super method
             super.paintComponent(g);
 
-            // cast graphics to 2D graphics
-            Graphics2D g2d = (Graphics2D) g;
+            // make sure all battens are properly placed & sized
+            getBattens().forEach(JBatten::reposition);
+
+            // draw grid & beams
+            updateBeams();
+            gridLayer.paint(g, getVisibleRect(), new Rectangle(getSize()), this::paintGrid);
+            beamLayer.paint(g, getVisibleRect(), new Rectangle(getSize()), this::paintBeams);
+
+            // revalidate to update scroll bars
+            revalidate();
+
+        }
+
+        /**
+         * paintChildren(Graphics) Method:
+         * Paints the stage elements from the cached element layers.
+         *
+         * Input: Graphics instance.
+         *
+         * Process: Draws the cached batten, light & label layers, repainting them first if they are outdated.
+         *
+         * Output: Painted children.
+         *
+         * @param g Graphics instance.
+         */
+        @Override
+        protected void paintChildren(Graphics g) {
+
+            // draw element layers from bottom to top
+            for (int layer = 0; layer < elementLayers.length; layer++) {
+                final int currentLayer = layer;
+                elementLayers[layer].paint(g, getVisibleRect(), new Rectangle(getSize()), g2d -> paintElements(g2d, currentLayer));
+            }
+
+        }
+
+        /**
+         * paintGrid(Graphics2D) Method:
+         * Paints the grid cells.
+         *
+         * Input: Graphics instance.
+         *
+         * Process: Draws small cells if zoom is high enough & large cells.
+         *
+         * Output: Painted grid.
+         *
+         * @param g2d Graphics instance.
+         */
+        private void paintGrid(Graphics2D g2d) {
 
             // set color to light gray
             g2d.setColor(Color.lightGray);
@@ -569,34 +930,231 @@ public class JStagePlanner extends JPanel implements MouseListener, MouseMotionL
                 for (int j = 0; j <= getHeight(); j += (int)(cellSize * zoom) * largeCellMultiplier)
                     g2d.drawRect(i, j, i + (int)(cellSize * zoom) * largeCellMultiplier, j + (int)(cellSize * zoom) * largeCellMultiplier);
 
+        }
+
+        /**
+         * updateBeams() Method:
+         * Rebuilds the beams of the lights that changed since the beams were last painted.
+         *
+         * Input: None.
+         *
+         * Process: Gets the batten on top of which each changed light is & replaces the light's beam in the compositor,
+         * removing it if the light was removed or isn't on a batten anymore. Invalidates the old & new bounds of the
+         * beams that changed in the beam layer.
+         *
+         * Output: None.
+         */
+        private void updateBeams() {
+
+            for (JLight light : changedLights) {
+
+                // get batten on top of which the light currently is (none if the light was removed)
+                JBatten overlappingBatten = light.getParent() == this ? light.getOverlappingBatten() : null;
+                BeamCompositor.Beam beam = null;
+
+                // if the batten was found, create the beam
+                if (overlappingBatten != null) {
+                    beam = new BeamCompositor.Beam(light.getX(), light.getY(), light.getWidth(), light.getHeight(), light.getFieldAngle(), (int) (overlappingBatten.getHeightFromFloor() * getZoom()), light.getBeamColor(), light.getBeamIntensity(), light.getRotation(), light.getAngle());
+                    overlappingBattens.put(light, overlappingBatten);
+                } else {
+                    overlappingBattens.remove(light);
+                }
+
+                // replace beam & invalidate its old & new bounds if it changed
+                BeamCompositor.Beam oldBeam = beamCompositor.setBeam(light, beam);
+
+                if (oldBeam != null && !oldBeam.equals(beam))
+                    beamLayer.invalidate(oldBeam.getBounds());
+
+                if (beam != null && !beam.equals(oldBeam))
+                    beamLayer.invalidate(beam.getBounds());
+
+            }
+
+            changedLights.clear();
+
+        }
+
+        /**
+         * paintBeams(Graphics2D) Method:
+         * Paints the light beams.
+         *
+         * Input: Graphics instance.
+         *
+         * Process: Draws the tiles of the mixed beams in the clip and the outlines of the beams that intersect it.
+         *
+         * Output: Painted beams.
+         *
+         * @param g2d Graphics instance.
+         */
+        private void paintBeams(Graphics2D g2d) {
+
             // enable anti-aliasing
             g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-            // make sure all battens are properly placed & sized
-            getBattens().forEach(JBatten::reposition);
+            // draw the tiles of the beams mixed additively in the clip
+            Rectangle clip = g2d.getClipBounds();
+            beamCompositor.paint(g2d, clip);
 
-            // iterate through stage elements
-            getLights().forEach(light -> {
+            // draw outlines in the clip on top of the mixed beams
+            if (showLightOutlines)
+                overlappingBattens.forEach((light, batten) -> {
+                    if (beamCompositor.getBeam(light).getBounds().intersects(clip))
+                        PaintHelper.drawBeamOutline(g2d, light.getX(), light.getY(), light.getWidth(), light.getHeight(), light.getFieldAngle(), (int) (batten.getHeightFromFloor() * getZoom()), light.getBeamColor(), light.getBeamIntensity(), light.getRotation(), light.getAngle());
+                });
 
-                // get batten on top of which the light currently is
-                JBatten overlappingBatten = light.getOverlappingBatten();
+        }
 
-                // if the batten was found, draw the beam
-                if (overlappingBatten != null) {
+        /**
+         * paintElements(Graphics2D, int) Method:
+         * Paints the stage elements of the specified layer.
+         *
+         * Input: Graphics instance, layer.
+         *
+         * Process: Paints every element of the layer that intersects the clip, from bottom to top.
+         *
+         * Output: Painted elements.
+         *
+         * @param g2d Graphics instance.
+         * @param layer Layer to paint.
+         */
+        private void paintElements(Graphics2D g2d, int layer) {
 
-                    PaintHelper.drawBeam(g2d, light.getX(), light.getY(), light.getWidth(), light.getHeight(), light.getFieldAngle(), (int) (overlappingBatten.getHeightFromFloor() * getZoom()), light.getBeamColor(), light.getBeamIntensity(), light.getRotation(), light.getAngle(), showLightOutlines);
+            // get clip & components (topmost component first)
+            Rectangle clip = g2d.getClipBounds();
+            Component[] components = getComponentsInLayer(layer);
 
-                }
+            // iterate through components from bottom to top
+            for (int i = components.length - 1; i >= 0; i--) {
 
-            });
+                // get component
+                Component comp = components[i];
 
-            // disable anti-aliasing
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+                // skip components that are hidden or outside the clip
+                if (!comp.isVisible() || !comp.getBounds().intersects(clip))
+                    continue;
 
-            // revalidate to update scroll bars
-            revalidate();
+                // paint component in its own coordinate space
+                Graphics componentGraphics = g2d.create(comp.getX(), comp.getY(), comp.getWidth(), comp.getHeight());
+                comp.paint(componentGraphics);
+                componentGraphics.dispose();
+
+            }
+
+        }
+    }
+
+    /**
+     * replaceLightDefinition(LightDefinition, LightDefinition) Method:
+     * Applies a change made to a light definition in the fixture editor to the lights placed from it.
+     *
+     * Input: Old & new light definitions.
+     *
+     * Process: Gets the lights of the old definition from the index, gives them the new one, records them in the edit
+     * journal & invalidates their cached layers & minimap regions. Lights of the mapped plan that haven't been added
+     * yet get the new definition when they're decoded.
+     *
+     * Output: Updated lights.
+     *
+     * @param oldModel Definition before the change
+     * @param newModel Definition after the change
+     */
+    public void replaceLightDefinition(LightDefinition oldModel, LightDefinition newModel) {
+
+        // get shared instances (lights are indexed by those)
+        oldModel = oldModel.intern();
+        newModel = newModel.intern();
+
+        if (oldModel == newModel)
+            return;
+
+        // remember the change for lights that haven't been decoded yet, including earlier changes that led to the old definition
+        if (mappedPlan != null && !pendingElements.isEmpty()) {
+            for (Map.Entry<LightDefinition, LightDefinition> entry : replacedModels.entrySet())
+                if (entry.getValue() == oldModel)
+                    entry.setValue(newModel);
+
+            replacedModels.putIfAbsent(oldModel, newModel);
+            sectionCache.invalidate(JLight.class);
+        }
 
+        // get lights of the old definition
+        Set<JLight> lights = lightsByModel.remove(oldModel);
+
+        if (lights == null)
+            return;
+
+        // update lights
+        for (JLight light : lights) {
+            light.setModel(newModel);
+            recordChange(light);
+            invalidateElement(light);
         }
+
+        // move them to the new definition in the index
+        getIndexedLights(newModel).addAll(lights);
+
+        // set unsaved changes to true & repaint
+        setHasUnsavedChanges(true);
+        repaint();
+
+    }
+
+    /**
+     * getIndexedLights(LightDefinition) Method:
+     * Gets the set of lights of the specified definition in the index, creating it if needed.
+     *
+     * Input: Light definition.
+     *
+     * Process: Gets the set from the index, or adds an empty one (compared by identity, since equal lights can be
+     * placed on top of each other).
+     *
+     * Output: Set of lights of the definition.
+     *
+     * @param model Light definition
+     * @return Set of lights of the definition
+     */
+    private Set<JLight> getIndexedLights(LightDefinition model) {
+        return lightsByModel.computeIfAbsent(model, key -> Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    /**
+     * invalidateElement(JStageElement) Method:
+     * Invalidates the cached layers affected by a change to the specified element.
+     *
+     * Input: Changed stage element.
+     *
+     * Process: Invalidates the element's layer in the drawing pane and the region it covers in the minimap.
+     *
+     * Output: None.
+     *
+     * @param stageElement Changed stage element.
+     */
+    void invalidateElement(JStageElement stageElement) {
+        drawingPane.invalidateLayerOf(stageElement);
+
+        if (minimap != null)
+            minimap.invalidateRegion(toPlanCoordinates(stageElement.getBounds()));
+    }
+
+    /**
+     * toPlanCoordinates(Rectangle) Method:
+     * Converts a rectangle from drawing pane coordinates to plan coordinates (without zoom).
+     *
+     * Input: Rectangle in drawing pane coordinates.
+     *
+     * Process: Divides the rectangle by zoom, rounding outwards.
+     *
+     * Output: Rectangle in plan coordinates.
+     *
+     * @param rect Rectangle in drawing pane coordinates
+     * @return Rectangle in plan coordinates
+     */
+    Rectangle toPlanCoordinates(Rectangle rect) {
+        int x = (int) Math.floor(rect.x / zoom);
+        int y = (int) Math.floor(rect.y / zoom);
+
+        return new Rectangle(x, y, (int) Math.ceil((rect.x + rect.width) / zoom) - x, (int) Math.ceil((rect.y + rect.height) / zoom) - y);
     }
 
     /**
@@ -665,19 +1223,45 @@ public class JStagePlanner extends JPanel implements MouseListener, MouseMotionL
         return lights;
     }
 
+    /**
+     * getLabels() Method:
+     * Retrieves all JDraggableLabel components from the drawing pane.
+     *
+     * Input: None.
+     *
+     * Process: Iterates through all components and finds the JDraggableLabel instances.
+     *
+     * Output: List of JDraggableLabels contained in the drawing pane.
+     *
+     * @return List of JDraggableLabels contained in the drawing pane.
+     */
+    ArrayList<JDraggableLabel> getLabels() {
+        ArrayList<JDraggableLabel> labels = new ArrayList<>();
+
+        for (Component comp : drawingPane.getComponents())
+            if (comp instanceof JDraggableLabel)
+                labels.add((JDraggableLabel) comp);
+
+        return labels;
+    }
+
     /**
      * setStagePlan(StagePlan) Method:
      * Adds all stage plan components to the drawing pane.
      *
      * Input: Stage plan.
      *
-     * Process: Iterates through stage plan elements and adds them to the drawing pane.
+     * Process: Makes sure new elements get IDs after the plan's, then iterates through stage plan elements and adds
+     * them to the drawing pane.
      *
      * Output: None.
      *
      * @param plan Stage plan.
      */
     public void setStagePlan(StagePlan plan) {
+        for (JStageElement stageElement : plan.getStageElements())
+            nextStageElementId = Math.max(nextStageElementId, stageElement.getId() + 1);
+
         for (JStageElement stageElement : plan.getStageElements()) {
             if (stageElement instanceof JBatten) {
                 addBatten((JBatten) stageElement);
@@ -691,6 +1275,154 @@ public class JStagePlanner extends JPanel implements MouseListener, MouseMotionL
         }
     }
 
+    /**
+     * setStagePlan(MappedStagePlan) Method:
+     * Shows a mapped stage plan, only decoding the elements that come into view.
+     *
+     * Input: Mapped stage plan.
+     *
+     * Process: Marks all elements of the plan as pending, reuses its sections for the next save & adds the elements
+     * that are currently visible. The others are added as the view scrolls or zooms to them.
+     *
+     * Output: None.
+     *
+     * @param plan Mapped stage plan.
+     */
+    public void setStagePlan(MappedStagePlan plan) {
+        mappedPlan = plan;
+        pendingElements.clear();
+        pendingElements.set(0, plan.size());
+        nextStageElementId = Math.max(nextStageElementId, plan.getNextId());
+        sectionCache = plan.getSectionCache();
+
+        addVisibleStageElements();
+    }
+
+    /**
+     * getMappedStageElement(int) Method:
+     * Decodes an element of the mapped plan.
+     *
+     * Input: Index of the element.
+     *
+     * Process: Gets the element from the mapped plan & replaces its light definition if it was changed in the fixture
+     * editor.
+     *
+     * Output: Stage element (null if its type is unknown).
+     *
+     * @param index Index of the element
+     * @return Stage element (null if its type is unknown)
+     * @throws IOException Thrown when the element can't be decoded.
+     */
+    private JStageElement getMappedStageElement(int index) throws IOException {
+
+        // decode element & give it the latest version of its light definition
+        JStageElement stageElement = mappedPlan.getStageElement(index);
+
+        if (stageElement instanceof JLight && !replacedModels.isEmpty()) {
+            LightDefinition replacement = replacedModels.get(((JLight) stageElement).getModel());
+
+            if (replacement != null)
+                ((JLight) stageElement).setModel(replacement);
+        }
+
+        return stageElement;
+
+    }
+
+    /**
+     * recordChange(JStageElement) Method:
+     * Records in the edit journal that an element was added or changed.
+     *
+     * Input: Stage element.
+     *
+     * Process: Drops the element's section from the section cache & records the element if there is a journal. Stops journaling if that fails.
+     *
+     * Output: None.
+     *
+     * @param stageElement Stage element
+     */
+    void recordChange(JStageElement stageElement) {
+        sectionCache.invalidate(stageElement);
+
+        if (journal != null) {
+            try {
+                journal.put(stageElement);
+            } catch (IOException ex) {
+                stopJournal(ex);
+            }
+        }
+    }
+
+    /**
+     * recordMove(JStageElement) Method:
+     * Records in the edit journal that an element was moved.
+     *
+     * Input: Stage element.
+     *
+     * Process: Drops the element's section from the section cache & records the element's coordinates if there is a
+     * journal. Stops journaling if that fails.
+     *
+     * Output: None.
+     *
+     * @param stageElement Stage element
+     */
+    void recordMove(JStageElement stageElement) {
+        sectionCache.invalidate(stageElement);
+
+        if (journal != null) {
+            try {
+                journal.move(stageElement);
+            } catch (IOException ex) {
+                stopJournal(ex);
+            }
+        }
+    }
+
+    /**
+     * recordRemoval(JStageElement) Method:
+     * Records in the edit journal that an element was removed.
+     *
+     * Input: Stage element.
+     *
+     * Process: Drops the element's section from the section cache & records the removal if there is a journal. Stops journaling if that fails.
+     *
+     * Output: None.
+     *
+     * @param stageElement Stage element
+     */
+    void recordRemoval(JStageElement stageElement) {
+        sectionCache.invalidate(stageElement);
+
+        if (journal != null) {
+            try {
+                journal.remove(stageElement);
+            } catch (IOException ex) {
+                stopJournal(ex);
+            }
+        }
+    }
+
+    /**
+     * stopJournal(IOException) Method:
+     * Stops recording changes after the edit journal failed.
+     *
+     * Input: Error.
+     *
+     * Process: Clears the journal & shows the error.
+     *
+     * Output: None.
+     *
+     * @param ex Error
+     */
+    private void stopJournal(IOException ex) {
+        journal = null;
+        ExceptionHelper.showErrorDialog(this, ex);
+    }
+
+    public void setJournal(EditJournal journal) {
+        this.journal = journal;
+    }
+
     public void setHasUnsavedChanges(boolean hasUnsavedChanges) {
         this.hasUnsavedChanges = hasUnsavedChanges;
     }
@@ -715,8 +1447,125 @@ public class JStagePlanner extends JPanel implements MouseListener, MouseMotionL
         return zoom;
     }
 
-    public StagePlan getStagePlan() {
-        return new StagePlan(getStageElements());
+    Dimension getPlanSize() {
+        return new Dimension(drawingPane.size);
+    }
+
+    /**
+     * getSectionCache() Method:
+     * Gets the encoded sections of the plan that are still up to date.
+     *
+     * Input: None.
+     *
+     * Process: Returns the section cache, which is replaced when a new plan is shown.
+     *
+     * Output: Section cache.
+     *
+     * @return Section cache to give to FileHelper.createStagePlanSnapshot
+     */
+    public SectionCache getSectionCache() {
+        return sectionCache;
+    }
+
+    /**
+     * copyMappedPlanToHeap() Method:
+     * Stops reading the file of the mapped plan, so the file can be replaced.
+     *
+     * Input: None.
+     *
+     * Process: Copies what the mapped plan still reads from the file to the heap, or only the section cache once every
+     * element of the plan was added, as it keeps the unchanged sections of the file.
+     *
+     * Output: None.
+     */
+    public void copyMappedPlanToHeap() {
+        if (mappedPlan != null)
+            mappedPlan.copyToHeap();
+        else
+            sectionCache.copyToHeap();
+    }
+
+    void setMinimap(JMinimap minimap) {
+        this.minimap = minimap;
+    }
+
+    /**
+     * getStagePlan() Method:
+     * Gets the stage plan shown in the planner.
+     *
+     * Input: None.
+     *
+     * Process: Gets the elements of the drawing pane & decodes the elements of the mapped plan that haven't been
+     * added yet. Uses the minimap's image as the thumbnail if
+     * there is a minimap.
+     *
+     * Output: Stage plan.
+     *
+     * @return Stage plan.
+     * @throws IOException Thrown when an element of the mapped plan can't be decoded.
+     */
+    public StagePlan getStagePlan() throws IOException {
+
+        // get elements of the drawing pane
+        ArrayList<JStageElement> stageElements = getStageElements();
+
+        // add pending elements of the mapped plan
+        if (mappedPlan != null) {
+            for (int i = pendingElements.nextSetBit(0); i >= 0; i = pendingElements.nextSetBit(i + 1)) {
+                JStageElement stageElement = getMappedStageElement(i);
+
+                if (stageElement != null)
+                    stageElements.add(stageElement);
+            }
+        }
+
+        // create plan with the minimap as thumbnail
+        StagePlan stagePlan = new StagePlan(stageElements);
+
+        if (minimap != null)
+            stagePlan.setThumbnail(minimap.createThumbnail());
+
+        return stagePlan;
+
+    }
+
+    /**
+     * createSnapshot() Method:
+     * Takes a snapshot of the stage plan shown in the planner, to be encoded on another thread.
+     *
+     * Input: None.
+     *
+     * Process: Gets the elements of the drawing pane & the elements of the mapped plan that haven't been added yet.
+     * Those are copied from the plan's sections without being created, except for older files, whose elements are
+     * decoded. Uses a copy of the minimap's image as the thumbnail if there is a minimap.
+     *
+     * Output: Snapshot of the plan.
+     *
+     * @return Snapshot of the plan
+     * @throws IOException Thrown when an element or section of the mapped plan can't be decoded.
+     */
+    public StagePlanSnapshot createSnapshot() throws IOException {
+
+        // get elements of the drawing pane
+        ArrayList<JStageElement> stageElements = getStageElements();
+        BitSet mappedElements = new BitSet();
+
+        // add pending elements of the mapped plan, decoding them if the plan has no sections
+        if (mappedPlan != null) {
+            for (int i = pendingElements.nextSetBit(0); i >= 0; i = pendingElements.nextSetBit(i + 1)) {
+                if (mappedPlan.hasSections()) {
+                    mappedElements.set(i);
+                } else {
+                    JStageElement stageElement = getMappedStageElement(i);
+
+                    if (stageElement != null)
+                        stageElements.add(stageElement);
+                }
+            }
+        }
+
+        return new StagePlanSnapshot(stageElements, mappedPlan, mappedElements, replacedModels, minimap != null ? minimap.createThumbnail() : null, sectionCache);
+
     }
 
     JPropertiesContainer getPropertiesContainer() {
@@ -0,0 +1,65 @@
+package com.nicolasgnyra.stagelightplanner.compression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * BlockCodec Interface:
+ * A way of encoding the blocks of a file. Each block records the ID of the codec that encoded it, so codecs must be
+ * registered in BlockCodecs to be decoded.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.0
+ */
+public interface BlockCodec {
+
+    /**
+     * getId() Method:
+     * Gets the ID written in the blocks encoded by this codec.
+     *
+     * Input: None.
+     *
+     * Process: Depends on the codec. IDs SHOULD NOT change between versions.
+     *
+     * Output: Codec ID.
+     *
+     * @return Codec ID
+     */
+    byte getId();
+
+    /**
+     * encode(ByteBuffer) Method:
+     * Encodes the contents of a block.
+     *
+     * Input: Raw contents, from their position to their limit.
+     *
+     * Process: Depends on the codec.
+     *
+     * Output: Encoded contents.
+     *
+     * @param raw Raw contents
+     * @return Encoded contents, from their position to their limit
+     * @throws IOException Thrown when the contents can't be encoded.
+     */
+    ByteBuffer encode(ByteBuffer raw) throws IOException;
+
+    /**
+     * decode(ByteBuffer, int) Method:
+     * Decodes the contents of a block.
+     *
+     * Input: Encoded contents, length of the raw contents.
+     *
+     * Process: Depends on the codec.
+     *
+     * Output: Raw contents.
+     *
+     * @param encoded Encoded contents, from their position to their limit
+     * @param rawLength Length of the raw contents
+     * @return Raw contents, from their position to their limit
+     * @throws IOException Thrown when the contents are corrupt.
+     */
+    ByteBuffer decode(ByteBuffer encoded, int rawLength) throws IOException;
+
+}
@@ -0,0 +1,187 @@
+package com.nicolasgnyra.stagelightplanner.compression;
+
+import com.nicolasgnyra.stagelightplanner.FileStreamReader;
+import com.nicolasgnyra.stagelightplanner.FileStreamWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.zip.Deflater;
+
+/**
+ * BlockCodecs Class:
+ * Contains the codecs that can decode blocks, and static methods for reading & writing blocks. A block is made of the
+ * ID of its codec, the length of its raw contents, the length of its encoded contents, and the encoded contents.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.0
+ */
+public class BlockCodecs {
+
+    public static final int headerLength = 9;                   // length of the codec ID & both lengths
+    private static final float compressionThreshold = 0.9f;     // encoded size, fraction of the raw size, above which blocks are stored
+
+    public static final BlockCodec stored = new StoredCodec();                          // codec that doesn't compress
+    public static final BlockCodec deflate = new DeflateCodec(Deflater.BEST_SPEED);     // default compression codec
+
+    private static final HashMap<Byte, BlockCodec> codecs = new HashMap<>();    // registered codecs, by ID
+
+    static {
+        register(stored);
+        register(deflate);
+    }
+
+    /**
+     * register(BlockCodec) Method:
+     * Registers a codec so the blocks it encodes can be decoded.
+     *
+     * Input: Codec.
+     *
+     * Process: Adds the codec under its ID, replacing any codec with the same ID.
+     *
+     * Output: None.
+     *
+     * @param codec Codec
+     */
+    public static synchronized void register(BlockCodec codec) {
+        codecs.put(codec.getId(), codec);
+    }
+
+    /**
+     * get(byte) Method:
+     * Gets the codec with the specified ID.
+     *
+     * Input: Codec ID.
+     *
+     * Process: Looks up the registered codecs.
+     *
+     * Output: Codec.
+     *
+     * @param id Codec ID
+     * @return Codec
+     * @throws IOException Thrown when no codec has the ID.
+     */
+    public static synchronized BlockCodec get(byte id) throws IOException {
+
+        // get codec
+        BlockCodec codec = codecs.get(id);
+
+        if (codec == null)
+            throw new IOException("Unknown block codec: " + id);
+
+        return codec;
+
+    }
+
+    /**
+     * writeBlock(FileStreamWriter, ByteBuffer, BlockCodec) Method:
+     * Writes a block.
+     *
+     * Input: File stream writer, raw contents, codec.
+     *
+     * Process: Encodes the contents & keeps them as they are instead if the encoded contents aren't smaller than the
+     * compression threshold. Then writes the header & the contents.
+     *
+     * Output: Written block.
+     *
+     * @param writer File stream writer
+     * @param raw Raw contents
+     * @param codec Codec to try
+     * @throws IOException Thrown when an error occurs while writing.
+     */
+    public static void writeBlock(FileStreamWriter writer, ByteBuffer raw, BlockCodec codec) throws IOException {
+
+        // encode contents, storing them if they don't compress well
+        ByteBuffer encoded = codec.encode(raw);
+
+        if (codec.getId() != StoredCodec.id && encoded.remaining() > raw.remaining() * compressionThreshold) {
+            codec = stored;
+            encoded = raw.duplicate();
+        }
+
+        // write header
+        writer.write(codec.getId());
+        writer.writeInt(raw.remaining());
+        writer.writeInt(encoded.remaining());
+
+        // write contents
+        if (encoded.hasArray()) {
+            writer.write(encoded.array(), encoded.arrayOffset() + encoded.position(), encoded.remaining());
+        } else {
+            byte[] bytes = new byte[encoded.remaining()];
+            encoded.get(bytes);
+            writer.write(bytes);
+        }
+
+    }
+
+    /**
+     * readBlock(FileStreamReader) Method:
+     * Reads a block.
+     *
+     * Input: File stream reader.
+     *
+     * Process: Reads the header & the encoded contents, and decodes them.
+     *
+     * Output: Raw contents.
+     *
+     * @param reader File stream reader
+     * @return Raw contents
+     * @throws IOException Thrown when the block can't be read or decoded.
+     */
+    public static ByteBuffer readBlock(FileStreamReader reader) throws IOException {
+
+        // read header
+        BlockCodec codec = get(reader.readByte());
+        int rawLength = reader.readInt();
+        int encodedLength = reader.readInt();
+
+        if (rawLength < 0 || encodedLength < 0)
+            throw new IOException("Block has a negative length.");
+
+        // read & decode contents
+        byte[] encoded = new byte[encodedLength];
+        reader.readFully(encoded);
+
+        return codec.decode(ByteBuffer.wrap(encoded), rawLength);
+
+    }
+
+    /**
+     * readBlock(ByteBuffer) Method:
+     * Reads a block from a buffer, such as a mapped file.
+     *
+     * Input: Buffer, at the start of the block.
+     *
+     * Process: Reads the header & decodes the contents. Stored contents aren't copied.
+     *
+     * Output: Raw contents. The buffer is moved past the block.
+     *
+     * @param buffer Buffer, at the start of the block
+     * @return Raw contents
+     * @throws IOException Thrown when the block can't be read or decoded.
+     */
+    public static ByteBuffer readBlock(ByteBuffer buffer) throws IOException {
+
+        // read header
+        if (buffer.remaining() < headerLength)
+            throw new IOException("Block is incomplete.");
+
+        BlockCodec codec = get(buffer.get());
+        int rawLength = buffer.getInt();
+        int encodedLength = buffer.getInt();
+
+        if (rawLength < 0 || encodedLength < 0 || encodedLength > buffer.remaining())
+            throw new IOException("Block is incomplete.");
+
+        // get view of the contents & move past them
+        ByteBuffer encoded = buffer.slice();
+        encoded.limit(encodedLength);
+        buffer.position(buffer.position() + encodedLength);
+
+        return codec.decode(encoded, rawLength);
+
+    }
+}
@@ -0,0 +1,142 @@
+package com.nicolasgnyra.stagelightplanner.compression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * DeflateCodec Class:
+ * A codec that compresses blocks with the deflate algorithm, without the zlib header.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.0
+ */
+public class DeflateCodec implements BlockCodec {
+
+    public static final byte id = 1;    // codec ID
+
+    private final int level;            // compression level, from Deflater.BEST_SPEED to Deflater.BEST_COMPRESSION
+
+    /**
+     * DeflateCodec(int) Constructor:
+     * Creates a new instance of the DeflateCodec class with the specified compression level.
+     *
+     * Input: Compression level.
+     *
+     * Process: Sets values. The level only affects encoding, so blocks can be decoded by any instance.
+     *
+     * Output: A new instance of the DeflateCodec class.
+     *
+     * @param level Compression level, from Deflater.BEST_SPEED to Deflater.BEST_COMPRESSION
+     */
+    public DeflateCodec(int level) {
+        this.level = level;
+    }
+
+    @Override
+    public byte getId() {
+        return id;
+    }
+
+    /**
+     * encode(ByteBuffer) Method:
+     * Compresses the contents of a block.
+     *
+     * Input: Raw contents.
+     *
+     * Process: Feeds the contents to a deflater & collects its output, growing the output buffer when it's full.
+     *
+     * Output: Compressed contents.
+     *
+     * @param raw Raw contents
+     * @return Compressed contents
+     */
+    @Override
+    public ByteBuffer encode(ByteBuffer raw) {
+
+        // get input
+        byte[] input = new byte[raw.remaining()];
+        raw.duplicate().get(input);
+
+        // create deflater
+        Deflater deflater = new Deflater(level, true);
+        deflater.setInput(input);
+        deflater.finish();
+
+        // compress, growing the output until everything fits
+        byte[] output = new byte[Math.max(64, input.length / 2)];
+        int length = 0;
+
+        try {
+            while (!deflater.finished()) {
+                if (length == output.length)
+                    output = Arrays.copyOf(output, output.length * 2);
+
+                length += deflater.deflate(output, length, output.length - length);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        return ByteBuffer.wrap(output, 0, length);
+
+    }
+
+    /**
+     * decode(ByteBuffer, int) Method:
+     * Decompresses the contents of a block.
+     *
+     * Input: Compressed contents, length of the raw contents.
+     *
+     * Process: Feeds the contents to an inflater with an output of the raw length.
+     *
+     * Output: Raw contents.
+     *
+     * @param encoded Compressed contents
+     * @param rawLength Length of the raw contents
+     * @return Raw contents
+     * @throws IOException Thrown when the contents are corrupt or don't have the raw length.
+     */
+    @Override
+    public ByteBuffer decode(ByteBuffer encoded, int rawLength) throws IOException {
+
+        // get input
+        byte[] input = new byte[encoded.remaining()];
+        encoded.duplicate().get(input);
+
+        // create inflater (raw deflate streams need an extra byte of input to finish)
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(Arrays.copyOf(input, input.length + 1));
+
+        // decompress
+        byte[] output = new byte[rawLength];
+        int length = 0;
+
+        try {
+            while (length < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(output, length, rawLength - length);
+
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+
+                length += inflated;
+            }
+        } catch (DataFormatException ex) {
+            throw new IOException("Compressed block is corrupt.", ex);
+        } finally {
+            inflater.end();
+        }
+
+        // check length
+        if (length != rawLength)
+            throw new IOException("Compressed block has the wrong length.");
+
+        return ByteBuffer.wrap(output);
+
+    }
+}
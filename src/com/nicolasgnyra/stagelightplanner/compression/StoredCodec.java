@@ -0,0 +1,54 @@
+package com.nicolasgnyra.stagelightplanner.compression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * StoredCodec Class:
+ * A codec that stores blocks as they are, used for blocks that don't compress well.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.0
+ */
+public class StoredCodec implements BlockCodec {
+
+    public static final byte id = 0;    // codec ID
+
+    @Override
+    public byte getId() {
+        return id;
+    }
+
+    @Override
+    public ByteBuffer encode(ByteBuffer raw) {
+        return raw.duplicate();
+    }
+
+    /**
+     * decode(ByteBuffer, int) Method:
+     * Gets the contents of a stored block.
+     *
+     * Input: Stored contents, length of the raw contents.
+     *
+     * Process: Checks the length & returns a view of the contents, without copying them.
+     *
+     * Output: Raw contents.
+     *
+     * @param encoded Stored contents
+     * @param rawLength Length of the raw contents
+     * @return Raw contents
+     * @throws IOException Thrown when the length doesn't match.
+     */
+    @Override
+    public ByteBuffer decode(ByteBuffer encoded, int rawLength) throws IOException {
+
+        // check length
+        if (encoded.remaining() != rawLength)
+            throw new IOException("Stored block has the wrong length.");
+
+        return encoded.duplicate();
+
+    }
+}
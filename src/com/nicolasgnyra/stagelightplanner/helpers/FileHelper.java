@@ -5,12 +5,37 @@ import com.nicolasgnyra.stagelightplanner.components.JBatten;
 import com.nicolasgnyra.stagelightplanner.components.JDraggableLabel;
 import com.nicolasgnyra.stagelightplanner.components.JLight;
 import com.nicolasgnyra.stagelightplanner.components.JStageElement;
+import com.nicolasgnyra.stagelightplanner.compression.BlockCodec;
+import com.nicolasgnyra.stagelightplanner.compression.BlockCodecs;
 import com.nicolasgnyra.stagelightplanner.exceptions.InvalidFileVersionException;
 
+import javax.imageio.ImageIO;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
 
 /**
  * FileHelper Class:
@@ -19,26 +44,50 @@ import java.util.ArrayList;
  * Date: 2016-09-27
  *
  * @author Nicolas Gnyra
- * @version 1.0
+ * @version 1.5
  */
 public class FileHelper {
 
-    private static final byte lightDefinitionVersion = 1;   // light definition file version
-    private static final byte stagePlanVersion = 1;         // stage plan file version
+    private static final byte lightDefinitionVersion = 2;   // light definition file version
+    private static final byte stagePlanVersion = 2;         // stage plan file version
+    private static final byte oldestSupportedVersion = 1;   // oldest version of both files that can still be loaded
+    private static final int snapshotChunkSize = 262144;    // amount of bytes of a snapshot written between progress updates
+    private static final int sectionElementCount = 4096;    // maximum amount of stage elements in one section
+    private static final int maxGarbageRatio = 2;           // file size, multiple of the live size, above which it is rewritten
+    private static final int lightDefinitionBlockSize = 64; // maximum amount of light definitions in one block of a fixtures file
+    private static final int moveAttempts = 4;              // attempts to move a file over its target before giving up
+    private static final int moveRetryDelay = 100;          // milliseconds given to release mappings before moving again
+
+    private static final Logger logger = Logger.getLogger(FileHelper.class.getName());  // warns about missing fixtures
 
     // these values SHOULD NOT change between version
-    private static final byte STAGE_ELEMENT_NONE = 0;       // stage element ID
-    private static final byte STAGE_ELEMENT_BATTEN = 1;     // batten ID
-    private static final byte STAGE_ELEMENT_LIGHT = 2;      // light ID
-    private static final byte STAGE_ELEMENT_LABEL = 3;      // label ID
+    static final byte STAGE_ELEMENT_NONE = 0;       // stage element ID
+    static final byte STAGE_ELEMENT_BATTEN = 1;     // batten ID
+    static final byte STAGE_ELEMENT_LIGHT = 2;      // light ID
+    static final byte STAGE_ELEMENT_LABEL = 3;      // label ID
+
+    // these values SHOULD NOT change between versions either
+    private static final byte SECTION_BATTENS = 1;              // battens section ID
+    private static final byte SECTION_LIGHTS = 2;               // lights section ID
+    private static final byte SECTION_LABELS = 3;               // labels section ID
+    private static final byte SECTION_METADATA = 4;             // metadata section ID
+    private static final byte SECTION_THUMBNAIL = 5;            // thumbnail section ID
+    private static final byte SECTION_LIGHT_DEFINITIONS = 6;    // copies of the library definitions the element sections refer to
+
+    // these values SHOULD NOT change between versions either
+    private static final byte LIGHT_DEFINITION_EMBEDDED = 0;    // light definition written in the plan
+    private static final byte LIGHT_DEFINITION_LIBRARY = 1;     // content hash of a light definition of the fixture library
+
+    // sections that contain stage elements, in the order in which they are loaded
+    private static final byte[] stageElementSections = { SECTION_BATTENS, SECTION_LIGHTS, SECTION_LABELS };
 
     /**
      * saveLightDefinitions(ArrayList<LightDefinition>, File) Method:
-     * Saves the light definitions in the array list to the specified file.
+     * Saves the light definitions in the array list to the specified file, compressed with the default codec.
      *
      * Input: Lights list and target file.
      *
-     * Process: Converts lights list to bytes and saves them to the file.
+     * Process: Calls saveLightDefinitions with the default codec.
      *
      * Output: File with written light definitions.
      *
@@ -47,26 +96,120 @@ public class FileHelper {
      * @throws IOException File saving exception.
      */
     public static void saveLightDefinitions(ArrayList<LightDefinition> lights, File file) throws IOException {
+        saveLightDefinitions(lights, file, BlockCodecs.deflate);
+    }
+
+    /**
+     * saveLightDefinitions(ArrayList<LightDefinition>, File, BlockCodec) Method:
+     * Saves the light definitions in the array list to the specified file.
+     *
+     * Input: Lights list, target file and codec.
+     *
+     * Process: Encodes lights list as an indexed fixtures file and saves it to a temporary file that replaces the
+     * file. Definitions that are no longer listed aren't kept, as plans have copies of the ones they refer to.
+     *
+     * Output: File with written light definitions.
+     *
+     * @param lights List of lights.
+     * @param file Target file.
+     * @param codec Codec of the blocks (BlockCodecs.stored to leave them uncompressed).
+     * @throws IOException File saving exception.
+     */
+    public static void saveLightDefinitions(ArrayList<LightDefinition> lights, File file, BlockCodec codec) throws IOException {
 
         // if file doesn't have the right extension, add it
         if(!file.getName().toLowerCase().endsWith(".slpfd"))
             file = new File(file.getAbsolutePath() + ".slpfd");
 
-        // create writer
-        FileStreamWriter writer = new FileStreamWriter(file);
+        // encode everything in memory
+        ByteBuffer contents = encodeLightDefinitions(lights, codec);
 
-        // write version
-        writer.write(lightDefinitionVersion);
+        // replace file once everything is written
+        replaceAtomically(file, channel -> {
+            while (contents.hasRemaining())
+                channel.write(contents);
+        });
+
+    }
+
+    /**
+     * encodeLightDefinitions(List<LightDefinition>, BlockCodec) Method:
+     * Encodes light definitions in the indexed fixtures file format.
+     *
+     * Input: Definitions, codec.
+     *
+     * Process: Writes the version & room for the header, then the definitions in blocks encoded with the codec, the
+     * name index entries (list index & display name of each definition), the offset of each block and the offset of
+     * each name index entry sorted by name without regard to case. Finally fills in the header with the amount of
+     * definitions & the offsets of both tables. The amount of archived definitions, which older files kept after the
+     * listed ones, is always 0.
+     *
+     * Output: Encoded fixtures file.
+     *
+     * @param lights Definitions
+     * @param codec Codec of the blocks
+     * @return Encoded fixtures file
+     * @throws IOException Encoding exception
+     */
+    private static ByteBuffer encodeLightDefinitions(List<LightDefinition> lights, BlockCodec codec) throws IOException {
 
-        // write list size
+        // write version & reserve room for the header
+        FileStreamWriter writer = new FileStreamWriter();
+        writer.write(lightDefinitionVersion);
         writer.writeInt(lights.size());
+        writer.writeInt(0);
+        writer.writeInt(0);
+        writer.writeInt(0);
+
+        // write definitions in blocks
+        int[] blockOffsets = new int[(lights.size() + lightDefinitionBlockSize - 1) / lightDefinitionBlockSize];
+
+        for (int block = 0; block < blockOffsets.length; block++) {
+            FileStreamWriter contents = new FileStreamWriter();
+
+            for (int i = block * lightDefinitionBlockSize; i < Math.min(lights.size(), (block + 1) * lightDefinitionBlockSize); i++)
+                writeLightDefinition(contents, lights.get(i));
+
+            blockOffsets[block] = (int) writer.getPosition();
+            BlockCodecs.writeBlock(writer, contents.getContents(), codec);
+        }
 
-        // iterate through lights & write each
-        for (LightDefinition light : lights)
-            writeLightDefinition(writer, light);
+        // sort definitions by name (equal names keep their list order)
+        Integer[] order = new Integer[lights.size()];
 
-        // close writer
-        writer.close();
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+
+        Arrays.sort(order, (first, second) -> String.CASE_INSENSITIVE_ORDER.compare(lights.get(first).getDisplayName(), lights.get(second).getDisplayName()));
+
+        // write name index entries in name order
+        int[] nameEntries = new int[order.length];
+
+        for (int i = 0; i < order.length; i++) {
+            nameEntries[i] = (int) writer.getPosition();
+            writer.writeInt(order[i]);
+            writer.writeUTF8String(lights.get(order[i]).getDisplayName());
+        }
+
+        // write block table & name table
+        int blockTable = (int) writer.getPosition();
+
+        for (int blockOffset : blockOffsets)
+            writer.writeInt(blockOffset);
+
+        int nameTable = (int) writer.getPosition();
+
+        for (int nameEntry : nameEntries)
+            writer.writeInt(nameEntry);
+
+        // fill in the offsets of the tables & go back to the end
+        int end = (int) writer.getPosition();
+        writer.seek(9);
+        writer.writeInt(blockTable);
+        writer.writeInt(nameTable);
+        writer.seek(end);
+
+        return writer.getContents();
 
     }
 
@@ -76,7 +219,7 @@ public class FileHelper {
      *
      * Input: Source file.
      *
-     * Process: Reads the light definitions from the specified file.
+     * Process: Calls loadLightDefinitions with the local fixture library.
      *
      * Output: List of light definitions.
      *
@@ -86,28 +229,167 @@ public class FileHelper {
      * @throws InvalidFileVersionException Attempting to load an older file.
      */
     public static ArrayList<LightDefinition> loadLightDefinitions(File file) throws IOException, InvalidFileVersionException {
+        return loadLightDefinitions(file, FixtureLibrary.getLocal());
+    }
 
-        // create reader
-        FileStreamReader reader = new FileStreamReader(file);
+    /**
+     * loadLightDefinitions(File, FixtureLibrary) Method:
+     * Loads light definitions from specified file & adds them to the specified fixture library.
+     *
+     * Input: Source file, fixture library.
+     *
+     * Process: Reads the file & decodes every light definition, and adds them to the library. Definitions archived by
+     * older versions are skipped, as plans have copies of the ones they refer to.
+     *
+     * Output: List of light definitions.
+     *
+     * @param file Source file.
+     * @param library Fixture library to add the definitions to.
+     * @return List of light definitions.
+     * @throws IOException File loading exception.
+     * @throws InvalidFileVersionException Attempting to load an older file.
+     */
+    public static ArrayList<LightDefinition> loadLightDefinitions(File file, FixtureLibrary library) throws IOException, InvalidFileVersionException {
+
+        // read file & get every definition
+        ArrayList<LightDefinition> lights = mapLightDefinitions(file).getLightDefinitions();
+
+        // add them to the library
+        library.addAll(lights);
+
+        return lights;
+
+    }
+
+    /**
+     * mapLightDefinitions(File) Method:
+     * Reads the specified fixtures file in memory without decoding its light definitions.
+     *
+     * Input: Source file.
+     *
+     * Process: Reads the file into the heap & checks its version. The file isn't mapped, as the fixture store replaces
+     * it while its definitions are still in use, which some systems don't allow for mapped files. Version 1 files,
+     * which have to be read completely, are converted to the indexed format in memory.
+     *
+     * Output: Mapped light definitions.
+     *
+     * @param file Source file.
+     * @return Mapped light definitions.
+     * @throws IOException File loading exception.
+     * @throws InvalidFileVersionException File too old or too recent.
+     */
+    public static MappedLightDefinitions mapLightDefinitions(File file) throws IOException, InvalidFileVersionException {
 
-        // read file version
+        // read file
+        ByteBuffer buffer = readFile(file);
+
+        // read & check file version
+        FileStreamReader reader = new FileStreamReader(buffer);
         byte fileVersion = reader.readByte();
 
-        // check file version & throw exception if invalid
-        if (fileVersion != lightDefinitionVersion)
+        if (fileVersion < oldestSupportedVersion || fileVersion > lightDefinitionVersion)
             throw new InvalidFileVersionException("Invalid file version.");
 
-        // get light definition count
+        // convert version 1 files, which are a single list of light definitions
+        if (fileVersion == 1) {
+            ArrayList<LightDefinition> lights = new ArrayList<>();
+            int count = reader.readInt();
+
+            for (int i = 0; i < count; i++)
+                lights.add(readLightDefinition(reader, fileVersion));
+
+            return indexLightDefinitions(lights);
+        }
+
+        return mapLightDefinitions(buffer);
+
+    }
+
+    /**
+     * indexLightDefinitions(List<LightDefinition>) Method:
+     * Indexes light definitions in memory like a fixtures file, so they can be searched by name.
+     *
+     * Input: Light definitions.
+     *
+     * Process: Encodes the definitions in the indexed fixtures file format without compressing the blocks & reads its
+     * header.
+     *
+     * Output: Indexed light definitions.
+     *
+     * @param lights Light definitions
+     * @return Indexed light definitions
+     * @throws IOException Encoding exception
+     */
+    public static MappedLightDefinitions indexLightDefinitions(List<LightDefinition> lights) throws IOException {
+        return mapLightDefinitions(encodeLightDefinitions(lights, BlockCodecs.stored));
+    }
+
+    /**
+     * mapLightDefinitions(ByteBuffer) Method:
+     * Reads the header & block table of an indexed fixtures file.
+     *
+     * Input: Fixtures file, mapped or in memory.
+     *
+     * Process: Reads the amounts of definitions & the offsets of the tables, checks that they are in the file & reads
+     * the offset of each block.
+     *
+     * Output: Mapped light definitions.
+     *
+     * @param buffer Fixtures file, from its start
+     * @return Mapped light definitions
+     * @throws IOException File loading exception, or a header that doesn't match the file
+     */
+    private static MappedLightDefinitions mapLightDefinitions(ByteBuffer buffer) throws IOException {
+
+        // read header (after the version)
+        buffer = buffer.slice();
+        FileStreamReader reader = new FileStreamReader(buffer);
+        reader.seek(1);
         int count = reader.readInt();
+        int archivedCount = reader.readInt();
+        int blockTable = reader.readInt();
+        int nameTable = reader.readInt();
+        int blockCount = (int) (((long) count + archivedCount + lightDefinitionBlockSize - 1) / lightDefinitionBlockSize);
+
+        // check that both tables are in the file
+        if (count < 0 || archivedCount < 0 || blockTable < 0 || nameTable < 0 || blockTable + blockCount * 4L > buffer.limit() || nameTable + count * 4L > buffer.limit())
+            throw new IOException("The fixtures file is incomplete.");
 
-        // create lights list
-        ArrayList<LightDefinition> lights = new ArrayList<>();
+        // read block offsets
+        int[] blockOffsets = new int[blockCount];
+        reader.seek(blockTable);
+
+        for (int i = 0; i < blockCount; i++)
+            blockOffsets[i] = reader.readInt();
+
+        return new MappedLightDefinitions(buffer, count, archivedCount, lightDefinitionBlockSize, blockOffsets, nameTable);
+
+    }
+
+    /**
+     * readLightDefinitionBlock(ByteBuffer, int) Method:
+     * Reads a block of light definitions of an indexed fixtures file.
+     *
+     * Input: Buffer at the start of the block, amount of definitions in the block.
+     *
+     * Process: Decodes the block & reads each definition.
+     *
+     * Output: Light definitions of the block.
+     *
+     * @param buffer Buffer at the start of the block
+     * @param count Amount of definitions in the block
+     * @return Light definitions of the block
+     * @throws IOException File loading exception
+     */
+    public static LightDefinition[] readLightDefinitionBlock(ByteBuffer buffer, int count) throws IOException {
+
+        // decode block & read definitions
+        FileStreamReader reader = new FileStreamReader(BlockCodecs.readBlock(buffer));
+        LightDefinition[] lights = new LightDefinition[count];
 
-        // iterate through & read all light definitions
         for (int i = 0; i < count; i++)
-            lights.add(readLightDefinition(reader));
+            lights[i] = readLightDefinition(reader, lightDefinitionVersion);
 
-        // return lights list
         return lights;
 
     }
@@ -129,12 +411,10 @@ public class FileHelper {
     private static void writeLightDefinition(FileStreamWriter writer, LightDefinition light) throws IOException {
 
         // write display name
-        writer.writeInt(light.getDisplayName().length());
-        writer.writeString(light.getDisplayName());
+        writer.writeUTF8String(light.getDisplayName());
 
         // write label
-        writer.writeInt(light.getLabel().length());
-        writer.writeString(light.getLabel());
+        writer.writeUTF8String(light.getLabel());
 
         // write shape
         writer.writeInt(light.getShape().ordinal());
@@ -152,24 +432,26 @@ public class FileHelper {
     }
 
     /**
-     * readLightDefinition(FileStreamReader) Method:
+     * readLightDefinition(FileStreamReader, byte) Method:
      * Reads a light definition from the specified file stream reader.
      *
-     * Input: File stream reader.
+     * Input: File stream reader, file version.
      *
-     * Process: Reads all values and creates a new LightDefinition instance.
+     * Process: Reads all values, creates a new LightDefinition instance & gets its shared instance. Names & labels are
+     * interned, since few distinct ones are shared by many plans.
      *
      * Output: Read light definition.
      *
      * @param reader File stream reader
+     * @param fileVersion Version of the file being read
      * @return Read light definition.
      * @throws IOException File loading exception.
      */
-    private static LightDefinition readLightDefinition(FileStreamReader reader) throws IOException {
+    private static LightDefinition readLightDefinition(FileStreamReader reader, byte fileVersion) throws IOException {
 
         // read name, label, and shape
-        String name = reader.readString(reader.readInt());
-        String label = reader.readString(reader.readInt());
+        String name = readString(reader, fileVersion).intern();
+        String label = readString(reader, fileVersion).intern();
         LightShape shape = LightShape.values()[reader.readInt()];
 
         // since Java uses signed bytes (-127 to 127) and RGB uses unsigned bytes (0 to 255), add 0xFF to compensate
@@ -181,11 +463,11 @@ public class FileHelper {
         Float fieldAngleMin = reader.readFloat();
         Float fieldAngleMax = reader.readFloat();
 
-        // create new LightDefinition class based on if the field angle is a range or not
+        // create new LightDefinition class based on if the field angle is a range or not & share it with equal ones
         if (fieldAngle > 0 && fieldAngleMin <= 0 && fieldAngleMax <= 0)
-            return new LightDefinition(name, label, shape, displayColor, fieldAngle);
+            return new LightDefinition(name, label, shape, displayColor, fieldAngle).intern();
         else
-            return new LightDefinition(name, label, shape, displayColor, fieldAngleMin, fieldAngleMax);
+            return new LightDefinition(name, label, shape, displayColor, fieldAngleMin, fieldAngleMax).intern();
 
     }
 
@@ -195,7 +477,7 @@ public class FileHelper {
      *
      * Input: Stage plan, target file.
      *
-     * Process: Saves light definitions & actual stage elements.
+     * Process: Encodes the stage plan & replaces the file with it.
      *
      * Output: File with written stage plan.
      *
@@ -204,254 +486,1937 @@ public class FileHelper {
      * @throws IOException File saving exception
      */
     public static void saveStagePlan(StagePlan stagePlan, File file) throws IOException {
+        saveStagePlanSnapshot(createStagePlanSnapshot(stagePlan), file, false, progress -> { });
+    }
 
-        // if file doesn't have the right extension, add it
-        if(!file.getName().toLowerCase().endsWith(".slpsp"))
-            file = new File(file.getAbsolutePath() + ".slpsp");
+    /**
+     * createStagePlanSnapshot(StagePlan) Method:
+     * Encodes the specified stage plan in memory, so it can be written to a file later on another thread.
+     *
+     * Input: Stage plan.
+     *
+     * Process: Calls createStagePlanSnapshot with the default codec.
+     *
+     * Output: Encoded stage plan, exactly as it would be saved.
+     *
+     * @param stagePlan Stage plan
+     * @return Encoded stage plan (read-only)
+     * @throws IOException Encoding exception
+     */
+    public static ByteBuffer createStagePlanSnapshot(StagePlan stagePlan) throws IOException {
+        return createStagePlanSnapshot(stagePlan, BlockCodecs.deflate);
+    }
+
+    /**
+     * createStagePlanSnapshot(StagePlan, SectionCache) Method:
+     * Encodes the specified stage plan in memory, reusing the sections of the cache that are still valid.
+     *
+     * Input: Stage plan, section cache.
+     *
+     * Process: Calls createStagePlanSnapshot with the default codec & the local fixture library.
+     *
+     * Output: Encoded stage plan, exactly as it would be saved.
+     *
+     * @param stagePlan Stage plan
+     * @param cache Encoded sections kept from the previous saves of the plan
+     * @return Encoded stage plan (read-only)
+     * @throws IOException Encoding exception
+     */
+    public static ByteBuffer createStagePlanSnapshot(StagePlan stagePlan, SectionCache cache) throws IOException {
+        return createStagePlanSnapshot(stagePlan, BlockCodecs.deflate, FixtureLibrary.getLocal(), cache);
+    }
 
-        // create writer
-        FileStreamWriter writer = new FileStreamWriter(file);
+    /**
+     * createStagePlanSnapshot(StagePlan, BlockCodec) Method:
+     * Encodes the specified stage plan in memory with the specified codec.
+     *
+     * Input: Stage plan, codec.
+     *
+     * Process: Calls createStagePlanSnapshot with the local fixture library.
+     *
+     * Output: Encoded stage plan, exactly as it would be saved.
+     *
+     * @param stagePlan Stage plan
+     * @param codec Codec of the sections (BlockCodecs.stored to leave them uncompressed)
+     * @return Encoded stage plan (read-only)
+     * @throws IOException Encoding exception
+     */
+    public static ByteBuffer createStagePlanSnapshot(StagePlan stagePlan, BlockCodec codec) throws IOException {
+        return createStagePlanSnapshot(stagePlan, codec, FixtureLibrary.getLocal());
+    }
 
-        // write version
-        writer.write(stagePlanVersion);
+    /**
+     * createStagePlanSnapshot(StagePlan, BlockCodec, FixtureLibrary) Method:
+     * Encodes the specified stage plan in memory with the specified codec, referring to the definitions of the
+     * specified fixture library instead of writing them.
+     *
+     * Input: Stage plan, codec, fixture library.
+     *
+     * Process: Calls createStagePlanSnapshot with an empty section cache.
+     *
+     * Output: Encoded stage plan, exactly as it would be saved.
+     *
+     * @param stagePlan Stage plan
+     * @param codec Codec of the sections (BlockCodecs.stored to leave them uncompressed)
+     * @param library Fixture library whose definitions are referred to by content hash
+     * @return Encoded stage plan (read-only)
+     * @throws IOException Encoding exception
+     */
+    public static ByteBuffer createStagePlanSnapshot(StagePlan stagePlan, BlockCodec codec, FixtureLibrary library) throws IOException {
+        return createStagePlanSnapshot(stagePlan, codec, library, new SectionCache());
+    }
 
-        // create light definitions list
-        ArrayList<LightDefinition> lightDefinitions = new ArrayList<>();
+    /**
+     * createStagePlanSnapshot(StagePlan, BlockCodec, FixtureLibrary, SectionCache) Method:
+     * Encodes the specified stage plan in memory with the specified codec, only encoding the element sections that
+     * aren't in the cache.
+     *
+     * Input: Stage plan, codec, fixture library, section cache.
+     *
+     * Process: Takes a snapshot of the plan's values & encodes it.
+     *
+     * Output: Encoded stage plan, exactly as it would be saved.
+     *
+     * @param stagePlan Stage plan
+     * @param codec Codec of the sections (BlockCodecs.stored to leave them uncompressed)
+     * @param library Fixture library whose definitions are referred to by content hash
+     * @param cache Encoded sections kept from the previous saves of the plan
+     * @return Encoded stage plan (read-only)
+     * @throws IOException Encoding exception
+     */
+    public static ByteBuffer createStagePlanSnapshot(StagePlan stagePlan, BlockCodec codec, FixtureLibrary library, SectionCache cache) throws IOException {
+        return encodeStagePlanSnapshot(new StagePlanSnapshot(stagePlan, cache), codec, library);
+    }
+
+    /**
+     * encodeStagePlanSnapshot(StagePlanSnapshot) Method:
+     * Encodes a snapshot of a stage plan in memory. Safe to call from any thread.
+     *
+     * Input: Snapshot.
+     *
+     * Process: Calls encodeStagePlanSnapshot with the default codec & the local fixture library.
+     *
+     * Output: Encoded stage plan, exactly as it would be saved.
+     *
+     * @param snapshot Values of the stage plan
+     * @return Encoded stage plan (read-only)
+     * @throws IOException Encoding exception
+     */
+    public static ByteBuffer encodeStagePlanSnapshot(StagePlanSnapshot snapshot) throws IOException {
+        return encodeStagePlanSnapshot(snapshot, BlockCodecs.deflate, FixtureLibrary.getLocal());
+    }
+
+    /**
+     * encodeStagePlanSnapshot(StagePlanSnapshot, BlockCodec, FixtureLibrary) Method:
+     * Encodes a snapshot of a stage plan in memory with the specified codec, referring to the definitions of the
+     * specified fixture library instead of writing them. Safe to call from any thread.
+     *
+     * Input: Snapshot, codec, fixture library.
+     *
+     * Process: Writes the version & room for the offset of the table of contents, then each element section, which
+     * was taken from the cache or is encoded from its columns as a block with the codec & added to the cache, then the
+     * metadata & the thumbnail, while keeping their offsets, lengths & checksums. Finally writes the table of contents
+     * at the end, with the ID of the snapshot, & fills in its offset. Light definitions that are in the library are
+     * written as their content hash in the element sections, and a single copy of each of them is written in a
+     * section of their own, so the plan can be loaded without the library.
+     *
+     * Output: Encoded stage plan, exactly as it would be saved.
+     *
+     * @param snapshot Values of the stage plan
+     * @param codec Codec of the sections (BlockCodecs.stored to leave them uncompressed)
+     * @param library Fixture library whose definitions are referred to by content hash
+     * @return Encoded stage plan (read-only)
+     * @throws IOException Encoding exception
+     */
+    public static ByteBuffer encodeStagePlanSnapshot(StagePlanSnapshot snapshot, BlockCodec codec, FixtureLibrary library) throws IOException {
 
-        // get light definitions from all lights
-        stagePlan.getStageElements().forEach(stageElement -> {
-            if (stageElement instanceof JLight) {
-                JLight light = (JLight)stageElement;
+        // create writer kept in memory & table of contents
+        FileStreamWriter writer = new FileStreamWriter();
+        ArrayList<Section> sections = new ArrayList<>();
 
-                if (!lightDefinitions.contains(light.getModel()))
-                    lightDefinitions.add(light.getModel());
-            }
-        });
+        // write version & reserve room for the offset of the table of contents
+        writer.write(stagePlanVersion);
+        writer.writeInt(0);
 
-        // write amount of light definitions
-        writer.writeInt(lightDefinitions.size());
+        // write element sections in key order, encoding the ones that changed since they were last encoded
+        TreeSet<Long> keys = new TreeSet<>(snapshot.getEncodedSections().keySet());
+        keys.addAll(snapshot.getChangedSections().keySet());
+        LinkedHashMap<Long, LightDefinition> referenced = new LinkedHashMap<>();
 
-        // write all light definitions
-        for (LightDefinition lightDefinition : lightDefinitions)
-            writeLightDefinition(writer, lightDefinition);
+        for (long key : keys) {
+            SectionCache.EncodedSection encoded = snapshot.getEncodedSections().get(key);
 
-        // write amount of stage elements
-        writer.writeInt(stagePlan.getStageElements().size());
+            if (encoded == null) {
+                StageElementColumns columns = snapshot.getChangedSections().get(key);
+                ArrayList<LightDefinition> sectionReferences = new ArrayList<>();
 
-        // iterate through stage elements
-        for (JStageElement stageElement : stagePlan.getStageElements()) {
+                FileStreamWriter section = new FileStreamWriter();
+                columns.write(section, library, sectionReferences);
 
-            // write coordinates
-            writer.writeInt(stageElement.getGridX());
-            writer.writeInt(stageElement.getGridY());
+                FileStreamWriter block = new FileStreamWriter();
+                BlockCodecs.writeBlock(block, section.getContents(), codec);
 
-            // write based on class type
-            if (stageElement instanceof JBatten) {
+                encoded = new SectionCache.EncodedSection(block.getContents(), columns, sectionReferences);
+                snapshot.addToCache(key, encoded);
+            }
 
-                // cast as JBatten & write type
-                JBatten batten = (JBatten) stageElement;
-                writer.write(STAGE_ELEMENT_BATTEN);
+            sections.add(new Section(getSectionId(key), (int) writer.getPosition(), encoded));
+            writer.write(encoded.contents);
 
-                // write heigth, length, orientation
-                writer.writeInt(batten.getHeightFromFloor());
-                writer.writeInt(batten.getLength());
-                writer.writeInt(batten.getOrientation().ordinal());
+            for (LightDefinition lightDefinition : encoded.referencedDefinitions)
+                referenced.putIfAbsent(lightDefinition.getContentHash(), lightDefinition);
+        }
 
-            } else if (stageElement instanceof JLight) {
+        // write a copy of each library definition the sections refer to
+        if (!referenced.isEmpty()) {
+            FileStreamWriter copies = new FileStreamWriter();
+            copies.writeInt(referenced.size());
 
-                // cast as JLight & write type
-                JLight light = (JLight) stageElement;
-                writer.write(STAGE_ELEMENT_LIGHT);
+            for (LightDefinition lightDefinition : referenced.values())
+                writeLightDefinition(copies, lightDefinition);
 
-                // write index of light definition
-                writer.writeInt(find(lightDefinitions, light.getModel()));
+            addSection(writer, sections, SECTION_LIGHT_DEFINITIONS, copies, codec);
+        }
 
-                // write field angle
-                writer.writeFloat(light.getFieldAngle());
+        // write amount of metadata entries & each key with its value
+        FileStreamWriter section = new FileStreamWriter();
+        section.writeInt(4);
+        section.writeUTF8String("saved");
+        section.writeUTF8String(snapshot.getSaved());
+        section.writeUTF8String("battens");
+        section.writeUTF8String(String.valueOf(snapshot.getCount(SECTION_BATTENS)));
+        section.writeUTF8String("lights");
+        section.writeUTF8String(String.valueOf(snapshot.getCount(SECTION_LIGHTS)));
+        section.writeUTF8String("labels");
+        section.writeUTF8String(String.valueOf(snapshot.getCount(SECTION_LABELS)));
+        addSection(writer, sections, SECTION_METADATA, section, codec);
+
+        // write thumbnail if there is one (PNG is already compressed)
+        if (snapshot.getThumbnail() != null) {
+            section = new FileStreamWriter();
+            ImageIO.write(snapshot.getThumbnail(), "png", section);
+            addSection(writer, sections, SECTION_THUMBNAIL, section, BlockCodecs.stored);
+        }
 
-                // write color
-                writer.write(light.getBeamColor().getRed());
-                writer.write(light.getBeamColor().getGreen());
-                writer.write(light.getBeamColor().getBlue());
+        // write table of contents
+        int tableOfContents = (int) writer.getPosition();
+        writeTableOfContents(writer, snapshot.getId(), sections);
+        int end = (int) writer.getPosition();
 
-                // write angles
-                writer.writeFloat(light.getRotation());
-                writer.writeFloat(light.getAngle());
+        // fill in its offset & go back to the end
+        writer.seek(1);
+        writer.writeInt(tableOfContents);
+        writer.seek(end);
 
-                // write connection ID
-                writer.writeInt(light.getConnectionId().length());
-                writer.writeString(light.getConnectionId());
+        return writer.getContents();
 
-                // write beam intensity
-                writer.writeInt(light.getBeamIntensity());
+    }
 
-            } else if (stageElement instanceof JDraggableLabel) {
+    /**
+     * saveStagePlanSnapshot(ByteBuffer, File, boolean, IntConsumer) Method:
+     * Saves a snapshot created by createStagePlanSnapshot to the specified file. Safe to call from any thread.
+     *
+     * Input: Snapshot, target file, whether to only write what changed, progress listener.
+     *
+     * Process: Calls saveStagePlanSnapshot without reading back the sections that are kept.
+     *
+     * Output: File with written stage plan.
+     *
+     * @param snapshot Encoded stage plan
+     * @param file Target file
+     * @param incremental Whether to only write the sections that changed since the file was last saved
+     * @param progress Receives the progress, from 0 to 100
+     * @throws IOException File saving exception
+     */
+    public static void saveStagePlanSnapshot(ByteBuffer snapshot, File file, boolean incremental, IntConsumer progress) throws IOException {
+        saveStagePlanSnapshot(snapshot, file, incremental, false, progress);
+    }
 
-                // cast as JDraggableLabel & write type
-                JDraggableLabel label = (JDraggableLabel) stageElement;
-                writer.write(STAGE_ELEMENT_LABEL);
+    /**
+     * saveStagePlanSnapshot(ByteBuffer, File, boolean, boolean, IntConsumer) Method:
+     * Saves a snapshot created by createStagePlanSnapshot to the specified file. Safe to call from any thread.
+     *
+     * Input: Snapshot, target file, whether to only write what changed, whether to read back the sections that are
+     * kept, progress listener.
+     *
+     * Process: Adds the extension if needed. If an incremental save is requested & the file can be updated in place,
+     * only the changed sections are appended to it. Otherwise the snapshot is written to a temporary file that
+     * replaces the file once it's on the disk, so the previous version is kept if the save fails.
+     *
+     * Output: File with written stage plan.
+     *
+     * @param snapshot Encoded stage plan
+     * @param file Target file
+     * @param incremental Whether to only write the sections that changed since the file was last saved
+     * @param verify Whether to compare the bytes of the sections that are kept, for files that may have been changed
+     *               by something else since they were last saved
+     * @param progress Receives the progress, from 0 to 100
+     * @throws IOException File saving exception
+     */
+    public static void saveStagePlanSnapshot(ByteBuffer snapshot, File file, boolean incremental, boolean verify, IntConsumer progress) throws IOException {
 
-                // write text
-                writer.writeInt(label.getText().length());
-                writer.writeString(label.getText());
+        // get target file
+        File target = getStagePlanFile(file);
 
-                // write color
-                writer.write(label.getColor().getRed());
-                writer.write(label.getColor().getGreen());
-                writer.write(label.getColor().getBlue());
+        // update file in place if possible
+        if (incremental && target.isFile() && updateStagePlan(snapshot, target, verify, progress))
+            return;
 
-                // write font size
-                writer.writeInt(label.getFontSize());
+        // otherwise replace it
+        replaceAtomically(target, channel -> {
 
-                // write font family
-                writer.writeInt(label.getFontFamily().length());
-                writer.writeString(label.getFontFamily());
+            // get a view of the snapshot so it can be saved again
+            ByteBuffer source = snapshot.duplicate();
+            int total = source.remaining();
 
-            } else {
+            // write snapshot in chunks
+            while (source.hasRemaining()) {
+                ByteBuffer chunk = source.duplicate();
+                chunk.limit(Math.min(source.limit(), source.position() + snapshotChunkSize));
 
-                // write generic stage element id
-                writer.write(STAGE_ELEMENT_NONE);
+                while (chunk.hasRemaining())
+                    channel.write(chunk);
 
+                source.position(chunk.position());
+                progress.accept(total == 0 ? 100 : (int) ((long) source.position() * 100 / total));
             }
 
-        }
-
-        // close writer
-        writer.close();
+        });
 
     }
 
     /**
-     * loadStagePlan(File) Method:
-     * Loads a stage plan from the specified file.
+     * updateStagePlan(ByteBuffer, File, boolean, IntConsumer) Method:
+     * Updates a stage plan file in place so it matches a snapshot, only writing the sections that changed.
      *
-     * Input: Source file.
+     * Input: Snapshot, target file, whether to read back the sections that are kept, progress listener.
      *
-     * Process: Checks version, loads light definitions & stage elements.
+     * Process: Reads the file's table of contents & finds, for each section of the snapshot, a section of the file
+     * with the same type, length & checksum, which is enough to tell sections written by this program apart without
+     * reading them. If asked to verify, the bytes of those sections are also read back & compared. The sections that
+     * weren't found are appended to the file, along with a new table of contents. Once those are on the disk, the offset of the table of contents in the header is
+     * replaced, which switches to the new version in a single 4 byte write. Nothing is written if the file can't be
+     * updated (different version, unreadable) or would be mostly unused bytes.
      *
-     * Output: Loaded stage plan.
+     * Output: Whether the file was updated.
      *
-     * @param file Source file.
-     * @return Loaded stage plan.
-     * @throws IOException File load exception
-     * @throws InvalidFileVersionException File too old
+     * @param snapshot Encoded stage plan
+     * @param file Target file
+     * @param verify Whether to compare the bytes of the sections that are kept
+     * @param progress Receives the progress, from 0 to 100
+     * @return Whether the file was updated (false if it needs to be replaced)
+     * @throws IOException File saving exception
      */
-    public static StagePlan loadStagePlan(File file) throws IOException, InvalidFileVersionException {
+    private static boolean updateStagePlan(ByteBuffer snapshot, File file, boolean verify, IntConsumer progress) throws IOException {
 
-        // create reader
-        FileStreamReader reader = new FileStreamReader(file);
+        // read ID & sections of the snapshot
+        int planId = getStagePlanId(snapshot);
+        FileStreamReader snapshotReader = new FileStreamReader(snapshot);
+        snapshotReader.readByte();
+        ArrayList<Section> sections = readTableOfContents(snapshotReader);
 
-        // get file version
-        byte fileVersion = reader.readByte();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
 
-        // check file version
-        if (fileVersion != stagePlanVersion)
-            throw new InvalidFileVersionException("Invalid file version.");
+            // read sections of the file, which must be in the current version
+            ArrayList<Section> existingSections;
 
-        // get light definition count & create list
-        int lightDefinitionCount = reader.readInt();
-        ArrayList<LightDefinition> lightDefinitions = new ArrayList<>();
+            try (FileStreamReader reader = new FileStreamReader(file)) {
+                byte fileVersion = reader.readByte();
 
-        // read light definitions
-        for (int i = 0; i < lightDefinitionCount; i++)
-            lightDefinitions.add(readLightDefinition(reader));
+                if (fileVersion != stagePlanVersion)
+                    return false;
 
-        // get stage element count & create list
-        int stageElementCount = reader.readInt();
-        ArrayList<JStageElement> stageElements = new ArrayList<>();
+                existingSections = readTableOfContents(reader);
+            } catch (IOException ex) {
+                return false;
+            }
 
-        // read all stage elements
-        for (int i = 0; i < stageElementCount; i++) {
+            // index sections of the file by type, length & checksum
+            HashMap<List<Integer>, ArrayDeque<Section>> reusableSections = new HashMap<>();
 
-            // get coordinates
-            int x = reader.readInt();
-            int y = reader.readInt();
+            for (Section section : existingSections)
+                reusableSections.computeIfAbsent(section.getKey(), key -> new ArrayDeque<>()).add(section);
 
-            // get type
-            byte type = reader.readByte();
+            // get new table of contents, reusing the sections of the file that have the same checksum (& bytes)
+            ArrayList<Section> newSections = new ArrayList<>();
+            ArrayList<Section> appendedSections = new ArrayList<>();
+            long end = channel.size();
+            long liveSize = 5;
 
-            // switch based on type
-            switch (type) {
-                case STAGE_ELEMENT_BATTEN:
+            for (Section section : sections) {
+                Section reused = null;
+                ArrayDeque<Section> candidates = reusableSections.get(section.getKey());
 
-                    // read values
-                    int heightFromFloor = reader.readInt();
-                    int length = reader.readInt();
-                    Orientation orientation = Orientation.values()[reader.readInt()];
+                while (reused == null && candidates != null && !candidates.isEmpty()) {
+                    Section candidate = candidates.poll();
 
-                    // add element
-                    stageElements.add(new JBatten(x, y, length, orientation, heightFromFloor));
+                    if (!verify || candidate.contentEquals(channel, section.slice(snapshot)))
+                        reused = candidate;
+                }
 
-                    break;
+                if (reused != null) {
+                    newSections.add(reused);
+                } else {
+                    Section appended = new Section(section.id, (int) end, section.length, section.checksum, section.lastId, section.count, section.bounds);
+                    newSections.add(appended);
+                    appendedSections.add(section);
+                    end += section.length;
+                }
 
-                case STAGE_ELEMENT_LIGHT:
+                liveSize += section.length;
+            }
 
-                    // get light definition
-                    LightDefinition lightDefinition = lightDefinitions.get(reader.readInt());
+            // encode new table of contents
+            FileStreamWriter tableOfContents = new FileStreamWriter();
+            writeTableOfContents(tableOfContents, planId, newSections);
+            ByteBuffer tableOfContentsBytes = tableOfContents.getContents();
+            int tableOfContentsOffset = (int) end;
 
-                    // read values
-                    float fieldAngle = reader.readFloat();
-                    Color beamColor = new Color(reader.readByte() & 0xFF, reader.readByte() & 0xFF, reader.readByte() & 0xFF);
-                    float rotation = reader.readFloat();
-                    float angle = reader.readFloat();
-                    String connectionId = reader.readString(reader.readInt());
-                    int beamIntensity = reader.readInt();
+            end += tableOfContentsBytes.remaining();
+            liveSize += tableOfContentsBytes.remaining();
 
-                    // add element
-                    stageElements.add(new JLight(x, y, lightDefinition, beamColor, rotation, angle, fieldAngle, connectionId, beamIntensity));
+            // replace the file instead if it would be mostly unused bytes (or too big for int offsets)
+            if (end > liveSize * maxGarbageRatio || end > Integer.MAX_VALUE)
+                return false;
 
-                    break;
+            // append changed sections
+            long position = channel.size();
+            long appendedTotal = end - position;
 
-                case STAGE_ELEMENT_LABEL:
+            for (Section section : appendedSections) {
+                ByteBuffer contents = section.slice(snapshot);
 
-                    // read values
-                    String text = reader.readString(reader.readInt());
-                    Color color = new Color(reader.readByte() & 0xFF, reader.readByte() & 0xFF, reader.readByte() & 0xFF);
-                    int fontSize = reader.readInt();
-                    String fontFamily = reader.readString(reader.readInt());
+                while (contents.hasRemaining())
+                    position += channel.write(contents, position);
 
-                    // add element
-                    stageElements.add(new JDraggableLabel(x, y, text, color, fontSize, fontFamily));
+                progress.accept((int) (100 - (end - position) * 100 / appendedTotal));
+            }
 
-                    break;
+            // append table of contents & make sure everything is on the disk before switching to it
+            while (tableOfContentsBytes.hasRemaining())
+                position += channel.write(tableOfContentsBytes, position);
 
-            }
+            channel.force(true);
 
-        }
+            // switch to the new table of contents
+            ByteBuffer header = ByteBuffer.allocate(4);
+            header.putInt(tableOfContentsOffset);
+            header.flip();
 
-        // close reader
-        reader.close();
+            while (header.hasRemaining())
+                channel.write(header, 1 + header.position());
 
-        // return stage plan
-        return new StagePlan(stageElements);
+            channel.force(true);
+            progress.accept(100);
+
+            return true;
+
+        }
 
     }
 
     /**
-     * find(ArrayList<T>, T) Method:
-     * Finds the specified value in the specified array. Returns -1 if not found.
+     * replaceAtomically(File, ChannelWriter) Method:
+     * Replaces a file with new contents without ever leaving it partially written.
      *
-     * Input: ArrayList to search & value to find.
+     * Input: Target file, operation that writes the contents.
      *
-     * Process: Uses sequential search to find the specified value.
+     * Process: Writes the contents to a temporary file next to the target & forces it to the disk, then moves it over
+     * the target in a single atomic rename (where the file system supports it) & forces the directory to the disk.
+     * The temporary file is deleted if anything fails, leaving the target untouched. Mapped stage plans have to be
+     * copied to the heap before their file is replaced (see MappedStagePlan.copyToHeap).
      *
-     * Output: Index of value or -1 if not found.
+     * Output: Replaced file.
      *
-     * @param list ArrayList to search
-     * @param value Value to find
-     * @param <T> Value type
-     * @return Index of value or -1 if not found.
+     * @param file Target file
+     * @param contents Operation that writes the contents to a channel
+     * @throws IOException File saving exception
      */
-    private static <T> int find(ArrayList<T> list, T value) {
+    public static void replaceAtomically(File file, ChannelWriter contents) throws IOException {
+
+        // get target & temporary file in the same directory (so the rename doesn't copy)
+        Path target = file.toPath().toAbsolutePath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        boolean moved = false;
+
+        try {
+
+            // write contents & force them to the disk
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                contents.write(channel);
+                channel.force(true);
+            }
+
+            // replace target
+            moveOver(temporary, target);
+            moved = true;
+
+            // force the rename to the disk (directories can't be opened on every platform)
+            try (FileChannel directory = FileChannel.open(target.getParent(), StandardOpenOption.READ)) {
+                directory.force(true);
+            } catch (IOException ignored) {
+                // the rename is still atomic, it just might not have reached the disk yet
+            }
 
-        // iterate through values, compare current element to specified value, return index if equal
-        for (int i = 0; i < list.size(); i++)
-            if (list.get(i) == value)
-                return i;
+        } finally {
 
-        // return -1 if nothing was found
-        return -1;
+            // delete temporary file if it wasn't moved
+            if (!moved)
+                Files.deleteIfExists(temporary);
 
+        }
+
+    }
+
+    /**
+     * moveOver(Path, Path) Method:
+     * Moves a file over another one.
+     *
+     * Input: Source & target file.
+     *
+     * Process: Renames the source over the target atomically, or replaces it if the file system can't. Some systems
+     * don't allow replacing a file that is mapped in memory, and mappings are only released once they are garbage
+     * collected, so if the move fails, the mappings that are no longer used are collected & the move is tried again a
+     * few times.
+     *
+     * Output: Moved file.
+     *
+     * @param source Source file
+     * @param target Target file
+     * @throws IOException File saving exception
+     */
+    private static void moveOver(Path source, Path target) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+
+                // rename atomically if possible
+                try {
+                    Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException ex) {
+                    Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                return;
+
+            } catch (FileSystemException ex) {
+
+                // give up after the last attempt
+                if (attempt == moveAttempts)
+                    throw ex;
+
+                // release unused mappings, which happens on another thread after they are collected
+                System.gc();
+
+                try {
+                    Thread.sleep(moveRetryDelay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw ex;
+                }
+
+            }
+        }
+    }
+
+    /**
+     * readFile(File) Method:
+     * Reads a whole file into the heap.
+     *
+     * Input: Source file.
+     *
+     * Process: Reads the file through a channel into a buffer of its size.
+     *
+     * Output: Contents of the file.
+     *
+     * @param file Source file
+     * @return Contents of the file, from its start
+     * @throws IOException File loading exception, or a file too big to be read at once
+     */
+    private static ByteBuffer readFile(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            // check size
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("The file is too big.");
+
+            // read contents
+            ByteBuffer contents = ByteBuffer.allocate((int) channel.size());
+
+            while (contents.hasRemaining())
+                if (channel.read(contents) < 0)
+                    throw new IOException("The file is shorter than expected.");
+
+            contents.flip();
+            return contents;
+
+        }
+    }
+
+    /**
+     * copyToHeap(ByteBuffer) Method:
+     * Copies a buffer, such as a view of a mapped file, to the heap.
+     *
+     * Input: Buffer.
+     *
+     * Process: Copies everything up to the buffer's capacity & sets the same position & limit on the copy.
+     *
+     * Output: Copy of the buffer, read-only if the buffer is.
+     *
+     * @param buffer Buffer
+     * @return Copy of the buffer
+     */
+    public static ByteBuffer copyToHeap(ByteBuffer buffer) {
+
+        // copy contents
+        ByteBuffer source = buffer.duplicate();
+        source.clear();
+
+        ByteBuffer copy = ByteBuffer.allocate(source.remaining());
+        copy.put(source);
+
+        // set position & limit
+        copy.limit(buffer.limit());
+        copy.position(buffer.position());
+
+        return buffer.isReadOnly() ? copy.asReadOnlyBuffer() : copy;
+
+    }
+
+    /**
+     * getStagePlanFile(File) Method:
+     * Gets the file to which a stage plan is saved.
+     *
+     * Input: File selected by the user.
+     *
+     * Process: Adds the stage plan extension if the file doesn't have it.
+     *
+     * Output: File with the stage plan extension.
+     *
+     * @param file Selected file
+     * @return File with the stage plan extension
+     */
+    public static File getStagePlanFile(File file) {
+
+        // if file doesn't have the right extension, add it
+        if(!file.getName().toLowerCase().endsWith(".slpsp"))
+            file = new File(file.getAbsolutePath() + ".slpsp");
+
+        return file;
+
+    }
+
+    /**
+     * getStagePlanId(File) Method:
+     * Gets a number that identifies the contents of a stage plan file.
+     *
+     * Input: Stage plan file.
+     *
+     * Process: For files in the current version, reads the ID of the snapshot the file was last saved from, which is
+     * in the table of contents, so a file updated in place has the same ID as the snapshot it was updated to. Older
+     * files are checksummed as a whole.
+     *
+     * Output: ID (0 if the file doesn't exist).
+     *
+     * @param file Stage plan file
+     * @return ID
+     * @throws IOException File loading exception
+     */
+    public static int getStagePlanId(File file) throws IOException {
+
+        // files that don't exist have no contents
+        if (!file.isFile())
+            return 0;
+
+        // use table of contents if the file is in the current version
+        try (FileStreamReader reader = new FileStreamReader(file)) {
+            byte fileVersion = reader.readByte();
+
+            if (fileVersion == stagePlanVersion) {
+                reader.seek(reader.readInt());
+                return reader.readInt();
+            }
+        }
+
+        // otherwise checksum the whole file (read, as a mapping would keep the file from being replaced on some
+        // systems until it is garbage collected)
+        CRC32 checksum = new CRC32();
+        checksum.update(readFile(file));
+        return (int) checksum.getValue();
+
+    }
+
+    /**
+     * getStagePlanId(ByteBuffer) Method:
+     * Gets the ID that the file will have once an encoded snapshot is saved to it.
+     *
+     * Input: Snapshot encoded by encodeStagePlanSnapshot.
+     *
+     * Process: Reads the ID at the start of the table of contents.
+     *
+     * Output: ID (see StagePlanSnapshot.getId).
+     *
+     * @param snapshot Encoded stage plan
+     * @return ID
+     * @throws IOException Decoding exception
+     */
+    public static int getStagePlanId(ByteBuffer snapshot) throws IOException {
+        FileStreamReader reader = new FileStreamReader(snapshot.duplicate());
+        reader.readByte();
+        reader.seek(reader.readInt());
+        return reader.readInt();
+    }
+
+    public static byte getStagePlanVersion() {
+        return stagePlanVersion;
+    }
+
+    /**
+     * getSectionKey(JStageElement) Method:
+     * Gets the key of the section in which an element is saved.
+     *
+     * Input: Stage element with an ID.
+     *
+     * Process: Combines the section ID of the element's type with the range of its ID, so the section comes after the
+     * ones of the previous types & ranges when keys are sorted.
+     *
+     * Output: Section key.
+     *
+     * @param stageElement Stage element with an ID
+     * @return Section key
+     */
+    static long getSectionKey(JStageElement stageElement) {
+        return getSectionKey(getSectionId(stageElement.getClass()), stageElement.getId());
+    }
+
+    private static long getSectionKey(byte id, int elementId) {
+        return (long) id << 32 | elementId / sectionElementCount;
+    }
+
+    static byte getSectionId(long key) {
+        return (byte) (key >> 32);
+    }
+
+    /**
+     * getSectionId(Class<?>) Method:
+     * Gets the ID of the sections that contain elements of a type.
+     *
+     * Input: Type of the elements.
+     *
+     * Process: Compares the type with each saved type.
+     *
+     * Output: Section ID, or -1 if elements of that type aren't saved.
+     *
+     * @param type Type of the elements
+     * @return Section ID, or -1 if elements of that type aren't saved
+     */
+    static byte getSectionId(Class<?> type) {
+        if (JBatten.class.isAssignableFrom(type))
+            return SECTION_BATTENS;
+        else if (JLight.class.isAssignableFrom(type))
+            return SECTION_LIGHTS;
+        else if (JDraggableLabel.class.isAssignableFrom(type))
+            return SECTION_LABELS;
+        else
+            return -1;
+    }
+
+    /**
+     * getStageElementType(byte) Method:
+     * Gets the type of the elements of a section.
+     *
+     * Input: Section ID.
+     *
+     * Process: Compares the ID with each element section ID.
+     *
+     * Output: Stage element type, or STAGE_ELEMENT_NONE if the section doesn't contain elements.
+     *
+     * @param id Section ID
+     * @return Stage element type
+     */
+    static byte getStageElementType(byte id) {
+        switch (id) {
+            case SECTION_BATTENS:
+                return STAGE_ELEMENT_BATTEN;
+
+            case SECTION_LIGHTS:
+                return STAGE_ELEMENT_LIGHT;
+
+            case SECTION_LABELS:
+                return STAGE_ELEMENT_LABEL;
+
+            default:
+                return STAGE_ELEMENT_NONE;
+        }
+    }
+
+    /**
+     * addSection(FileStreamWriter, ArrayList<Section>, byte, FileStreamWriter, BlockCodec) Method:
+     * Writes a section as a block & adds it to the table of contents.
+     *
+     * Input: File stream writer, table of contents, section ID, contents of the section, codec.
+     *
+     * Process: Writes the contents as a block encoded with the codec, then creates the table of contents entry.
+     *
+     * Output: Written section.
+     *
+     * @param writer File stream writer (kept in memory)
+     * @param sections Table of contents
+     * @param id Section ID
+     * @param contents Contents of the section (kept in memory)
+     * @param codec Codec of the section
+     * @throws IOException File saving exception
+     */
+    private static void addSection(FileStreamWriter writer, ArrayList<Section> sections, byte id, FileStreamWriter contents, BlockCodec codec) throws IOException {
+        int offset = (int) writer.getPosition();
+        BlockCodecs.writeBlock(writer, contents.getContents(), codec);
+        sections.add(endSection(writer, id, offset));
+    }
+
+    /**
+     * endSection(FileStreamWriter, byte, int) Method:
+     * Creates the table of contents entry of a section that was just written.
+     *
+     * Input: File stream writer, section ID, offset of the section.
+     *
+     * Process: Gets the length of the section & its checksum from the written bytes.
+     *
+     * Output: Table of contents entry.
+     *
+     * @param writer File stream writer (kept in memory)
+     * @param id Section ID
+     * @param offset Offset of the section
+     * @return Table of contents entry
+     * @throws IOException File saving exception
+     */
+    private static Section endSection(FileStreamWriter writer, byte id, int offset) throws IOException {
+
+        // get length & bytes of the section
+        int length = (int) writer.getPosition() - offset;
+        ByteBuffer contents = writer.getContents();
+        contents.position(offset);
+
+        // get checksum
+        CRC32 checksum = new CRC32();
+        checksum.update(contents);
+
+        return new Section(id, offset, length, (int) checksum.getValue(), -1, 0, null);
+
+    }
+
+    /**
+     * writeTableOfContents(FileStreamWriter, int, ArrayList<Section>) Method:
+     * Writes a table of contents.
+     *
+     * Input: File stream writer, ID of the plan, table of contents.
+     *
+     * Process: Writes the ID of the plan & the amount of sections, then the ID, offset, length & checksum of each
+     * section, followed by the highest ID, the amount & the approximate bounds of its elements for element sections,
+     * so a plan can be mapped without decoding the sections that aren't in view.
+     *
+     * Output: Written table of contents.
+     *
+     * @param writer File stream writer
+     * @param planId ID of the snapshot the plan was saved from
+     * @param sections Table of contents
+     * @throws IOException File saving exception
+     */
+    private static void writeTableOfContents(FileStreamWriter writer, int planId, ArrayList<Section> sections) throws IOException {
+
+        // write ID & amount of sections
+        writer.writeInt(planId);
+        writer.writeInt(sections.size());
+
+        // write entries
+        for (Section section : sections) {
+            writer.write(section.id);
+            writer.writeInt(section.offset);
+            writer.writeInt(section.length);
+            writer.writeInt(section.checksum);
+
+            if (getStageElementType(section.id) != STAGE_ELEMENT_NONE) {
+                writer.writeInt(section.lastId);
+                writer.writeInt(section.count);
+                writer.writeInt(section.bounds.x);
+                writer.writeInt(section.bounds.y);
+                writer.writeInt(section.bounds.width);
+                writer.writeInt(section.bounds.height);
+            }
+        }
+
+    }
+
+    /**
+     * writeStageElement(FileStreamWriter, JStageElement, HashMap<LightDefinition, Integer>) Method:
+     * Writes a stage element so it can be read by readStageElement.
+     *
+     * Input: File stream writer, stage element, light definition indices of the plan.
+     *
+     * Process: Writes the coordinates, type & values of the element. Lights refer to their definition by its index in
+     * the plan, or contain it if there are no indices.
+     *
+     * Output: Written stage element.
+     *
+     * @param writer File stream writer
+     * @param stageElement Stage element to write
+     * @param lightDefinitionIndices Index of each light definition (null to write definitions with the lights)
+     * @throws IOException File saving exception
+     */
+    public static void writeStageElement(FileStreamWriter writer, JStageElement stageElement, HashMap<LightDefinition, Integer> lightDefinitionIndices) throws IOException {
+
+        // write coordinates
+        writer.writeInt(stageElement.getGridX());
+        writer.writeInt(stageElement.getGridY());
+
+        // write based on class type
+        if (stageElement instanceof JBatten) {
+
+            // cast as JBatten & write type
+            JBatten batten = (JBatten) stageElement;
+            writer.write(STAGE_ELEMENT_BATTEN);
+
+            // write heigth, length, orientation
+            writer.writeInt(batten.getHeightFromFloor());
+            writer.writeInt(batten.getLength());
+            writer.writeInt(batten.getOrientation().ordinal());
+
+        } else if (stageElement instanceof JLight) {
+
+            // cast as JLight & write type
+            JLight light = (JLight) stageElement;
+            writer.write(STAGE_ELEMENT_LIGHT);
+
+            // write index of light definition, or the definition itself if there are no indices
+            if (lightDefinitionIndices != null)
+                writer.writeInt(lightDefinitionIndices.get(light.getModel()));
+            else
+                writeLightDefinition(writer, light.getModel());
+
+            // write field angle
+            writer.writeFloat(light.getFieldAngle());
+
+            // write color
+            writer.write(light.getBeamColor().getRed());
+            writer.write(light.getBeamColor().getGreen());
+            writer.write(light.getBeamColor().getBlue());
+
+            // write angles
+            writer.writeFloat(light.getRotation());
+            writer.writeFloat(light.getAngle());
+
+            // write connection ID
+            writer.writeUTF8String(light.getConnectionId());
+
+            // write beam intensity
+            writer.writeInt(light.getBeamIntensity());
+
+        } else if (stageElement instanceof JDraggableLabel) {
+
+            // cast as JDraggableLabel & write type
+            JDraggableLabel label = (JDraggableLabel) stageElement;
+            writer.write(STAGE_ELEMENT_LABEL);
+
+            // write text
+            writer.writeUTF8String(label.getText());
+
+            // write color
+            writer.write(label.getColor().getRed());
+            writer.write(label.getColor().getGreen());
+            writer.write(label.getColor().getBlue());
+
+            // write font size
+            writer.writeInt(label.getFontSize());
+
+            // write font family
+            writer.writeUTF8String(label.getFontFamily());
+
+        } else {
+
+            // write generic stage element id
+            writer.write(STAGE_ELEMENT_NONE);
+
+        }
+
+    }
+
+    /**
+     * loadStagePlan(File) Method:
+     * Loads a stage plan from the specified file.
+     *
+     * Input: Source file.
+     *
+     * Process: Calls loadStagePlan with the local fixture library.
+     *
+     * Output: Loaded stage plan.
+     *
+     * @param file Source file.
+     * @return Loaded stage plan.
+     * @throws IOException File load exception
+     * @throws InvalidFileVersionException File too old
+     */
+    public static StagePlan loadStagePlan(File file) throws IOException, InvalidFileVersionException {
+        return loadStagePlan(file, FixtureLibrary.getLocal());
+    }
+
+    /**
+     * loadStagePlan(File, FixtureLibrary) Method:
+     * Loads a stage plan from the specified file.
+     *
+     * Input: Source file, fixture library.
+     *
+     * Process: Checks version, then reads the plan's copies of the library definitions & decodes the columns of every
+     * element section, or reads the light definitions & the single list of elements of version 1 files, whose
+     * elements get their index in the list as ID.
+     *
+     * Output: Loaded stage plan.
+     *
+     * @param file Source file.
+     * @param library Fixture library in which the definitions the plan refers to are found.
+     * @return Loaded stage plan.
+     * @throws IOException File load exception
+     * @throws InvalidFileVersionException File too old
+     */
+    public static StagePlan loadStagePlan(File file, FixtureLibrary library) throws IOException, InvalidFileVersionException {
+
+        // create reader
+        FileStreamReader reader = new FileStreamReader(file);
+
+        // get file version
+        byte fileVersion = reader.readByte();
+
+        // check file version
+        if (fileVersion < oldestSupportedVersion || fileVersion > stagePlanVersion)
+            throw new InvalidFileVersionException("Invalid file version.");
+
+        // create stage element list
+        ArrayList<JStageElement> stageElements = new ArrayList<>();
+
+        // read the light definitions & the single list right after them, or decode the columns of every element section
+        if (fileVersion == 1) {
+            readStageElementList(reader, fileVersion, readLightDefinitions(reader), stageElements);
+        } else {
+            ArrayList<Section> tableOfContents = readTableOfContents(reader);
+            Section copies = findSection(tableOfContents, SECTION_LIGHT_DEFINITIONS);
+            FixtureLibrary planLibrary = new FixtureLibrary(library);
+
+            if (copies != null)
+                planLibrary.addAll(readLightDefinitionCopies(readSection(reader, copies)));
+
+            for (Section section : getStageElementSections(tableOfContents)) {
+                StageElementColumns columns = StageElementColumns.read(new FileStreamReader(readSection(reader, section)), planLibrary);
+
+                for (int i = 0; i < columns.size(); i++)
+                    stageElements.add(columns.getStageElement(i));
+            }
+        }
+
+        // close reader
+        reader.close();
+
+        // return stage plan
+        return new StagePlan(stageElements);
+
+    }
+
+    /**
+     * readStageElementList(FileStreamReader, byte, ArrayList<LightDefinition>, ArrayList<JStageElement>) Method:
+     * Reads a list of stage elements from the specified file stream reader.
+     *
+     * Input: File stream reader at the start of the list, file version, light definitions, list to add elements to.
+     *
+     * Process: Reads the amount of elements & each element, adding those whose type is known with their index in the
+     * list as ID.
+     *
+     * Output: None.
+     *
+     * @param reader File stream reader at the start of the list
+     * @param fileVersion Version of the file being read
+     * @param lightDefinitions Light definitions of the plan
+     * @param stageElements List to which the elements are added
+     * @throws IOException File loading exception
+     */
+    private static void readStageElementList(FileStreamReader reader, byte fileVersion, ArrayList<LightDefinition> lightDefinitions, ArrayList<JStageElement> stageElements) throws IOException {
+
+        // get stage element count
+        int stageElementCount = reader.readInt();
+
+        // read all stage elements of the list
+        for (int i = 0; i < stageElementCount; i++) {
+
+            // read element & add it if its type is known
+            JStageElement stageElement = readStageElement(reader, fileVersion, lightDefinitions);
+
+            if (stageElement != null) {
+                stageElement.setId(i);
+                stageElements.add(stageElement);
+            }
+
+        }
+
+    }
+
+    /**
+     * readStageElement(FileStreamReader, byte, ArrayList<LightDefinition>) Method:
+     * Reads a stage element from the specified file stream reader.
+     *
+     * Input: File stream reader, file version, light definitions of the plan.
+     *
+     * Process: Reads the coordinates & type, then the values of that type, and creates the element.
+     *
+     * Output: Read stage element, or null if the type is unknown.
+     *
+     * @param reader File stream reader
+     * @param fileVersion Version of the file being read
+     * @param lightDefinitions Light definitions of the plan (null if they are written with the lights)
+     * @return Read stage element, or null if the type is unknown
+     * @throws IOException File loading exception
+     */
+    public static JStageElement readStageElement(FileStreamReader reader, byte fileVersion, ArrayList<LightDefinition> lightDefinitions) throws IOException {
+
+        // get coordinates
+        int x = reader.readInt();
+        int y = reader.readInt();
+
+        // get type
+        byte type = reader.readByte();
+
+        // switch based on type
+        switch (type) {
+            case STAGE_ELEMENT_BATTEN:
+
+                // read values
+                int heightFromFloor = reader.readInt();
+                int length = reader.readInt();
+                Orientation orientation = Orientation.values()[reader.readInt()];
+
+                // create element
+                return new JBatten(x, y, length, orientation, heightFromFloor);
+
+            case STAGE_ELEMENT_LIGHT:
+
+                // get light definition, which is written with the light if there is no list
+                LightDefinition lightDefinition = lightDefinitions != null ? lightDefinitions.get(reader.readInt()) : readLightDefinition(reader, fileVersion);
+
+                // read values
+                float fieldAngle = reader.readFloat();
+                Color beamColor = new Color(reader.readByte() & 0xFF, reader.readByte() & 0xFF, reader.readByte() & 0xFF);
+                float rotation = reader.readFloat();
+                float angle = reader.readFloat();
+                String connectionId = readString(reader, fileVersion);
+                int beamIntensity = reader.readInt();
+
+                // create element
+                return new JLight(x, y, lightDefinition, beamColor, rotation, angle, fieldAngle, connectionId, beamIntensity);
+
+            case STAGE_ELEMENT_LABEL:
+
+                // read values
+                String text = readString(reader, fileVersion);
+                Color color = new Color(reader.readByte() & 0xFF, reader.readByte() & 0xFF, reader.readByte() & 0xFF);
+                int fontSize = reader.readInt();
+                String fontFamily = readString(reader, fileVersion);
+
+                // create element
+                return new JDraggableLabel(x, y, text, color, fontSize, fontFamily);
+
+            default:
+                return null;
+
+        }
+
+    }
+
+    /**
+     * mapStagePlan(File) Method:
+     * Maps the specified stage plan file in memory without creating its stage elements.
+     *
+     * Input: Source file.
+     *
+     * Process: Calls mapStagePlan with the local fixture library.
+     *
+     * Output: Mapped stage plan.
+     *
+     * @param file Source file.
+     * @return Mapped stage plan.
+     * @throws IOException File load exception
+     * @throws InvalidFileVersionException File too old
+     */
+    public static MappedStagePlan mapStagePlan(File file) throws IOException, InvalidFileVersionException {
+        return mapStagePlan(file, FixtureLibrary.getLocal());
+    }
+
+    /**
+     * mapStagePlan(File, FixtureLibrary) Method:
+     * Maps the specified stage plan file in memory without creating its stage elements.
+     *
+     * Input: Source file, fixture library.
+     *
+     * Process: Maps the file, checks version & reads the table of contents if there is one, which has the amount &
+     * bounds of the elements of each section. Element sections are only decoded into their columns once an element or
+     * the area of the section is needed, and elements are created from them when they are needed. The sections are
+     * also kept in a section cache, so saving the plan doesn't encode them again until their elements change. In
+     * version 1 files, reads the light definitions & goes through the element records instead, only reading what is
+     * needed to get the position & approximate bounds of each element, and skipping the rest.
+     *
+     * Output: Mapped stage plan, from which elements are decoded when they are needed.
+     *
+     * @param file Source file.
+     * @param library Fixture library in which the definitions the plan refers to are found.
+     * @return Mapped stage plan.
+     * @throws IOException File load exception
+     * @throws InvalidFileVersionException File too old
+     */
+    public static MappedStagePlan mapStagePlan(File file, FixtureLibrary library) throws IOException, InvalidFileVersionException {
+
+        // map file (the mapping stays valid once the channel is closed)
+        MappedByteBuffer buffer;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        // create reader
+        FileStreamReader reader = new FileStreamReader(buffer);
+
+        // get file version
+        byte fileVersion = reader.readByte();
+
+        // check file version
+        if (fileVersion < oldestSupportedVersion || fileVersion > stagePlanVersion)
+            throw new InvalidFileVersionException("Invalid file version.");
+
+        // read the plan's copies of the library definitions, then only index the element sections, which are decoded
+        // when their area is first needed
+        if (fileVersion > 1) {
+            ArrayList<Section> tableOfContents = readTableOfContents(reader);
+            Section copiesSection = findSection(tableOfContents, SECTION_LIGHT_DEFINITIONS);
+            List<LightDefinition> copies = copiesSection != null ? readLightDefinitionCopies(mapSection(copiesSection.slice(buffer).slice(), copiesSection)) : Collections.emptyList();
+            FixtureLibrary planLibrary = new FixtureLibrary(library);
+            planLibrary.addAll(copies);
+
+            ArrayList<Section> elementSections = getStageElementSections(tableOfContents);
+            MappedSection[] sections = new MappedSection[elementSections.size()];
+            int nextId = 0;
+            SectionCache cache = new SectionCache();
+
+            for (int i = 0; i < sections.length; i++) {
+                Section section = elementSections.get(i);
+                ByteBuffer contents = section.slice(buffer).slice();
+                sections[i] = new MappedSection(contents, section, planLibrary);
+                nextId = Math.max(nextId, section.lastId + 1);
+
+                // keep the section as it is in the file (which definitions of the copies lights refer to isn't known
+                // without decoding them, so they are all kept when the section is saved again)
+                cache.put(section.getSectionKey(), new SectionCache.EncodedSection(contents, section.checksum, section.lastId, section.count, section.bounds, section.id == SECTION_LIGHTS ? copies : Collections.emptyList()));
+            }
+
+            return new MappedStagePlan(sections, nextId, cache);
+        }
+
+        // read light definitions
+        ArrayList<LightDefinition> lightDefinitions = readLightDefinitions(reader);
+
+        // get the stage element list, which is the rest of the file after the light definitions
+        ByteBuffer list = buffer.duplicate();
+        list.position((int) reader.getPosition());
+        list = list.slice();
+
+        // create index
+        FileStreamReader listReader = new FileStreamReader(list);
+        int stageElementCount = listReader.readInt();
+        int[] offsets = new int[stageElementCount];
+        Rectangle[] bounds = new Rectangle[stageElementCount];
+
+        // index all stage elements, relative to the start of the list
+        for (int i = 0; i < stageElementCount; i++) {
+            offsets[i] = (int) listReader.getPosition();
+            bounds[i] = skipStageElement(listReader, fileVersion);
+        }
+
+        // return mapped stage plan
+        return new MappedStagePlan(new ByteBuffer[] { list }, new int[] { 0 }, fileVersion, lightDefinitions, offsets, bounds);
+
+    }
+
+    /**
+     * loadStagePlanMetadata(File) Method:
+     * Loads the metadata of a stage plan without loading the plan itself.
+     *
+     * Input: Source file.
+     *
+     * Process: Checks version, reads the table of contents & reads the metadata section straight away.
+     *
+     * Output: Metadata entries (empty if the file has no metadata).
+     *
+     * @param file Source file.
+     * @return Metadata entries, by key.
+     * @throws IOException File load exception
+     * @throws InvalidFileVersionException File too old or too recent
+     */
+    public static LinkedHashMap<String, String> loadStagePlanMetadata(File file) throws IOException, InvalidFileVersionException {
+
+        // create reader & map
+        FileStreamReader reader = new FileStreamReader(file);
+        LinkedHashMap<String, String> metadata = new LinkedHashMap<>();
+
+        try {
+
+            // get file version & read the metadata section if the file has one
+            ByteBuffer contents = readSection(reader, SECTION_METADATA);
+
+            if (contents != null) {
+
+                // read entries
+                FileStreamReader sectionReader = new FileStreamReader(contents);
+                int entryCount = sectionReader.readInt();
+
+                for (int i = 0; i < entryCount; i++)
+                    metadata.put(sectionReader.readUTF8String(), sectionReader.readUTF8String());
+
+            }
+
+        } finally {
+            reader.close();
+        }
+
+        return metadata;
+
+    }
+
+    /**
+     * loadStagePlanThumbnail(File) Method:
+     * Loads the thumbnail of a stage plan without loading the plan itself.
+     *
+     * Input: Source file.
+     *
+     * Process: Checks version, reads the table of contents, reads the thumbnail section straight away & decodes the
+     * image.
+     *
+     * Output: Thumbnail, or null if the file has none.
+     *
+     * @param file Source file.
+     * @return Thumbnail, or null if the file has none.
+     * @throws IOException File load exception
+     * @throws InvalidFileVersionException File too old or too recent
+     */
+    public static BufferedImage loadStagePlanThumbnail(File file) throws IOException, InvalidFileVersionException {
+
+        // create reader
+        FileStreamReader reader = new FileStreamReader(file);
+
+        try {
+
+            // get file version & read the thumbnail section if the file has one
+            ByteBuffer contents = readSection(reader, SECTION_THUMBNAIL);
+
+            if (contents == null)
+                return null;
+
+            // decode image
+            return ImageIO.read(new FileStreamReader(contents));
+
+        } finally {
+            reader.close();
+        }
+
+    }
+
+    /**
+     * readSection(FileStreamReader, byte) Method:
+     * Reads a section of a stage plan file.
+     *
+     * Input: File stream reader at the start of the file, section ID.
+     *
+     * Process: Checks version & reads the table of contents, then reads the section if it is in the file.
+     *
+     * Output: Contents of the section, or null if it isn't in the file.
+     *
+     * @param reader File stream reader at the start of the file
+     * @param id Section ID
+     * @return Contents of the section, or null if it isn't in the file
+     * @throws IOException File load exception
+     * @throws InvalidFileVersionException File too old or too recent
+     */
+    private static ByteBuffer readSection(FileStreamReader reader, byte id) throws IOException, InvalidFileVersionException {
+
+        // get file version
+        byte fileVersion = reader.readByte();
+
+        // check file version
+        if (fileVersion < oldestSupportedVersion || fileVersion > stagePlanVersion)
+            throw new InvalidFileVersionException("Invalid file version.");
+
+        // version 1 files have no table of contents, and no optional sections
+        if (fileVersion == 1)
+            return null;
+
+        // read table of contents & read the section if it exists
+        Section found = findSection(readTableOfContents(reader), id);
+
+        if (found == null)
+            return null;
+
+        return readSection(reader, found);
+
+    }
+
+    /**
+     * readSection(FileStreamReader, Section) Method:
+     * Reads the contents of a section.
+     *
+     * Input: File stream reader, table of contents entry.
+     *
+     * Process: Goes to the section, reads it, checks it against its checksum & decodes its block.
+     *
+     * Output: Contents of the section.
+     *
+     * @param reader File stream reader
+     * @param section Table of contents entry
+     * @return Contents of the section
+     * @throws IOException File load exception, or a section that doesn't match its checksum
+     */
+    private static ByteBuffer readSection(FileStreamReader reader, Section section) throws IOException {
+
+        // go to section & read it
+        byte[] contents = new byte[section.length];
+        reader.seek(section.offset);
+        reader.readFully(contents);
+
+        // check & decode block
+        section.verify(ByteBuffer.wrap(contents));
+        return BlockCodecs.readBlock(ByteBuffer.wrap(contents));
+
+    }
+
+    /**
+     * mapSection(ByteBuffer, Section) Method:
+     * Gets the contents of a section of a mapped file.
+     *
+     * Input: Block of the section, as it is in the file, table of contents entry.
+     *
+     * Process: Checks the block against its checksum & decodes it. Sections that aren't compressed aren't copied.
+     *
+     * Output: Contents of the section.
+     *
+     * @param block Block of the section, as it is in the file
+     * @param section Table of contents entry
+     * @return Contents of the section
+     * @throws IOException File load exception, or a section that doesn't match its checksum
+     */
+    static ByteBuffer mapSection(ByteBuffer block, Section section) throws IOException {
+
+        // check & decode block
+        section.verify(block.duplicate());
+        return BlockCodecs.readBlock(block.duplicate());
+
+    }
+
+    /**
+     * readTableOfContents(FileStreamReader) Method:
+     * Reads the table of contents of a sectioned stage plan.
+     *
+     * Input: File stream reader, right after the version.
+     *
+     * Process: Reads the offset of the table, which is right after the version, then the table at the end of the file.
+     *
+     * Output: Table of contents, in file order.
+     *
+     * @param reader File stream reader
+     * @return Table of contents
+     * @throws IOException File loading exception
+     */
+    private static ArrayList<Section> readTableOfContents(FileStreamReader reader) throws IOException {
+
+        // create table
+        ArrayList<Section> sections = new ArrayList<>();
+
+        // go to table, skip the plan ID & get section count
+        reader.seek(reader.readInt());
+        reader.readInt();
+        int sectionCount = reader.readInt();
+
+        // read entries
+        for (int i = 0; i < sectionCount; i++) {
+            byte id = reader.readByte();
+            int offset = reader.readInt();
+            int length = reader.readInt();
+            int checksum = reader.readInt();
+
+            // read element values of element sections
+            if (getStageElementType(id) != STAGE_ELEMENT_NONE)
+                sections.add(new Section(id, offset, length, checksum, reader.readInt(), reader.readInt(), new Rectangle(reader.readInt(), reader.readInt(), reader.readInt(), reader.readInt())));
+            else
+                sections.add(new Section(id, offset, length, checksum, -1, 0, null));
+        }
+
+        return sections;
+
+    }
+
+    /**
+     * findSection(ArrayList<Section>, byte) Method:
+     * Finds the first section with the specified ID in a table of contents.
+     *
+     * Input: Table of contents, section ID.
+     *
+     * Process: Uses sequential search to find the section.
+     *
+     * Output: Section, or null if not found.
+     *
+     * @param sections Table of contents
+     * @param id Section ID
+     * @return Section, or null if not found
+     */
+    private static Section findSection(ArrayList<Section> sections, byte id) {
+
+        // iterate through sections & return the first one with the ID
+        for (Section section : sections)
+            if (section.id == id)
+                return section;
+
+        // return null if nothing was found
+        return null;
+
+    }
+
+    /**
+     * readLightDefinitions(FileStreamReader) Method:
+     * Reads the light definitions of a version 1 stage plan, which come right after the version.
+     *
+     * Input: File stream reader.
+     *
+     * Process: Reads the amount of definitions & each definition.
+     *
+     * Output: Light definitions.
+     *
+     * @param reader File stream reader
+     * @return Light definitions
+     * @throws IOException File loading exception
+     */
+    private static ArrayList<LightDefinition> readLightDefinitions(FileStreamReader reader) throws IOException {
+
+        // get light definition count & create list
+        int lightDefinitionCount = reader.readInt();
+        ArrayList<LightDefinition> lightDefinitions = new ArrayList<>();
+
+        // read light definitions
+        for (int i = 0; i < lightDefinitionCount; i++)
+            lightDefinitions.add(readLightDefinition(reader, (byte) 1));
+
+        return lightDefinitions;
+
+    }
+
+    /**
+     * writeLightDefinitionReference(FileStreamWriter, LightDefinition, FixtureLibrary, Collection<LightDefinition>) Method:
+     * Writes a light definition used by a stage plan.
+     *
+     * Input: File stream writer, light definition, fixture library, collection of the definitions written as content
+     * hashes.
+     *
+     * Process: Writes the content hash of the definition if it is in the library & adds it to the collection, so the
+     * plan keeps a copy of it, or writes the whole definition otherwise.
+     *
+     * Output: Written light definition.
+     *
+     * @param writer File stream writer
+     * @param lightDefinition Light definition
+     * @param library Fixture library whose definitions are referred to by content hash
+     * @param referenced Receives the definitions written as content hashes
+     * @throws IOException File saving exception
+     */
+    static void writeLightDefinitionReference(FileStreamWriter writer, LightDefinition lightDefinition, FixtureLibrary library, Collection<LightDefinition> referenced) throws IOException {
+        if (library.contains(lightDefinition)) {
+            writer.write(LIGHT_DEFINITION_LIBRARY);
+            writer.writeLong(lightDefinition.getContentHash());
+            referenced.add(lightDefinition);
+        } else {
+            writer.write(LIGHT_DEFINITION_EMBEDDED);
+            writeLightDefinition(writer, lightDefinition);
+        }
+    }
+
+    /**
+     * readLightDefinitionReference(FileStreamReader, FixtureLibrary) Method:
+     * Reads a light definition written by writeLightDefinitionReference.
+     *
+     * Input: File stream reader, fixture library.
+     *
+     * Process: Reads the kind, then the whole definition or its content hash, in which case it is taken from the
+     * library, which has the plan's copies. If it isn't found (plans saved without copies), a placeholder is used
+     * instead & a warning is logged, so the rest of the plan still loads.
+     *
+     * Output: Light definition.
+     *
+     * @param reader File stream reader
+     * @param library Fixture library in which the definitions the plan refers to are found
+     * @return Light definition
+     * @throws IOException File loading exception
+     */
+    static LightDefinition readLightDefinitionReference(FileStreamReader reader, FixtureLibrary library) throws IOException {
+
+        // read kind
+        byte kind = reader.readByte();
+
+        // read definition, or get it from the library
+        if (kind == LIGHT_DEFINITION_EMBEDDED)
+            return readLightDefinition(reader, stagePlanVersion);
+
+        if (kind != LIGHT_DEFINITION_LIBRARY)
+            throw new IOException("Unknown light definition kind " + kind + ".");
+
+        long contentHash = reader.readLong();
+        LightDefinition lightDefinition = library.get(contentHash);
+
+        if (lightDefinition == null) {
+            logger.warning(String.format("Light definition %016x is neither in the plan nor in the fixture library, a placeholder is used instead.", contentHash));
+            lightDefinition = new LightDefinition(String.format("Missing fixture %016x", contentHash), "?", LightShape.CIRCLE, Color.gray, 30.0f).intern();
+        }
+
+        return lightDefinition;
+
+    }
+
+    /**
+     * readLightDefinitionCopies(ByteBuffer) Method:
+     * Reads the copies of the library definitions a stage plan refers to.
+     *
+     * Input: Contents of the section.
+     *
+     * Process: Reads the amount of definitions & each definition.
+     *
+     * Output: Light definitions.
+     *
+     * @param contents Contents of the section
+     * @return Light definitions
+     * @throws IOException File loading exception
+     */
+    private static ArrayList<LightDefinition> readLightDefinitionCopies(ByteBuffer contents) throws IOException {
+        FileStreamReader reader = new FileStreamReader(contents);
+        int count = reader.readInt();
+
+        if (count < 0)
+            throw new IOException("Negative amount of light definitions.");
+
+        ArrayList<LightDefinition> lightDefinitions = new ArrayList<>();
+
+        for (int i = 0; i < count; i++)
+            lightDefinitions.add(readLightDefinition(reader, stagePlanVersion));
+
+        return lightDefinitions;
+    }
+
+    /**
+     * getStageElementSections(ArrayList<Section>) Method:
+     * Gets the sections that contain the stage elements of a stage plan.
+     *
+     * Input: Table of contents.
+     *
+     * Process: Lists the element sections by type & then in file order.
+     *
+     * Output: Element sections, in the order in which they should be read.
+     *
+     * @param sections Table of contents
+     * @return Element sections
+     */
+    private static ArrayList<Section> getStageElementSections(ArrayList<Section> sections) {
+
+        // create list
+        ArrayList<Section> elementSections = new ArrayList<>();
+
+        // add sections of each type
+        for (byte id : stageElementSections)
+            for (Section section : sections)
+                if (section.id == id)
+                    elementSections.add(section);
+
+        return elementSections;
+
+    }
+
+    /**
+     * skipStageElement(FileStreamReader, byte) Method:
+     * Skips a stage element record, only reading what is needed to get the element's bounds.
+     *
+     * Input: File stream reader, file version.
+     *
+     * Process: Reads the coordinates & type, then skips the values of that type. Battens have exact bounds, lights
+     * have their default size, and labels are estimated from their text length & font size.
+     *
+     * Output: Bounds of the element, without zoom.
+     *
+     * @param reader File stream reader
+     * @param fileVersion Version of the file being read
+     * @return Bounds of the element, without zoom
+     * @throws IOException File loading exception
+     */
+    private static Rectangle skipStageElement(FileStreamReader reader, byte fileVersion) throws IOException {
+
+        // get coordinates & type
+        int x = reader.readInt();
+        int y = reader.readInt();
+        byte type = reader.readByte();
+
+        // skip values based on type
+        switch (type) {
+            case STAGE_ELEMENT_BATTEN:
+
+                // read height, length & orientation
+                reader.readInt();
+                int length = reader.readInt();
+                Orientation orientation = Orientation.values()[reader.readInt()];
+
+                return orientation == Orientation.HORIZONTAL ? new Rectangle(x, y, length, 10) : new Rectangle(x, y, 10, length);
+
+            case STAGE_ELEMENT_LIGHT:
+
+                // skip definition, field angle, color, angles, connection ID & intensity
+                reader.skip(4 + 4 + 3 + 4 + 4);
+                skipString(reader, fileVersion);
+                reader.skip(4);
+
+                return new Rectangle(x, y, 30, 30);
+
+            case STAGE_ELEMENT_LABEL:
+
+                // skip text & color, read font size & skip font family
+                int textLength = skipString(reader, fileVersion);
+                reader.skip(3);
+                int fontSize = reader.readInt();
+                skipString(reader, fileVersion);
+
+                return new Rectangle(x, y, textLength * fontSize, fontSize * 2);
+
+            default:
+                return new Rectangle(x, y, 0, 0);
+
+        }
+
+    }
+
+    /**
+     * skipString(FileStreamReader, byte) Method:
+     * Skips a string in the encoding used by the specified file version.
+     *
+     * Input: File stream reader, file version.
+     *
+     * Process: Version 1 strings have to be decoded to find where they end, newer strings are skipped using their
+     * length in bytes.
+     *
+     * Output: Length of the string (in characters for version 1, in bytes otherwise).
+     *
+     * @param reader File stream reader
+     * @param fileVersion Version of the file being read
+     * @return Length of the string
+     * @throws IOException File loading exception
+     */
+    private static int skipString(FileStreamReader reader, byte fileVersion) throws IOException {
+
+        // skip string based on version
+        if (fileVersion == 1) {
+            int length = reader.readInt();
+            reader.readStringOfChars(length);
+            return length;
+        } else {
+            int length = reader.readVarInt();
+            reader.skip(length);
+            return length;
+        }
+
+    }
+
+    /**
+     * readString(FileStreamReader, byte) Method:
+     * Reads a string in the encoding used by the specified file version.
+     *
+     * Input: File stream reader, file version.
+     *
+     * Process: Version 1 files prefix strings with their length in UTF-16 characters (which broke files with
+     * non-ASCII strings), newer versions prefix them with their length in bytes.
+     *
+     * Output: Read string.
+     *
+     * @param reader File stream reader
+     * @param fileVersion Version of the file being read
+     * @return Read string
+     * @throws IOException File loading exception
+     */
+    private static String readString(FileStreamReader reader, byte fileVersion) throws IOException {
+
+        // read string based on version
+        if (fileVersion == 1)
+            return reader.readStringOfChars(reader.readInt());
+        else
+            return reader.readUTF8String();
+
+    }
+
+    /**
+     * Section Class:
+     * Entry of the table of contents of a stage plan file.
+     *
+     * Date: 2026-10-19
+     *
+     * @author Nicolas Gnyra
+     * @version 1.2
+     */
+    static class Section {
+        private final byte id;              // section ID
+        private final int offset;           // offset of the section in the file
+        private final int length;           // length of the section, in bytes
+        private final int checksum;         // CRC32 of the section
+        private final int lastId;           // highest ID of the section's elements (-1 if it doesn't contain elements)
+        private final int count;            // amount of elements in the section
+        private final Rectangle bounds;     // approximate bounds of the section's elements, without zoom (null if it doesn't contain elements)
+
+        /**
+         * Section(byte, int, int, int, int, int, Rectangle) Constructor:
+         * Creates a new instance of the Section class.
+         *
+         * Input: ID, offset, length, checksum, highest element ID, amount of elements, bounds of the elements.
+         *
+         * Process: Sets values.
+         *
+         * Output: A new instance of the Section class.
+         *
+         * @param id Section ID
+         * @param offset Offset of the section in the file
+         * @param length Length of the section, in bytes
+         * @param checksum CRC32 of the section
+         * @param lastId Highest ID of the section's elements (-1 if it doesn't contain elements)
+         * @param count Amount of elements in the section
+         * @param bounds Approximate bounds of the section's elements, without zoom (null if it doesn't contain elements)
+         */
+        Section(byte id, int offset, int length, int checksum, int lastId, int count, Rectangle bounds) {
+            this.id = id;
+            this.offset = offset;
+            this.length = length;
+            this.checksum = checksum;
+            this.lastId = lastId;
+            this.count = count;
+            this.bounds = bounds;
+        }
+
+        /**
+         * Section(byte, int, SectionCache.EncodedSection) Constructor:
+         * Creates a new instance of the Section class for an encoded element section.
+         *
+         * Input: ID, offset, encoded section.
+         *
+         * Process: Takes the other values from the encoded section.
+         *
+         * Output: A new instance of the Section class.
+         *
+         * @param id Section ID
+         * @param offset Offset of the section in the file
+         * @param encoded Encoded section
+         */
+        Section(byte id, int offset, SectionCache.EncodedSection encoded) {
+            this(id, offset, encoded.contents.remaining(), encoded.checksum, encoded.lastId, encoded.count, encoded.bounds);
+        }
+
+        /**
+         * slice(ByteBuffer) Method:
+         * Gets the bytes of this section in an encoded stage plan.
+         *
+         * Input: Encoded stage plan.
+         *
+         * Process: Creates a view of the section's bytes.
+         *
+         * Output: Bytes of the section.
+         *
+         * @param file Encoded stage plan
+         * @return Bytes of the section
+         */
+        ByteBuffer slice(ByteBuffer file) {
+            ByteBuffer contents = file.duplicate();
+            contents.limit(offset + length);
+            contents.position(offset);
+            return contents;
+        }
+
+        /**
+         * contentEquals(FileChannel, ByteBuffer) Method:
+         * Checks whether this section of a file has the specified bytes.
+         *
+         * Input: Channel of the file, expected bytes.
+         *
+         * Process: Reads the section & compares it to the expected bytes.
+         *
+         * Output: Whether the bytes are the same.
+         *
+         * @param channel Channel of the file
+         * @param expected Expected bytes
+         * @return Whether the bytes are the same
+         * @throws IOException File loading exception
+         */
+        boolean contentEquals(FileChannel channel, ByteBuffer expected) throws IOException {
+
+            // read section
+            ByteBuffer contents = ByteBuffer.allocate(length);
+
+            while (contents.hasRemaining())
+                if (channel.read(contents, offset + contents.position()) < 0)
+                    return false;
+
+            // compare bytes
+            contents.flip();
+            return contents.equals(expected);
+
+        }
+
+        /**
+         * verify(ByteBuffer) Method:
+         * Checks that the bytes read for this section match its checksum.
+         *
+         * Input: Bytes of the section.
+         *
+         * Process: Computes the CRC32 of the bytes & compares it to the one in the table of contents.
+         *
+         * Output: None.
+         *
+         * @param contents Bytes of the section
+         * @throws IOException Thrown when the bytes don't match the checksum.
+         */
+        void verify(ByteBuffer contents) throws IOException {
+            CRC32 actual = new CRC32();
+            actual.update(contents);
+
+            if ((int) actual.getValue() != checksum)
+                throw new IOException("Section " + id + " at offset " + offset + " is corrupted.");
+        }
+
+        List<Integer> getKey() {
+            return Arrays.asList((int) id, length, checksum);
+        }
+
+        int getChecksum() {
+            return checksum;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        Rectangle getBounds() {
+            return bounds;
+        }
+
+        long getSectionKey() {
+            return FileHelper.getSectionKey(id, lastId);
+        }
+    }
+
+    /**
+     * ChannelWriter Interface:
+     * An operation that writes to a file channel.
+     *
+     * Date: 2026-10-19
+     *
+     * @author Nicolas Gnyra
+     * @version 1.0
+     */
+    public interface ChannelWriter {
+        void write(FileChannel channel) throws IOException;
     }
 
 }
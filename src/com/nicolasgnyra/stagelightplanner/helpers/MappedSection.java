@@ -0,0 +1,139 @@
+package com.nicolasgnyra.stagelightplanner.helpers;
+
+import com.nicolasgnyra.stagelightplanner.FileStreamReader;
+import com.nicolasgnyra.stagelightplanner.FixtureLibrary;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * MappedSection Class:
+ * An element section of a mapped stage plan file, which is only checked & decoded into columns when its elements are
+ * first needed. The amount & bounds of its elements come from the table of contents, so the section doesn't have to
+ * be decoded to know whether it's in view.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.1
+ */
+public class MappedSection {
+    private ByteBuffer block;                           // block of the section in the mapped file, or a copy of it
+    private final FileHelper.Section section;           // table of contents entry
+    private final FixtureLibrary library;               // fixture library in which referred definitions are found
+    private StageElementColumns columns = null;         // decoded columns (null until they are needed or once released)
+
+    /**
+     * MappedSection(ByteBuffer, FileHelper.Section, FixtureLibrary) Constructor:
+     * Creates a new instance of the MappedSection class.
+     *
+     * Input: Block of the section in the mapped file, table of contents entry, fixture library.
+     *
+     * Process: Sets values.
+     *
+     * Output: A new instance of the MappedSection class.
+     *
+     * @param block Block of the section in the mapped file
+     * @param section Table of contents entry of an element section
+     * @param library Fixture library in which the definitions the section refers to are found
+     */
+    MappedSection(ByteBuffer block, FileHelper.Section section, FixtureLibrary library) {
+        this.block = block;
+        this.section = section;
+        this.library = library;
+    }
+
+    /**
+     * getColumns() Method:
+     * Gets the columns of the section, decoding them if needed.
+     *
+     * Input: None.
+     *
+     * Process: Checks the section against its checksum, decodes its block & reads the columns, which must have as
+     * many elements as the table of contents says. They are kept until they are released.
+     *
+     * Output: Columns of the section.
+     *
+     * @return Columns of the section
+     * @throws IOException File loading exception, or a section that doesn't match its checksum or entry
+     */
+    public StageElementColumns getColumns() throws IOException {
+
+        // decode columns if needed
+        if (columns == null) {
+            StageElementColumns decoded = StageElementColumns.read(new FileStreamReader(FileHelper.mapSection(block, section)), library);
+
+            if (decoded.size() != section.getCount())
+                throw new IOException("A section doesn't have the amount of elements in the table of contents.");
+
+            columns = decoded;
+        }
+
+        return columns;
+
+    }
+
+    /**
+     * release() Method:
+     * Releases the decoded columns once the elements were all created.
+     *
+     * Input: None.
+     *
+     * Process: Forgets the columns. They are decoded again if they are needed later.
+     *
+     * Output: None.
+     */
+    public void release() {
+        columns = null;
+    }
+
+    /**
+     * copyToHeap(SectionCache) Method:
+     * Stops reading the section from the mapped file, so the file can be replaced.
+     *
+     * Input: Section cache of the plan.
+     *
+     * Process: Uses the block the cache has for the section if it was copied from the same block (same key, checksum
+     * & length), so the section isn't copied twice. Otherwise copies the block.
+     *
+     * Output: None.
+     *
+     * @param cache Section cache of the plan, whose sections were copied to the heap already
+     */
+    public void copyToHeap(SectionCache cache) {
+
+        // nothing to do if the block isn't mapped
+        if (!block.isDirect())
+            return;
+
+        // share the cache's copy if it has one, otherwise copy the block
+        SectionCache.EncodedSection encoded = cache.get(getKey());
+
+        if (encoded != null && !encoded.contents.isDirect() && encoded.checksum == section.getChecksum() && encoded.contents.remaining() == block.remaining())
+            block = encoded.contents;
+        else
+            block = FileHelper.copyToHeap(block);
+
+    }
+
+    public boolean isMapped() {
+        return block.isDirect();
+    }
+
+    public boolean isDecoded() {
+        return columns != null;
+    }
+
+    public int getCount() {
+        return section.getCount();
+    }
+
+    public Rectangle getBounds() {
+        return new Rectangle(section.getBounds());
+    }
+
+    long getKey() {
+        return section.getSectionKey();
+    }
+}
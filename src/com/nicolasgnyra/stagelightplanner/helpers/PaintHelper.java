@@ -1,11 +1,12 @@
 package com.nicolasgnyra.stagelightplanner.helpers;
 
 import com.nicolasgnyra.stagelightplanner.LightShape;
+import com.nicolasgnyra.stagelightplanner.rendering.BeamFootprint;
 
 import java.awt.*;
 import java.awt.geom.AffineTransform;
-import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
 
 /**
  * PaintHelper Class:
@@ -291,6 +292,7 @@ public class PaintHelper {
     /**
      * getBeamRect(int, double, double) Method:
      * Gets the rectangle of the ellipse of the beam of the light with the specified height, field angle and angle.
+     * This is an approximation; beams are drawn from the exact footprint given by BeamFootprint.
      *
      * Input: Batten height, field angle, angle.
      *
@@ -329,6 +331,36 @@ public class PaintHelper {
 
     }
 
+    /**
+     * getBeamTransform(int, int, int, int, double) Method:
+     * Gets the transform from the frame of a beam footprint to drawing coordinates.
+     *
+     * Input: Light coordinates & size, rotation.
+     *
+     * Process: Rotates around the light center & translates to it.
+     *
+     * Output: Beam transform.
+     *
+     * @param lightX Light X position
+     * @param lightY Light Y position
+     * @param lightWidth Light width
+     * @param lightHeight Light height
+     * @param rotation Light rotation
+     * @return Beam transform
+     */
+    public static AffineTransform getBeamTransform(int lightX, int lightY, int lightWidth, int lightHeight, double rotation) {
+
+        // rotate according to user input around the light center
+        AffineTransform transform = new AffineTransform();
+        transform.rotate(Math.PI / 2 - Math.toRadians(rotation), lightX + lightWidth / 2, lightY + lightHeight / 2);
+
+        // move the footprint's origin to the light center
+        transform.translate(lightX + lightWidth / 2, lightY + lightHeight / 2);
+
+        return transform;
+
+    }
+
     /**
      * drawBeam(Graphics2D, int, int, int, int, int, double, int Color, int, double, double, boolean) Method:
      * Draws the beam of the light with the specified characteristics.
@@ -336,7 +368,7 @@ public class PaintHelper {
      * Input: Graphics instance, light coordinates & size, field angle, batten height, beam color, beam intensity,
      * rotation, angle, whether to show outlines or not.
      *
-     * Process: Gets the beam rectangle, transforms (rotates) it, and draws it.
+     * Process: Gets the beam footprint, transforms (rotates) it, and draws it.
      *
      * Output: Drawn beam on the specified graphics instance.
      *
@@ -358,45 +390,71 @@ public class PaintHelper {
         // get the color of the light
         Color color = new Color(beamColor.getRed(), beamColor.getGreen(), beamColor.getBlue(), 128 * beamIntensity / 100);
 
-        // get the beam rectangle
-        Rectangle rect = getBeamRect(battenHeight, fieldAngle, angle);
-
-        // create & rotate transform according to user input
-        AffineTransform transform = new AffineTransform();
-        transform.rotate(Math.PI / 2 - Math.toRadians(rotation), lightX + lightWidth / 2, lightY + lightHeight / 2);
+        // get the beam footprint
+        BeamFootprint footprint = BeamFootprint.get(battenHeight, fieldAngle, angle);
 
         // set color according to user input (add 50% opacity)
         g2d.setColor(color);
 
-        // get transformed shape
-        Shape transformedEllipse = transform.createTransformedShape(new Ellipse2D.Double(lightX + rect.x + lightWidth / 2, lightY + rect.y + lightHeight / 2 - rect.height / 2, rect.width, rect.height));
+        // fill transformed footprint
+        g2d.fill(footprint.getOutline(getBeamTransform(lightX, lightY, lightWidth, lightHeight, rotation)));
+
+        // draw outlines if user wants to show them
+        if (showLightOutlines)
+            drawBeamOutline(g2d, lightX, lightY, lightWidth, lightHeight, fieldAngle, battenHeight, beamColor, beamIntensity, rotation, angle);
 
-        // fill sized & rotate ellipse
-        g2d.fill(transformedEllipse);
+    }
 
-        // check if user wants to show outlines
-        if (showLightOutlines) {
+    /**
+     * drawBeamOutline(Graphics2D, int, int, int, int, double, int, Color, int, double, double) Method:
+     * Draws the outline of the beam of the light with the specified characteristics.
+     *
+     * Input: Graphics instance, light coordinates & size, field angle, batten height, beam color, beam intensity,
+     * rotation, angle.
+     *
+     * Process: Gets the beam footprint, transforms (rotates) it, and draws its outline & the lines from the light.
+     *
+     * Output: Drawn beam outline on the specified graphics instance.
+     *
+     * @param g2d Graphics instance.
+     * @param lightX Light X position
+     * @param lightY Light Y position
+     * @param lightWidth Light width
+     * @param lightHeight Light height
+     * @param fieldAngle Light field angle
+     * @param battenHeight Batten height
+     * @param beamColor Beam color
+     * @param beamIntensity Beam intensity
+     * @param rotation Light rotation
+     * @param angle Light angle
+     */
+    public static void drawBeamOutline(Graphics2D g2d, int lightX, int lightY, int lightWidth, int lightHeight, double fieldAngle, int battenHeight, Color beamColor, int beamIntensity, double rotation, double angle) {
 
-            // save previous stroke
-            Stroke previousStroke = g2d.getStroke();
+        // get the color of the light
+        Color color = new Color(beamColor.getRed(), beamColor.getGreen(), beamColor.getBlue(), 128 * beamIntensity / 100);
 
-            // set color to darker version of beam color
-            g2d.setColor(color.darker());
+        // get the beam footprint & transform
+        BeamFootprint footprint = BeamFootprint.get(battenHeight, fieldAngle, angle);
+        AffineTransform transform = getBeamTransform(lightX, lightY, lightWidth, lightHeight, rotation);
 
-            // draw transformed ellipse (outline)
-            g2d.draw(transformedEllipse);
+        // save previous stroke
+        Stroke previousStroke = g2d.getStroke();
 
-            // set stroke to dotted line
-            g2d.setStroke(new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[] { 5 }, 0));
+        // set color to darker version of beam color
+        g2d.setColor(color.darker());
 
-            // draw lines from center of light to beam ellipse
-            g2d.draw(transform.createTransformedShape(new Line2D.Double(lightX + lightWidth / 2, lightY + lightHeight / 2, lightX + rect.x + lightWidth / 2 + rect.width / 2, lightY + rect.y + lightHeight / 2 - rect.height / 2)));
-            g2d.draw(transform.createTransformedShape(new Line2D.Double(lightX + lightWidth / 2, lightY + lightHeight / 2, lightX + rect.x + lightWidth / 2 + rect.width / 2, lightY + rect.y + lightHeight / 2 + rect.height / 2)));
+        // draw transformed footprint (outline)
+        g2d.draw(footprint.getOutline(transform));
 
-            // reset stroke
-            g2d.setStroke(previousStroke);
+        // set stroke to dotted line
+        g2d.setStroke(new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[] { 5 }, 0));
 
-        }
+        // draw lines from center of light to the sides of the beam
+        for (Point2D edge : footprint.getEdges())
+            g2d.draw(transform.createTransformedShape(new Line2D.Double(0, 0, edge.getX(), edge.getY())));
+
+        // reset stroke
+        g2d.setStroke(previousStroke);
 
     }
 }
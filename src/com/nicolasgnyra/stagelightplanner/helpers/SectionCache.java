@@ -0,0 +1,179 @@
+package com.nicolasgnyra.stagelightplanner.helpers;
+
+import com.nicolasgnyra.stagelightplanner.LightDefinition;
+import com.nicolasgnyra.stagelightplanner.components.JStageElement;
+
+import java.awt.*;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * SectionCache Class:
+ * The encoded element sections of a stage plan, kept between saves so a save only encodes the sections whose elements
+ * changed. A section holds the elements of one type whose IDs are in the same range, so an element always stays in the
+ * same section & changing it only drops that section from the cache. Safe to use from any thread.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.3
+ */
+public class SectionCache {
+    private final HashMap<Long, EncodedSection> sections = new HashMap<>();    // encoded sections, by section key
+    private long generation = 0;                                                // amount of invalidations so far
+
+    /**
+     * invalidate(JStageElement) Method:
+     * Drops the section of an element that was added, changed or removed.
+     *
+     * Input: Stage element.
+     *
+     * Process: Removes the section of the element's type & ID range. Elements without an ID aren't in a section yet.
+     *
+     * Output: None.
+     *
+     * @param stageElement Stage element
+     */
+    public synchronized void invalidate(JStageElement stageElement) {
+        if (stageElement.getId() >= 0) {
+            sections.remove(FileHelper.getSectionKey(stageElement));
+            generation++;
+        }
+    }
+
+    /**
+     * invalidate(Class<? extends JStageElement>) Method:
+     * Drops the sections of every element of a type.
+     *
+     * Input: Type of the elements.
+     *
+     * Process: Removes the sections whose key has the type's section ID.
+     *
+     * Output: None.
+     *
+     * @param type Type of the elements
+     */
+    public synchronized void invalidate(Class<? extends JStageElement> type) {
+        byte id = FileHelper.getSectionId(type);
+        sections.keySet().removeIf(key -> FileHelper.getSectionId(key) == id);
+        generation++;
+    }
+
+    /**
+     * put(long, EncodedSection, long) Method:
+     * Adds a section that was encoded from values taken at the specified generation.
+     *
+     * Input: Section key, encoded section, generation at which its values were taken.
+     *
+     * Process: Adds the section, unless something was invalidated since, in which case its values may be out of date.
+     *
+     * Output: None.
+     *
+     * @param key Section key
+     * @param section Encoded section
+     * @param generation Generation at which the section's values were taken (see getGeneration)
+     */
+    synchronized void put(long key, EncodedSection section, long generation) {
+        if (generation == this.generation)
+            sections.put(key, section);
+    }
+
+    /**
+     * copyToHeap() Method:
+     * Stops using the blocks of a mapped file, so the file can be replaced.
+     *
+     * Input: None.
+     *
+     * Process: Replaces the sections whose block is a view of a mapped file with copies in the heap.
+     *
+     * Output: None.
+     */
+    public synchronized void copyToHeap() {
+        sections.replaceAll((key, section) -> !section.contents.isDirect() ? section : new EncodedSection(FileHelper.copyToHeap(section.contents), section.checksum, section.lastId, section.count, section.bounds, section.referencedDefinitions));
+    }
+
+    synchronized EncodedSection get(long key) {
+        return sections.get(key);
+    }
+
+    synchronized void put(long key, EncodedSection section) {
+        sections.put(key, section);
+    }
+
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * EncodedSection Class:
+     * A section as it is written in a file, with the values of its table of contents entry that don't depend on
+     * where it's written & the library definitions it refers to by content hash, whose copies are written in the
+     * plan along with it.
+     *
+     * Date: 2026-10-19
+     *
+     * @author Nicolas Gnyra
+     * @version 1.2
+     */
+    static class EncodedSection {
+        final ByteBuffer contents;                          // encoded block (read-only)
+        final int checksum;                                 // CRC32 of the block
+        final int lastId;                                   // highest ID of the section's elements
+        final int count;                                    // amount of elements in the section
+        final Rectangle bounds;                             // approximate bounds of all the section's elements, without zoom
+        final List<LightDefinition> referencedDefinitions;  // definitions referred to by content hash (may be more)
+
+        /**
+         * EncodedSection(ByteBuffer, int, int, int, Rectangle, List<LightDefinition>) Constructor:
+         * Creates a new instance of the EncodedSection class from a section that was already checked.
+         *
+         * Input: Encoded block, checksum, highest ID, amount of elements, bounds, referred definitions.
+         *
+         * Process: Sets values.
+         *
+         * Output: A new instance of the EncodedSection class.
+         *
+         * @param contents Encoded block (read-only)
+         * @param checksum CRC32 of the block
+         * @param lastId Highest ID of the section's elements
+         * @param count Amount of elements in the section
+         * @param bounds Approximate bounds of all the section's elements, without zoom
+         * @param referencedDefinitions Definitions referred to by content hash, or more of them if the exact ones
+         *                              aren't known without decoding the section
+         */
+        EncodedSection(ByteBuffer contents, int checksum, int lastId, int count, Rectangle bounds, List<LightDefinition> referencedDefinitions) {
+            this.contents = contents;
+            this.checksum = checksum;
+            this.lastId = lastId;
+            this.count = count;
+            this.bounds = bounds;
+            this.referencedDefinitions = referencedDefinitions;
+        }
+
+        /**
+         * EncodedSection(ByteBuffer, StageElementColumns, List<LightDefinition>) Constructor:
+         * Creates a new instance of the EncodedSection class from a block that was just encoded.
+         *
+         * Input: Encoded block, columns it was encoded from, definitions written as content hashes.
+         *
+         * Process: Computes the checksum of the block & gets the highest ID, amount & bounds of the elements.
+         *
+         * Output: A new instance of the EncodedSection class.
+         *
+         * @param contents Encoded block (read-only)
+         * @param columns Columns the block was encoded from
+         * @param referencedDefinitions Definitions written as content hashes
+         */
+        EncodedSection(ByteBuffer contents, StageElementColumns columns, List<LightDefinition> referencedDefinitions) {
+            this(contents, getChecksum(contents), columns.getId(columns.size() - 1), columns.size(), columns.getBounds(), referencedDefinitions);
+        }
+
+        private static int getChecksum(ByteBuffer contents) {
+            CRC32 checksum = new CRC32();
+            checksum.update(contents.duplicate());
+            return (int) checksum.getValue();
+        }
+    }
+}
@@ -0,0 +1,800 @@
+package com.nicolasgnyra.stagelightplanner.helpers;
+
+import com.nicolasgnyra.stagelightplanner.FileStreamReader;
+import com.nicolasgnyra.stagelightplanner.FileStreamWriter;
+import com.nicolasgnyra.stagelightplanner.FixtureLibrary;
+import com.nicolasgnyra.stagelightplanner.LightDefinition;
+import com.nicolasgnyra.stagelightplanner.Orientation;
+import com.nicolasgnyra.stagelightplanner.components.JBatten;
+import com.nicolasgnyra.stagelightplanner.components.JDraggableLabel;
+import com.nicolasgnyra.stagelightplanner.components.JLight;
+import com.nicolasgnyra.stagelightplanner.components.JStageElement;
+
+import java.awt.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * StageElementColumns Class:
+ * Stage elements of one type as they are stored in a columnar section, with one primitive array per value. Sections
+ * are decoded straight into the arrays, and elements are only created when they are asked for.
+ *
+ * A columnar section contains the type of its elements & their amount, then every ID, every x coordinate, every y
+ * coordinate & every other value of that type in turn. IDs & coordinates are written as the difference with the
+ * previous element's, and integers as variable-length integers, so elements placed close together take a few bytes
+ * each & repeat the same patterns, which compresses well. Connection IDs & texts, which are mostly different for every
+ * element, are written as they are; font families, which only take a few values, refer to a dictionary at the start of
+ * their column, and lights refer to a list of the light definitions they use at the start of the section. A section
+ * never refers to another, so it only changes when one of its own elements does.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.6
+ */
+public class StageElementColumns {
+    private final byte type;                                // type of the elements
+    private final int[] ids;                                // IDs, in increasing order
+    private final int[] x;                                  // x coordinates
+    private final int[] y;                                  // y coordinates
+
+    private int[] heightsFromFloor;                         // battens: heights from the floor
+    private int[] lengths;                                  // battens: lengths
+    private byte[] orientations;                            // battens: orientations
+
+    private ArrayList<LightDefinition> lightDefinitions;    // lights: light definitions used in the section
+    private int[] lightDefinitionIndices;                   // lights: indices of the light definitions
+    private float[] fieldAngles;                            // lights: field angles
+    private float[] rotations;                              // lights: rotations
+    private float[] angles;                                 // lights: angles
+    private String[] connectionIds;                         // lights: connection IDs
+    private int[] beamIntensities;                          // lights: beam intensities
+
+    private String[] texts;                                 // labels: texts
+    private int[] fontSizes;                                // labels: font sizes
+    private String[] fontFamilies;                          // labels: font families
+
+    private int[] colors;                                   // lights & labels: RGB beam or text colors
+
+    /**
+     * StageElementColumns(byte, int) Constructor:
+     * Creates a new instance of the StageElementColumns class with room for the specified amount of elements.
+     *
+     * Input: Type of the elements, amount of elements.
+     *
+     * Process: Sets the type & creates the ID & coordinate arrays.
+     *
+     * Output: A new instance of the StageElementColumns class.
+     *
+     * @param type Type of the elements
+     * @param size Amount of elements
+     */
+    private StageElementColumns(byte type, int size) {
+        this.type = type;
+        this.ids = new int[size];
+        this.x = new int[size];
+        this.y = new int[size];
+    }
+
+    /**
+     * StageElementColumns(byte, List<JStageElement>) Constructor:
+     * Creates a new instance of the StageElementColumns class containing the values of the specified elements.
+     *
+     * Input: Type of the elements, stage elements sorted by ID.
+     *
+     * Process: Calls the main constructor without rows of other columns.
+     *
+     * Output: A new instance of the StageElementColumns class.
+     *
+     * @param type Type of the elements (every element must be of that type)
+     * @param stageElements Stage elements, sorted by ID
+     */
+    StageElementColumns(byte type, List<JStageElement> stageElements) {
+        this(type, stageElements, null, new int[0], new HashMap<>());
+    }
+
+    /**
+     * StageElementColumns(byte, List<JStageElement>, StageElementColumns, int[], Map<LightDefinition, LightDefinition>) Constructor:
+     * Creates a new instance of the StageElementColumns class containing the values of the specified elements & rows
+     * of other columns, such as elements of a mapped plan that were never decoded.
+     *
+     * Input: Type of the elements, stage elements sorted by ID, source columns, rows of the source to copy, light
+     * definitions to replace in the copied rows.
+     *
+     * Process: Creates the arrays of the type & fills them in a single pass through both lists, in increasing ID
+     * order, giving each distinct light definition the next index. Only values are copied, so the columns don't
+     * change when the elements do.
+     *
+     * Output: A new instance of the StageElementColumns class.
+     *
+     * @param type Type of the elements (every element & the source must be of that type)
+     * @param stageElements Stage elements, sorted by ID
+     * @param source Columns from which rows are copied (null if rows is empty)
+     * @param rows Rows of the source to copy, in increasing order
+     * @param replacedModels Light definition to use instead of each definition of the source
+     */
+    StageElementColumns(byte type, List<JStageElement> stageElements, StageElementColumns source, int[] rows, Map<LightDefinition, LightDefinition> replacedModels) {
+
+        // create coordinate arrays & the arrays of the type
+        this(type, stageElements.size() + rows.length);
+        createColumns(ids.length);
+
+        HashMap<LightDefinition, Integer> definitionIndices = new HashMap<>();
+        int element = 0;
+        int row = 0;
+
+        // take the element or row with the lowest ID next
+        for (int i = 0; i < ids.length; i++) {
+            if (row == rows.length || element < stageElements.size() && stageElements.get(element).getId() < source.ids[rows[row]])
+                set(i, stageElements.get(element++), definitionIndices);
+            else
+                copy(i, source, rows[row++], replacedModels, definitionIndices);
+        }
+
+    }
+
+    /**
+     * set(int, JStageElement, HashMap<LightDefinition, Integer>) Method:
+     * Copies the values of an element to the specified index.
+     *
+     * Input: Index, stage element, indices of the light definitions added so far.
+     *
+     * Process: Gets the ID, coordinates & values of the type from the element.
+     *
+     * Output: Filled index.
+     *
+     * @param i Index
+     * @param stageElement Stage element of the type of the columns
+     * @param definitionIndices Index of each light definition of the section
+     */
+    private void set(int i, JStageElement stageElement, HashMap<LightDefinition, Integer> definitionIndices) {
+
+        // get ID & coordinates
+        ids[i] = stageElement.getId();
+        x[i] = stageElement.getGridX();
+        y[i] = stageElement.getGridY();
+
+        // get values based on type
+        if (type == FileHelper.STAGE_ELEMENT_BATTEN) {
+            JBatten batten = (JBatten) stageElement;
+
+            heightsFromFloor[i] = batten.getHeightFromFloor();
+            lengths[i] = batten.getLength();
+            orientations[i] = (byte) batten.getOrientation().ordinal();
+        } else if (type == FileHelper.STAGE_ELEMENT_LIGHT) {
+            JLight light = (JLight) stageElement;
+
+            lightDefinitionIndices[i] = getLightDefinitionIndex(light.getModel(), definitionIndices);
+            fieldAngles[i] = light.getFieldAngle();
+            rotations[i] = light.getRotation();
+            angles[i] = light.getAngle();
+            colors[i] = light.getBeamColor().getRGB() & 0xFFFFFF;
+            connectionIds[i] = light.getConnectionId();
+            beamIntensities[i] = light.getBeamIntensity();
+        } else {
+            JDraggableLabel label = (JDraggableLabel) stageElement;
+
+            texts[i] = label.getText();
+            colors[i] = label.getColor().getRGB() & 0xFFFFFF;
+            fontSizes[i] = label.getFontSize();
+            fontFamilies[i] = label.getFontFamily();
+        }
+
+    }
+
+    /**
+     * copy(int, StageElementColumns, int, Map<LightDefinition, LightDefinition>, HashMap<LightDefinition, Integer>) Method:
+     * Copies a row of other columns to the specified index.
+     *
+     * Input: Index, source columns, row of the source, light definitions to replace, indices of the light definitions
+     * added so far.
+     *
+     * Process: Copies the ID, coordinates & values of the type. Lights get the replacement of their definition if
+     * there is one.
+     *
+     * Output: Filled index.
+     *
+     * @param i Index
+     * @param source Columns of the type of these columns
+     * @param row Row of the source
+     * @param replacedModels Light definition to use instead of each definition of the source
+     * @param definitionIndices Index of each light definition of the section
+     */
+    private void copy(int i, StageElementColumns source, int row, Map<LightDefinition, LightDefinition> replacedModels, HashMap<LightDefinition, Integer> definitionIndices) {
+
+        // copy ID & coordinates
+        ids[i] = source.ids[row];
+        x[i] = source.x[row];
+        y[i] = source.y[row];
+
+        // copy values based on type
+        if (type == FileHelper.STAGE_ELEMENT_BATTEN) {
+            heightsFromFloor[i] = source.heightsFromFloor[row];
+            lengths[i] = source.lengths[row];
+            orientations[i] = source.orientations[row];
+        } else if (type == FileHelper.STAGE_ELEMENT_LIGHT) {
+            LightDefinition model = source.lightDefinitions.get(source.lightDefinitionIndices[row]);
+
+            lightDefinitionIndices[i] = getLightDefinitionIndex(replacedModels.getOrDefault(model, model), definitionIndices);
+            fieldAngles[i] = source.fieldAngles[row];
+            rotations[i] = source.rotations[row];
+            angles[i] = source.angles[row];
+            colors[i] = source.colors[row];
+            connectionIds[i] = source.connectionIds[row];
+            beamIntensities[i] = source.beamIntensities[row];
+        } else {
+            texts[i] = source.texts[row];
+            colors[i] = source.colors[row];
+            fontSizes[i] = source.fontSizes[row];
+            fontFamilies[i] = source.fontFamilies[row];
+        }
+
+    }
+
+    /**
+     * getLightDefinitionIndex(LightDefinition, HashMap<LightDefinition, Integer>) Method:
+     * Gets the index of a light definition in the section, adding it if it isn't there yet.
+     *
+     * Input: Light definition, indices of the light definitions added so far.
+     *
+     * Process: Looks the definition up, or appends it to the definitions of the section.
+     *
+     * Output: Index of the definition.
+     *
+     * @param lightDefinition Light definition
+     * @param definitionIndices Index of each light definition of the section
+     * @return Index of the definition
+     */
+    private int getLightDefinitionIndex(LightDefinition lightDefinition, HashMap<LightDefinition, Integer> definitionIndices) {
+        return definitionIndices.computeIfAbsent(lightDefinition, model -> {
+            lightDefinitions.add(model);
+            return lightDefinitions.size() - 1;
+        });
+    }
+
+    /**
+     * createColumns(int) Method:
+     * Creates the arrays of the values of the type of the elements.
+     *
+     * Input: Amount of elements.
+     *
+     * Process: Creates one array per value of the type.
+     *
+     * Output: Empty arrays.
+     *
+     * @param size Amount of elements
+     * @throws IllegalArgumentException Thrown when the type isn't a batten, light or label
+     */
+    private void createColumns(int size) {
+
+        // create arrays based on type
+        switch (type) {
+            case FileHelper.STAGE_ELEMENT_BATTEN:
+                heightsFromFloor = new int[size];
+                lengths = new int[size];
+                orientations = new byte[size];
+                break;
+
+            case FileHelper.STAGE_ELEMENT_LIGHT:
+                lightDefinitions = new ArrayList<>();
+                lightDefinitionIndices = new int[size];
+                fieldAngles = new float[size];
+                rotations = new float[size];
+                angles = new float[size];
+                colors = new int[size];
+                connectionIds = new String[size];
+                beamIntensities = new int[size];
+                break;
+
+            case FileHelper.STAGE_ELEMENT_LABEL:
+                texts = new String[size];
+                colors = new int[size];
+                fontSizes = new int[size];
+                fontFamilies = new String[size];
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown stage element type " + type + ".");
+        }
+
+    }
+
+    /**
+     * write(FileStreamWriter, FixtureLibrary, Collection<LightDefinition>) Method:
+     * Writes the columns so they can be read by read.
+     *
+     * Input: File stream writer, fixture library, collection of the definitions written as content hashes.
+     *
+     * Process: Writes the type & amount of elements, the IDs & coordinates as differences with the previous element's,
+     * then each value of the type for every element in turn. Lights start with their light definitions, which refer
+     * to the library when they are in it, in which case they are added to the collection so the plan keeps a copy.
+     *
+     * Output: Written section.
+     *
+     * @param writer File stream writer
+     * @param library Fixture library whose definitions are referred to by content hash
+     * @param referenced Receives the definitions written as content hashes
+     * @throws IOException File saving exception
+     */
+    void write(FileStreamWriter writer, FixtureLibrary library, Collection<LightDefinition> referenced) throws IOException {
+
+        // write type & amount of elements
+        writer.write(type);
+        writer.writeVarInt(size());
+
+        // write IDs & coordinates as differences with the previous ones
+        writeDifferences(writer, ids);
+        writeDifferences(writer, x);
+        writeDifferences(writer, y);
+
+        // write values based on type
+        switch (type) {
+            case FileHelper.STAGE_ELEMENT_BATTEN:
+                writeSignedVarInts(writer, heightsFromFloor);
+                writeSignedVarInts(writer, lengths);
+                writer.write(orientations);
+                break;
+
+            case FileHelper.STAGE_ELEMENT_LIGHT:
+                writer.writeVarInt(lightDefinitions.size());
+
+                for (LightDefinition lightDefinition : lightDefinitions)
+                    FileHelper.writeLightDefinitionReference(writer, lightDefinition, library, referenced);
+
+                for (int index : lightDefinitionIndices)
+                    writer.writeVarInt(index);
+
+                writeFloats(writer, fieldAngles);
+                writeFloats(writer, rotations);
+                writeFloats(writer, angles);
+                writeColors(writer, colors);
+                writeStrings(writer, connectionIds);
+                writeSignedVarInts(writer, beamIntensities);
+                break;
+
+            case FileHelper.STAGE_ELEMENT_LABEL:
+                writeStrings(writer, texts);
+                writeColors(writer, colors);
+                writeSignedVarInts(writer, fontSizes);
+                writeReferences(writer, fontFamilies);
+                break;
+        }
+
+    }
+
+    /**
+     * read(FileStreamReader, FixtureLibrary) Method:
+     * Reads a section written by write.
+     *
+     * Input: File stream reader at the start of the section, fixture library.
+     *
+     * Process: Reads the type & amount of elements, creates the arrays of that type & fills them in a single pass
+     * through the section.
+     *
+     * Output: Decoded columns.
+     *
+     * @param reader File stream reader at the start of the section
+     * @param library Fixture library in which the definitions the section refers to are found
+     * @return Decoded columns
+     * @throws IOException File loading exception
+     */
+    static StageElementColumns read(FileStreamReader reader, FixtureLibrary library) throws IOException {
+
+        // read type & amount of elements, & create arrays
+        byte type = reader.readByte();
+        int size = reader.readVarInt();
+
+        if (type != FileHelper.STAGE_ELEMENT_BATTEN && type != FileHelper.STAGE_ELEMENT_LIGHT && type != FileHelper.STAGE_ELEMENT_LABEL)
+            throw new IOException("Unknown stage element type " + type + ".");
+
+        StageElementColumns columns = new StageElementColumns(type, size);
+        columns.createColumns(size);
+
+        // read IDs & coordinates by adding up the differences
+        readDifferences(reader, columns.ids);
+        readDifferences(reader, columns.x);
+        readDifferences(reader, columns.y);
+
+        // read values based on type
+        switch (type) {
+            case FileHelper.STAGE_ELEMENT_BATTEN:
+                readSignedVarInts(reader, columns.heightsFromFloor);
+                readSignedVarInts(reader, columns.lengths);
+                reader.readFully(columns.orientations);
+                break;
+
+            case FileHelper.STAGE_ELEMENT_LIGHT:
+                int lightDefinitionCount = reader.readVarInt();
+
+                for (int i = 0; i < lightDefinitionCount; i++)
+                    columns.lightDefinitions.add(FileHelper.readLightDefinitionReference(reader, library));
+
+                for (int i = 0; i < size; i++)
+                    columns.lightDefinitionIndices[i] = reader.readVarInt();
+
+                readFloats(reader, columns.fieldAngles);
+                readFloats(reader, columns.rotations);
+                readFloats(reader, columns.angles);
+                readColors(reader, columns.colors);
+                readStrings(reader, columns.connectionIds);
+                readSignedVarInts(reader, columns.beamIntensities);
+                break;
+
+            case FileHelper.STAGE_ELEMENT_LABEL:
+                readStrings(reader, columns.texts);
+                readColors(reader, columns.colors);
+                readSignedVarInts(reader, columns.fontSizes);
+                readReferences(reader, columns.fontFamilies);
+                break;
+        }
+
+        return columns;
+
+    }
+
+    /**
+     * getStageElement(int) Method:
+     * Creates the element at the specified index.
+     *
+     * Input: Index of the element.
+     *
+     * Process: Creates an element of the type of the columns from the values at the index & gives it its ID.
+     *
+     * Output: New stage element.
+     *
+     * @param index Index of the element
+     * @return New stage element
+     */
+    public JStageElement getStageElement(int index) {
+
+        // create element based on type
+        JStageElement stageElement;
+
+        switch (type) {
+            case FileHelper.STAGE_ELEMENT_BATTEN:
+                stageElement = new JBatten(x[index], y[index], lengths[index], Orientation.values()[orientations[index]], heightsFromFloor[index]);
+                break;
+
+            case FileHelper.STAGE_ELEMENT_LIGHT:
+                stageElement = new JLight(x[index], y[index], lightDefinitions.get(lightDefinitionIndices[index]), new Color(colors[index]), rotations[index], angles[index], fieldAngles[index], connectionIds[index], beamIntensities[index]);
+                break;
+
+            default:
+                stageElement = new JDraggableLabel(x[index], y[index], texts[index], new Color(colors[index]), fontSizes[index], fontFamilies[index]);
+                break;
+        }
+
+        stageElement.setId(ids[index]);
+        return stageElement;
+
+    }
+
+    /**
+     * getBounds(int) Method:
+     * Gets the approximate bounds of the element at the specified index without creating it.
+     *
+     * Input: Index of the element.
+     *
+     * Process: Battens have exact bounds, lights have their default size, and labels are estimated from their text
+     * length & font size.
+     *
+     * Output: Bounds of the element, without zoom.
+     *
+     * @param index Index of the element
+     * @return Bounds of the element, without zoom
+     */
+    public Rectangle getBounds(int index) {
+
+        // get bounds based on type
+        switch (type) {
+            case FileHelper.STAGE_ELEMENT_BATTEN:
+                return orientations[index] == Orientation.HORIZONTAL.ordinal() ? new Rectangle(x[index], y[index], lengths[index], 10) : new Rectangle(x[index], y[index], 10, lengths[index]);
+
+            case FileHelper.STAGE_ELEMENT_LIGHT:
+                return new Rectangle(x[index], y[index], 30, 30);
+
+            default:
+                return new Rectangle(x[index], y[index], texts[index].length() * fontSizes[index], fontSizes[index] * 2);
+        }
+
+    }
+
+    /**
+     * getBounds() Method:
+     * Gets the approximate bounds of all the elements without creating them.
+     *
+     * Input: None.
+     *
+     * Process: Adds up the bounds of every element.
+     *
+     * Output: Bounds of the elements, without zoom (empty if there are none).
+     *
+     * @return Bounds of the elements, without zoom
+     */
+    public Rectangle getBounds() {
+
+        // add bounds of every element
+        Rectangle bounds = size() > 0 ? getBounds(0) : new Rectangle();
+
+        for (int i = 1; i < size(); i++)
+            bounds.add(getBounds(i));
+
+        return bounds;
+
+    }
+
+    public int size() {
+        return x.length;
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * writeDifferences(FileStreamWriter, int[]) Method:
+     * Writes a column of integers as the differences between consecutive values.
+     *
+     * Input: File stream writer, integers.
+     *
+     * Process: Writes the difference of each value with the previous one (the first one with 0) as a signed
+     * variable-length integer.
+     *
+     * Output: Written column.
+     *
+     * @param writer File stream writer
+     * @param values Integers to write
+     * @throws IOException File saving exception
+     */
+    private static void writeDifferences(FileStreamWriter writer, int[] values) throws IOException {
+
+        // write difference with the previous value
+        int previous = 0;
+
+        for (int value : values) {
+            writer.writeSignedVarInt(value - previous);
+            previous = value;
+        }
+
+    }
+
+    /**
+     * readDifferences(FileStreamReader, int[]) Method:
+     * Reads a column written by writeDifferences.
+     *
+     * Input: File stream reader, array to fill.
+     *
+     * Process: Adds up the differences.
+     *
+     * Output: Filled array.
+     *
+     * @param reader File stream reader
+     * @param values Array to fill
+     * @throws IOException File loading exception
+     */
+    private static void readDifferences(FileStreamReader reader, int[] values) throws IOException {
+
+        // add each difference to the previous value
+        int previous = 0;
+
+        for (int i = 0; i < values.length; i++)
+            values[i] = previous += reader.readSignedVarInt();
+
+    }
+
+    /**
+     * writeSignedVarInts(FileStreamWriter, int[]) Method:
+     * Writes a column of signed variable-length integers.
+     *
+     * Input: File stream writer, integers.
+     *
+     * Process: Writes each integer.
+     *
+     * Output: Written column.
+     *
+     * @param writer File stream writer
+     * @param values Integers to write
+     * @throws IOException File saving exception
+     */
+    private static void writeSignedVarInts(FileStreamWriter writer, int[] values) throws IOException {
+        for (int value : values)
+            writer.writeSignedVarInt(value);
+    }
+
+    /**
+     * readSignedVarInts(FileStreamReader, int[]) Method:
+     * Reads a column written by writeSignedVarInts.
+     *
+     * Input: File stream reader, array to fill.
+     *
+     * Process: Reads each integer.
+     *
+     * Output: Filled array.
+     *
+     * @param reader File stream reader
+     * @param values Array to fill
+     * @throws IOException File loading exception
+     */
+    private static void readSignedVarInts(FileStreamReader reader, int[] values) throws IOException {
+        for (int i = 0; i < values.length; i++)
+            values[i] = reader.readSignedVarInt();
+    }
+
+    /**
+     * writeFloats(FileStreamWriter, float[]) Method:
+     * Writes a column of floats.
+     *
+     * Input: File stream writer, floats.
+     *
+     * Process: Writes each float.
+     *
+     * Output: Written column.
+     *
+     * @param writer File stream writer
+     * @param values Floats to write
+     * @throws IOException File saving exception
+     */
+    private static void writeFloats(FileStreamWriter writer, float[] values) throws IOException {
+        for (float value : values)
+            writer.writeFloat(value);
+    }
+
+    /**
+     * readFloats(FileStreamReader, float[]) Method:
+     * Reads a column written by writeFloats.
+     *
+     * Input: File stream reader, array to fill.
+     *
+     * Process: Reads each float.
+     *
+     * Output: Filled array.
+     *
+     * @param reader File stream reader
+     * @param values Array to fill
+     * @throws IOException File loading exception
+     */
+    private static void readFloats(FileStreamReader reader, float[] values) throws IOException {
+        for (int i = 0; i < values.length; i++)
+            values[i] = reader.readFloat();
+    }
+
+    /**
+     * writeColors(FileStreamWriter, int[]) Method:
+     * Writes a column of colors.
+     *
+     * Input: File stream writer, RGB values.
+     *
+     * Process: Writes the red, green & blue components of each color, one byte each.
+     *
+     * Output: Written column.
+     *
+     * @param writer File stream writer
+     * @param colors RGB values to write
+     * @throws IOException File saving exception
+     */
+    private static void writeColors(FileStreamWriter writer, int[] colors) throws IOException {
+        for (int color : colors) {
+            writer.write(color >> 16);
+            writer.write(color >> 8);
+            writer.write(color);
+        }
+    }
+
+    /**
+     * readColors(FileStreamReader, int[]) Method:
+     * Reads a column written by writeColors.
+     *
+     * Input: File stream reader, array to fill.
+     *
+     * Process: Reads the components of each color & combines them.
+     *
+     * Output: Filled array.
+     *
+     * @param reader File stream reader
+     * @param colors Array to fill
+     * @throws IOException File loading exception
+     */
+    private static void readColors(FileStreamReader reader, int[] colors) throws IOException {
+        for (int i = 0; i < colors.length; i++)
+            colors[i] = (reader.readByte() & 0xFF) << 16 | (reader.readByte() & 0xFF) << 8 | reader.readByte() & 0xFF;
+    }
+
+    /**
+     * writeStrings(FileStreamWriter, String[]) Method:
+     * Writes a column of strings.
+     *
+     * Input: File stream writer, strings.
+     *
+     * Process: Writes each string as UTF-8.
+     *
+     * Output: Written column.
+     *
+     * @param writer File stream writer
+     * @param values Strings to write
+     * @throws IOException File saving exception
+     */
+    private static void writeStrings(FileStreamWriter writer, String[] values) throws IOException {
+        for (String value : values)
+            writer.writeUTF8String(value);
+    }
+
+    /**
+     * readStrings(FileStreamReader, String[]) Method:
+     * Reads a column written by writeStrings.
+     *
+     * Input: File stream reader, array to fill.
+     *
+     * Process: Reads each string. Equal strings of the column share the same instance.
+     *
+     * Output: Filled array.
+     *
+     * @param reader File stream reader
+     * @param values Array to fill
+     * @throws IOException File loading exception
+     */
+    private static void readStrings(FileStreamReader reader, String[] values) throws IOException {
+        HashMap<String, String> read = new HashMap<>();
+
+        for (int i = 0; i < values.length; i++)
+            values[i] = read.computeIfAbsent(reader.readUTF8String(), key -> key);
+    }
+
+    /**
+     * writeReferences(FileStreamWriter, String[]) Method:
+     * Writes a column of strings as a dictionary of its distinct values followed by a reference to each string.
+     *
+     * Input: File stream writer, strings.
+     *
+     * Process: Adds every string to a new dictionary, writes it & writes a reference to each string.
+     *
+     * Output: Written column.
+     *
+     * @param writer File stream writer
+     * @param values Strings to write
+     * @throws IOException File saving exception
+     */
+    private static void writeReferences(FileStreamWriter writer, String[] values) throws IOException {
+
+        // write distinct values
+        StringDictionary dictionary = new StringDictionary();
+
+        for (String value : values)
+            dictionary.add(value);
+
+        dictionary.write(writer);
+
+        // write references
+        for (String value : values)
+            dictionary.writeReference(writer, value);
+
+    }
+
+    /**
+     * readReferences(FileStreamReader, String[]) Method:
+     * Reads a column written by writeReferences.
+     *
+     * Input: File stream reader, array to fill.
+     *
+     * Process: Reads the dictionary, then each reference & gets its string from the dictionary.
+     *
+     * Output: Filled array.
+     *
+     * @param reader File stream reader
+     * @param values Array to fill
+     * @throws IOException File loading exception
+     */
+    private static void readReferences(FileStreamReader reader, String[] values) throws IOException {
+        StringDictionary dictionary = StringDictionary.read(reader);
+
+        for (int i = 0; i < values.length; i++)
+            values[i] = dictionary.readReference(reader);
+    }
+}
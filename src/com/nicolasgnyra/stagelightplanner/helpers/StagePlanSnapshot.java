@@ -0,0 +1,185 @@
+package com.nicolasgnyra.stagelightplanner.helpers;
+
+import com.nicolasgnyra.stagelightplanner.LightDefinition;
+import com.nicolasgnyra.stagelightplanner.MappedStagePlan;
+import com.nicolasgnyra.stagelightplanner.StagePlan;
+import com.nicolasgnyra.stagelightplanner.components.JStageElement;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * StagePlanSnapshot Class:
+ * The values of a stage plan at the time it's saved, taken on the event dispatch thread so they can be encoded on
+ * another one. Sections that are in the section cache are kept as they are, the others are copied into columns, and
+ * elements of a mapped plan that were never decoded are copied from the plan's columns without being created. Sections
+ * of the mapped plan are only decoded if they aren't in the cache.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.1
+ */
+public class StagePlanSnapshot {
+    private final int id = ThreadLocalRandom.current().nextInt();                               // ID saved in the table of contents
+    private final String saved = Instant.now().toString();                                      // when the snapshot was taken
+    private final TreeMap<Long, SectionCache.EncodedSection> encodedSections = new TreeMap<>(); // sections taken from the cache, by key
+    private final TreeMap<Long, StageElementColumns> changedSections = new TreeMap<>();         // values of the other sections, by key
+    private final HashMap<Byte, Integer> counts = new HashMap<>();                              // amount of elements, by section ID
+    private final BufferedImage thumbnail;                                                      // small preview of the plan (null if there is none)
+    private final SectionCache cache;                                                           // cache to which encoded sections are added
+    private final long cacheGeneration;                                                         // generation of the cache when the values were taken
+
+    /**
+     * StagePlanSnapshot(StagePlan, SectionCache) Constructor:
+     * Creates a new instance of the StagePlanSnapshot class from a stage plan.
+     *
+     * Input: Stage plan, section cache.
+     *
+     * Process: Calls the main constructor without a mapped plan.
+     *
+     * Output: A new instance of the StagePlanSnapshot class.
+     *
+     * @param stagePlan Stage plan
+     * @param cache Encoded sections kept from the previous saves of the plan
+     * @throws IOException Never thrown, as there is no mapped plan to decode.
+     */
+    public StagePlanSnapshot(StagePlan stagePlan, SectionCache cache) throws IOException {
+        this(stagePlan.getStageElements(), null, new BitSet(), new HashMap<>(), stagePlan.getThumbnail(), cache);
+    }
+
+    /**
+     * StagePlanSnapshot(List<JStageElement>, MappedStagePlan, BitSet, Map<LightDefinition, LightDefinition>, BufferedImage, SectionCache) Constructor:
+     * Creates a new instance of the StagePlanSnapshot class from created elements & elements of a mapped plan.
+     *
+     * Input: Stage elements, mapped plan, elements of the mapped plan to include, light definitions to replace in
+     * those, thumbnail, section cache.
+     *
+     * Process: Gives the elements that don't have an ID yet the next free IDs & groups both kinds of elements by
+     * section (type & ID range). Sections in the cache are kept as they are; the values of the others are copied into
+     * columns, sorted by ID. Must be called on the thread that changes the elements.
+     *
+     * Output: A new instance of the StagePlanSnapshot class.
+     *
+     * @param stageElements Created stage elements
+     * @param mappedPlan Mapped plan with sections (null if mappedElements is empty)
+     * @param mappedElements Indices of the elements of the mapped plan to include (none of which are in stageElements)
+     * @param replacedModels Light definition to use instead of each definition of the mapped plan
+     * @param thumbnail Small preview of the plan (null if there is none)
+     * @param cache Encoded sections kept from the previous saves of the plan
+     * @throws IOException Thrown when a section of the mapped plan can't be decoded.
+     */
+    public StagePlanSnapshot(List<JStageElement> stageElements, MappedStagePlan mappedPlan, BitSet mappedElements, Map<LightDefinition, LightDefinition> replacedModels, BufferedImage thumbnail, SectionCache cache) throws IOException {
+        this.thumbnail = thumbnail;
+        this.cache = cache;
+        this.cacheGeneration = cache.getGeneration();
+
+        // give the next free IDs to elements that don't have one yet
+        int nextId = mappedPlan != null ? mappedPlan.getNextId() : 0;
+
+        for (JStageElement stageElement : stageElements)
+            nextId = Math.max(nextId, stageElement.getId() + 1);
+
+        for (JStageElement stageElement : stageElements)
+            if (stageElement.getId() < 0)
+                stageElement.setId(nextId++);
+
+        // group created elements by section
+        HashMap<Long, ArrayList<JStageElement>> elementsBySection = new HashMap<>();
+
+        for (JStageElement stageElement : stageElements) {
+            byte sectionId = FileHelper.getSectionId(stageElement.getClass());
+
+            if (sectionId >= 0) {
+                elementsBySection.computeIfAbsent(FileHelper.getSectionKey(stageElement), key -> new ArrayList<>()).add(stageElement);
+                counts.merge(sectionId, 1, Integer::sum);
+            }
+        }
+
+        // get the rows of each section of the mapped plan that are included
+        HashMap<Long, MappedSection> sources = new HashMap<>();
+        HashMap<Long, BitSet> rowsBySection = new HashMap<>();
+
+        for (int i = 0; i < (mappedPlan != null ? mappedPlan.getSectionCount() : 0); i++) {
+            MappedSection section = mappedPlan.getSection(i);
+            BitSet rows = mappedElements.get(mappedPlan.getSectionStart(i), mappedPlan.getSectionStart(i) + section.getCount());
+
+            if (!rows.isEmpty()) {
+                sources.put(section.getKey(), section);
+                rowsBySection.put(section.getKey(), rows);
+                counts.merge(FileHelper.getSectionId(section.getKey()), rows.cardinality(), Integer::sum);
+            }
+        }
+
+        // keep cached sections & copy the values of the others, decoding the mapped sections they contain
+        TreeSet<Long> keys = new TreeSet<>(elementsBySection.keySet());
+        keys.addAll(rowsBySection.keySet());
+
+        for (long key : keys) {
+            SectionCache.EncodedSection encoded = cache.get(key);
+
+            if (encoded != null) {
+                encodedSections.put(key, encoded);
+            } else {
+                ArrayList<JStageElement> sectionElements = elementsBySection.getOrDefault(key, new ArrayList<>());
+                sectionElements.sort(Comparator.comparingInt(JStageElement::getId));
+
+                BitSet rows = rowsBySection.getOrDefault(key, new BitSet());
+                StageElementColumns source = rows.isEmpty() ? null : sources.get(key).getColumns();
+                changedSections.put(key, new StageElementColumns(FileHelper.getStageElementType(FileHelper.getSectionId(key)), sectionElements, source, rows.stream().toArray(), replacedModels));
+            }
+        }
+
+    }
+
+    /**
+     * addToCache(long, SectionCache.EncodedSection) Method:
+     * Adds a section that was encoded from the values of the snapshot to the section cache.
+     *
+     * Input: Section key, encoded section.
+     *
+     * Process: Adds the section to the cache, unless the plan changed since the snapshot was taken.
+     *
+     * Output: None.
+     *
+     * @param key Section key
+     * @param section Encoded section
+     */
+    void addToCache(long key, SectionCache.EncodedSection section) {
+        cache.put(key, section, cacheGeneration);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    String getSaved() {
+        return saved;
+    }
+
+    TreeMap<Long, SectionCache.EncodedSection> getEncodedSections() {
+        return encodedSections;
+    }
+
+    TreeMap<Long, StageElementColumns> getChangedSections() {
+        return changedSections;
+    }
+
+    int getCount(byte sectionId) {
+        return counts.getOrDefault(sectionId, 0);
+    }
+
+    BufferedImage getThumbnail() {
+        return thumbnail;
+    }
+}
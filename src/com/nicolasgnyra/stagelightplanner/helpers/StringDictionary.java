@@ -0,0 +1,151 @@
+package com.nicolasgnyra.stagelightplanner.helpers;
+
+import com.nicolasgnyra.stagelightplanner.FileStreamReader;
+import com.nicolasgnyra.stagelightplanner.FileStreamWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * StringDictionary Class:
+ * The distinct values of a column of strings that only takes a few values (like font families), written at the start
+ * of the column so the rest of it refers to them by index & each value is only written once. Each section has its own
+ * dictionary, so a change to one section never renumbers the references of another.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.1
+ */
+public class StringDictionary {
+    private final ArrayList<String> strings = new ArrayList<>();        // strings, by index
+    private final HashMap<String, Integer> indices = new HashMap<>();   // index of each string (only when writing)
+
+    /**
+     * add(String) Method:
+     * Adds the specified string to the dictionary if it isn't in it yet.
+     *
+     * Input: String.
+     *
+     * Process: Gets the index of the string, or gives it the next index.
+     *
+     * Output: Index of the string.
+     *
+     * @param str String to add
+     * @return Index of the string
+     */
+    public int add(String str) {
+
+        // get index of the string, adding it if needed
+        Integer index = indices.get(str);
+
+        if (index == null) {
+            index = strings.size();
+            strings.add(str);
+            indices.put(str, index);
+        }
+
+        return index;
+
+    }
+
+    /**
+     * writeReference(FileStreamWriter, String) Method:
+     * Writes a reference to the specified string, which must have been added before the dictionary was written.
+     *
+     * Input: File stream writer, string.
+     *
+     * Process: Gets the index of the string & writes it as a variable-length integer.
+     *
+     * Output: Written reference.
+     *
+     * @param writer File stream writer
+     * @param str String to refer to
+     * @throws IOException File saving exception
+     */
+    public void writeReference(FileStreamWriter writer, String str) throws IOException {
+        writer.writeVarInt(indices.get(str));
+    }
+
+    /**
+     * readReference(FileStreamReader) Method:
+     * Reads a reference written by writeReference.
+     *
+     * Input: File stream reader.
+     *
+     * Process: Reads the index & gets the string at that index.
+     *
+     * Output: Referenced string.
+     *
+     * @param reader File stream reader
+     * @return Referenced string
+     * @throws IOException File loading exception, or an index that isn't in the dictionary
+     */
+    public String readReference(FileStreamReader reader) throws IOException {
+
+        // read index
+        int index = reader.readVarInt();
+
+        if (index < 0 || index >= strings.size())
+            throw new IOException("Invalid string reference " + index + ".");
+
+        return strings.get(index);
+
+    }
+
+    /**
+     * write(FileStreamWriter) Method:
+     * Writes the dictionary.
+     *
+     * Input: File stream writer.
+     *
+     * Process: Writes the amount of strings & each string, in the order of their index.
+     *
+     * Output: Written dictionary.
+     *
+     * @param writer File stream writer
+     * @throws IOException File saving exception
+     */
+    public void write(FileStreamWriter writer) throws IOException {
+
+        // write amount of strings & each string
+        writer.writeVarInt(strings.size());
+
+        for (String str : strings)
+            writer.writeUTF8String(str);
+
+    }
+
+    /**
+     * read(FileStreamReader) Method:
+     * Reads a dictionary written by write.
+     *
+     * Input: File stream reader.
+     *
+     * Process: Reads the amount of strings & each string, interning them so strings equal to ones that are already
+     * loaded share the same instance.
+     *
+     * Output: Read dictionary.
+     *
+     * @param reader File stream reader
+     * @return Read dictionary
+     * @throws IOException File loading exception
+     */
+    public static StringDictionary read(FileStreamReader reader) throws IOException {
+
+        // read amount of strings & each string
+        StringDictionary dictionary = new StringDictionary();
+        int count = reader.readVarInt();
+
+        for (int i = 0; i < count; i++)
+            dictionary.strings.add(reader.readUTF8String().intern());
+
+        return dictionary;
+
+    }
+
+    public int size() {
+        return strings.size();
+    }
+}
@@ -0,0 +1,740 @@
+package com.nicolasgnyra.stagelightplanner.rendering;
+
+import com.nicolasgnyra.stagelightplanner.helpers.PaintHelper;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * BeamCompositor Class:
+ * Software compositor that mixes light beams additively into a tiled floating point buffer.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.3
+ */
+public class BeamCompositor {
+
+    private static final int tileSize = 128;            // tile width & height, in px
+    private static final int maxCachedTiles = 512;      // amount of tiles kept before off-screen tiles are dropped
+    private static final int parallelThreshold = 2;     // amount of tiles under which a task renders directly
+
+    // exposure used when tone mapping; chosen so a single beam at full intensity has the same 50% opacity as before
+    private static final float exposure = (float) Math.log(2);
+
+    private final ForkJoinPool pool;                                        // pool in which tiles are rendered
+    private final Map<Object, Beam> beams = new IdentityHashMap<>();        // current beams, by owner
+    private final Map<Long, Tile> tiles = new HashMap<>();                  // rendered tiles, by tile key
+    private final Set<Long> dirtyTiles = new HashSet<>();                   // tiles that need to be rendered again
+    private final BeamSpriteCache spriteCache = new BeamSpriteCache();      // soft-edged beam sprites
+    private boolean softEdges = false;                                      // whether beams fall off towards their edge
+
+    /**
+     * BeamCompositor() Constructor:
+     * Creates a new instance of the BeamCompositor class that renders in the common pool.
+     *
+     * Input: None.
+     *
+     * Process: Calls the overloaded constructor with the common fork/join pool.
+     *
+     * Output: A new instance of the BeamCompositor class.
+     */
+    public BeamCompositor() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * BeamCompositor(ForkJoinPool) Constructor:
+     * Creates a new instance of the BeamCompositor class that renders in the specified pool.
+     *
+     * Input: Fork/join pool.
+     *
+     * Process: Sets value.
+     *
+     * Output: A new instance of the BeamCompositor class.
+     *
+     * @param pool Pool in which tiles are rendered
+     */
+    public BeamCompositor(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * setBeams(Map<Object, Beam>) Method:
+     * Replaces the beams to composite and marks the tiles touched by changed beams as dirty.
+     *
+     * Input: Beams, by owner (usually the light casting the beam).
+     *
+     * Process: Compares every beam with the previous beam of the same owner and invalidates the old and new bounds
+     * of beams that were added, removed or changed.
+     *
+     * Output: None.
+     *
+     * @param newBeams Beams, by owner
+     */
+    public void setBeams(Map<Object, Beam> newBeams) {
+
+        // invalidate beams that were removed or changed
+        for (Map.Entry<Object, Beam> entry : beams.entrySet()) {
+            Beam newBeam = newBeams.get(entry.getKey());
+
+            if (!entry.getValue().equals(newBeam))
+                invalidate(entry.getValue().getBounds());
+        }
+
+        // invalidate beams that were added or changed
+        for (Map.Entry<Object, Beam> entry : newBeams.entrySet()) {
+            Beam oldBeam = beams.get(entry.getKey());
+
+            if (!entry.getValue().equals(oldBeam))
+                invalidate(entry.getValue().getBounds());
+        }
+
+        // replace beams
+        beams.clear();
+        beams.putAll(newBeams);
+
+    }
+
+    /**
+     * setBeam(Object, Beam) Method:
+     * Replaces the beam of a single owner and marks the tiles touched by the old and new beam as dirty if it changed.
+     *
+     * Input: Owner, beam (null to remove the owner's beam).
+     *
+     * Process: Replaces or removes the owner's beam & invalidates the bounds of the old and new beam if they differ.
+     *
+     * Output: Previous beam of the owner.
+     *
+     * @param owner Owner of the beam (usually the light casting it)
+     * @param beam New beam, or null to remove the owner's beam
+     * @return Previous beam of the owner (null if it had none)
+     */
+    public Beam setBeam(Object owner, Beam beam) {
+
+        // replace or remove beam
+        Beam oldBeam = beam != null ? beams.put(owner, beam) : beams.remove(owner);
+
+        // invalidate old & new bounds if the beam changed
+        if (!Objects.equals(oldBeam, beam)) {
+            if (oldBeam != null)
+                invalidate(oldBeam.getBounds());
+
+            if (beam != null)
+                invalidate(beam.getBounds());
+        }
+
+        return oldBeam;
+
+    }
+
+    /**
+     * invalidate(Rectangle) Method:
+     * Marks all tiles intersecting the specified rectangle as dirty.
+     *
+     * Input: Rectangle to invalidate.
+     *
+     * Process: Adds the key of every rendered tile covered by the rectangle to the dirty set (tiles that weren't
+     * rendered yet will be when they first become visible).
+     *
+     * Output: None.
+     *
+     * @param rect Rectangle to invalidate
+     */
+    public void invalidate(Rectangle rect) {
+
+        // nothing to do if the rectangle is empty
+        if (rect.isEmpty())
+            return;
+
+        // add every rendered tile covered by the rectangle
+        for (int ty = Math.floorDiv(rect.y, tileSize); ty <= Math.floorDiv(rect.y + rect.height - 1, tileSize); ty++) {
+            for (int tx = Math.floorDiv(rect.x, tileSize); tx <= Math.floorDiv(rect.x + rect.width - 1, tileSize); tx++) {
+                long key = getTileKey(tx, ty);
+
+                if (tiles.containsKey(key))
+                    dirtyTiles.add(key);
+            }
+        }
+
+    }
+
+    /**
+     * invalidateAll() Method:
+     * Drops every rendered tile.
+     *
+     * Input: None.
+     *
+     * Process: Clears the tiles & dirty tiles.
+     *
+     * Output: None.
+     */
+    public void invalidateAll() {
+        tiles.clear();
+        dirtyTiles.clear();
+    }
+
+    /**
+     * setSoftEdges(boolean) Method:
+     * Sets whether beams are drawn with soft edges (from cached sprites) or flat.
+     *
+     * Input: Whether to use soft edges.
+     *
+     * Process: Sets the value & drops all tiles if it changed.
+     *
+     * Output: None.
+     *
+     * @param softEdges Whether to use soft edges
+     */
+    public void setSoftEdges(boolean softEdges) {
+
+        // drop tiles if the value changed
+        if (this.softEdges != softEdges)
+            invalidateAll();
+
+        // set value
+        this.softEdges = softEdges;
+
+    }
+
+    /**
+     * paint(Graphics2D, Rectangle) Method:
+     * Paints the composited beams inside the specified area.
+     *
+     * Input: Graphics instance, area to paint.
+     *
+     * Process: Renders missing and dirty tiles in the area in parallel, then draws every tile image.
+     *
+     * Output: Beams drawn on the specified graphics instance, amount of tiles that were rendered.
+     *
+     * @param g2d Graphics instance
+     * @param area Area to paint
+     * @return Amount of tiles that were rendered (the others were drawn as they were)
+     */
+    public int paint(Graphics2D g2d, Rectangle area) {
+
+        // nothing to do if the area is empty
+        if (area == null || area.isEmpty())
+            return 0;
+
+        // get tile range covered by the area
+        int minTileX = Math.floorDiv(area.x, tileSize);
+        int minTileY = Math.floorDiv(area.y, tileSize);
+        int maxTileX = Math.floorDiv(area.x + area.width - 1, tileSize);
+        int maxTileY = Math.floorDiv(area.y + area.height - 1, tileSize);
+
+        // find tiles that must be rendered
+        List<Tile> pending = new ArrayList<>();
+        List<Tile> visible = new ArrayList<>();
+
+        for (int ty = minTileY; ty <= maxTileY; ty++) {
+            for (int tx = minTileX; tx <= maxTileX; tx++) {
+
+                // get tile key & tile
+                long key = getTileKey(tx, ty);
+                Tile tile = tiles.get(key);
+
+                // create tile if it doesn't exist yet
+                if (tile == null) {
+                    tile = new Tile(tx, ty);
+                    tiles.put(key, tile);
+                    pending.add(tile);
+                } else if (dirtyTiles.contains(key)) {
+                    pending.add(tile);
+                }
+
+                // tile is clean once rendered
+                dirtyTiles.remove(key);
+                visible.add(tile);
+
+            }
+        }
+
+        // render pending tiles in the pool
+        if (!pending.isEmpty()) {
+
+            // get beams once so every task works on the same list
+            List<Beam> beamList = new ArrayList<>(beams.values());
+
+            // get sprites on this thread since the cache isn't thread-safe
+            Map<Beam, BeamSpriteCache.Sprite> sprites = new IdentityHashMap<>();
+
+            if (softEdges)
+                for (Beam beam : beamList)
+                    sprites.put(beam, spriteCache.getSprite(beam.fieldAngle, beam.color, beam.intensity));
+
+            pool.invoke(new RenderTask(pending, 0, pending.size(), beamList, sprites));
+
+        }
+
+        // draw visible tiles
+        for (Tile tile : visible)
+            if (!tile.isEmpty())
+                g2d.drawImage(tile.image, tile.tileX * tileSize, tile.tileY * tileSize, null);
+
+        // drop tiles that aren't visible if too many are cached
+        if (tiles.size() > maxCachedTiles)
+            tiles.values().removeIf(tile -> tile.tileX < minTileX || tile.tileX > maxTileX || tile.tileY < minTileY || tile.tileY > maxTileY);
+
+        return pending.size();
+
+    }
+
+    /**
+     * getBeam(Object) Method:
+     * Gets the current beam of an owner.
+     *
+     * Input: Owner.
+     *
+     * Process: Looks the owner up in the current beams.
+     *
+     * Output: Beam of the owner.
+     *
+     * @param owner Owner of the beam (usually the light casting it)
+     * @return Beam of the owner (null if it has none)
+     */
+    public Beam getBeam(Object owner) {
+        return beams.get(owner);
+    }
+
+    /**
+     * getTileSize() Method:
+     * Gets the width & height of the tiles the beams are composited in.
+     *
+     * Input: None.
+     *
+     * Process: Returns the constant.
+     *
+     * Output: Tile size.
+     *
+     * @return Tile width & height, in px
+     */
+    public static int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * getTileKey(int, int) Method:
+     * Packs tile coordinates into a single key.
+     *
+     * Input: Tile coordinates.
+     *
+     * Process: Puts the Y coordinate in the high 32 bits and the X coordinate in the low 32 bits.
+     *
+     * Output: Tile key.
+     *
+     * @param tileX Tile column
+     * @param tileY Tile row
+     * @return Tile key
+     */
+    private static long getTileKey(int tileX, int tileY) {
+        return ((long) tileY << 32) | (tileX & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Beam Class:
+     * Immutable description of a beam footprint, in drawing pane coordinates.
+     *
+     * Date: 2026-10-19
+     *
+     * @author Nicolas Gnyra
+     * @version 1.0
+     */
+    public static class Beam {
+
+        private final int centerX;                // light center x coordinate
+        private final int centerY;                // light center y coordinate
+        private final int battenHeight;           // batten height, in px
+        private final double angle;               // light angle, in degrees
+        private final BeamFootprint footprint;    // footprint, relative to the light center before rotation
+        private final double theta;               // rotation applied around the light center, in radians
+        private final float red;                  // red energy, from 0 to 1
+        private final float green;                // green energy, from 0 to 1
+        private final float blue;                 // blue energy, from 0 to 1
+        private final double fieldAngle;          // field angle, in degrees
+        private final Color color;                // beam color
+        private final int intensity;              // beam intensity, from 0 to 100
+        private final Rectangle bounds;           // bounds of the rotated footprint
+
+        /**
+         * Beam(int, int, int, int, double, int, Color, int, double, double) Constructor:
+         * Creates a beam from the same characteristics as PaintHelper.drawBeam.
+         *
+         * Input: Light coordinates & size, field angle, batten height, beam color, beam intensity, rotation, angle.
+         *
+         * Process: Gets the beam footprint, computes the rotated bounds & the energy of each color channel.
+         *
+         * Output: A new instance of the Beam class.
+         *
+         * @param lightX Light X position
+         * @param lightY Light Y position
+         * @param lightWidth Light width
+         * @param lightHeight Light height
+         * @param fieldAngle Light field angle
+         * @param battenHeight Batten height
+         * @param beamColor Beam color
+         * @param beamIntensity Beam intensity
+         * @param rotation Light rotation
+         * @param angle Light angle
+         */
+        public Beam(int lightX, int lightY, int lightWidth, int lightHeight, double fieldAngle, int battenHeight, Color beamColor, int beamIntensity, double rotation, double angle) {
+
+            // set center & rotation the same way PaintHelper.drawBeam does
+            centerX = lightX + lightWidth / 2;
+            centerY = lightY + lightHeight / 2;
+            theta = Math.PI / 2 - Math.toRadians(rotation);
+            footprint = BeamFootprint.get(battenHeight, fieldAngle, angle);
+
+            // set values that define the footprint
+            this.battenHeight = battenHeight;
+            this.angle = angle;
+
+            // set values used to get the beam's sprite
+            this.fieldAngle = fieldAngle;
+            this.color = beamColor;
+            this.intensity = beamIntensity;
+
+            // get energy of each channel
+            red = beamColor.getRed() / 255f * beamIntensity / 100f;
+            green = beamColor.getGreen() / 255f * beamIntensity / 100f;
+            blue = beamColor.getBlue() / 255f * beamIntensity / 100f;
+
+            // get bounds of the rotated footprint, with a pixel of margin for the anti-aliased edge
+            bounds = footprint.getOutline(PaintHelper.getBeamTransform(lightX, lightY, lightWidth, lightHeight, rotation)).getBounds();
+            bounds.grow(1, 1);
+
+        }
+
+        /**
+         * rasterize(float[], int, int, BeamSpriteCache.Sprite) Method:
+         * Adds this beam's light to a tile's accumulation buffer.
+         *
+         * Input: Accumulation buffer, tile origin, sprite (or null for a flat beam).
+         *
+         * Process: For every pixel covered by both the tile and the beam bounds, transforms the pixel center into the
+         * footprint's frame. Then either samples the sprite at the pixel's radius in the beam's cross-section or gets
+         * the footprint coverage & adds the weighted energy to the buffer.
+         *
+         * Output: Updated accumulation buffer.
+         *
+         * @param buffer Accumulation buffer (RGB triplets)
+         * @param originX Tile X position
+         * @param originY Tile Y position
+         * @param sprite Soft-edged sprite, or null to draw a flat beam
+         */
+        void rasterize(float[] buffer, int originX, int originY, BeamSpriteCache.Sprite sprite) {
+
+            // get inverse rotation
+            double cos = Math.cos(theta);
+            double sin = Math.sin(theta);
+
+            // get pixel range covered by the tile & the beam
+            int startX = Math.max(originX, bounds.x);
+            int startY = Math.max(originY, bounds.y);
+            int endX = Math.min(originX + tileSize, bounds.x + bounds.width);
+            int endY = Math.min(originY + tileSize, bounds.y + bounds.height);
+
+            // iterate through pixels
+            for (int y = startY; y < endY; y++) {
+
+                // get offset from light center
+                double dy = y + 0.5 - centerY;
+
+                for (int x = startX; x < endX; x++) {
+
+                    // get offset from light center & rotate back into the footprint's frame
+                    double dx = x + 0.5 - centerX;
+                    double u = dx * cos + dy * sin;
+                    double v = dy * cos - dx * sin;
+
+                    // get index of the pixel
+                    int index = ((y - originY) * tileSize + (x - originX)) * 3;
+
+                    // sample the sprite if there is one (it falls off to nothing at the edge, so no anti-aliasing)
+                    if (sprite != null) {
+                        double radiusSquared = footprint.getRadiusSquared(u, v);
+
+                        if (radiusSquared < 1)
+                            sprite.add(buffer, index, radiusSquared);
+                        continue;
+                    }
+
+                    // get coverage of the pixel (1 inside, ramps down to 0 across the edge) & skip pixels outside
+                    float coverage = footprint.getCoverage(u, v);
+
+                    if (coverage == 0)
+                        continue;
+
+                    // add energy
+                    buffer[index] += red * coverage;
+                    buffer[index + 1] += green * coverage;
+                    buffer[index + 2] += blue * coverage;
+
+                }
+
+            }
+
+        }
+
+        /**
+         * equals(Object) Method:
+         * Checks whether the supplied object is equal to this instance.
+         *
+         * Input: Object to compare.
+         *
+         * Process: Compares all properties of this class.
+         *
+         * Output: Whether the objects are equal or not.
+         *
+         * @param obj Object to compare.
+         * @return Whether the objects are equal or not.
+         */
+        @Override
+        public boolean equals(Object obj) {
+
+            // check type
+            if (!(obj instanceof Beam))
+                return false;
+
+            // cast
+            Beam otherBeam = (Beam) obj;
+
+            // check variables
+            return centerX == otherBeam.centerX &&
+                    centerY == otherBeam.centerY &&
+                    theta == otherBeam.theta &&
+                    fieldAngle == otherBeam.fieldAngle &&
+                    color.equals(otherBeam.color) &&
+                    intensity == otherBeam.intensity &&
+                    battenHeight == otherBeam.battenHeight &&
+                    angle == otherBeam.angle;
+
+        }
+
+        /**
+         * hashCode() Method:
+         * Gets a hash code consistent with equals.
+         *
+         * Input: None.
+         *
+         * Process: Hashes all properties compared by equals.
+         *
+         * Output: Hash code.
+         *
+         * @return Hash code.
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(centerX, centerY, theta, fieldAngle, color, intensity, battenHeight, angle);
+        }
+
+        /**
+         * getBounds() Method:
+         * Gets the bounds of the rotated footprint.
+         *
+         * Input: None.
+         *
+         * Process: Returns the bounds computed when the beam was created.
+         *
+         * Output: Bounds of the beam.
+         *
+         * @return Bounds of the beam, in drawing pane coordinates (must not be modified)
+         */
+        public Rectangle getBounds() {
+            return bounds;
+        }
+    }
+
+    /**
+     * Tile Class:
+     * A square region of the composited image. Only the tone-mapped image is kept; the light is accumulated in a
+     * buffer that belongs to the task rendering the tile.
+     *
+     * Date: 2026-10-19
+     *
+     * @author Nicolas Gnyra
+     * @version 1.0
+     */
+    private static class Tile {
+
+        private final int tileX;                                            // tile column
+        private final int tileY;                                            // tile row
+        private final BufferedImage image;                                  // tone-mapped image
+        private final int[] pixels;                                         // image pixels
+        private boolean empty = true;                                       // whether no beam touches this tile
+
+        /**
+         * Tile(int, int) Constructor:
+         * Creates a new tile at the specified tile coordinates.
+         *
+         * Input: Tile coordinates.
+         *
+         * Process: Sets values & creates an image backed by an int array.
+         *
+         * Output: A new instance of the Tile class.
+         *
+         * @param tileX Tile column
+         * @param tileY Tile row
+         */
+        private Tile(int tileX, int tileY) {
+            this.tileX = tileX;
+            this.tileY = tileY;
+            this.image = new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_ARGB);
+            this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        }
+
+        /**
+         * render(float[], List<Beam>, Map<Beam, BeamSpriteCache.Sprite>) Method:
+         * Renders all beams that touch this tile.
+         *
+         * Input: Accumulation buffer, beams, sprites by beam.
+         *
+         * Process: Clears the accumulation buffer, adds every intersecting beam, and tone maps the result.
+         *
+         * Output: Updated tile image.
+         *
+         * @param buffer Accumulation buffer of at least one tile (RGB triplets), overwritten
+         * @param beams Beams to render
+         * @param sprites Sprites by beam (empty for flat beams)
+         */
+        private void render(float[] buffer, List<Beam> beams, Map<Beam, BeamSpriteCache.Sprite> sprites) {
+
+            // get tile bounds
+            int originX = tileX * tileSize;
+            int originY = tileY * tileSize;
+            Rectangle tileBounds = new Rectangle(originX, originY, tileSize, tileSize);
+
+            // clear buffer
+            Arrays.fill(buffer, 0);
+            empty = true;
+
+            // add intersecting beams
+            for (Beam beam : beams) {
+                if (beam.getBounds().intersects(tileBounds)) {
+                    beam.rasterize(buffer, originX, originY, sprites.get(beam));
+                    empty = false;
+                }
+            }
+
+            // tone map the buffer into the image
+            for (int i = 0; i < pixels.length; i++) {
+
+                // get accumulated energy
+                float r = buffer[i * 3];
+                float g = buffer[i * 3 + 1];
+                float b = buffer[i * 3 + 2];
+
+                // skip unlit pixels
+                if (r <= 0 && g <= 0 && b <= 0) {
+                    pixels[i] = 0;
+                    continue;
+                }
+
+                // map energy to [0, 1) so overlapping beams get brighter without clipping
+                float tr = 1 - (float) Math.exp(-exposure * r);
+                float tg = 1 - (float) Math.exp(-exposure * g);
+                float tb = 1 - (float) Math.exp(-exposure * b);
+
+                // use the brightest channel as opacity & normalize the color
+                float alpha = Math.max(tr, Math.max(tg, tb));
+
+                pixels[i] = (Math.round(alpha * 255) << 24) | (Math.round(tr / alpha * 255) << 16) | (Math.round(tg / alpha * 255) << 8) | Math.round(tb / alpha * 255);
+
+            }
+
+        }
+
+        /**
+         * isEmpty() Method:
+         * Checks whether no beam touched the tile when it was last rendered.
+         *
+         * Input: None.
+         *
+         * Process: Returns the value set by render.
+         *
+         * Output: Whether the tile is empty.
+         *
+         * @return Whether the tile is empty (and doesn't have to be drawn)
+         */
+        private boolean isEmpty() {
+            return empty;
+        }
+    }
+
+    /**
+     * RenderTask Class:
+     * Fork/join task that renders a range of tiles.
+     *
+     * Date: 2026-10-19
+     *
+     * @author Nicolas Gnyra
+     * @version 1.0
+     */
+    private static class RenderTask extends RecursiveAction {
+
+        private final List<Tile> tiles;                             // tiles to render
+        private final int start;                                    // first tile (inclusive)
+        private final int end;                                      // last tile (exclusive)
+        private final List<Beam> beams;                             // beams to render
+        private final Map<Beam, BeamSpriteCache.Sprite> sprites;    // sprites by beam (empty for flat beams)
+
+        /**
+         * RenderTask(List<Tile>, int, int, List<Beam>, Map<Beam, BeamSpriteCache.Sprite>) Constructor:
+         * Creates a new task that renders the specified range of tiles.
+         *
+         * Input: Tiles, range, beams, sprites.
+         *
+         * Process: Sets values.
+         *
+         * Output: A new instance of the RenderTask class.
+         *
+         * @param tiles Tiles to render
+         * @param start First tile (inclusive)
+         * @param end Last tile (exclusive)
+         * @param beams Beams to render
+         * @param sprites Sprites by beam (empty for flat beams)
+         */
+        private RenderTask(List<Tile> tiles, int start, int end, List<Beam> beams, Map<Beam, BeamSpriteCache.Sprite> sprites) {
+            this.tiles = tiles;
+            this.start = start;
+            this.end = end;
+            this.beams = beams;
+            this.sprites = sprites;
+        }
+
+        /**
+         * compute() Method:
+         * Renders the tiles directly if the range is small enough, splits it in two otherwise.
+         *
+         * Input: None.
+         *
+         * Process: Splits the range until it is under the threshold and renders each tile, accumulating the light of
+         * every tile in the same buffer.
+         *
+         * Output: Rendered tiles.
+         */
+        @Override
+        protected void compute() {
+
+            // render directly if the range is small
+            if (end - start <= parallelThreshold) {
+                float[] buffer = new float[tileSize * tileSize * 3];
+
+                for (int i = start; i < end; i++)
+                    tiles.get(i).render(buffer, beams, sprites);
+                return;
+            }
+
+            // split range in two
+            int middle = (start + end) / 2;
+            invokeAll(new RenderTask(tiles, start, middle, beams, sprites), new RenderTask(tiles, middle, end, beams, sprites));
+
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.nicolasgnyra.stagelightplanner.rendering;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BeamFootprint Class:
+ * Exact footprint of a light beam on the floor, i.e. the section of the beam's cone by the floor plane. Coordinates
+ * are relative to the light center before rotation, with the light tilted towards positive X.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.0
+ */
+public class BeamFootprint {
+
+    private static final int maxCachedFootprints = 512;     // amount of footprints kept before the least recently used is dropped
+    private static final double tolerance = 0.25;           // maximum distance between the outline & the exact curve, in px
+    private static final int initialSegments = 16;          // amount of segments before the outline is subdivided
+    private static final int maxSubdivisions = 8;           // maximum depth of subdivision of a segment
+    private static final int maxThrow = 10;                 // distance at which footprints are cut, multiple of batten height
+    private static final double maxHalfFieldAngle = Math.toRadians(89);    // widest half field angle, keeps the cone finite
+    private static final double innerRadiusSquared = 0.81;  // squared normalized radius under which pixels are fully covered
+
+    // footprints, by batten height, field angle & angle (least recently used first)
+    private static final Map<List<Object>, BeamFootprint> footprints = new LinkedHashMap<List<Object>, BeamFootprint>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, BeamFootprint> eldest) {
+            return size() > maxCachedFootprints;
+        }
+    };
+
+    private final double height;                // height of the light above the floor
+    private final double sinAngle;              // sine of the light's angle
+    private final double cosAngle;              // cosine of the light's angle
+    private final double tanHalfFieldSquared;   // squared tangent of half the field angle
+    private final double maxThrowSquared;       // squared distance at which the footprint is cut
+    private final Path2D.Double outline;        // polygonized outline
+    private final Point2D[] edges;              // points where the cone's sides perpendicular to the tilt meet the floor
+
+    /**
+     * get(int, double, double) Method:
+     * Gets the footprint of a beam, computing it if it isn't cached.
+     *
+     * Input: Batten height, field angle, angle.
+     *
+     * Process: Looks up the footprint in the cache & creates it if it's missing.
+     *
+     * Output: Footprint.
+     *
+     * @param battenHeight Height of the batten on which the light is, in px (zoom applied)
+     * @param fieldAngle Field angle of the light, in degrees
+     * @param angle Angle of the light, in degrees
+     * @return Footprint
+     */
+    public static BeamFootprint get(int battenHeight, double fieldAngle, double angle) {
+
+        // create key
+        List<Object> key = Arrays.asList(battenHeight, fieldAngle, angle);
+
+        // get footprint & compute it if it isn't cached (the cache is shared by every planner)
+        synchronized (footprints) {
+            BeamFootprint footprint = footprints.get(key);
+
+            if (footprint == null) {
+                footprint = new BeamFootprint(battenHeight, fieldAngle, angle);
+                footprints.put(key, footprint);
+            }
+
+            return footprint;
+        }
+
+    }
+
+    /**
+     * BeamFootprint(int, double, double) Constructor:
+     * Computes the footprint of a beam.
+     *
+     * Input: Batten height, field angle, angle.
+     *
+     * Process: Sets the cone parameters & polygonizes the outline. Segments are subdivided until they are within the
+     * tolerance of the curve, so outlines get more points as the zoom (and therefore the batten height in px) grows.
+     *
+     * Output: A new instance of the BeamFootprint class.
+     *
+     * @param battenHeight Height of the batten on which the light is, in px (zoom applied)
+     * @param fieldAngle Field angle of the light, in degrees
+     * @param angle Angle of the light, in degrees
+     */
+    private BeamFootprint(int battenHeight, double fieldAngle, double angle) {
+
+        // get half field angle
+        double halfField = Math.min(Math.toRadians(fieldAngle) / 2, maxHalfFieldAngle);
+
+        // set cone parameters
+        height = battenHeight;
+        sinAngle = Math.sin(Math.toRadians(angle));
+        cosAngle = Math.cos(Math.toRadians(angle));
+        tanHalfFieldSquared = Math.pow(Math.tan(halfField), 2);
+        maxThrowSquared = Math.pow(maxThrow * height, 2);
+
+        // create outline
+        outline = new Path2D.Double();
+
+        // leave the outline empty if the beam has no footprint
+        if (height <= 0 || halfField <= 0) {
+            edges = new Point2D[] { new Point2D.Double(), new Point2D.Double() };
+            return;
+        }
+
+        // get the sides of the cone
+        edges = new Point2D[] { getBoundaryPoint(halfField, Math.PI / 2), getBoundaryPoint(halfField, -Math.PI / 2) };
+
+        // start outline
+        Point2D start = getBoundaryPoint(halfField, 0);
+        outline.moveTo(start.getX(), start.getY());
+
+        // add segments, subdividing them where needed
+        Point2D previous = start;
+
+        for (int i = 1; i <= initialSegments; i++) {
+            double phi = 2 * Math.PI * i / initialSegments;
+            Point2D point = getBoundaryPoint(halfField, phi);
+
+            addSegment(halfField, 2 * Math.PI * (i - 1) / initialSegments, previous, phi, point, 0);
+            previous = point;
+        }
+
+        // close outline
+        outline.closePath();
+
+    }
+
+    /**
+     * getBoundaryPoint(double, double) Method:
+     * Gets the point where a ray on the surface of the cone meets the floor.
+     *
+     * Input: Half field angle, angle of the ray around the beam axis.
+     *
+     * Process: Gets the ray's direction, then intersects it with the floor plane. Rays that go up, or that meet the
+     * floor too far away, are cut at the maximum throw in the same horizontal direction.
+     *
+     * Output: Point on the floor.
+     *
+     * @param halfField Half field angle, in radians
+     * @param phi Angle around the beam axis, in radians (0 is the far side of the tilt)
+     * @return Point on the floor
+     */
+    private Point2D getBoundaryPoint(double halfField, double phi) {
+
+        // get ray direction (axis tilted towards +x, rotated around it by phi)
+        double cosHalf = Math.cos(halfField);
+        double sinHalf = Math.sin(halfField);
+        double x = cosHalf * sinAngle + sinHalf * Math.cos(phi) * cosAngle;
+        double y = sinHalf * Math.sin(phi);
+        double z = -cosHalf * cosAngle + sinHalf * Math.cos(phi) * sinAngle;
+
+        // get horizontal length of the direction & maximum throw
+        double horizontal = Math.hypot(x, y);
+        double maxDistance = Math.sqrt(maxThrowSquared);
+
+        // intersect with the floor if the ray goes down
+        if (z < 0) {
+            double distance = height / -z;
+
+            if (distance * horizontal <= maxDistance)
+                return new Point2D.Double(distance * x, distance * y);
+        }
+
+        // otherwise cut at the maximum throw
+        return new Point2D.Double(maxDistance * x / horizontal, maxDistance * y / horizontal);
+
+    }
+
+    /**
+     * addSegment(double, double, Point2D, double, Point2D, int) Method:
+     * Adds the segment between two boundary points to the outline, subdividing it if it's too far from the curve.
+     *
+     * Input: Half field angle, start angle & point, end angle & point, current depth.
+     *
+     * Process: Gets the point in the middle of the curve. If it's too far from the segment, adds both halves
+     * recursively, otherwise adds a line to the end point.
+     *
+     * Output: Updated outline.
+     *
+     * @param halfField Half field angle, in radians
+     * @param startPhi Angle of the start point around the beam axis
+     * @param start Start point
+     * @param endPhi Angle of the end point around the beam axis
+     * @param end End point
+     * @param depth Current subdivision depth
+     */
+    private void addSegment(double halfField, double startPhi, Point2D start, double endPhi, Point2D end, int depth) {
+
+        // get the middle of the curve
+        double middlePhi = (startPhi + endPhi) / 2;
+        Point2D middle = getBoundaryPoint(halfField, middlePhi);
+
+        // subdivide if the curve is too far from the segment
+        if (depth < maxSubdivisions && Line2D.ptSegDist(start.getX(), start.getY(), end.getX(), end.getY(), middle.getX(), middle.getY()) > tolerance) {
+            addSegment(halfField, startPhi, start, middlePhi, middle, depth + 1);
+            addSegment(halfField, middlePhi, middle, endPhi, end, depth + 1);
+        } else {
+            outline.lineTo(end.getX(), end.getY());
+        }
+
+    }
+
+    /**
+     * getRadiusSquared(double, double) Method:
+     * Gets the squared normalized radius of a point of the floor in the beam's cross-section.
+     *
+     * Input: Point coordinates.
+     *
+     * Process: Gets the tangent of the angle between the beam axis & the ray to the point. Dividing it by the tangent
+     * of the half field angle gives the radius in the cross-section where the beam's edge is the unit circle.
+     *
+     * Output: Squared normalized radius (infinity if the point is behind the light or past the maximum throw).
+     *
+     * @param x X coordinate, relative to the light center before rotation
+     * @param y Y coordinate, relative to the light center before rotation
+     * @return Squared normalized radius
+     */
+    public double getRadiusSquared(double x, double y) {
+
+        // get dot product with the axis & squared distance from the light
+        double dot = x * sinAngle + height * cosAngle;
+        double horizontalSquared = x * x + y * y;
+
+        // points behind the light or past the maximum throw aren't lit
+        if (dot <= 0 || horizontalSquared > maxThrowSquared)
+            return Double.POSITIVE_INFINITY;
+
+        // tan² = 1 / cos² - 1
+        return ((horizontalSquared + height * height) / (dot * dot) - 1) / tanHalfFieldSquared;
+
+    }
+
+    /**
+     * getCoverage(double, double) Method:
+     * Gets the anti-aliased coverage of a pixel by the footprint.
+     *
+     * Input: Pixel center coordinates.
+     *
+     * Process: Points well inside the footprint are fully covered. Near the edge, gets the gradient of the
+     * normalized radius on the floor to find the distance from the edge in pixels, then ramps the coverage from 1 to
+     * 0 across a pixel.
+     *
+     * Output: Coverage, from 0 to 1.
+     *
+     * @param x X coordinate, relative to the light center before rotation
+     * @param y Y coordinate, relative to the light center before rotation
+     * @return Coverage
+     */
+    public float getCoverage(double x, double y) {
+
+        // get squared radius, skip points that are clearly outside & cover points that are well inside
+        double radiusSquared = getRadiusSquared(x, y);
+
+        if (radiusSquared >= 4)
+            return 0;
+
+        if (radiusSquared < innerRadiusSquared)
+            return 1;
+
+        // get gradient of the squared radius (derivative of (x² + y² + h²) / dot²)
+        double dot = x * sinAngle + height * cosAngle;
+        double distanceSquared = x * x + y * y + height * height;
+        double gradientX = 2 * (x * dot - distanceSquared * sinAngle) / (dot * dot * dot) / tanHalfFieldSquared;
+        double gradientY = 2 * y / (dot * dot) / tanHalfFieldSquared;
+        double gradient = Math.sqrt(gradientX * gradientX + gradientY * gradientY);
+
+        // the center is always covered
+        if (gradient == 0)
+            return 1;
+
+        // get distance from the edge in px (d(r) = d(r²) / 2r)
+        double radius = Math.sqrt(radiusSquared);
+        double edgeDistance = (1 - radius) * 2 * radius / gradient;
+
+        return (float) Math.max(0, Math.min(1, edgeDistance + 0.5));
+
+    }
+
+    /**
+     * getOutline(AffineTransform) Method:
+     * Gets the polygonized outline with the specified transform applied.
+     *
+     * Input: Transform.
+     *
+     * Process: Transforms the cached outline.
+     *
+     * Output: Transformed outline.
+     *
+     * @param transform Transform from the light's frame to drawing coordinates
+     * @return Transformed outline
+     */
+    public Shape getOutline(AffineTransform transform) {
+        return transform.createTransformedShape(outline);
+    }
+
+    public Point2D[] getEdges() {
+        return new Point2D[] { (Point2D) edges[0].clone(), (Point2D) edges[1].clone() };
+    }
+}
@@ -0,0 +1,151 @@
+package com.nicolasgnyra.stagelightplanner.rendering;
+
+import java.awt.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * BeamSpriteCache Class:
+ * Cache of pre-rendered soft-edged beam textures, by field angle bucket, color & intensity.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.0
+ */
+public class BeamSpriteCache {
+
+    private static final int maxSprites = 256;          // amount of sprites kept before the least recently used is dropped
+    private static final float bucketSize = 5.0f;       // size of a field angle bucket, in degrees
+
+    // sprites, by key (least recently used first)
+    private final Map<Long, Sprite> sprites = new LinkedHashMap<Long, Sprite>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Sprite> eldest) {
+            return size() > maxSprites;
+        }
+    };
+
+    /**
+     * getSprite(double, Color, int) Method:
+     * Gets the sprite for the specified beam characteristics, rendering it if it isn't cached.
+     *
+     * Input: Field angle, beam color, beam intensity.
+     *
+     * Process: Puts the field angle in a bucket, builds the cache key & renders the sprite if it's missing.
+     *
+     * Output: Cached sprite.
+     *
+     * @param fieldAngle Field angle, in degrees
+     * @param color Beam color
+     * @param intensity Beam intensity, from 0 to 100
+     * @return Cached sprite
+     */
+    public Sprite getSprite(double fieldAngle, Color color, int intensity) {
+
+        // get field angle bucket
+        int bucket = Math.round((float) fieldAngle / bucketSize);
+
+        // pack bucket, color & intensity into a key
+        long key = ((long) bucket << 40) | ((long) (intensity & 0xFF) << 24) | (color.getRGB() & 0xFFFFFF);
+
+        // get sprite & render it if it isn't cached
+        Sprite sprite = sprites.get(key);
+
+        if (sprite == null) {
+            sprite = new Sprite(bucket * bucketSize, color, intensity);
+            sprites.put(key, sprite);
+        }
+
+        return sprite;
+
+    }
+
+    /**
+     * Sprite Class:
+     * A beam texture in the beam's normalized space, where the footprint is the unit circle. Since the falloff is
+     * radially symmetric in that space, the texture is stored by squared radius, which avoids a square root per
+     * pixel when it's sampled.
+     *
+     * Date: 2026-10-19
+     *
+     * @author Nicolas Gnyra
+     * @version 1.0
+     */
+    public static class Sprite {
+
+        static final int resolution = 1024;                         // amount of samples between the center & the edge
+
+        private final float[] texture = new float[resolution * 3];  // premultiplied RGB energy, by squared radius
+
+        /**
+         * Sprite(double, Color, int) Constructor:
+         * Renders the falloff texture of a beam.
+         *
+         * Input: Field angle, beam color, beam intensity.
+         *
+         * Process: Wider beams get softer edges. Every sample is full intensity in the beam's core and falls off
+         * with a raised cosine to zero at the edge of the field.
+         *
+         * Output: A new instance of the Sprite class.
+         *
+         * @param fieldAngle Field angle, in degrees
+         * @param color Beam color
+         * @param intensity Beam intensity, from 0 to 100
+         */
+        private Sprite(double fieldAngle, Color color, int intensity) {
+
+            // get the fraction of the radius over which the beam falls off (narrow spots are crisper than floods)
+            double softness = Math.max(0.25, Math.min(0.9, fieldAngle / 60));
+            double core = 1 - softness;
+
+            // get energy of each channel
+            float red = color.getRed() / 255f * intensity / 100f;
+            float green = color.getGreen() / 255f * intensity / 100f;
+            float blue = color.getBlue() / 255f * intensity / 100f;
+
+            // render samples
+            for (int i = 0; i < resolution; i++) {
+
+                // get radius at the middle of the sample
+                double radius = Math.sqrt((i + 0.5) / resolution);
+
+                // get falloff
+                float falloff = radius <= core ? 1 : (float) (0.5 * (1 + Math.cos(Math.PI * (radius - core) / softness)));
+
+                // set premultiplied energy
+                texture[i * 3] = red * falloff;
+                texture[i * 3 + 1] = green * falloff;
+                texture[i * 3 + 2] = blue * falloff;
+
+            }
+
+        }
+
+        /**
+         * add(float[], int, double) Method:
+         * Adds the sample at the specified squared radius to a buffer.
+         *
+         * Input: Accumulation buffer, index in the buffer, squared normalized radius.
+         *
+         * Process: Looks up the sample & adds each channel.
+         *
+         * Output: Updated buffer.
+         *
+         * @param buffer Accumulation buffer (RGB triplets)
+         * @param index Index of the pixel's red channel in the buffer
+         * @param radiusSquared Squared normalized radius, from 0 (inclusive) to 1 (exclusive)
+         */
+        void add(float[] buffer, int index, double radiusSquared) {
+
+            // get sample
+            int sample = (int) (radiusSquared * resolution) * 3;
+
+            // add energy
+            buffer[index] += texture[sample];
+            buffer[index + 1] += texture[sample + 1];
+            buffer[index + 2] += texture[sample + 2];
+
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.nicolasgnyra.stagelightplanner.rendering;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.function.Consumer;
+
+/**
+ * LayerCache Class:
+ * An image that caches the contents of a layer until it is invalidated. Invalidating a region only repaints that
+ * region of the image.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.1
+ */
+public class LayerCache {
+
+    private static final int margin = 256;  // extra area cached around the visible area so small scrolls reuse the image
+
+    private BufferedImage image = null;     // cached image
+    private Rectangle area = null;          // area covered by the cached image
+    private boolean valid = false;          // whether the cached image is up to date
+    private Rectangle dirtyArea = null;     // union of the regions that are outdated (null if there are none)
+
+    /**
+     * invalidate() Method:
+     * Marks the cached image as outdated.
+     *
+     * Input: None.
+     *
+     * Process: Sets valid to false.
+     *
+     * Output: None.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * invalidate(Rectangle) Method:
+     * Marks a region of the cached image as outdated.
+     *
+     * Input: Region, in layer coordinates.
+     *
+     * Process: Adds the region to the dirty area. Empty regions are ignored.
+     *
+     * Output: None.
+     *
+     * @param rect Region, in layer coordinates
+     */
+    public void invalidate(Rectangle rect) {
+        if (!rect.isEmpty())
+            dirtyArea = dirtyArea == null ? new Rectangle(rect) : dirtyArea.union(rect);
+    }
+
+    /**
+     * paint(Graphics, Rectangle, Rectangle, Consumer<Graphics2D>) Method:
+     * Draws the cached layer, repainting it or its outdated regions first if needed.
+     *
+     * Input: Graphics instance, visible area, bounds of the layer, painter.
+     *
+     * Process: If needed, moves the cached area around the visible area & invalidates the whole image. Then clears the
+     * whole image, or only the dirty area if that's all that is outdated, and calls the painter with a graphics
+     * instance translated to the cached area & clipped to what was cleared. Finally draws the cached image.
+     *
+     * Output: Layer drawn on the specified graphics instance.
+     *
+     * @param g Graphics instance
+     * @param visibleArea Area that is currently visible
+     * @param bounds Bounds of the layer
+     * @param painter Paints the contents of the layer
+     */
+    public void paint(Graphics g, Rectangle visibleArea, Rectangle bounds, Consumer<Graphics2D> painter) {
+
+        // nothing to do if nothing is visible
+        if (visibleArea.isEmpty())
+            return;
+
+        // move cached area if it doesn't cover the visible area anymore
+        if (area == null || !area.contains(visibleArea)) {
+
+            // cover visible area with a margin, without going outside the layer
+            Rectangle newArea = new Rectangle(visibleArea);
+            newArea.grow(margin, margin);
+            newArea = newArea.intersection(bounds).union(visibleArea);
+
+            // create a new image if the size changed
+            if (image == null || image.getWidth() != newArea.width || image.getHeight() != newArea.height)
+                image = new BufferedImage(newArea.width, newArea.height, BufferedImage.TYPE_INT_ARGB);
+
+            // set area & invalidate
+            area = newArea;
+            valid = false;
+
+        }
+
+        // get the part of the cached image that is outdated (the dirty area only matters inside the cached area)
+        Rectangle outdated = !valid ? area : dirtyArea != null ? dirtyArea.intersection(area) : null;
+
+        // repaint the outdated part of the cached image
+        if (outdated != null && !outdated.isEmpty()) {
+
+            // set valid & clear the dirty area first so changes made while painting invalidate the cache again
+            valid = true;
+            dirtyArea = null;
+
+            // create graphics for the cached image, translated to the cached area
+            Graphics2D g2d = image.createGraphics();
+            g2d.translate(-area.x, -area.y);
+            g2d.clip(outdated);
+
+            // clear outdated part
+            g2d.setComposite(AlphaComposite.Clear);
+            g2d.fillRect(outdated.x, outdated.y, outdated.width, outdated.height);
+            g2d.setComposite(AlphaComposite.SrcOver);
+
+            // paint contents
+            painter.accept(g2d);
+
+            // dispose of graphics
+            g2d.dispose();
+
+        } else {
+
+            // nothing in the dirty area is cached
+            dirtyArea = null;
+
+        }
+
+        // draw cached image
+        g.drawImage(image, area.x, area.y, null);
+
+    }
+}
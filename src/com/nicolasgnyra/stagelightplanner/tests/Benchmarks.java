@@ -0,0 +1,305 @@
+package com.nicolasgnyra.stagelightplanner.tests;
+
+import com.nicolasgnyra.stagelightplanner.*;
+import com.nicolasgnyra.stagelightplanner.components.JBatten;
+import com.nicolasgnyra.stagelightplanner.components.JDraggableLabel;
+import com.nicolasgnyra.stagelightplanner.components.JLight;
+import com.nicolasgnyra.stagelightplanner.components.JStageElement;
+import com.nicolasgnyra.stagelightplanner.compression.BlockCodec;
+import com.nicolasgnyra.stagelightplanner.compression.BlockCodecs;
+import com.nicolasgnyra.stagelightplanner.helpers.FileHelper;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Benchmarks Class:
+ * Measures the throughput of saving & loading large stage plans. Run with the amount of elements as the first
+ * argument (100000 by default).
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.0
+ */
+public class Benchmarks {
+
+    private static final int runs = 5;      // amount of timed runs, after one warm-up run
+
+    /**
+     * main(String[]) Method:
+     * Runs the benchmarks.
+     *
+     * Input: Command line arguments.
+     *
+     * Process: Creates a plan, then times saving, taking a snapshot of, saving again incrementally, loading & mapping
+     * it, and recording a move of every element in its edit journal, as well as the reader & writer on their own.
+     * Then compares the size & load time of the plan with & without compression.
+     *
+     * Output: Results printed to the console.
+     *
+     * @param args Command line arguments
+     * @throws Exception Thrown when a benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+
+        // get amount of elements
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+        // create plan & temporary file
+        StagePlan stagePlan = createStagePlan(count);
+        File file = File.createTempFile("benchmark", ".slpsp");
+        file.deleteOnExit();
+        EditJournal.getJournalFile(file).deleteOnExit();
+
+        // time saving & loading the plan
+        System.out.println("Stage plan with " + count + " elements:");
+        time("save", file, () -> FileHelper.saveStagePlan(stagePlan, file));
+        time("snap", file, () -> FileHelper.createStagePlanSnapshot(stagePlan));
+        time("update", file, () -> FileHelper.saveStagePlanSnapshot(FileHelper.createStagePlanSnapshot(stagePlan), file, true, progress -> { }));
+        time("load", file, () -> FileHelper.loadStagePlan(file));
+        time("map", file, () -> FileHelper.mapStagePlan(file));
+        time("journal", EditJournal.getJournalFile(file), () -> recordMoves(stagePlan, file));
+
+        // time the reader & writer with the same amount of fields as the plan, without creating components
+        System.out.println("Reader & writer, " + count + " records:");
+        time("write", file, () -> writeRecords(file, count));
+        time("read", file, () -> readRecords(file, count));
+
+        // compare plans with & without compression
+        System.out.println("Compression, " + count + " elements:");
+        compare("stored", stagePlan, file, BlockCodecs.stored);
+        compare("deflate", stagePlan, file, BlockCodecs.deflate);
+
+    }
+
+    /**
+     * compare(String, StagePlan, File, BlockCodec) Method:
+     * Saves a plan with the specified codec & times loading & mapping it.
+     *
+     * Input: Name, stage plan, target file, codec.
+     *
+     * Process: Saves the plan, prints its size, then times loading & mapping it.
+     *
+     * Output: Size & times printed to the console.
+     *
+     * @param name Name of the codec
+     * @param stagePlan Stage plan
+     * @param file Target file
+     * @param codec Codec of the sections
+     * @throws Exception Thrown when a benchmark fails
+     */
+    private static void compare(String name, StagePlan stagePlan, File file, BlockCodec codec) throws Exception {
+
+        // save plan & print its size
+        FileHelper.saveStagePlanSnapshot(FileHelper.createStagePlanSnapshot(stagePlan, codec), file, false, progress -> { });
+        System.out.printf("  %-6s %10.1f MB%n", name, file.length() / 1e6);
+
+        // time loading & mapping it
+        time("load", file, () -> FileHelper.loadStagePlan(file));
+        time("map", file, () -> FileHelper.mapStagePlan(file));
+
+    }
+
+    /**
+     * createStagePlan(int) Method:
+     * Creates a stage plan with the specified amount of elements.
+     *
+     * Input: Amount of elements.
+     *
+     * Process: Creates one batten for every ten elements & fills the rest with lights & labels.
+     *
+     * Output: Stage plan.
+     *
+     * @param count Amount of elements
+     * @return Stage plan
+     */
+    private static StagePlan createStagePlan(int count) {
+
+        // create light definitions
+        LightDefinition[] lightDefinitions = {
+                new LightDefinition("ETC Source Four 26°", "S4 26", LightShape.CIRCLE, Color.blue, 26.0f),
+                new LightDefinition("Fresnel 6\"", "FR6", LightShape.SQUARE, Color.red, 15.0f, 60.0f)
+        };
+
+        // create elements
+        ArrayList<JStageElement> stageElements = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            int x = i % 160 * 10;
+            int y = i / 160 % 120 * 10;
+
+            if (i % 10 == 0)
+                stageElements.add(new JBatten(x, y, 300, Orientation.HORIZONTAL, 400));
+            else if (i % 10 == 9)
+                stageElements.add(new JDraggableLabel(x, y, "Label " + i, Color.black, 12, "Dialog"));
+            else
+                stageElements.add(new JLight(x, y, lightDefinitions[i % 2], Color.yellow, 90, 20, 30, String.valueOf(i), 100));
+        }
+
+        return new StagePlan(stageElements);
+
+    }
+
+    /**
+     * recordMoves(StagePlan, File) Method:
+     * Records a move of every element of a plan in its edit journal.
+     *
+     * Input: Stage plan, plan file.
+     *
+     * Process: Records the moves, writes them to the disk & closes the journal.
+     *
+     * Output: None.
+     *
+     * @param stagePlan Stage plan
+     * @param file Plan file
+     * @throws IOException Thrown when an error occurs while writing.
+     */
+    private static void recordMoves(StagePlan stagePlan, File file) throws IOException {
+
+        // create journal
+        EditJournal journal = new EditJournal(EditJournal.getJournalFile(file), 0);
+
+        // record moves & write them
+        for (JStageElement stageElement : stagePlan.getStageElements())
+            journal.move(stageElement);
+
+        journal.flush();
+
+        // close journal (it's deleted on exit with the plan)
+        journal.close();
+
+    }
+
+    /**
+     * writeRecords(File, int) Method:
+     * Writes records shaped like the lights of a plan.
+     *
+     * Input: Target file, amount of records.
+     *
+     * Process: Writes coordinates, a type, a definition index, angles, a color, a string & an intensity per record.
+     *
+     * Output: Written file.
+     *
+     * @param file Target file
+     * @param count Amount of records
+     * @throws IOException Thrown when an error occurs while writing.
+     */
+    private static void writeRecords(File file, int count) throws IOException {
+
+        // create writer
+        FileStreamWriter writer = new FileStreamWriter(file);
+
+        // write records
+        for (int i = 0; i < count; i++) {
+            String connectionId = String.valueOf(i);
+
+            writer.writeInt(i);
+            writer.writeInt(i);
+            writer.write(2);
+            writer.writeInt(i % 2);
+            writer.writeFloat(30);
+            writer.write(255);
+            writer.write(255);
+            writer.write(0);
+            writer.writeFloat(90);
+            writer.writeFloat(20);
+            writer.writeUTF8String(connectionId);
+            writer.writeInt(100);
+        }
+
+        // close writer
+        writer.close();
+
+    }
+
+    /**
+     * readRecords(File, int) Method:
+     * Reads the records written by writeRecords.
+     *
+     * Input: Source file, amount of records.
+     *
+     * Process: Reads every field of every record.
+     *
+     * Output: None.
+     *
+     * @param file Source file
+     * @param count Amount of records
+     * @throws IOException Thrown when an error occurs while reading.
+     */
+    private static void readRecords(File file, int count) throws IOException {
+
+        // create reader
+        FileStreamReader reader = new FileStreamReader(file);
+
+        // read records
+        for (int i = 0; i < count; i++) {
+            reader.readInt();
+            reader.readInt();
+            reader.readByte();
+            reader.readInt();
+            reader.readFloat();
+            reader.readByte();
+            reader.readByte();
+            reader.readByte();
+            reader.readFloat();
+            reader.readFloat();
+            reader.readUTF8String();
+            reader.readInt();
+        }
+
+        // close reader
+        reader.close();
+
+    }
+
+    /**
+     * time(String, File, Benchmark) Method:
+     * Times a benchmark & prints the best run.
+     *
+     * Input: Name, file used by the benchmark, benchmark.
+     *
+     * Process: Runs the benchmark once to warm up, then keeps the fastest of the timed runs.
+     *
+     * Output: Best time & throughput printed to the console.
+     *
+     * @param name Name of the benchmark
+     * @param file File used by the benchmark (for the throughput)
+     * @param benchmark Benchmark to run
+     * @throws Exception Thrown when the benchmark fails
+     */
+    private static void time(String name, File file, Benchmark benchmark) throws Exception {
+
+        // warm up
+        benchmark.run();
+
+        // keep fastest run
+        long best = Long.MAX_VALUE;
+
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            benchmark.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        // print results
+        double milliseconds = best / 1e6;
+        System.out.printf("  %-6s %10.1f ms %10.1f MB/s%n", name, milliseconds, file.length() / 1e6 / (milliseconds / 1000));
+
+    }
+
+    /**
+     * Benchmark Interface:
+     * A benchmark that can throw exceptions.
+     *
+     * Date: 2026-10-19
+     *
+     * @author Nicolas Gnyra
+     * @version 1.0
+     */
+    private interface Benchmark {
+        void run() throws Exception;
+    }
+}
@@ -1,23 +1,59 @@
 package com.nicolasgnyra.stagelightplanner.tests;
 
+import com.nicolasgnyra.stagelightplanner.EditJournal;
+import com.nicolasgnyra.stagelightplanner.FileStreamReader;
+import com.nicolasgnyra.stagelightplanner.FileStreamWriter;
+import com.nicolasgnyra.stagelightplanner.FixtureLibrary;
+import com.nicolasgnyra.stagelightplanner.FixtureSearchIndex;
+import com.nicolasgnyra.stagelightplanner.FixtureStore;
 import com.nicolasgnyra.stagelightplanner.LightDefinition;
 import com.nicolasgnyra.stagelightplanner.LightShape;
+import com.nicolasgnyra.stagelightplanner.MappedLightDefinitions;
+import com.nicolasgnyra.stagelightplanner.MappedStagePlan;
 import com.nicolasgnyra.stagelightplanner.Orientation;
 import com.nicolasgnyra.stagelightplanner.StagePlan;
 import com.nicolasgnyra.stagelightplanner.components.JBatten;
+import com.nicolasgnyra.stagelightplanner.components.JBattenDefinition;
 import com.nicolasgnyra.stagelightplanner.components.JDraggableLabel;
+import com.nicolasgnyra.stagelightplanner.components.JFixturePalette;
+import com.nicolasgnyra.stagelightplanner.components.JPropertiesContainer;
 import com.nicolasgnyra.stagelightplanner.components.JLight;
+import com.nicolasgnyra.stagelightplanner.components.JMinimap;
 import com.nicolasgnyra.stagelightplanner.components.JStageElement;
+import com.nicolasgnyra.stagelightplanner.components.JStagePlanner;
+import com.nicolasgnyra.stagelightplanner.compression.BlockCodecs;
 import com.nicolasgnyra.stagelightplanner.exceptions.InvalidFileVersionException;
 import com.nicolasgnyra.stagelightplanner.helpers.FileHelper;
 import com.nicolasgnyra.stagelightplanner.helpers.PaintHelper;
+import com.nicolasgnyra.stagelightplanner.helpers.SectionCache;
+import com.nicolasgnyra.stagelightplanner.helpers.StagePlanSnapshot;
+import com.nicolasgnyra.stagelightplanner.rendering.BeamCompositor;
+import com.nicolasgnyra.stagelightplanner.rendering.BeamFootprint;
+import com.nicolasgnyra.stagelightplanner.rendering.BeamSpriteCache;
+import com.nicolasgnyra.stagelightplanner.rendering.LayerCache;
+import com.nicolasgnyra.stagelightplanner.windows.FixtureTableModel;
 import org.junit.Test;
 
+import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.junit.Assert.*;
 
@@ -51,6 +87,272 @@ public class UnitTests {
 
     }
 
+    @Test
+    public void beamFootprintShouldMatchConicSection() {
+
+        // straight down, the footprint is a circle of radius h * tan(field angle / 2)
+        assertRectangleEquals(new Rectangle2D.Double(-100, -100, 200, 200), BeamFootprint.get(100, 90, 0).getOutline(new AffineTransform()).getBounds2D());
+
+        // tilted, it goes from h * tan(angle - field angle / 2) to h * tan(angle + field angle / 2) and its minor axis
+        // is 2h * sin(field angle / 2) / sqrt(cos²(angle) - sin²(field angle / 2))
+        assertRectangleEquals(new Rectangle2D.Double(0, -45.509, 100, 91.018), BeamFootprint.get(100, 45, 22.5).getOutline(new AffineTransform()).getBounds2D());
+        assertRectangleEquals(new Rectangle2D.Double(130.323, -59.627, 320.748, 119.255), BeamFootprint.get(100, 25, 65).getOutline(new AffineTransform()).getBounds2D());
+
+        // the beam axis is the center of the cross-section & the edge is the unit circle
+        assertEquals(0, BeamFootprint.get(100, 25, 65).getRadiusSquared(100 * Math.tan(Math.toRadians(65)), 0), 1e-9);
+        assertEquals(1, BeamFootprint.get(100, 25, 65).getRadiusSquared(130.32253728412059, 0), 1e-9);
+
+        // beams that reach the horizon are cut at 10 times the batten height
+        assertTrue(BeamFootprint.get(100, 30, 80).getOutline(new AffineTransform()).getBounds2D().getMaxX() <= 1000 + 1e-9);
+
+    }
+
+    private static void assertRectangleEquals(Rectangle2D expected, Rectangle2D actual) {
+
+        // outlines are polygons within 0.25 px of the curve
+        assertEquals(expected.getX(), actual.getX(), 0.5);
+        assertEquals(expected.getY(), actual.getY(), 0.5);
+        assertEquals(expected.getWidth(), actual.getWidth(), 0.5);
+        assertEquals(expected.getHeight(), actual.getHeight(), 0.5);
+
+    }
+
+    @Test
+    public void movedBeamsShouldOnlyRenderTheTilesUnderTheirOldAndNewBounds() {
+
+        // paint two beams far from each other
+        BeamCompositor beamCompositor = new BeamCompositor();
+        Object movedLight = new Object();
+        BeamCompositor.Beam oldBeam = new BeamCompositor.Beam(100, 100, 30, 30, 30, 50, Color.white, 100, 0, 0);
+        BeamCompositor.Beam newBeam = new BeamCompositor.Beam(300, 120, 30, 30, 30, 50, Color.white, 100, 0, 0);
+        beamCompositor.setBeam(movedLight, oldBeam);
+        beamCompositor.setBeam(new Object(), new BeamCompositor.Beam(800, 800, 30, 30, 30, 50, Color.white, 100, 0, 0));
+
+        BufferedImage target = new BufferedImage(1024, 1024, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = target.createGraphics();
+        int firstPaint = beamCompositor.paint(g2d, new Rectangle(0, 0, 1024, 1024));
+        int unchangedPaint = beamCompositor.paint(g2d, new Rectangle(0, 0, 1024, 1024));
+
+        // move one beam & paint again
+        beamCompositor.setBeam(movedLight, newBeam);
+        int movedPaint = beamCompositor.paint(g2d, new Rectangle(0, 0, 1024, 1024));
+        g2d.dispose();
+
+        // get tiles under the old & new bounds
+        Set<Point> movedTiles = new HashSet<>();
+        int tileSize = BeamCompositor.getTileSize();
+
+        for (Rectangle bounds : new Rectangle[] { oldBeam.getBounds(), newBeam.getBounds() })
+            for (int y = bounds.y / tileSize; y <= (bounds.y + bounds.height - 1) / tileSize; y++)
+                for (int x = bounds.x / tileSize; x <= (bounds.x + bounds.width - 1) / tileSize; x++)
+                    movedTiles.add(new Point(x, y));
+
+        // assert every tile was rendered once, then none, then only the ones under the moved beam
+        assertEquals((1024 / tileSize) * (1024 / tileSize), firstPaint);
+        assertEquals(0, unchangedPaint);
+        assertEquals(movedTiles.size(), movedPaint);
+        assertTrue(movedPaint < firstPaint);
+
+    }
+
+    @Test
+    public void overlappingBeamsShouldAddUp() {
+
+        // paint a red & a green beam on top of each other, in both orders
+        int[] pixels = new int[2];
+
+        for (int order = 0; order < 2; order++) {
+            BeamCompositor beamCompositor = new BeamCompositor();
+            BeamCompositor.Beam red = new BeamCompositor.Beam(100, 100, 30, 30, 90, 50, Color.red, 100, 0, 0);
+            BeamCompositor.Beam green = new BeamCompositor.Beam(100, 100, 30, 30, 90, 50, Color.green, 100, 0, 0);
+            beamCompositor.setBeam(new Object(), order == 0 ? red : green);
+            beamCompositor.setBeam(new Object(), order == 0 ? green : red);
+
+            BufferedImage target = new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = target.createGraphics();
+            beamCompositor.paint(g2d, new Rectangle(0, 0, 256, 256));
+            g2d.dispose();
+
+            pixels[order] = target.getRGB(115, 115);
+        }
+
+        // assert the light was added into yellow at the opacity of a single beam (blending would give a greenish
+        // yellow that depends on the order & is more opaque)
+        Color mixed = new Color(pixels[0], true);
+        assertEquals(pixels[0], pixels[1]);
+        assertEquals(255, mixed.getRed());
+        assertEquals(255, mixed.getGreen());
+        assertEquals(0, mixed.getBlue());
+        assertEquals(128, mixed.getAlpha());
+
+    }
+
+    @Test
+    public void toneMappingShouldBeMonotonic() {
+
+        // paint more & more beams of increasing intensity on top of each other
+        BeamCompositor beamCompositor = new BeamCompositor();
+        BufferedImage target = new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
+        int previousAlpha = 0;
+
+        for (int i = 1; i <= 12; i++) {
+            beamCompositor.setBeam(new Object(), new BeamCompositor.Beam(100, 100, 30, 30, 90, 50, Color.white, i * 5, 0, 0));
+
+            Graphics2D g2d = target.createGraphics();
+            g2d.setComposite(AlphaComposite.Src);
+            beamCompositor.paint(g2d, new Rectangle(0, 0, 256, 256));
+            g2d.dispose();
+
+            // assert more light is always brighter, without ever becoming fully opaque
+            int alpha = new Color(target.getRGB(115, 115), true).getAlpha();
+            assertTrue(alpha > previousAlpha);
+            assertTrue(alpha < 255);
+            previousAlpha = alpha;
+        }
+
+    }
+
+    @Test
+    public void beamSpritesShouldBeCachedByFieldAngleBucketColorAndIntensity() {
+
+        // get sprites
+        BeamSpriteCache spriteCache = new BeamSpriteCache();
+        BeamSpriteCache.Sprite sprite = spriteCache.getSprite(30, Color.yellow, 80);
+
+        // assert the same sprite is used for field angles in the same bucket, & not for other characteristics
+        assertSame(sprite, spriteCache.getSprite(30, Color.yellow, 80));
+        assertSame(sprite, spriteCache.getSprite(31, Color.yellow, 80));
+        assertNotSame(sprite, spriteCache.getSprite(40, Color.yellow, 80));
+        assertNotSame(sprite, spriteCache.getSprite(30, Color.blue, 80));
+        assertNotSame(sprite, spriteCache.getSprite(30, Color.yellow, 50));
+
+    }
+
+    @Test
+    public void softEdgedBeamsShouldFallOffTowardsTheirEdge() {
+
+        // paint the same beam flat & with soft edges
+        BufferedImage[] targets = new BufferedImage[2];
+
+        for (int i = 0; i < 2; i++) {
+            BeamCompositor beamCompositor = new BeamCompositor();
+            beamCompositor.setSoftEdges(i == 1);
+            beamCompositor.setBeam(new Object(), new BeamCompositor.Beam(100, 100, 30, 30, 90, 50, Color.white, 100, 0, 0));
+
+            targets[i] = new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = targets[i].createGraphics();
+            beamCompositor.paint(g2d, new Rectangle(0, 0, 256, 256));
+            g2d.dispose();
+        }
+
+        // assert the soft beam is as bright as the flat one in its core, dimmer near its edge & dark outside of it
+        assertEquals(new Color(targets[0].getRGB(115, 115), true).getAlpha(), new Color(targets[1].getRGB(115, 115), true).getAlpha());
+        assertTrue(new Color(targets[1].getRGB(160, 115), true).getAlpha() < new Color(targets[0].getRGB(160, 115), true).getAlpha());
+        assertEquals(0, new Color(targets[1].getRGB(170, 115), true).getAlpha());
+
+    }
+
+    @Test
+    public void layerCachesShouldOnlyRepaintAfterBeingInvalidated() {
+
+        // count the times the layer is painted
+        LayerCache layerCache = new LayerCache();
+        int[] paints = { 0 };
+        Consumer<Graphics2D> painter = g2d -> paints[0]++;
+        Rectangle bounds = new Rectangle(0, 0, 2000, 2000);
+
+        BufferedImage target = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = target.createGraphics();
+
+        // paint twice & scroll a bit, which stays inside the cached margin
+        layerCache.paint(g, new Rectangle(0, 0, 100, 100), bounds, painter);
+        layerCache.paint(g, new Rectangle(0, 0, 100, 100), bounds, painter);
+        layerCache.paint(g, new Rectangle(50, 50, 100, 100), bounds, painter);
+        int paintsBeforeInvalidating = paints[0];
+
+        // invalidate & paint twice
+        layerCache.invalidate();
+        layerCache.paint(g, new Rectangle(50, 50, 100, 100), bounds, painter);
+        layerCache.paint(g, new Rectangle(50, 50, 100, 100), bounds, painter);
+        int paintsAfterInvalidating = paints[0];
+
+        // scroll outside of the cached area
+        layerCache.paint(g, new Rectangle(1000, 1000, 100, 100), bounds, painter);
+        g.dispose();
+
+        // assert the layer was only painted the first time, after being invalidated & once it had to cover a new area
+        assertEquals(1, paintsBeforeInvalidating);
+        assertEquals(2, paintsAfterInvalidating);
+        assertEquals(3, paints[0]);
+
+    }
+
+    @Test
+    public void layerCachesShouldOnlyRepaintInvalidatedRegions() {
+
+        // paint layer in red, keeping the clip of every repaint
+        LayerCache layerCache = new LayerCache();
+        ArrayList<Rectangle> clips = new ArrayList<>();
+        Color[] color = { Color.red };
+        Consumer<Graphics2D> painter = g2d -> {
+            clips.add(g2d.getClipBounds());
+            g2d.setColor(color[0]);
+            g2d.fillRect(0, 0, 1000, 1000);
+        };
+
+        BufferedImage target = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = target.createGraphics();
+        layerCache.paint(g, new Rectangle(0, 0, 100, 100), new Rectangle(0, 0, 1000, 1000), painter);
+
+        // invalidate a region & paint in blue, then paint again without invalidating anything
+        color[0] = Color.blue;
+        layerCache.invalidate(new Rectangle(10, 20, 30, 40));
+        layerCache.paint(g, new Rectangle(0, 0, 100, 100), new Rectangle(0, 0, 1000, 1000), painter);
+        layerCache.paint(g, new Rectangle(0, 0, 100, 100), new Rectangle(0, 0, 1000, 1000), painter);
+        g.dispose();
+
+        // assert the whole cached area was painted, then only the region
+        assertEquals(Arrays.asList(new Rectangle(0, 0, 356, 356), new Rectangle(10, 20, 30, 40)), clips);
+        assertEquals(Color.blue.getRGB(), target.getRGB(15, 25));
+        assertEquals(Color.red.getRGB(), target.getRGB(50, 80));
+
+    }
+
+    @Test
+    public void stringsShouldBeReadBackFromBothVersions() throws IOException {
+
+        // strings with 2, 3 & 4 byte characters
+        String[] strings = { "Source Four 26°", "Snow ☃", "Clef \uD834\uDD1E" };
+
+        // create file
+        File saveLocation = new File("test.bin");
+        FileStreamWriter writer = new FileStreamWriter(saveLocation);
+
+        // write strings in both versions (version 1 prefixed strings with their amount of UTF-16 characters)
+        for (String str : strings) {
+            writer.writeUTF8String(str);
+            writer.writeInt(str.length());
+            writer.writeString(str);
+        }
+
+        writer.close();
+
+        // read strings back
+        FileStreamReader reader = new FileStreamReader(saveLocation);
+
+        for (String str : strings) {
+            assertEquals(str, reader.readUTF8String());
+            assertEquals(str, reader.readStringOfChars(reader.readInt()));
+        }
+
+        reader.close();
+
+        // make sure we delete the file
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+    }
+
     @Test
     public void stagePlansShouldSaveAndLoadProperly() throws IOException, InvalidFileVersionException {
 
@@ -78,4 +380,1196 @@ public class UnitTests {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void version1StagePlansShouldStillLoad() throws IOException, InvalidFileVersionException {
+
+        // create elements
+        LightDefinition lightDefinition = new LightDefinition("Display name", "Label", LightShape.HEPTAGON, new Color(64, 128, 192), 35.0f, 45.0f);
+        JBatten batten = new JBatten(12, 56, 300, Orientation.VERTICAL, 350);
+        JLight light = new JLight(87, 9, lightDefinition, new Color(255, 192, 64), 22.5f, 67.5f, 40.0f, "Connection ID", 80);
+        JDraggableLabel label = new JDraggableLabel(33, 26, "Text", new Color(128, 64, 255), 24, "Comic Sans MS");
+        StagePlan stagePlan = new StagePlan(new ArrayList<>(Arrays.asList(new JStageElement[] { batten, light, label })));
+
+        // write the plan the way version 1 did (strings prefixed with their amount of UTF-16 characters)
+        File saveLocation = new File("test.slpsp");
+        FileStreamWriter writer = new FileStreamWriter(saveLocation);
+        writer.write(1);
+
+        writer.writeInt(1);
+        writeVersion1String(writer, lightDefinition.getDisplayName());
+        writeVersion1String(writer, lightDefinition.getLabel());
+        writer.writeInt(lightDefinition.getShape().ordinal());
+        writer.write(64);
+        writer.write(128);
+        writer.write(192);
+        writer.writeFloat(lightDefinition.getFieldAngle());
+        writer.writeFloat(lightDefinition.getFieldAngleMin());
+        writer.writeFloat(lightDefinition.getFieldAngleMax());
+
+        writer.writeInt(3);
+        writer.writeInt(12);
+        writer.writeInt(56);
+        writer.write(1);
+        writer.writeInt(350);
+        writer.writeInt(300);
+        writer.writeInt(Orientation.VERTICAL.ordinal());
+
+        writer.writeInt(87);
+        writer.writeInt(9);
+        writer.write(2);
+        writer.writeInt(0);
+        writer.writeFloat(40.0f);
+        writer.write(255);
+        writer.write(192);
+        writer.write(64);
+        writer.writeFloat(22.5f);
+        writer.writeFloat(67.5f);
+        writeVersion1String(writer, "Connection ID");
+        writer.writeInt(80);
+
+        writer.writeInt(33);
+        writer.writeInt(26);
+        writer.write(3);
+        writeVersion1String(writer, "Text");
+        writer.write(128);
+        writer.write(64);
+        writer.write(255);
+        writer.writeInt(24);
+        writeVersion1String(writer, "Comic Sans MS");
+        writer.close();
+
+        // load & map it
+        StagePlan loadedStagePlan = FileHelper.loadStagePlan(saveLocation);
+        MappedStagePlan mappedStagePlan = FileHelper.mapStagePlan(saveLocation);
+        ArrayList<JStageElement> mappedElements = new ArrayList<>();
+
+        for (int i = 0; i < mappedStagePlan.size(); i++)
+            mappedElements.add(mappedStagePlan.getStageElement(i));
+
+        // make sure we delete the file
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+        // assert
+        assertEquals(stagePlan, loadedStagePlan);
+        assertEquals(stagePlan, new StagePlan(mappedElements));
+
+    }
+
+    private static void writeVersion1String(FileStreamWriter writer, String str) throws IOException {
+        writer.writeInt(str.length());
+        writer.writeString(str);
+    }
+
+    @Test
+    public void mappedStagePlansShouldDecodeTheSameElements() throws IOException, InvalidFileVersionException {
+
+        // create elements
+        JBatten batten = new JBatten(12, 56, 300, Orientation.VERTICAL, 350);
+        JLight light = new JLight(87, 9, new LightDefinition("Display name", "Label", LightShape.HEPTAGON, new Color(64, 128, 192), 35.0f, 45.0f), new Color(255, 192, 64), 22.5f, 67.5f, 40.0f, "Connection ID", 80);
+        JDraggableLabel label = new JDraggableLabel(33, 26, "Text", new Color(128, 64, 255), 24, "Comic Sans MS");
+
+        // create plan
+        StagePlan stagePlan = new StagePlan(new ArrayList<>(Arrays.asList(new JStageElement[] { batten, light, label })));
+
+        // create file
+        File saveLocation = new File("test.slpsp");
+
+        // save & map file
+        FileHelper.saveStagePlan(stagePlan, saveLocation);
+        MappedStagePlan mappedStagePlan = FileHelper.mapStagePlan(saveLocation);
+
+        // check index
+        assertEquals(3, mappedStagePlan.size());
+        assertEquals(new Rectangle(12, 56, 10, 300), mappedStagePlan.getBounds(0));
+        assertEquals(new Rectangle(87, 9, 30, 30), mappedStagePlan.getBounds(1));
+        assertEquals(Arrays.asList(0), mappedStagePlan.find(new Rectangle(0, 0, 20, 100)));
+        assertEquals(Arrays.asList(1, 2), mappedStagePlan.find(new Rectangle(100, 30, 5, 5)));
+
+        // decode elements in reverse order
+        ArrayList<JStageElement> stageElements = new ArrayList<>();
+
+        for (int i = mappedStagePlan.size() - 1; i >= 0; i--)
+            stageElements.add(mappedStagePlan.getStageElement(i));
+
+        // make sure we delete the file
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+        // assert
+        assertEquals(stagePlan, new StagePlan(stageElements));
+
+    }
+
+    @Test
+    public void mappedStagePlansShouldOnlyDecodeSectionsInView() throws IOException, InvalidFileVersionException {
+
+        // save & map plan with enough lights for several sections, each a few rows below the previous one
+        LightDefinition lightDefinition = new LightDefinition("Fresnel 6\"", "FR6", LightShape.SQUARE, Color.red, 15.0f, 60.0f);
+        ArrayList<JStageElement> stageElements = new ArrayList<>();
+
+        for (int i = 0; i < 10000; i++)
+            stageElements.add(new JLight(i % 100, i / 100 * 10, lightDefinition, Color.yellow, 90, 20, 30, "Dimmer " + i, 100));
+
+        File saveLocation = new File("test.slpsp");
+        FileHelper.saveStagePlan(new StagePlan(stageElements), saveLocation);
+        MappedStagePlan mappedPlan = FileHelper.mapStagePlan(saveLocation);
+
+        // find elements in the top left corner
+        ArrayList<Integer> indices = mappedPlan.find(new Rectangle(0, 0, 5, 5));
+
+        // make sure we delete the file
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+        // assert only the first section was decoded
+        assertEquals(3, mappedPlan.getSectionCount());
+        assertEquals(10000, mappedPlan.size());
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), indices);
+        assertTrue(mappedPlan.getSection(0).isDecoded());
+        assertFalse(mappedPlan.getSection(1).isDecoded());
+        assertFalse(mappedPlan.getSection(2).isDecoded());
+
+    }
+
+    @Test
+    public void mappedStagePlansShouldBeSavedOverOnceCopiedToTheHeap() throws IOException, InvalidFileVersionException {
+
+        // save & map plan with enough lights for several sections, & decode the first section only
+        LightDefinition lightDefinition = new LightDefinition("Fresnel 6\"", "FR6", LightShape.SQUARE, Color.red, 15.0f, 60.0f);
+        ArrayList<JStageElement> stageElements = new ArrayList<>();
+
+        for (int i = 0; i < 10000; i++)
+            stageElements.add(new JLight(i % 100, i / 100 * 10, lightDefinition, Color.yellow, 90, 20, 30, "Dimmer " + i, 100));
+
+        File saveLocation = new File("test.slpsp");
+        FileHelper.saveStagePlan(new StagePlan(stageElements), saveLocation);
+        MappedStagePlan mappedPlan = FileHelper.mapStagePlan(saveLocation);
+        mappedPlan.getStageElement(0);
+
+        // copy the plan to the heap, then replace its file with a label added (not incrementally)
+        mappedPlan.copyToHeap();
+        boolean mappedAfterCopy = mappedPlan.isMapped();
+
+        JDraggableLabel label = new JDraggableLabel(10, 20, "Stage left", Color.black, 12, "Dialog");
+        BitSet mappedElements = new BitSet();
+        mappedElements.set(0, mappedPlan.size());
+
+        StagePlanSnapshot snapshot = new StagePlanSnapshot(new ArrayList<>(Collections.singletonList(label)), mappedPlan, mappedElements, new HashMap<>(), null, mappedPlan.getSectionCache());
+        FileHelper.saveStagePlanSnapshot(FileHelper.encodeStagePlanSnapshot(snapshot), saveLocation, false, progress -> { });
+
+        // decode the other sections from the copy & load the new file
+        ArrayList<JStageElement> decodedElements = new ArrayList<>();
+
+        for (int i = 0; i < mappedPlan.size(); i++)
+            decodedElements.add(mappedPlan.getStageElement(i));
+
+        StagePlan loadedStagePlan = FileHelper.loadStagePlan(saveLocation);
+
+        // make sure we delete the file
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+        // assert nothing read the mapped file anymore, the copy still has every element & the file has the label
+        assertFalse(mappedAfterCopy);
+        assertEquals(stageElements, decodedElements);
+
+        stageElements.add(label);
+        assertEquals(new StagePlan(stageElements), loadedStagePlan);
+
+    }
+
+    @Test
+    public void mappedStagePlansShouldFindTheSameElementsAsCheckingEveryElement() throws IOException, InvalidFileVersionException {
+
+        // save & map plan with battens spanning several cells, some of them at negative coordinates
+        ArrayList<JStageElement> stageElements = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++)
+            stageElements.add(new JBatten(i * 7919 % 3000 - 1000, i * 104729 % 3000 - 1000, i % 600, i % 2 == 0 ? Orientation.HORIZONTAL : Orientation.VERTICAL, 350));
+
+        File saveLocation = new File("test.slpsp");
+        FileHelper.saveStagePlan(new StagePlan(stageElements), saveLocation);
+        MappedStagePlan mappedPlan = FileHelper.mapStagePlan(saveLocation);
+
+        // make sure we delete the file
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+        // assert every area finds the elements whose bounds intersect it
+        Rectangle[] areas = { new Rectangle(-1200, -1200, 100, 100), new Rectangle(-300, 200, 700, 50), new Rectangle(255, 255, 2, 2), new Rectangle(-5000, -5000, 10000, 10000), new Rectangle(1000, 1000, 0, 0) };
+
+        for (Rectangle area : areas) {
+            ArrayList<Integer> found = mappedPlan.find(area);
+            ArrayList<Integer> expected = new ArrayList<>();
+
+            for (int i = 0; i < mappedPlan.size(); i++)
+                if (mappedPlan.getBounds(i).intersects(area))
+                    expected.add(i);
+
+            assertEquals(expected, found);
+        }
+
+    }
+
+    @Test
+    public void corruptedSectionsShouldNotLoad() throws IOException, InvalidFileVersionException {
+
+        // create plan
+        JBatten batten = new JBatten(12, 56, 300, Orientation.VERTICAL, 350);
+        JLight light = new JLight(87, 9, new LightDefinition("Display name", "Label", LightShape.HEPTAGON, new Color(64, 128, 192), 35.0f, 45.0f), new Color(255, 192, 64), 22.5f, 67.5f, 40.0f, "Connection ID", 80);
+        StagePlan stagePlan = new StagePlan(new ArrayList<>(Arrays.asList(new JStageElement[] { batten, light })));
+
+        // save it uncompressed & change a letter of the light definition's name
+        File saveLocation = new File("test.slpsp");
+        FileHelper.saveStagePlanSnapshot(FileHelper.createStagePlanSnapshot(stagePlan, BlockCodecs.stored, new FixtureLibrary()), saveLocation, false, progress -> { });
+        byte[] contents = Files.readAllBytes(saveLocation.toPath());
+        int name = new String(contents, StandardCharsets.ISO_8859_1).indexOf("Display name");
+        contents[name] = 'd';
+        Files.write(saveLocation.toPath(), contents);
+
+        // try to load it & decode the light of the mapped plan, as sections are only checked once they are decoded
+        boolean loaded = true;
+        boolean mapped = true;
+
+        try {
+            FileHelper.loadStagePlan(saveLocation);
+        } catch (IOException ex) {
+            loaded = false;
+        }
+
+        try {
+            FileHelper.mapStagePlan(saveLocation).getStageElement(1);
+        } catch (IOException ex) {
+            mapped = false;
+        }
+
+        // make sure we delete the file
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+        // assert the change was found instead of loading the wrong name
+        assertTrue(name > 0);
+        assertFalse(loaded);
+        assertFalse(mapped);
+
+    }
+
+    @Test
+    public void stagePlanSectionsShouldBeReadWithoutLoadingThePlan() throws IOException, InvalidFileVersionException {
+
+        // create elements
+        JBatten batten = new JBatten(12, 56, 300, Orientation.VERTICAL, 350);
+        JDraggableLabel label = new JDraggableLabel(33, 26, "Text", new Color(128, 64, 255), 24, "Comic Sans MS");
+
+        // create plan with a thumbnail
+        StagePlan stagePlan = new StagePlan(new ArrayList<>(Arrays.asList(new JStageElement[] { batten, label })));
+        BufferedImage thumbnail = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+        thumbnail.setRGB(5, 5, 0xFF8000);
+        stagePlan.setThumbnail(thumbnail);
+
+        // create file
+        File saveLocation = new File("test.slpsp");
+
+        // save & read sections
+        FileHelper.saveStagePlan(stagePlan, saveLocation);
+        Map<String, String> metadata = FileHelper.loadStagePlanMetadata(saveLocation);
+        BufferedImage loadedThumbnail = FileHelper.loadStagePlanThumbnail(saveLocation);
+        StagePlan loadedStagePlan = FileHelper.loadStagePlan(saveLocation);
+
+        // make sure we delete the file
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+        // assert
+        assertEquals("1", metadata.get("battens"));
+        assertEquals("0", metadata.get("lights"));
+        assertEquals("1", metadata.get("labels"));
+        assertEquals(40, loadedThumbnail.getWidth());
+        assertEquals(0xFF8000, loadedThumbnail.getRGB(5, 5) & 0xFFFFFF);
+        assertEquals(stagePlan, loadedStagePlan);
+
+    }
+
+    @Test
+    public void stagePlanSnapshotsShouldSaveLikeStagePlans() throws IOException, InvalidFileVersionException {
+
+        // create elements
+        JBatten batten = new JBatten(12, 56, 300, Orientation.VERTICAL, 350);
+        JLight light = new JLight(87, 9, new LightDefinition("Display name", "Label", LightShape.HEPTAGON, new Color(64, 128, 192), 35.0f, 45.0f), new Color(255, 192, 64), 22.5f, 67.5f, 40.0f, "Connection ID", 80);
+        JDraggableLabel label = new JDraggableLabel(33, 26, "Text", new Color(128, 64, 255), 24, "Comic Sans MS");
+
+        // create plan
+        StagePlan stagePlan = new StagePlan(new ArrayList<>(Arrays.asList(new JStageElement[] { batten, light, label })));
+
+        // create file
+        File saveLocation = new File("test.slpsp");
+
+        // take snapshot, save it twice (the snapshot must not be consumed) & load
+        ByteBuffer snapshot = FileHelper.createStagePlanSnapshot(stagePlan);
+        ArrayList<Integer> progress = new ArrayList<>();
+
+        FileHelper.saveStagePlanSnapshot(snapshot, saveLocation, false, progress::add);
+        FileHelper.saveStagePlanSnapshot(snapshot, saveLocation, false, progress::add);
+        long fileLength = saveLocation.length();
+        StagePlan loadedStagePlan = FileHelper.loadStagePlan(saveLocation);
+
+        // make sure we delete the file
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+        // assert
+        assertEquals(snapshot.remaining(), fileLength);
+        assertEquals(Integer.valueOf(100), progress.get(progress.size() - 1));
+        assertEquals(stagePlan, loadedStagePlan);
+
+    }
+
+    @Test
+    public void mappedStagePlanSnapshotsShouldCopyValuesWithoutDecoding() throws IOException, InvalidFileVersionException {
+
+        // save & map plan with enough lights for several sections
+        LightDefinition lightDefinition = new LightDefinition("Fresnel 6\"", "FR6", LightShape.SQUARE, Color.red, 15.0f, 60.0f);
+        ArrayList<JStageElement> stageElements = new ArrayList<>();
+
+        for (int i = 0; i < 5000; i++)
+            stageElements.add(new JLight(i % 100, i / 100, lightDefinition, Color.yellow, 90, 20, 30, "Dimmer " + i, 100));
+
+        File saveLocation = new File("test.slpsp");
+        FileHelper.saveStagePlan(new StagePlan(stageElements), saveLocation);
+        MappedStagePlan mappedPlan = FileHelper.mapStagePlan(saveLocation);
+
+        // change the definition of the lights, which drops their sections from the cache, & add a label
+        LightDefinition changedDefinition = lightDefinition.withFieldAngleMax(40.0f);
+        HashMap<LightDefinition, LightDefinition> replacedModels = new HashMap<>();
+        replacedModels.put(lightDefinition, changedDefinition);
+        mappedPlan.getSectionCache().invalidate(JLight.class);
+
+        JDraggableLabel label = new JDraggableLabel(10, 20, "Stage left", Color.black, 12, "Dialog");
+        BitSet mappedElements = new BitSet();
+        mappedElements.set(0, mappedPlan.size());
+
+        // take snapshot, then move the label before encoding it
+        StagePlanSnapshot snapshot = new StagePlanSnapshot(new ArrayList<>(Collections.singletonList(label)), mappedPlan, mappedElements, replacedModels, null, mappedPlan.getSectionCache());
+        label.setGridLocation(30, 40);
+        FileHelper.saveStagePlanSnapshot(FileHelper.encodeStagePlanSnapshot(snapshot), saveLocation, false, progress -> { });
+        StagePlan loadedStagePlan = FileHelper.loadStagePlan(saveLocation);
+
+        // make sure we delete the file
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+        // assert no element was created, the lights got the new definition & the label was saved where it was
+        for (int i = 0; i < mappedPlan.getSectionCount(); i++)
+            assertTrue(mappedPlan.getSection(i).isDecoded());
+
+        assertEquals(5001, loadedStagePlan.getStageElements().size());
+        assertEquals(5000, label.getId());
+
+        for (JStageElement stageElement : loadedStagePlan.getStageElements()) {
+            if (stageElement instanceof JLight) {
+                assertEquals(changedDefinition, ((JLight) stageElement).getModel());
+            } else {
+                assertEquals(10, stageElement.getGridX());
+                assertEquals(20, stageElement.getGridY());
+            }
+        }
+
+    }
+
+    @Test
+    public void incrementalSavesShouldOnlyAppendChangedSections() throws IOException, InvalidFileVersionException {
+
+        // create plan with enough battens of different sizes for several sections
+        ArrayList<JStageElement> stageElements = new ArrayList<>();
+
+        for (int i = 0; i < 10000; i++)
+            stageElements.add(new JBatten(i % 100, i / 100, i * 7919 % 1000, Orientation.HORIZONTAL, i * 104729 % 500));
+
+        StagePlan stagePlan = new StagePlan(stageElements);
+
+        // create file & save whole plan
+        File saveLocation = new File("test.slpsp");
+        FileHelper.saveStagePlan(stagePlan, saveLocation);
+        long fullLength = saveLocation.length();
+
+        // change a single batten & save incrementally
+        JBatten changedBatten = new JBatten(42, 24, 600, Orientation.VERTICAL, 200);
+        changedBatten.setId(stageElements.get(5000).getId());
+        stageElements.set(5000, changedBatten);
+        FileHelper.saveStagePlanSnapshot(FileHelper.createStagePlanSnapshot(stagePlan), saveLocation, true, progress -> { });
+        long incrementalLength = saveLocation.length();
+        StagePlan loadedStagePlan = FileHelper.loadStagePlan(saveLocation);
+
+        // make sure we delete the file & that no temporary file was left behind
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+        assertFalse(new File("test.slpsp.tmp").exists());
+
+        // assert only the section of the changed batten (and the metadata & table of contents) were appended
+        assertTrue(incrementalLength > fullLength);
+        assertTrue(incrementalLength - fullLength < fullLength / 2);
+        assertEquals(stagePlan, loadedStagePlan);
+
+    }
+
+    @Test
+    public void removedElementsShouldOnlyChangeTheirOwnSection() throws IOException, InvalidFileVersionException {
+
+        // create plan with enough battens for several sections & save it with a section cache
+        ArrayList<JStageElement> stageElements = new ArrayList<>();
+
+        for (int i = 0; i < 10000; i++)
+            stageElements.add(new JBatten(i % 100, i / 100, i * 7919 % 1000, Orientation.HORIZONTAL, i * 104729 % 500));
+
+        StagePlan stagePlan = new StagePlan(stageElements);
+        SectionCache sectionCache = new SectionCache();
+
+        File saveLocation = new File("test.slpsp");
+        FileHelper.saveStagePlanSnapshot(FileHelper.createStagePlanSnapshot(stagePlan, sectionCache), saveLocation, false, progress -> { });
+        long fullLength = saveLocation.length();
+
+        // remove the first batten, which moves every other one in the list, & save incrementally with the cache
+        sectionCache.invalidate(stageElements.remove(0));
+        FileHelper.saveStagePlanSnapshot(FileHelper.createStagePlanSnapshot(stagePlan, sectionCache), saveLocation, true, true, progress -> { });
+        long incrementalLength = saveLocation.length();
+        StagePlan loadedStagePlan = FileHelper.loadStagePlan(saveLocation);
+
+        // make sure we delete the file
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+        // assert the other battens kept their sections
+        assertTrue(incrementalLength > fullLength);
+        assertTrue(incrementalLength - fullLength < fullLength / 2);
+        assertEquals(stagePlan, loadedStagePlan);
+
+    }
+
+    @Test
+    public void changedStringsShouldOnlyChangeTheirOwnSection() throws IOException, InvalidFileVersionException {
+
+        // create plan with enough lights for several sections, each with its own connection ID
+        LightDefinition lightDefinition = new LightDefinition("Fresnel 6\"", "FR6", LightShape.SQUARE, Color.red, 15.0f, 60.0f);
+        ArrayList<JStageElement> stageElements = new ArrayList<>();
+
+        for (int i = 0; i < 10000; i++)
+            stageElements.add(new JLight(i % 100, i / 100, lightDefinition, Color.yellow, 90, 20, 30, "Dimmer " + i, 100));
+
+        StagePlan stagePlan = new StagePlan(stageElements);
+
+        // create file & save whole plan
+        File saveLocation = new File("test.slpsp");
+        FileHelper.saveStagePlan(stagePlan, saveLocation);
+        long fullLength = saveLocation.length();
+
+        // give the first light a connection ID no other light has & save incrementally
+        JLight changedLight = new JLight(0, 0, lightDefinition, Color.yellow, 90, 20, 30, "New dimmer", 100);
+        changedLight.setId(stageElements.get(0).getId());
+        stageElements.set(0, changedLight);
+        FileHelper.saveStagePlanSnapshot(FileHelper.createStagePlanSnapshot(stagePlan), saveLocation, true, progress -> { });
+        long incrementalLength = saveLocation.length();
+        StagePlan loadedStagePlan = FileHelper.loadStagePlan(saveLocation);
+
+        // make sure we delete the file
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+        // assert the sections of the other lights didn't change
+        assertTrue(incrementalLength > fullLength);
+        assertTrue(incrementalLength - fullLength < fullLength / 2);
+        assertEquals(stagePlan, loadedStagePlan);
+
+    }
+
+    @Test
+    public void editJournalsShouldRecoverUnsavedChanges() throws IOException, InvalidFileVersionException {
+
+        // create & save plan with a batten & a light
+        LightDefinition lightDefinition = new LightDefinition("Fresnel 6\"", "FR6", LightShape.SQUARE, Color.red, 15.0f, 60.0f);
+        JBatten batten = new JBatten(10, 20, 300, Orientation.HORIZONTAL, 350);
+        JLight light = new JLight(30, 40, lightDefinition, Color.yellow, 90, 20, 30, "1", 100);
+        File saveLocation = new File("test.slpsp");
+        FileHelper.saveStagePlan(new StagePlan(new ArrayList<>(Arrays.asList(batten, light))), saveLocation);
+
+        // create journal (saving gave the elements their IDs)
+        EditJournal journal = new EditJournal(EditJournal.getJournalFile(saveLocation), FileHelper.getStagePlanId(saveLocation));
+
+        // drag the light, add a label & remove the batten
+        JDraggableLabel label = new JDraggableLabel(50, 60, "Stage left", Color.black, 12, "Dialog");
+        label.setId(2);
+
+        light.setGridLocation(70, 80);
+        journal.move(light);
+        light.setGridLocation(90, 100);
+        journal.move(light);
+        journal.put(label);
+        journal.remove(batten);
+
+        // stop recording, as the instance that recorded the changes would have exited before they are recovered
+        journal.close();
+
+        // recover changes
+        EditJournal recovered = EditJournal.recover(saveLocation);
+        ArrayList<JStageElement> recoveredElements = recovered.getStageElements();
+
+        // save recovered plan, then record another change
+        StagePlan stagePlan = new StagePlan(recoveredElements);
+        ByteBuffer snapshot = FileHelper.createStagePlanSnapshot(stagePlan);
+        int planId = FileHelper.getStagePlanId(snapshot);
+        long position = recovered.checkpoint(planId);
+        FileHelper.saveStagePlanSnapshot(snapshot, saveLocation, true, progress -> { });
+
+        JDraggableLabel otherLabel = new JDraggableLabel(0, 0, "Stage right", Color.black, 12, "Dialog");
+        otherLabel.setId(3);
+        recovered.put(otherLabel);
+        recovered.flush();
+
+        // recover before the saved changes are removed from the journal, then after
+        ArrayList<JStageElement> beforeCompaction = EditJournal.recover(saveLocation).getStageElements();
+        long journalLength = EditJournal.getJournalFile(saveLocation).length();
+        recovered.compact(position, EditJournal.getJournalFile(saveLocation), planId);
+        ArrayList<JStageElement> afterCompaction = EditJournal.recover(saveLocation).getStageElements();
+        long compactedLength = EditJournal.getJournalFile(saveLocation).length();
+
+        // make sure we delete the files
+        journal.discard();
+        recovered.discard();
+
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+        assertFalse(EditJournal.getJournalFile(saveLocation).exists());
+
+        // assert the light kept its last position & the label was added in place of the batten
+        assertEquals(Arrays.asList(light, label), recoveredElements);
+        assertEquals(90, recoveredElements.get(0).getGridX());
+
+        // assert the saved plan is replayed from its checkpoint, and the journal only keeps the last change
+        assertEquals(Arrays.asList(light, label, otherLabel), beforeCompaction);
+        assertEquals(beforeCompaction, afterCompaction);
+        assertTrue(compactedLength < journalLength);
+
+    }
+
+    @Test
+    public void editJournalsShouldNotBeSharedBetweenInstances() throws IOException, InvalidFileVersionException {
+
+        // create & save plan
+        File saveLocation = new File("test.slpsp");
+        FileHelper.saveStagePlan(new StagePlan(new ArrayList<>()), saveLocation);
+        File journalFile = EditJournal.getJournalFile(saveLocation);
+        int planId = FileHelper.getStagePlanId(saveLocation);
+
+        // record a change in a journal
+        JDraggableLabel label = new JDraggableLabel(50, 60, "Stage left", Color.black, 12, "Dialog");
+        label.setId(0);
+
+        EditJournal journal = new EditJournal(journalFile, planId);
+        journal.put(label);
+        journal.flush();
+
+        boolean hadChangesWhileInUse = EditJournal.hasChanges(saveLocation);
+        long journalLength = journalFile.length();
+
+        // record another change in a second journal for the same plan, like another instance would, then drop it
+        JDraggableLabel otherLabel = new JDraggableLabel(0, 0, "Stage right", Color.black, 12, "Dialog");
+        otherLabel.setId(1);
+
+        EditJournal otherJournal = new EditJournal(journalFile, planId);
+        otherJournal.put(otherLabel);
+        otherJournal.flush();
+
+        long sharedJournalLength = journalFile.length();
+        otherJournal.discard();
+        boolean existedAfterDiscard = journalFile.exists();
+
+        // stop recording & recover
+        journal.close();
+        boolean hadChangesAfterClose = EditJournal.hasChanges(saveLocation);
+        ArrayList<JStageElement> recoveredElements = EditJournal.recover(saveLocation).getStageElements();
+
+        // make sure we delete the files
+        EditJournal.delete(saveLocation);
+
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+        // assert the live journal wasn't offered for recovery, nor written or deleted by the second journal
+        assertFalse(hadChangesWhileInUse);
+        assertEquals(journalLength, sharedJournalLength);
+        assertTrue(existedAfterDiscard);
+        assertTrue(hadChangesAfterClose);
+        assertEquals(Arrays.asList(label), recoveredElements);
+
+    }
+
+    @Test
+    public void compressedFilesShouldLoadLikeStoredFiles() throws IOException, InvalidFileVersionException {
+
+        // create plan with enough similar elements to compress well
+        LightDefinition lightDefinition = new LightDefinition("Fresnel 6\"", "FR6", LightShape.SQUARE, Color.red, 15.0f, 60.0f);
+        ArrayList<JStageElement> stageElements = new ArrayList<>();
+
+        for (int i = 0; i < 5000; i++) {
+            stageElements.add(new JBatten(i % 100, i / 100, 300, Orientation.HORIZONTAL, 350));
+            stageElements.add(new JLight(i % 100, i / 100, lightDefinition, Color.yellow, 90, 20, 30, String.valueOf(i), 100));
+        }
+
+        StagePlan stagePlan = new StagePlan(stageElements);
+        ArrayList<LightDefinition> lightDefinitions = new ArrayList<>(Arrays.asList(lightDefinition, new LightDefinition("ETC Source Four 26°", "S4 26", LightShape.CIRCLE, Color.blue, 26.0f)));
+
+        // save plan & light definitions stored & compressed
+        File storedPlan = new File("stored.slpsp");
+        File compressedPlan = new File("compressed.slpsp");
+        File storedDefinitions = new File("stored.slpfd");
+        File compressedDefinitions = new File("compressed.slpfd");
+
+        FileHelper.saveStagePlanSnapshot(FileHelper.createStagePlanSnapshot(stagePlan, BlockCodecs.stored), storedPlan, false, progress -> { });
+        FileHelper.saveStagePlanSnapshot(FileHelper.createStagePlanSnapshot(stagePlan, BlockCodecs.deflate), compressedPlan, false, progress -> { });
+        FileHelper.saveLightDefinitions(lightDefinitions, storedDefinitions, BlockCodecs.stored);
+        FileHelper.saveLightDefinitions(lightDefinitions, compressedDefinitions, BlockCodecs.deflate);
+
+        // load everything back, & decode the last element of the mapped compressed plan
+        StagePlan loadedStoredPlan = FileHelper.loadStagePlan(storedPlan);
+        StagePlan loadedCompressedPlan = FileHelper.loadStagePlan(compressedPlan);
+        MappedStagePlan mappedStagePlan = FileHelper.mapStagePlan(compressedPlan);
+        JStageElement lastElement = mappedStagePlan.getStageElement(mappedStagePlan.size() - 1);
+        ArrayList<LightDefinition> loadedStoredDefinitions = FileHelper.loadLightDefinitions(storedDefinitions);
+        ArrayList<LightDefinition> loadedCompressedDefinitions = FileHelper.loadLightDefinitions(compressedDefinitions);
+        long storedLength = storedPlan.length();
+        long compressedLength = compressedPlan.length();
+
+        // make sure we delete the files
+        for (File file : new File[] { storedPlan, compressedPlan, storedDefinitions, compressedDefinitions })
+            if (!file.delete())
+                System.out.println("Could not delete test file!");
+
+        // assert both plans load the same & the compressed one is smaller
+        assertEquals(stagePlan, loadedStoredPlan);
+        assertEquals(stagePlan, loadedCompressedPlan);
+        assertEquals(stagePlan.getStageElements().get(stageElements.size() - 1), lastElement);
+        assertTrue(compressedLength < storedLength / 2);
+
+        // assert both light definition files load the same
+        assertEquals(lightDefinitions, loadedStoredDefinitions);
+        assertEquals(lightDefinitions, loadedCompressedDefinitions);
+
+    }
+
+    @Test
+    public void loadedStagePlansShouldShareRepeatedStrings() throws IOException, InvalidFileVersionException {
+
+        // create labels & lights whose strings are equal but distinct instances
+        LightDefinition lightDefinition = new LightDefinition(new String("Fresnel 6\""), "FR6", LightShape.SQUARE, Color.red, 15.0f, 60.0f);
+        ArrayList<JStageElement> stageElements = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            stageElements.add(new JDraggableLabel(i, 0, "Label " + i, Color.black, 12, new String("Dialog")));
+            stageElements.add(new JLight(i, 10, lightDefinition, Color.yellow, 90, 20, 30, new String("Dimmer " + i % 2), 100));
+        }
+
+        StagePlan stagePlan = new StagePlan(stageElements);
+
+        // save & load file
+        File saveLocation = new File("test.slpsp");
+        FileHelper.saveStagePlan(stagePlan, saveLocation);
+        StagePlan loadedStagePlan = FileHelper.loadStagePlan(saveLocation);
+
+        // make sure we delete the file
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+        // assert equal strings were loaded as the same instance
+        assertEquals(stagePlan, loadedStagePlan);
+
+        JDraggableLabel firstLabel = null;
+        JLight firstLight = null;
+
+        for (JStageElement stageElement : loadedStagePlan.getStageElements()) {
+            if (stageElement instanceof JDraggableLabel) {
+                if (firstLabel == null)
+                    firstLabel = (JDraggableLabel) stageElement;
+
+                assertSame(firstLabel.getFontFamily(), ((JDraggableLabel) stageElement).getFontFamily());
+            } else {
+                JLight light = (JLight) stageElement;
+
+                if (firstLight == null)
+                    firstLight = light;
+
+                assertSame("Fresnel 6\"", light.getModel().getDisplayName());
+
+                if (light.getGridX() % 2 == 0)
+                    assertSame(firstLight.getConnectionId(), light.getConnectionId());
+            }
+        }
+
+    }
+
+    @Test
+    public void equalLightDefinitionsShouldBeSavedOnce() throws IOException, InvalidFileVersionException {
+
+        // create lights with copies of the same definition, like lights dropped from the palette
+        LightDefinition lightDefinition = new LightDefinition("ETC Source Four 26°", "S4 26", LightShape.CIRCLE, Color.blue, 26.0f);
+        ArrayList<JStageElement> stageElements = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++)
+            stageElements.add(new JLight(i, 0, lightDefinition.withLabel("S4 26"), Color.yellow, 90, 20, 30, String.valueOf(i), 100));
+
+        StagePlan stagePlan = new StagePlan(stageElements);
+
+        // save & load file
+        File saveLocation = new File("test.slpsp");
+        FileHelper.saveStagePlan(stagePlan, saveLocation);
+        StagePlan loadedStagePlan = FileHelper.loadStagePlan(saveLocation);
+
+        // make sure we delete the file
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+        // assert equal definitions have equal hash codes, including field angles of 0 & -0
+        assertEquals(lightDefinition.hashCode(), lightDefinition.withLabel("S4 26").hashCode());
+        assertEquals(new LightDefinition("A", "A", LightShape.SQUARE, Color.red, 0.0f).hashCode(), new LightDefinition("A", "A", LightShape.SQUARE, Color.red, -0.0f).hashCode());
+
+        // assert the plan loads the same & every light shares the one definition that was saved
+        assertEquals(stagePlan, loadedStagePlan);
+
+        LightDefinition loadedDefinition = ((JLight) loadedStagePlan.getStageElements().get(0)).getModel();
+
+        for (JStageElement stageElement : loadedStagePlan.getStageElements())
+            assertSame(loadedDefinition, ((JLight) stageElement).getModel());
+
+    }
+
+    @Test
+    public void lightsShouldShareEqualLightDefinitions() {
+
+        // create equal definitions that aren't the same instance
+        LightDefinition lightDefinition = new LightDefinition("Fresnel 6\"", "FR6", LightShape.SQUARE, Color.red, 15.0f, 60.0f);
+        LightDefinition copy = new LightDefinition("Fresnel 6\"", "FR6", LightShape.SQUARE, Color.red, 15.0f, 60.0f);
+        JLight light = new JLight(0, 0, lightDefinition, Color.yellow, 0, 0, 60, "", 100);
+        JLight otherLight = new JLight(0, 0, copy, Color.yellow, 0, 0, 60, "", 100);
+
+        // assert both lights use the same instance & that interning always returns it
+        assertSame(light.getModel(), otherLight.getModel());
+        assertSame(light.getModel(), copy.intern());
+        assertEquals(light, otherLight);
+
+        // assert changing a definition creates a new one & leaves the shared one untouched
+        LightDefinition changed = light.getModel().withFieldAngleMax(45.0f);
+        assertNotSame(light.getModel(), changed);
+        assertEquals(60.0f, light.getModel().getFieldAngleMax(), 0.0f);
+        assertEquals(45.0f, changed.getFieldAngleMax(), 0.0f);
+        assertFalse(light.equals(new JLight(0, 0, changed, Color.yellow, 0, 0, 60, "", 100)));
+
+    }
+
+    @Test
+    public void minimapsShouldOnlyRedrawChangedRegions() {
+
+        // show a planner with a batten in a minimap (the drawing pane has no size until it's laid out)
+        JBatten batten = new JBatten(400, 400, 400, Orientation.VERTICAL, 350);
+        JStagePlanner stagePlanner = new JStagePlanner(new JPropertiesContainer());
+        stagePlanner.getDrawingPane().setSize(stagePlanner.getDrawingPane().getPreferredSize());
+        stagePlanner.setStagePlan(new StagePlan(new ArrayList<>(Collections.singletonList(batten))));
+
+        JMinimap minimap = new JMinimap(stagePlanner);
+        minimap.setSize(250, 188);
+        BufferedImage before = paintComponent(minimap);
+
+        // move the batten & paint again
+        batten.setGridLocation(1000, 400);
+        BufferedImage moved = paintComponent(minimap);
+
+        // show the planner in another minimap, so the first one isn't told about changes anymore, & move the batten back
+        JMinimap otherMinimap = new JMinimap(stagePlanner);
+        otherMinimap.setSize(250, 188);
+        batten.setGridLocation(400, 400);
+        BufferedImage stale = paintComponent(minimap);
+        BufferedImage other = paintComponent(otherMinimap);
+
+        // assert the batten was redrawn where it was moved, but only in the minimap that was told about the move
+        int white = Color.white.getRGB();
+        assertTrue(before.getRGB(63, 90) != white);
+        assertEquals(white, before.getRGB(157, 90));
+        assertEquals(white, moved.getRGB(63, 90));
+        assertTrue(moved.getRGB(157, 90) != white);
+        assertEquals(white, stale.getRGB(63, 90));
+        assertTrue(stale.getRGB(157, 90) != white);
+        assertTrue(other.getRGB(63, 90) != white);
+        assertEquals(white, other.getRGB(157, 90));
+
+    }
+
+    private static BufferedImage paintComponent(JComponent component) {
+        BufferedImage image = new BufferedImage(component.getWidth(), component.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        component.paint(g2d);
+        g2d.dispose();
+        return image;
+    }
+
+    @Test
+    public void fixtureChangesShouldReachPlacedLights() throws IOException {
+
+        // create a planner with lights of two definitions
+        LightDefinition sourceFour = new LightDefinition("ETC Source Four 26°", "S4 26", LightShape.CIRCLE, Color.blue, 26.0f);
+        LightDefinition fresnel = new LightDefinition("Fresnel 6\"", "FR6", LightShape.SQUARE, Color.red, 15.0f, 60.0f);
+        ArrayList<JStageElement> stageElements = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++)
+            stageElements.add(new JLight(i * 10, 0, i % 2 == 0 ? sourceFour : fresnel, Color.yellow, 0, 0, i % 2 == 0 ? 26 : 50, String.valueOf(i), 100));
+
+        JStagePlanner stagePlanner = new JStagePlanner(new JPropertiesContainer());
+        stagePlanner.setStagePlan(new StagePlan(stageElements));
+
+        // remove a light, then change both definitions
+        stagePlanner.getDrawingPane().remove(stageElements.get(0));
+        LightDefinition changedSourceFour = sourceFour.withFieldAngle(36.0f).withDisplayColor(Color.green);
+        LightDefinition changedFresnel = fresnel.withFieldAngleMax(40.0f);
+        stagePlanner.replaceLightDefinition(sourceFour, changedSourceFour);
+        stagePlanner.replaceLightDefinition(fresnel, changedFresnel);
+
+        // assert every placed light uses its changed definition & the removed one was left alone
+        for (JStageElement stageElement : stagePlanner.getStagePlan().getStageElements()) {
+            JLight light = (JLight) stageElement;
+
+            if (light.getGridX() % 20 == 0) {
+                assertSame(changedSourceFour.intern(), light.getModel());
+                assertEquals(Color.green, light.getColor());
+                assertEquals(36.0f, light.getFieldAngle(), 0.0f);
+            } else {
+                assertSame(changedFresnel.intern(), light.getModel());
+                assertEquals(40.0f, light.getFieldAngle(), 0.0f);
+            }
+        }
+
+        assertSame(sourceFour.intern(), ((JLight) stageElements.get(0)).getModel());
+        assertTrue(stagePlanner.hasUnsavedChanges());
+
+    }
+
+    @Test
+    public void libraryFixturesShouldBeSavedAsContentHashes() throws IOException, InvalidFileVersionException {
+
+        // create a library with one of the two definitions of a plan
+        LightDefinition sourceFour = new LightDefinition("ETC Source Four 26°", "S4 26", LightShape.CIRCLE, Color.blue, 26.0f);
+        LightDefinition fresnel = new LightDefinition("Fresnel 6\"", "FR6", LightShape.SQUARE, Color.red, 15.0f, 60.0f);
+        FixtureLibrary library = new FixtureLibrary();
+        library.add(sourceFour);
+
+        ArrayList<JStageElement> stageElements = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++)
+            stageElements.add(new JLight(i, 0, i % 2 == 0 ? sourceFour : fresnel, Color.yellow, 90, 20, 30, String.valueOf(i), 100));
+
+        StagePlan stagePlan = new StagePlan(stageElements);
+
+        // save the plan with the library, & the library with the first definition replaced by a changed one
+        ByteBuffer referencing = FileHelper.createStagePlanSnapshot(stagePlan, BlockCodecs.stored, library);
+        File saveLocation = new File("test.slpsp");
+        File fixturesLocation = new File("test.slpfd");
+        FileHelper.saveStagePlanSnapshot(referencing, saveLocation, false, progress -> { });
+        FileHelper.saveLightDefinitions(new ArrayList<>(Arrays.asList(sourceFour.withFieldAngle(36.0f))), fixturesLocation, BlockCodecs.stored);
+
+        // load the plan with the library, then with the definitions of the saved library, then with an empty library,
+        // both read & mapped
+        StagePlan loadedStagePlan = FileHelper.loadStagePlan(saveLocation, library);
+        FixtureLibrary loadedLibrary = new FixtureLibrary();
+        ArrayList<LightDefinition> loadedFixtures = FileHelper.loadLightDefinitions(fixturesLocation, loadedLibrary);
+        StagePlan reloadedStagePlan = FileHelper.loadStagePlan(saveLocation, loadedLibrary);
+        StagePlan stagePlanWithoutLibrary = FileHelper.loadStagePlan(saveLocation, new FixtureLibrary());
+        MappedStagePlan mappedStagePlan = FileHelper.mapStagePlan(saveLocation, new FixtureLibrary());
+        LightDefinition mappedDefinition = ((JLight) mappedStagePlan.getStageElement(0)).getModel();
+
+        // save the mapped plan again without decoding its sections, then load it with an empty library
+        mappedStagePlan.copyToHeap();
+        BitSet mappedElements = new BitSet();
+        mappedElements.set(0, mappedStagePlan.size());
+        StagePlanSnapshot snapshot = new StagePlanSnapshot(new ArrayList<>(), mappedStagePlan, mappedElements, new HashMap<>(), null, mappedStagePlan.getSectionCache());
+        FileHelper.saveStagePlanSnapshot(FileHelper.encodeStagePlanSnapshot(snapshot, BlockCodecs.stored, library), saveLocation, false, progress -> { });
+        StagePlan resavedStagePlan = FileHelper.loadStagePlan(saveLocation, new FixtureLibrary());
+
+        // make sure we delete the files
+        for (File file : new File[] { saveLocation, fixturesLocation })
+            if (!file.delete())
+                System.out.println("Could not delete test file!");
+
+        // assert content hashes only depend on the values
+        assertEquals(sourceFour.getContentHash(), new LightDefinition("ETC Source Four 26°", "S4 26", LightShape.CIRCLE, Color.blue, 26.0f).getContentHash());
+        assertTrue(sourceFour.getContentHash() != sourceFour.withFieldAngle(36.0f).getContentHash());
+
+        // assert the plan loads the same whether the library has the definition, a changed one or nothing at all
+        assertEquals(stagePlan, loadedStagePlan);
+        assertSame(sourceFour.intern(), ((JLight) loadedStagePlan.getStageElements().get(0)).getModel());
+        assertEquals(Arrays.asList(sourceFour.withFieldAngle(36.0f)), loadedFixtures);
+        assertEquals(stagePlan, reloadedStagePlan);
+        assertEquals(stagePlan, stagePlanWithoutLibrary);
+        assertEquals(sourceFour, mappedDefinition);
+        assertEquals(stagePlan, resavedStagePlan);
+
+    }
+
+    @Test
+    public void indexedFixtureFilesShouldFindDefinitionsByName() throws IOException, InvalidFileVersionException {
+
+        // create a large library spanning several blocks, with names in no particular order & mixed case
+        ArrayList<LightDefinition> lightDefinitions = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++)
+            lightDefinitions.add(new LightDefinition((i % 3 == 0 ? "source " : i % 3 == 1 ? "Source " : "Fresnel ") + (i * 7919 % 1000), "L" + i, LightShape.CIRCLE, Color.blue, 1 + i % 90));
+
+        // save & map it
+        File saveLocation = new File("test.slpfd");
+        FileHelper.saveLightDefinitions(lightDefinitions, saveLocation, BlockCodecs.deflate);
+        MappedLightDefinitions mappedLights = FileHelper.mapLightDefinitions(saveLocation);
+
+        // assert definitions are found by name & prefix like a search through the whole list would, without decoding
+        assertEquals(lightDefinitions.size(), mappedLights.size());
+        assertEquals(123, mappedLights.find("SOURCE " + (123 * 7919 % 1000)));
+        assertEquals(-1, mappedLights.find("Source"));
+
+        ArrayList<Integer> expected = new ArrayList<>();
+        ArrayList<Integer> found = new ArrayList<>();
+
+        for (int i = 0; i < lightDefinitions.size(); i++)
+            if (lightDefinitions.get(i).getDisplayName().toLowerCase().startsWith("source 12"))
+                expected.add(i);
+
+        for (int index : mappedLights.findPrefix("Source 12"))
+            found.add(index);
+
+        found.sort(null);
+        assertEquals(expected, found);
+        assertEquals(0, mappedLights.findPrefix("Par").length);
+        assertEquals(1, mappedLights.findAll("source 0").length);
+
+        for (int i = 0; i < mappedLights.size(); i++)
+            assertFalse(mappedLights.isDecoded(i));
+
+        // assert the name index is sorted
+        for (int i = 1; i < mappedLights.size(); i++)
+            assertTrue(String.CASE_INSENSITIVE_ORDER.compare(mappedLights.getNameAt(i - 1), mappedLights.getNameAt(i)) <= 0);
+
+        // assert a library backed by the file only decodes the block of the definition it looks up
+        FixtureLibrary library = new FixtureLibrary();
+        library.setLightDefinitions(mappedLights);
+        assertTrue(library.contains(lightDefinitions.get(500)));
+        assertFalse(library.contains(lightDefinitions.get(500).withFieldAngle(91)));
+        assertTrue(mappedLights.isDecoded(500));
+        assertFalse(mappedLights.isDecoded(0));
+        assertFalse(mappedLights.isDecoded(999));
+
+        // assert definitions are decoded in any order & match the list
+        assertEquals(lightDefinitions.get(999), mappedLights.get(999));
+        assertEquals(lightDefinitions.get(500), mappedLights.asList().get(500));
+        assertEquals(lightDefinitions, mappedLights.getLightDefinitions());
+        assertSame(lightDefinitions.get(42).intern(), library.get(lightDefinitions.get(42).getContentHash()));
+
+        // make sure we delete the file
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+    }
+
+    @Test
+    public void fixturePaletteShouldOnlyPaintVisibleCells() {
+
+        // create a palette with a batten & a large library
+        JFixturePalette palette = new JFixturePalette();
+        ArrayList<LightDefinition> lightDefinitions = new ArrayList<>();
+
+        for (int i = 0; i < 10000; i++)
+            lightDefinitions.add(new LightDefinition("Source " + i, "S" + i, LightShape.CIRCLE, Color.blue, 26));
+
+        palette.setSize(280, 2000);
+        palette.addElement(new JBattenDefinition());
+        palette.setLights(lightDefinitions);
+
+        // assert cells aren't components & are laid out in 5 columns
+        assertEquals(1, palette.getComponentCount());
+        assertEquals(10001, palette.getCellCount());
+        assertEquals(5 + 2001 * 55, palette.getPreferredSize().height);
+        assertEquals(17, palette.getCellAt(new Point(5 + 2 * 55 + 10, 5 + 3 * 55 + 10)));
+        assertEquals(-1, palette.getCellAt(new Point(5 + 50 + 2, 10)));
+        assertEquals(new Rectangle(5 + 2 * 55, 5 + 3 * 55, 50, 50), palette.getCellBounds(17));
+
+        // assert tooltips come from the cells
+        assertEquals("Batten", palette.getToolTipText(new MouseEvent(palette, MouseEvent.MOUSE_MOVED, 0, 0, 10, 10, 0, false)));
+        assertEquals("Source 16", palette.getToolTipText(new MouseEvent(palette, MouseEvent.MOUSE_MOVED, 0, 0, 5 + 2 * 55 + 10, 5 + 3 * 55 + 10, 0, false)));
+
+        // paint the first rows
+        BufferedImage image = new BufferedImage(280, 200, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setClip(0, 0, 280, 200);
+        palette.paint(g2d);
+        g2d.dispose();
+
+        // assert a light was painted at the center of its cell
+        assertEquals(Color.blue.getRGB(), image.getRGB(5 + 55 + 25, 5 + 8));
+
+    }
+
+    @Test
+    public void fixtureSearchShouldMatchWordPrefixes() {
+
+        // index a large library
+        FixtureSearchIndex searchIndex = new FixtureSearchIndex();
+        ArrayList<LightDefinition> lightDefinitions = new ArrayList<>();
+
+        for (int i = 0; i < 50000; i++)
+            lightDefinitions.add(new LightDefinition((i % 2 == 0 ? "ETC Source Four " : "Fresnel ") + i, "S" + i, LightShape.CIRCLE, Color.blue, 26));
+
+        searchIndex.addAll(lightDefinitions);
+
+        // assert every word of the query must start a word of the name or label, without regard to case
+        Set<LightDefinition> results = searchIndex.search("source 1234");
+        assertEquals(6, results.size());
+        assertTrue(results.contains(lightDefinitions.get(1234)));
+        assertTrue(results.contains(lightDefinitions.get(12346)));
+        assertFalse(results.contains(lightDefinitions.get(12345)));
+        assertEquals(1, searchIndex.search("S49999").size());
+        assertEquals(0, searchIndex.search("par").size());
+        assertNull(searchIndex.search("  "));
+
+        // assert changes are reflected without rebuilding the index
+        LightDefinition changed = lightDefinitions.get(1234).withDisplayName("Par 64");
+        searchIndex.remove(lightDefinitions.get(1234));
+        searchIndex.add(changed);
+
+        assertEquals(5, searchIndex.search("source 1234").size());
+        assertEquals(Collections.singleton(changed), searchIndex.search("PAR"));
+
+        // assert a definition that was added twice stays until it's removed twice
+        searchIndex.add(changed);
+        searchIndex.remove(changed);
+        assertEquals(1, searchIndex.search("par 64").size());
+        searchIndex.remove(changed);
+        assertEquals(0, searchIndex.search("par 64").size());
+
+    }
+
+    @Test
+    public void fixtureTableShouldSortAndFilterWithoutChangingTheList() {
+
+        // create a table model over a list of definitions
+        ArrayList<LightDefinition> lightDefinitions = new ArrayList<>(Arrays.asList(
+                new LightDefinition("Source Four", "S4 26", LightShape.CIRCLE, Color.blue, 26),
+                new LightDefinition("fresnel", "F", LightShape.SQUARE, Color.red, 10, 50),
+                new LightDefinition("Source Four", "S4 19", LightShape.CIRCLE, Color.blue, 19),
+                new LightDefinition("Cyc", "C", LightShape.SQUARE, Color.green, 90)));
+        ArrayList<LightDefinition> original = new ArrayList<>(lightDefinitions);
+        FixtureTableModel tableModel = new FixtureTableModel(lightDefinitions);
+
+        // assert rows are sorted by name, without regard to case, & keep the list's order for equal names
+        assertEquals(4, tableModel.getRowCount());
+        assertEquals("Cyc", tableModel.getValueAt(0, FixtureTableModel.NAME_COLUMN));
+        assertEquals("fresnel", tableModel.getValueAt(1, FixtureTableModel.NAME_COLUMN));
+        assertEquals("10.0 - 50.0°", tableModel.getValueAt(1, FixtureTableModel.FIELD_ANGLE_COLUMN));
+        assertEquals(0, tableModel.getIndex(2));
+        assertEquals(2, tableModel.getIndex(3));
+
+        // sort by field angle, then shape first: squares by angle, then circles by angle
+        tableModel.sortBy(FixtureTableModel.FIELD_ANGLE_COLUMN);
+        tableModel.sortBy(FixtureTableModel.SHAPE_COLUMN);
+
+        int[] expected = { 2, 0, 1, 3 };
+
+        for (int row = 0; row < expected.length; row++)
+            assertEquals(expected[row], tableModel.getIndex(row));
+
+        assertEquals("Shape ▲", tableModel.getColumnName(FixtureTableModel.SHAPE_COLUMN));
+        assertEquals(original, lightDefinitions);
+
+        // filter, then change & remove definitions without rebuilding (changed definitions are kept in the filter,
+        // like the fixture editor does)
+        HashSet<LightDefinition> filter = new HashSet<>(Arrays.asList(lightDefinitions.get(0), lightDefinitions.get(3)));
+        tableModel.setFilter(filter);
+        assertEquals(2, tableModel.getRowCount());
+        assertEquals(0, tableModel.getIndex(0));
+
+        lightDefinitions.set(3, lightDefinitions.get(3).withDisplayName("Cyclorama"));
+        filter.add(lightDefinitions.get(3));
+        tableModel.fixtureUpdated(3);
+        assertEquals("Cyclorama", tableModel.getValueAt(1, FixtureTableModel.NAME_COLUMN));
+
+        // a changed sort key moves the row to its sorted place: before the other circle
+        lightDefinitions.set(3, lightDefinitions.get(3).withShape(LightShape.CIRCLE).withFieldAngle(5));
+        filter.add(lightDefinitions.get(3));
+        tableModel.fixtureUpdated(3);
+        assertEquals(0, tableModel.getRow(3));
+        assertEquals(1, tableModel.getRow(0));
+
+        lightDefinitions.remove(1);
+        tableModel.fixtureRemoved(1);
+        assertEquals(2, tableModel.getRowCount());
+        assertEquals(2, tableModel.getIndex(0));
+        assertEquals(-1, tableModel.getRow(3));
+
+        // added definitions are shown in their sorted place, only if they pass the filter
+        LightDefinition newLight = new LightDefinition("New Light", "Light", LightShape.CIRCLE, Color.black, 10);
+        lightDefinitions.add(newLight);
+        filter.add(newLight);
+        tableModel.fixtureAdded();
+        assertEquals(1, tableModel.getRow(3));
+
+        lightDefinitions.add(new LightDefinition("Other Light", "Light", LightShape.SQUARE, Color.black, 40));
+        tableModel.fixtureAdded();
+        assertEquals(3, tableModel.getRowCount());
+        assertEquals(-1, tableModel.getRow(4));
+
+        // the rows match sorting everything again
+        int[] rows = new int[tableModel.getRowCount()];
+
+        for (int row = 0; row < rows.length; row++)
+            rows[row] = tableModel.getIndex(row);
+
+        tableModel.reload();
+
+        for (int row = 0; row < rows.length; row++)
+            assertEquals(rows[row], tableModel.getIndex(row));
+
+    }
+
+    @Test
+    public void fixtureStoreShouldMergeChangesIntoOneWrite() throws Exception {
+
+        // record a few changes in a row, with a delay long enough that no write can happen before closing
+        File saveLocation = new File("test-store.slpfd");
+        FixtureStore fixtureStore = new FixtureStore(saveLocation, 60000);
+        ArrayList<LightDefinition> lightDefinitions = new ArrayList<>();
+        lightDefinitions.add(new LightDefinition("Source Four", "S", LightShape.CIRCLE, Color.blue, 26));
+
+        for (String label : new String[] { "S4", "S4 2", "S4 26" }) {
+            lightDefinitions.set(0, lightDefinitions.get(0).withLabel(label));
+            fixtureStore.markChanged(lightDefinitions);
+        }
+
+        lightDefinitions.add(new LightDefinition("Fresnel", "F", LightShape.SQUARE, Color.red, 40));
+        fixtureStore.markChanged(lightDefinitions);
+
+        // assert nothing was written yet & the changes are waiting
+        assertFalse(saveLocation.exists());
+        assertTrue(fixtureStore.hasPendingChanges());
+
+        // assert later changes to the list aren't part of the write
+        lightDefinitions.clear();
+
+        // close the store & assert the latest version was written
+        fixtureStore.close();
+        assertFalse(fixtureStore.hasPendingChanges());
+
+        ArrayList<LightDefinition> loaded = FileHelper.loadLightDefinitions(saveLocation, new FixtureLibrary());
+        assertEquals(2, loaded.size());
+        assertEquals("S4 26", loaded.get(0).getLabel());
+        assertEquals("Fresnel", loaded.get(1).getDisplayName());
+
+        // make sure we delete the file
+        if (!saveLocation.delete())
+            System.out.println("Could not delete test file!");
+
+    }
+
+}
@@ -1,17 +1,23 @@
 package com.nicolasgnyra.stagelightplanner.windows;
 
+import com.nicolasgnyra.stagelightplanner.FixtureSearchIndex;
 import com.nicolasgnyra.stagelightplanner.FormElement;
 import com.nicolasgnyra.stagelightplanner.LightDefinition;
 import com.nicolasgnyra.stagelightplanner.LightShape;
 import com.nicolasgnyra.stagelightplanner.components.JActionButton;
 import com.nicolasgnyra.stagelightplanner.components.JForm;
 import com.nicolasgnyra.stagelightplanner.components.JPreviewPane;
+import com.nicolasgnyra.stagelightplanner.components.JSearchField;
 import com.nicolasgnyra.stagelightplanner.helpers.GridBagLayoutHelper;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.ArrayList;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
 
 /**
  * FixtureEditorDialog Class:
@@ -20,21 +26,27 @@ import java.util.ArrayList;
  * Date: 2016-09-27
  *
  * @author Nicolas Gnyra
- * @version 1.0
+ * @version 1.6
  */
 class FixtureEditorDialog extends JDialog {
 
     private final JTable table;                                   // list of existing definitions
-    private final DefaultTableModel tableModel;                   // existing definitions table model
+    private final FixtureTableModel tableModel;                   // existing definitions table model
     private final ArrayList<LightDefinition> lightDefinitions;    // light of light definitions
+    private final BiConsumer<LightDefinition, LightDefinition> onUpdate;  // called with the old & new definition when a fixture changes
+    private final Runnable onChange;                              // called after any change to the list
     private final JForm form = new JForm();                       // editing form
     private final JPreviewPane previewPane = new JPreviewPane();  // preview pane
+    private final JSearchField searchField = new JSearchField(this::search);  // search box over the table
+    private final FixtureSearchIndex searchIndex = new FixtureSearchIndex();  // index of the definitions
+    private Set<LightDefinition> searchResults = null;            // definitions shown in the table (null for all)
+    private boolean movingSelection = false;                      // whether the selection follows a changed row (the form stays)
 
     /**
-     * FixtureEditorDialog(Window, ArrayList<LightDefinition>) Constructor:
+     * FixtureEditorDialog(Window, ArrayList<LightDefinition>, BiConsumer<LightDefinition, LightDefinition>, Runnable) Constructor:
      * Creates a new instance of the FixtureEditorDialog class with the specified owner.
      *
-     * Input: Owner & existing light definitions.
+     * Input: Owner, existing light definitions, fixture change listener & list change listener.
      *
      * Process: Creates the required components.
      *
@@ -42,8 +54,10 @@ class FixtureEditorDialog extends JDialog {
      *
      * @param owner Owner window
      * @param existingLights Existing lights list
+     * @param onUpdate Called with the old & new definition when a fixture changes
+     * @param onChange Called after any change to the list (fixture added, removed or changed, or list sorted)
      */
-    FixtureEditorDialog(Window owner, ArrayList<LightDefinition> existingLights) {
+    FixtureEditorDialog(Window owner, ArrayList<LightDefinition> existingLights, BiConsumer<LightDefinition, LightDefinition> onUpdate, Runnable onChange) {
 
         // call superclass constructor with specified owner & application modality type
         super(owner, ModalityType.APPLICATION_MODAL);
@@ -56,35 +70,50 @@ class FixtureEditorDialog extends JDialog {
         JPanel contentPane = new JPanel(new BorderLayout());
         JPanel leftContainer = new JPanel(new GridBagLayout());
 
-        // create table model & prevent cell editing
-        tableModel = new DefaultTableModel(new String[] { "Light" }, 0) {
-            public boolean isCellEditable(int row, int col) {
-                return false;
-            }
-        };
+        // set light definitions & change listeners & index them
+        lightDefinitions = existingLights;
+        this.onUpdate = onUpdate;
+        this.onChange = onChange;
+        searchIndex.addAll(lightDefinitions);
+
+        // create table model that reads the light definitions
+        tableModel = new FixtureTableModel(lightDefinitions);
 
-        // create table, set size, set selection mode & add selection change listener
+        // create table, set selection mode & add selection change listener
         table = new JTable(tableModel);
-        table.setPreferredSize(new Dimension(200, 300));
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         table.getSelectionModel().addListSelectionListener(e -> {
 
             // check that the selected value is final (i.e. user released mouse) & load selected fixture
-            if (!e.getValueIsAdjusting())
-                loadFixture(table.getSelectedRow());
+            if (!e.getValueIsAdjusting() && !movingSelection)
+                loadFixture(getSelectedIndex());
 
         });
 
+        // sort by a column when its header is clicked
+        table.getTableHeader().setReorderingAllowed(false);
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                sortBy(table.convertColumnIndexToModel(table.columnAtPoint(e.getPoint())));
+            }
+        });
+
+        // create scroll pane from table & set size
+        JScrollPane tableScrollPane = new JScrollPane(table);
+        tableScrollPane.setPreferredSize(new Dimension(360, 300));
+
         // create add and remove buttons
         JActionButton addButton = new JActionButton("+", e -> addNewFixture());
         JActionButton removeButton = new JActionButton("-", e -> removeSelectedFixture());
         JActionButton sortButton = new JActionButton("Sort", e -> sort());
 
-        // add table & buttons to left container
-        leftContainer.add(table, GridBagLayoutHelper.getGridBagLayoutConstraints(0, 0, GridBagConstraints.CENTER, 3, 1, 1.0f, 1.0f, true, true));
-        leftContainer.add(sortButton, GridBagLayoutHelper.getGridBagLayoutConstraints(0, 1, GridBagConstraints.WEST, 1, 1, 0, 0, false, false));
-        leftContainer.add(addButton, GridBagLayoutHelper.getGridBagLayoutConstraints(1, 1, GridBagConstraints.EAST, 1, 1, 1.0f, 0, false, false));
-        leftContainer.add(removeButton, GridBagLayoutHelper.getGridBagLayoutConstraints(2, 1, GridBagConstraints.EAST, 1, 1, 0, 0, false, false));
+        // add search box, table & buttons to left container
+        leftContainer.add(searchField, GridBagLayoutHelper.getGridBagLayoutConstraints(0, 0, GridBagConstraints.CENTER, 3, 1, 1.0f, 0, true, false));
+        leftContainer.add(tableScrollPane, GridBagLayoutHelper.getGridBagLayoutConstraints(0, 1, GridBagConstraints.CENTER, 3, 1, 1.0f, 1.0f, true, true));
+        leftContainer.add(sortButton, GridBagLayoutHelper.getGridBagLayoutConstraints(0, 2, GridBagConstraints.WEST, 1, 1, 0, 0, false, false));
+        leftContainer.add(addButton, GridBagLayoutHelper.getGridBagLayoutConstraints(1, 2, GridBagConstraints.EAST, 1, 1, 1.0f, 0, false, false));
+        leftContainer.add(removeButton, GridBagLayoutHelper.getGridBagLayoutConstraints(2, 2, GridBagConstraints.EAST, 1, 1, 0, 0, false, false));
 
         // create right container & set layout to box layout on Y axis
         JPanel rightContainer = new JPanel();
@@ -104,15 +133,11 @@ class FixtureEditorDialog extends JDialog {
         // add both containers to the content pane & add notice label
         contentPane.add(leftContainer, BorderLayout.WEST);
         contentPane.add(rightContainer, BorderLayout.CENTER);
-        contentPane.add(new JLabel("Fixture modifications will not be applied to existing plans.", JLabel.CENTER), BorderLayout.SOUTH);
+        contentPane.add(new JLabel("Fixture modifications are applied to the lights of the current plan.", JLabel.CENTER), BorderLayout.SOUTH);
 
         // set content pane
         setContentPane(contentPane);
 
-        // set light definitions & load them
-        lightDefinitions = existingLights;
-        reloadFixtureList();
-
         // set window minimum size
         setMinimumSize(new Dimension(800, 400));
 
@@ -126,39 +151,45 @@ class FixtureEditorDialog extends JDialog {
 
     /**
      * sort() Method:
-     * Sorts the fixture list by display name.
+     * Sorts the fixture list in the order shown by the table.
      *
      * Input: None.
      *
-     * Process: Uses the selection sort algorithm to sort the light definitions.
+     * Process: Sorts the light definitions with the table's comparator, then shows the list again & notifies the change
+     * listener.
      *
      * Output: Sorted fixture list.
      */
     private void sort() {
+        lightDefinitions.sort(tableModel.getComparator());
+        tableModel.reload();
+        onChange.run();
+    }
 
-        // define smallest
-        int smallest;
-
-        // iterate through all elements
-        for (int i = 0; i < lightDefinitions.size(); i++) {
-
-            // set smallest to current element
-            smallest = i;
-
-            // iterate through remaining elements, and if current element is smaller than stored smallest, update smallest value
-            for (int j = i; j < lightDefinitions.size(); j++)
-                if (lightDefinitions.get(j).getDisplayName().compareTo(lightDefinitions.get(smallest).getDisplayName()) < 0)
-                    smallest = j;
+    /**
+     * sortBy(int) Method:
+     * Sorts the table by the specified column first.
+     *
+     * Input: Column.
+     *
+     * Process: Sorts the table model, keeping the selected fixture selected, & updates the column headers.
+     *
+     * Output: Sorted table.
+     *
+     * @param column Column to sort by
+     */
+    private void sortBy(int column) {
 
-            // swap values
-            LightDefinition temp = lightDefinitions.get(i);
-            lightDefinitions.set(i, lightDefinitions.get(smallest));
-            lightDefinitions.set(smallest, temp);
+        // sort, keeping the selection
+        int index = getSelectedIndex();
+        tableModel.sortBy(column);
+        selectFixture(index);
 
-        }
+        // update headers
+        for (int i = 0; i < table.getColumnCount(); i++)
+            table.getColumnModel().getColumn(i).setHeaderValue(tableModel.getColumnName(table.convertColumnIndexToModel(i)));
 
-        // reload fixtures list
-        reloadFixtureList();
+        table.getTableHeader().repaint();
 
     }
 
@@ -180,7 +211,7 @@ class FixtureEditorDialog extends JDialog {
         form.empty();
 
         // check the row exists; if not, clear the preview pane
-        if (index >= table.getRowCount() || index < 0) {
+        if (index >= lightDefinitions.size() || index < 0) {
             previewPane.setLightDefinition(null);
             return;
         }
@@ -191,22 +222,19 @@ class FixtureEditorDialog extends JDialog {
         // set preview pane definition to selection
         previewPane.setLightDefinition(selection);
 
-        // add name text field & set update listener to update name in list as well as update fixture definition
-        form.addTextField("Name:", selection.getDisplayName(), value -> {
-            selection.setDisplayName(value);
-            updateFixtureNameInList(index, value);
-        });
+        // add name text field & set update listener to update fixture definition
+        form.addTextField("Name:", selection.getDisplayName(), value -> updateFixture(index, lightDefinition -> lightDefinition.withDisplayName(value)));
 
         // add label, color, and shape fields
-        form.addTextField("Label:", selection.getLabel(), selection::setLabel);
-        form.addColorField("Display Color:", selection.getDisplayColor(), selection::setDisplayColor);
-        form.addComboBoxField("Shape:", new String[] { "Circle", "Square", "Triangle", "Diamond", "Pentagon", "Hexagon", "Heptagon", "Octagon", "Nonagon", "Decagon" }, new LightShape[] { LightShape.CIRCLE, LightShape.SQUARE, LightShape.TRIANGLE, LightShape.DIAMOND, LightShape.PENTAGON, LightShape.HEXAGON, LightShape.HEPTAGON, LightShape.OCTAGON, LightShape.NONAGON, LightShape.DECAGON }, selection.getShape(), selection::setShape);
+        form.addTextField("Label:", selection.getLabel(), value -> updateFixture(index, lightDefinition -> lightDefinition.withLabel(value)));
+        form.addColorField("Display Color:", selection.getDisplayColor(), value -> updateFixture(index, lightDefinition -> lightDefinition.withDisplayColor(value)));
+        form.addComboBoxField("Shape:", new String[] { "Circle", "Square", "Triangle", "Diamond", "Pentagon", "Hexagon", "Heptagon", "Octagon", "Nonagon", "Decagon" }, new LightShape[] { LightShape.CIRCLE, LightShape.SQUARE, LightShape.TRIANGLE, LightShape.DIAMOND, LightShape.PENTAGON, LightShape.HEXAGON, LightShape.HEPTAGON, LightShape.OCTAGON, LightShape.NONAGON, LightShape.DECAGON }, selection.getShape(), value -> updateFixture(index, lightDefinition -> lightDefinition.withShape(value)));
 
         // add check box & spinners for field angles
         FormElement<JCheckBox> checkBox = form.addCheckBoxField("Field angle is a range", selection.isFieldAngleRange(), value -> {});
-        FormElement<JSpinner> fieldAngleSpinner = form.addNumberField("Field Angle:", selection.getFieldAngle(), value -> selection.setFieldAngle(value.floatValue()), 0, 90, 0.1, 1);
-        FormElement<JSpinner> fieldAngleMinSpinner = form.addNumberField("Field Angle (min):", selection.getFieldAngleMin(), value -> selection.setFieldAngleMin(value.floatValue()), 0, 90, 0.1, 1);
-        FormElement<JSpinner> fieldAngleMaxSpinner = form.addNumberField("Field Angle (max):", selection.getFieldAngleMax(), value -> selection.setFieldAngleMax(value.floatValue()), 0, 90, 0.1, 1);
+        FormElement<JSpinner> fieldAngleSpinner = form.addNumberField("Field Angle:", selection.getFieldAngle(), value -> updateFixture(index, lightDefinition -> lightDefinition.withFieldAngle(value.floatValue())), 0, 90, 0.1, 1);
+        FormElement<JSpinner> fieldAngleMinSpinner = form.addNumberField("Field Angle (min):", selection.getFieldAngleMin(), value -> updateFixture(index, lightDefinition -> lightDefinition.withFieldAngleMin(value.floatValue())), 0, 90, 0.1, 1);
+        FormElement<JSpinner> fieldAngleMaxSpinner = form.addNumberField("Field Angle (max):", selection.getFieldAngleMax(), value -> updateFixture(index, lightDefinition -> lightDefinition.withFieldAngleMax(value.floatValue())), 0, 90, 0.1, 1);
 
         // add listener to check box
         checkBox.getComponent().addActionListener(e -> {
@@ -278,7 +306,7 @@ class FixtureEditorDialog extends JDialog {
      */
     private void addNewFixture() {
         addFixtureToList(new LightDefinition("New Light", "Light", LightShape.SQUARE, Color.black, 40.0f));
-        table.setRowSelectionInterval(lightDefinitions.size() - 1, lightDefinitions.size() - 1);
+        selectFixture(lightDefinitions.size() - 1);
     }
 
     /**
@@ -287,37 +315,72 @@ class FixtureEditorDialog extends JDialog {
      *
      * Input: None.
      *
-     * Process: Gets the current selected index in the JTable, and removes the fixture at that index from the list.
+     * Process: Gets the index of the fixture selected in the JTable, and removes the fixture at that index from the list.
      *
      * Output: Removed fixture.
      */
     private void removeSelectedFixture() {
-        int index = table.getSelectedRow();
-        removeFixtureFromList(index);
+        int index = getSelectedIndex();
+
+        if (index != -1)
+            removeFixtureFromList(index);
     }
 
     /**
-     * reloadFixtureList() Method:
-     * Completely empties and (re)loads the fixture list.
+     * getSelectedIndex() Method:
+     * Gets the index in the list of the fixture selected in the JTable.
      *
      * Input: None.
      *
-     * Process: Empties and fills the JTable with the list of light definitions.
+     * Process: Converts the selected row of the table, which may be filtered, to an index in the list.
+     *
+     * Output: Index of the selected fixture (-1 if there is none).
      *
-     * Output: Fixture names in the list.
+     * @return Index of the selected fixture (-1 if there is none)
      */
-    private void reloadFixtureList() {
-
-        // clear rows
-        tableModel.setNumRows(0);
-
-        // itereate through light definitions and add them to the JTable
-        for (LightDefinition lightDefinition : lightDefinitions)
-            tableModel.addRow(new String[] { lightDefinition.getDisplayName() });
+    private int getSelectedIndex() {
+        int row = table.getSelectedRow();
+        return row == -1 ? -1 : tableModel.getIndex(row);
+    }
 
-        // tell the table data was changed
-        tableModel.fireTableDataChanged();
+    /**
+     * selectFixture(int) Method:
+     * Selects a fixture of the list in the JTable.
+     *
+     * Input: Index of the fixture in the list.
+     *
+     * Process: Finds the row of the fixture & selects it, or clears the selection if it isn't shown.
+     *
+     * Output: Selected fixture.
+     *
+     * @param index Index of the fixture in the list (-1 for none)
+     */
+    private void selectFixture(int index) {
+        int row = index == -1 ? -1 : tableModel.getRow(index);
+
+        if (row == -1) {
+            table.clearSelection();
+        } else {
+            table.setRowSelectionInterval(row, row);
+            table.scrollRectToVisible(table.getCellRect(row, 0, true));
+        }
+    }
 
+    /**
+     * search(String) Method:
+     * Shows the fixtures that match a query in the JTable.
+     *
+     * Input: Query.
+     *
+     * Process: Searches the index & filters the rows of the table with the results, without sorting them again.
+     *
+     * Output: Filtered table.
+     *
+     * @param query Query (every fixture is shown if it's empty)
+     */
+    private void search(String query) {
+        searchResults = searchIndex.search(query);
+        tableModel.setFilter(searchResults);
     }
 
     /**
@@ -326,7 +389,8 @@ class FixtureEditorDialog extends JDialog {
      *
      * Input: Light definition to add to the list.
      *
-     * Process: Adds the light definition to the list and adds a row to the JTable.
+     * Process: Adds the light definition to the list & the search results, adds a row to the JTable and notifies the
+     * change listener.
      *
      * Output: Specified fixture added to list.
      *
@@ -334,14 +398,16 @@ class FixtureEditorDialog extends JDialog {
      */
     private void addFixtureToList(LightDefinition lightDefinition) {
 
-        // add definition
+        // add definition, showing it even if it doesn't match the search
         lightDefinitions.add(lightDefinition);
+        searchIndex.add(lightDefinition);
 
-        // add row
-        tableModel.addRow(new String[] { lightDefinition.getDisplayName() });
+        if (searchResults != null)
+            searchResults.add(lightDefinition);
 
-        // tell model row was inserted
-        tableModel.fireTableRowsInserted(lightDefinitions.size() - 1, lightDefinitions.size() - 1);
+        // add row & notify listener
+        tableModel.fixtureAdded();
+        onChange.run();
 
     }
 
@@ -351,7 +417,7 @@ class FixtureEditorDialog extends JDialog {
      *
      * Input: Index at which to remove the definition.
      *
-     * Process: Removes the light definition and the row at that index.
+     * Process: Removes the light definition and the row at that index and notifies the change listener.
      *
      * Output: Removed fixture.
      *
@@ -360,34 +426,52 @@ class FixtureEditorDialog extends JDialog {
     private void removeFixtureFromList(int index) {
 
         // remove definition
-        lightDefinitions.remove(index);
+        searchIndex.remove(lightDefinitions.remove(index));
 
-        // remove row & tell model row was deleted
-        tableModel.removeRow(index);
-        tableModel.fireTableRowsDeleted(index, index);
+        // remove row & notify listener
+        tableModel.fixtureRemoved(index);
+        onChange.run();
 
     }
 
     /**
-     * updateFixtureNameInList(int, String) Method:
-     * Replaces the name of the fixture at the specified index with the specified string.
+     * updateFixture(int, UnaryOperator<LightDefinition>) Method:
+     * Replaces the fixture at the specified index with a changed copy.
      *
-     * Input: Index to update, replacement name.
+     * Input: Index to update, change to apply.
      *
-     * Process: sets the value of the row at the specified index to the specified string.
+     * Process: Applies the change to the definition at the specified index, puts the result in the list in its place,
+     * updates its row & shows it in the preview pane. Definitions are immutable, so the update listener is given both
+     * versions to update the lights that use the old one. The change listener is notified too.
      *
-     * Output: Updated name in fixture list.
+     * Output: Updated fixture.
      *
      * @param index Index to update.
-     * @param name Replacement name.
+     * @param change Change to apply.
      */
-    private void updateFixtureNameInList(int index, String name) {
-
-        // set value at specified index
-        tableModel.setValueAt(name, index, 0);
-
-        // tell table model row was updated
-        tableModel.fireTableRowsUpdated(index, index);
+    private void updateFixture(int index, UnaryOperator<LightDefinition> change) {
+
+        // replace definition & notify listener
+        LightDefinition oldLightDefinition = lightDefinitions.get(index);
+        LightDefinition lightDefinition = change.apply(oldLightDefinition);
+        lightDefinitions.set(index, lightDefinition);
+        onUpdate.accept(oldLightDefinition, lightDefinition);
+        onChange.run();
+
+        // reindex it, keeping it in the search results while it's being edited
+        searchIndex.remove(oldLightDefinition);
+        searchIndex.add(lightDefinition);
+
+        if (searchResults != null)
+            searchResults.add(lightDefinition);
+
+        // update its row, keeping it selected if it moved without reloading the form that changed it, & show it in the
+        // preview pane
+        tableModel.fixtureUpdated(index);
+        movingSelection = true;
+        selectFixture(index);
+        movingSelection = false;
+        previewPane.setLightDefinition(lightDefinition);
 
     }
 }
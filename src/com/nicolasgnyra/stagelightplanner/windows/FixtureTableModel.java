@@ -0,0 +1,522 @@
+package com.nicolasgnyra.stagelightplanner.windows;
+
+import com.nicolasgnyra.stagelightplanner.LightDefinition;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * FixtureTableModel Class:
+ * Table model that reads a list of light definitions directly. Rows are shown through a permutation of the list's
+ * indices, sorted by one or more columns & filtered by a set of definitions, so sorting or filtering never changes or
+ * copies the list. Added & changed definitions are put in their sorted place with a binary search, without sorting
+ * again.
+ *
+ * Date: 2026-10-19
+ *
+ * @author Nicolas Gnyra
+ * @version 1.1
+ */
+public class FixtureTableModel extends AbstractTableModel {
+
+    public static final int NAME_COLUMN = 0;        // display name column
+    public static final int LABEL_COLUMN = 1;       // label column
+    public static final int SHAPE_COLUMN = 2;       // shape column
+    public static final int FIELD_ANGLE_COLUMN = 3; // field angle column
+
+    private static final String[] columnNames = { "Name", "Label", "Shape", "Field Angle" };    // column names
+
+    private final List<LightDefinition> lightDefinitions;                       // light definitions, read directly
+    private final ArrayList<RowSorter.SortKey> sortKeys = new ArrayList<>();    // columns to sort by, most important first
+    private Comparator<LightDefinition> comparator;                             // orders definitions by the sort keys
+    private int[] order = new int[0];                                           // every index of the list, in sorted order
+    private int[] rows = new int[0];                                            // indices of the rows that pass the filter
+    private int rowCount = 0;                                                   // amount of rows that pass the filter
+    private Set<LightDefinition> filter = null;                                 // definitions to show (null for all)
+
+    /**
+     * FixtureTableModel(List<LightDefinition>) Constructor:
+     * Creates a new instance of the FixtureTableModel class that shows the specified list.
+     *
+     * Input: Light definitions.
+     *
+     * Process: Sets values, sorts by name & shows every definition.
+     *
+     * Output: A new instance of the FixtureTableModel class.
+     *
+     * @param lightDefinitions Light definitions to show
+     */
+    public FixtureTableModel(List<LightDefinition> lightDefinitions) {
+        this.lightDefinitions = lightDefinitions;
+        sortKeys.add(new RowSorter.SortKey(NAME_COLUMN, SortOrder.ASCENDING));
+        reload();
+    }
+
+    /**
+     * reload() Method:
+     * Shows the list again after it was changed as a whole.
+     *
+     * Input: None.
+     *
+     * Process: Sorts every index of the list & filters them.
+     *
+     * Output: Table data changed.
+     */
+    public void reload() {
+
+        // sort indices
+        Integer[] indices = new Integer[lightDefinitions.size()];
+
+        for (int i = 0; i < indices.length; i++)
+            indices[i] = i;
+
+        comparator = getComparator();
+        Arrays.sort(indices, this::compareIndices);
+
+        order = new int[indices.length];
+
+        for (int i = 0; i < indices.length; i++)
+            order[i] = indices[i];
+
+        // filter them
+        applyFilter();
+
+    }
+
+    /**
+     * compareIndices(int, int) Method:
+     * Compares two indices of the list by the sort keys.
+     *
+     * Input: Indices.
+     *
+     * Process: Compares their definitions, then the indices themselves so equal definitions keep the list's order.
+     *
+     * Output: Negative, zero or positive if the first index comes before, is or comes after the second.
+     *
+     * @param a First index
+     * @param b Second index
+     * @return Negative, zero or positive if the first index comes before, is or comes after the second
+     */
+    private int compareIndices(int a, int b) {
+        int result = comparator.compare(lightDefinitions.get(a), lightDefinitions.get(b));
+        return result != 0 ? result : Integer.compare(a, b);
+    }
+
+    /**
+     * findPosition(int[], int, int) Method:
+     * Finds where an index goes in sorted indices.
+     *
+     * Input: Sorted indices, amount of indices used, index to place.
+     *
+     * Process: Binary searches the indices with the sort keys.
+     *
+     * Output: Position at which to insert the index.
+     *
+     * @param indices Sorted indices
+     * @param length Amount of indices used
+     * @param index Index to place
+     * @return Position at which to insert the index
+     */
+    private int findPosition(int[] indices, int length, int index) {
+        int low = 0;
+        int high = length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (compareIndices(indices[middle], index) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        return low;
+    }
+
+    /**
+     * insertIndex(int[], int, int, int) Method:
+     * Inserts an index in an array of indices.
+     *
+     * Input: Indices, amount of indices used, position, index to insert.
+     *
+     * Process: Grows the array if it's full & shifts the indices after the position up by one.
+     *
+     * Output: Array of indices with the index (the same one if it had room).
+     *
+     * @param indices Indices
+     * @param length Amount of indices used
+     * @param position Position at which to insert the index
+     * @param index Index to insert
+     * @return Array of indices with the index
+     */
+    private static int[] insertIndex(int[] indices, int length, int position, int index) {
+        if (length == indices.length)
+            indices = Arrays.copyOf(indices, Math.max(16, length * 2));
+
+        System.arraycopy(indices, position, indices, position + 1, length - position);
+        indices[position] = index;
+        return indices;
+    }
+
+    /**
+     * passesFilter(int) Method:
+     * Checks whether a definition of the list is shown.
+     *
+     * Input: Index of the definition in the list.
+     *
+     * Process: Checks whether there is no filter or the filter contains the definition.
+     *
+     * Output: Whether the definition passes the filter.
+     *
+     * @param index Index of the definition in the list
+     * @return Whether the definition passes the filter
+     */
+    private boolean passesFilter(int index) {
+        return filter == null || filter.contains(lightDefinitions.get(index));
+    }
+
+    /**
+     * sortBy(int) Method:
+     * Sorts the rows by the specified column first, keeping the previous columns as the next sort keys.
+     *
+     * Input: Column.
+     *
+     * Process: Reverses the order of the column if it already is the first key, otherwise moves it to the front in
+     * ascending order, then sorts again.
+     *
+     * Output: Table data changed.
+     *
+     * @param column Column to sort by
+     */
+    public void sortBy(int column) {
+
+        // update keys
+        SortOrder sortOrder = SortOrder.ASCENDING;
+
+        if (sortKeys.get(0).getColumn() == column && sortKeys.get(0).getSortOrder() == SortOrder.ASCENDING)
+            sortOrder = SortOrder.DESCENDING;
+
+        sortKeys.removeIf(key -> key.getColumn() == column);
+        sortKeys.add(0, new RowSorter.SortKey(column, sortOrder));
+
+        // sort
+        reload();
+
+    }
+
+    /**
+     * setFilter(Set<LightDefinition>) Method:
+     * Sets which light definitions are shown.
+     *
+     * Input: Light definitions to show (null for all).
+     *
+     * Process: Goes through the indices in sorted order once to keep the ones in the filter, without sorting again.
+     *
+     * Output: Table data changed.
+     *
+     * @param filter Light definitions to show (null for all)
+     */
+    public void setFilter(Set<LightDefinition> filter) {
+        this.filter = filter;
+        applyFilter();
+    }
+
+    /**
+     * applyFilter() Method:
+     * Keeps the indices whose definition passes the filter.
+     *
+     * Input: None.
+     *
+     * Process: Goes through the indices in sorted order & copies the ones that pass the filter to the rows.
+     *
+     * Output: Table data changed.
+     */
+    private void applyFilter() {
+
+        // keep indices that pass the filter
+        rows = new int[order.length];
+        rowCount = 0;
+
+        for (int index : order)
+            if (passesFilter(index))
+                rows[rowCount++] = index;
+
+        // tell the table
+        fireTableDataChanged();
+
+    }
+
+    /**
+     * fixtureAdded() Method:
+     * Shows the definition that was added at the end of the list.
+     *
+     * Input: None.
+     *
+     * Process: Inserts its index in sorted order, then inserts a row for it in its sorted place if it passes the
+     * filter.
+     *
+     * Output: Row inserted.
+     */
+    public void fixtureAdded() {
+        int index = lightDefinitions.size() - 1;
+
+        // add index
+        int position = findPosition(order, order.length, index);
+        order = Arrays.copyOf(order, order.length + 1);
+        System.arraycopy(order, position, order, position + 1, order.length - position - 1);
+        order[position] = index;
+
+        // add row
+        if (!passesFilter(index))
+            return;
+
+        int row = findPosition(rows, rowCount, index);
+        rows = insertIndex(rows, rowCount++, row, index);
+        fireTableRowsInserted(row, row);
+    }
+
+    /**
+     * fixtureRemoved(int) Method:
+     * Removes the row of a definition that was removed from the list.
+     *
+     * Input: Index the definition had in the list.
+     *
+     * Process: Removes the index & shifts the indices that come after it down by one, in the order & the rows.
+     *
+     * Output: Row deleted.
+     *
+     * @param index Index the definition had in the list
+     */
+    public void fixtureRemoved(int index) {
+
+        // remove from order
+        order = removeIndex(order, order.length, index);
+
+        // remove from rows
+        int row = getRow(index);
+        rows = removeIndex(rows, rowCount, index);
+        rowCount = rows.length;
+
+        if (row != -1)
+            fireTableRowsDeleted(row, row);
+
+    }
+
+    /**
+     * removeIndex(int[], int, int) Method:
+     * Removes an index from an array of indices & shifts the indices that come after it down by one.
+     *
+     * Input: Indices, amount of indices used, index to remove.
+     *
+     * Process: Copies every other index, decrementing the ones that are bigger than the removed index.
+     *
+     * Output: New array of indices, as long as the amount of indices left.
+     *
+     * @param indices Indices
+     * @param length Amount of indices used
+     * @param index Index to remove
+     * @return New array of indices
+     */
+    private static int[] removeIndex(int[] indices, int length, int index) {
+        int[] result = new int[length];
+        int count = 0;
+
+        for (int i = 0; i < length; i++)
+            if (indices[i] != index)
+                result[count++] = indices[i] > index ? indices[i] - 1 : indices[i];
+
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * fixtureUpdated(int) Method:
+     * Shows the changes to a definition of the list.
+     *
+     * Input: Index of the definition in the list.
+     *
+     * Process: Takes the index out of the order & the rows, then inserts it back in its sorted place, in the rows only
+     * if it still passes the filter. Tells the table which rows changed, so a row that moved keeps its selection state
+     * in place (the selection has to be moved by the caller).
+     *
+     * Output: Rows updated, inserted or deleted.
+     *
+     * @param index Index of the definition in the list
+     */
+    public void fixtureUpdated(int index) {
+
+        // move index in the order
+        int position = 0;
+
+        while (order[position] != index)
+            position++;
+
+        System.arraycopy(order, position + 1, order, position, order.length - position - 1);
+        order = insertIndex(order, order.length - 1, findPosition(order, order.length - 1, index), index);
+
+        // move row
+        int oldRow = getRow(index);
+
+        if (oldRow != -1)
+            System.arraycopy(rows, oldRow + 1, rows, oldRow, --rowCount - oldRow);
+
+        int newRow = -1;
+
+        if (passesFilter(index)) {
+            newRow = findPosition(rows, rowCount, index);
+            rows = insertIndex(rows, rowCount++, newRow, index);
+        }
+
+        // tell the table
+        if (oldRow == -1 && newRow != -1)
+            fireTableRowsInserted(newRow, newRow);
+        else if (oldRow != -1 && newRow == -1)
+            fireTableRowsDeleted(oldRow, oldRow);
+        else if (oldRow != -1)
+            fireTableRowsUpdated(Math.min(oldRow, newRow), Math.max(oldRow, newRow));
+
+    }
+
+    /**
+     * getRow(int) Method:
+     * Gets the row that shows a definition of the list.
+     *
+     * Input: Index of the definition in the list.
+     *
+     * Process: Looks for the index in the rows.
+     *
+     * Output: Row (-1 if the definition isn't shown).
+     *
+     * @param index Index of the definition in the list
+     * @return Row (-1 if the definition isn't shown)
+     */
+    public int getRow(int index) {
+        for (int row = 0; row < rowCount; row++)
+            if (rows[row] == index)
+                return row;
+
+        return -1;
+    }
+
+    /**
+     * getComparator() Method:
+     * Gets a comparator that orders light definitions by the sort keys.
+     *
+     * Input: None.
+     *
+     * Process: Chains the comparator of each sort key's column, reversed for descending keys.
+     *
+     * Output: Comparator.
+     *
+     * @return Comparator
+     */
+    public Comparator<LightDefinition> getComparator() {
+        Comparator<LightDefinition> comparator = null;
+
+        for (RowSorter.SortKey sortKey : sortKeys) {
+            Comparator<LightDefinition> keyComparator = getColumnComparator(sortKey.getColumn());
+
+            if (sortKey.getSortOrder() == SortOrder.DESCENDING)
+                keyComparator = keyComparator.reversed();
+
+            comparator = comparator == null ? keyComparator : comparator.thenComparing(keyComparator);
+        }
+
+        return comparator;
+    }
+
+    /**
+     * getColumnComparator(int) Method:
+     * Gets a comparator that orders light definitions by a column.
+     *
+     * Input: Column.
+     *
+     * Process: Compares names & labels without regard to case, shapes in the order of LightShape (by amount of sides),
+     * and field angles by their (minimum) value.
+     *
+     * Output: Comparator.
+     *
+     * @param column Column
+     * @return Comparator
+     */
+    private static Comparator<LightDefinition> getColumnComparator(int column) {
+        switch (column) {
+            case NAME_COLUMN:
+                return Comparator.comparing(LightDefinition::getDisplayName, String.CASE_INSENSITIVE_ORDER);
+            case LABEL_COLUMN:
+                return Comparator.comparing(LightDefinition::getLabel, String.CASE_INSENSITIVE_ORDER);
+            case SHAPE_COLUMN:
+                return Comparator.comparing(LightDefinition::getShape);
+            default:
+                return Comparator.comparingDouble(lightDefinition -> lightDefinition.isFieldAngleRange() ? lightDefinition.getFieldAngleMin() : lightDefinition.getFieldAngle());
+        }
+    }
+
+    /**
+     * getValueAt(int, int) Method:
+     * Gets the value of a cell.
+     *
+     * Input: Row & column.
+     *
+     * Process: Reads the definition of the row from the list & gets the value of the column.
+     *
+     * Output: Value of the cell.
+     *
+     * @param row Row
+     * @param column Column
+     * @return Value of the cell
+     */
+    @Override
+    public Object getValueAt(int row, int column) {
+        LightDefinition lightDefinition = lightDefinitions.get(rows[row]);
+
+        switch (column) {
+            case NAME_COLUMN:
+                return lightDefinition.getDisplayName();
+            case LABEL_COLUMN:
+                return lightDefinition.getLabel();
+            case SHAPE_COLUMN:
+                String shape = lightDefinition.getShape().name();
+                return shape.charAt(0) + shape.substring(1).toLowerCase();
+            default:
+                return (lightDefinition.isFieldAngleRange() ? lightDefinition.getFieldAngleMin() + " - " + lightDefinition.getFieldAngleMax() : lightDefinition.getFieldAngle()) + "°";
+        }
+    }
+
+    /**
+     * getColumnName(int) Method:
+     * Gets the header of a column.
+     *
+     * Input: Column.
+     *
+     * Process: Adds an arrow to the name of the column the rows are sorted by first.
+     *
+     * Output: Header of the column.
+     *
+     * @param column Column
+     * @return Header of the column
+     */
+    @Override
+    public String getColumnName(int column) {
+        RowSorter.SortKey sortKey = sortKeys.get(0);
+        return columnNames[column] + (sortKey.getColumn() != column ? "" : sortKey.getSortOrder() == SortOrder.ASCENDING ? " ▲" : " ▼");
+    }
+
+    public int getIndex(int row) {
+        return rows[row];
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+}
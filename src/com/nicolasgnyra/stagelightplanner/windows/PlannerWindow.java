@@ -1,10 +1,16 @@
 package com.nicolasgnyra.stagelightplanner.windows;
 
+import com.nicolasgnyra.stagelightplanner.EditJournal;
+import com.nicolasgnyra.stagelightplanner.FixtureLibrary;
+import com.nicolasgnyra.stagelightplanner.FixtureStore;
 import com.nicolasgnyra.stagelightplanner.LightDefinition;
+import com.nicolasgnyra.stagelightplanner.MappedLightDefinitions;
+import com.nicolasgnyra.stagelightplanner.StagePlan;
 import com.nicolasgnyra.stagelightplanner.components.*;
 import com.nicolasgnyra.stagelightplanner.exceptions.InvalidFileVersionException;
 import com.nicolasgnyra.stagelightplanner.helpers.ExceptionHelper;
 import com.nicolasgnyra.stagelightplanner.helpers.FileHelper;
+import com.nicolasgnyra.stagelightplanner.helpers.StagePlanSnapshot;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileFilter;
@@ -14,9 +20,14 @@ import java.awt.event.KeyEvent;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * PlannerWindow Class:
@@ -25,15 +36,29 @@ import java.util.ArrayList;
  * Date: 2016-09-27
  *
  * @author Nicolas Gnyra
- * @version 1.0
+ * @version 1.7
  */
 public class PlannerWindow extends JFrame implements WindowListener {
 
+    private static final Logger logger = Logger.getLogger(PlannerWindow.class.getName());               // logs startup timings
+
     private File loadedFile = null;                                                                     // currently loaded file
+    private long loadedFileModified = 0;                                                                // modification time of the loaded file when it was last loaded or saved
     private final JStagePlanner stagePlanner;                                                           // stage planner
     private final JFixturesContainer fixtureList;                                                       // fixtures container
-    private ArrayList<LightDefinition> lightDefinitions = new ArrayList<LightDefinition>();             // list of light definitions
+    private ArrayList<LightDefinition> lightDefinitions = new ArrayList<LightDefinition>();             // list of light definitions (null until the fixture editor needs them)
+    private MappedLightDefinitions fixtures = null;                                                     // indexed fixtures shown in the fixture list (null if none)
     private FileFilter stagePlanFileFilter = new FileNameExtensionFilter("Stage Plan Files", "slpsp");  // stage plan file filter
+    private final JLabel statusLabel = new JLabel("Ready");                                             // status bar text
+    private final JProgressBar saveProgressBar = new JProgressBar(0, 100);                              // progress of the current save
+    private SaveWorker currentSave = null;                                                              // save being written (null if none)
+    private final ArrayDeque<SaveWorker> pendingSaves = new ArrayDeque<>();                            // saves waiting for the current one, in order
+    private EditJournal journal = null;                                                                 // journal of the changes since the last save
+    private final JActionMenuItem fixtureEditorItem;                                                    // fixture editor menu item (disabled while fixtures load)
+    private FixtureLoader fixtureLoader = null;                                                         // fixtures being loaded (null once they're loaded)
+    private boolean fixturesLoadFailed = false;                                                         // whether the fixtures file failed to load (it's never overwritten then)
+    private final long startTime = System.nanoTime();                                                   // when the window started being created, for startup timings
+    private final FixtureStore fixtureStore = new FixtureStore(new File("fixtures.slpfd"));             // saves fixture changes in the background
 
     /**
      * PlannerWindow() Constructor:
@@ -68,7 +93,8 @@ public class PlannerWindow extends JFrame implements WindowListener {
         fileMenu.add(new JActionMenuItem("Quit",        e -> shutdown()));
 
         // add fixture editor to tools
-        toolsMenu.add(new JActionMenuItem("Fixture Editor", e -> showFixtureEditor()));
+        fixtureEditorItem = new JActionMenuItem("Fixture Editor", e -> showFixtureEditor());
+        toolsMenu.add(fixtureEditorItem);
 
         // add help options to help menu
         helpMenu.add(new JActionMenuItem("Quick Start", e -> showQuickStart()));
@@ -98,27 +124,39 @@ public class PlannerWindow extends JFrame implements WindowListener {
         // set properties panel preferred size
         propertiesPanel.setPreferredSize(new Dimension(250, 0));
 
+        // create side panel with the properties panel above the minimap
+        JPanel sidePanel = new JPanel(new BorderLayout(0, 5));
+        sidePanel.add(propertiesPanel, BorderLayout.CENTER);
+        sidePanel.add(new JMinimap(stagePlanner), BorderLayout.PAGE_END);
+
+        // create status bar with the save progress on the right
+        JPanel statusBar = new JPanel(new BorderLayout(10, 0));
+        saveProgressBar.setVisible(false);
+        statusBar.add(statusLabel, BorderLayout.CENTER);
+        statusBar.add(saveProgressBar, BorderLayout.LINE_END);
+
         // add components to content pane
         contentPane.add(stagePlanner, BorderLayout.CENTER);
-        contentPane.add(propertiesPanel, BorderLayout.LINE_END);
+        contentPane.add(sidePanel, BorderLayout.LINE_END);
         contentPane.add(fixtureList, BorderLayout.PAGE_START);
+        contentPane.add(statusBar, BorderLayout.PAGE_END);
+
+        // show the battens & labels straight away
+        reloadFixtureList();
 
         // create fixture definitions file
         File fixturesFile = new File("fixtures.slpfd");
 
-        // if the file exists, attempt to load it
+        // if the file exists, read it in the background; its fixtures are only decoded as they're shown or looked up
         if (fixturesFile.exists() && fixturesFile.isFile()) {
-            try {
-                lightDefinitions = FileHelper.loadLightDefinitions(fixturesFile);
-            } catch (InvalidFileVersionException ex) {
-                JOptionPane.showMessageDialog(this, "Failed to load fixtures file: File created in different version.", "Oops!", JOptionPane.ERROR_MESSAGE);
-            } catch (Exception ex) {
-                ExceptionHelper.showErrorDialog(this, ex);
-            }
+            fixtureLoader = new FixtureLoader(fixturesFile);
+            fixtureEditorItem.setEnabled(false);
+            statusLabel.setText("Loading fixtures...");
+            fixtureLoader.execute();
         }
 
-        // reload the fixture list
-        reloadFixtureList();
+        // record changes to the new plan
+        setJournal(new EditJournal(EditJournal.getJournalFile(null), 0));
 
         // set the window's content pane
         setContentPane(contentPane);
@@ -137,7 +175,8 @@ public class PlannerWindow extends JFrame implements WindowListener {
      *
      * Input: Whether to show or hide the window.
      *
-     * Process: Calls the superclass method & if we are showing the window, show the welcome dialog.
+     * Process: Calls the superclass method & if we are showing the window, offers to recover the changes to the
+     * untitled plan that weren't saved, or shows the welcome dialog.
      *
      * Output: None.
      *
@@ -149,8 +188,8 @@ public class PlannerWindow extends JFrame implements WindowListener {
         // call superclass method
         super.setVisible(b);
 
-        // if we are showing, show the welcome dialog
-        if (b) {
+        // if we are showing, recover unsaved changes or show the welcome dialog
+        if (b && !recover(null)) {
             WelcomeDialog welcomeDialog = new WelcomeDialog(this);
             welcomeDialog.setVisible(true);
         }
@@ -163,23 +202,63 @@ public class PlannerWindow extends JFrame implements WindowListener {
      *
      * Input: None.
      *
-     * Process: Creates a new instance of the FixtureEditorDialog class and shows it.
+     * Process: Creates a new instance of the FixtureEditorDialog class that applies changes to the lights of the plan
+     * & saves them in the background, and shows it, then replaces the fixtures of the fixture library with the edited
+     * ones so plans refer to them instead of copying them. The fixtures file is decoded first, since the editor lists
+     * every fixture.
      *
      * Output: None.
      */
     private void showFixtureEditor() {
 
+        // decode the fixtures the first time they're edited
+        if (lightDefinitions == null) {
+            try {
+                lightDefinitions = fixtures.getLightDefinitions();
+            } catch (IOException ex) {
+                ExceptionHelper.showErrorDialog(this, ex);
+                return;
+            }
+        }
+
         // create the dialog
-        FixtureEditorDialog dialog = new FixtureEditorDialog(this, lightDefinitions);
+        FixtureEditorDialog dialog = new FixtureEditorDialog(this, lightDefinitions, stagePlanner::replaceLightDefinition, this::fixturesChanged);
 
         // show the dialog (this hangs because the modality type is set to application modal)
         dialog.setVisible(true);
 
-        // reload the fixture list after dialog is closed
+        // replace the fixtures of the library with the edited ones & reload the fixture list after dialog is closed
+        FixtureLibrary.getLocal().setLightDefinitions(lightDefinitions);
+
+        try {
+            fixtures = FileHelper.indexLightDefinitions(lightDefinitions);
+        } catch (IOException ex) {
+            ExceptionHelper.showErrorDialog(this, ex);
+        }
+
         reloadFixtureList();
 
     }
 
+    /**
+     * fixturesChanged() Method:
+     * Saves the fixtures in the background after they were changed in the fixture editor.
+     *
+     * Input: None.
+     *
+     * Process: Gives the fixture store the new list, which writes it shortly after, merged with the changes that
+     * follow. Shows an error dialog if the previous write failed.
+     *
+     * Output: None.
+     */
+    private void fixturesChanged() {
+        try {
+            fixtureStore.markChanged(lightDefinitions);
+        } catch (IOException ex) {
+            ExceptionHelper.showErrorDialog(this, ex);
+        }
+    }
+
     /**
      * showQuickStart() Method:
      * Shows the quick start dialog.
@@ -235,7 +314,8 @@ public class PlannerWindow extends JFrame implements WindowListener {
      *
      * Input: None.
      *
-     * Process: Clears the fixtures container, adds the default elements, and adds each of the light definitions.
+     * Process: Clears the fixtures container, adds the default elements, and sets the indexed fixtures, which are
+     * decoded as they're shown.
      *
      * Output: None.
      */
@@ -249,7 +329,7 @@ public class PlannerWindow extends JFrame implements WindowListener {
         fixtureList.addElement(new JLabelDefinition());
 
         // load user defined lights
-        lightDefinitions.forEach(fixtureList::addLight);
+        fixtureList.setLights(fixtures);
 
     }
 
@@ -259,7 +339,7 @@ public class PlannerWindow extends JFrame implements WindowListener {
      *
      * Input: None.
      *
-     * Process: Clears the stage planner & repaints it.
+     * Process: Clears the stage planner & repaints it, and starts a new edit journal.
      *
      * Output: None.
      */
@@ -272,8 +352,9 @@ public class PlannerWindow extends JFrame implements WindowListener {
             stagePlanner.getDrawingPane().removeAll();
             stagePlanner.repaint();
 
-            // set loaded file to nothing
+            // set loaded file to nothing & record changes to the new plan
             loadedFile = null;
+            setJournal(new EditJournal(EditJournal.getJournalFile(null), 0));
 
             // set has unsaved changes to false
             stagePlanner.setHasUnsavedChanges(false);
@@ -287,7 +368,8 @@ public class PlannerWindow extends JFrame implements WindowListener {
      *
      * Input: None.
      *
-     * Process: Shows a file selection dialog and loads the selected file.
+     * Process: Shows a file selection dialog and loads the selected file, offering to recover the changes to it that
+     * weren't saved if there are any.
      *
      * Output: Whether the operation was successful or not.
      *
@@ -305,28 +387,125 @@ public class PlannerWindow extends JFrame implements WindowListener {
             // show open dialog & make sure the user selected a file
             if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
 
-                // clear the stage planner & set loaded file to nothing
+                // clear the stage planner, set loaded file to nothing & drop the changes to the current plan
                 stagePlanner.getDrawingPane().removeAll();
                 loadedFile = null;
+                setJournal(null);
 
                 // get selected file
                 File loadFrom = fileChooser.getSelectedFile();
 
-                // attempt to load a stage plan from the specified file
+                // the plan may refer to fixtures that are still being loaded
+                waitForFixtures();
+
+                // attempt to recover changes that weren't saved, or load a stage plan from the specified file
                 try {
-                    stagePlanner.setStagePlan(FileHelper.loadStagePlan(loadFrom));
-                    stagePlanner.setHasUnsavedChanges(false);
+                    if (!recover(loadFrom)) {
+                        setJournal(new EditJournal(EditJournal.getJournalFile(loadFrom), FileHelper.getStagePlanId(loadFrom)));
+                        stagePlanner.setStagePlan(FileHelper.mapStagePlan(loadFrom));
+                        stagePlanner.setHasUnsavedChanges(false);
+                    }
+
                     loadedFile = loadFrom;
+                    loadedFileModified = loadFrom.lastModified();
                     return true;
                 } catch (InvalidFileVersionException ex) {
                     JOptionPane.showMessageDialog(this, "That plan was created with an older version of the program and cannot be loaded.", "Unable to load file", JOptionPane.WARNING_MESSAGE);
                 } catch (Exception ex) {
                     ExceptionHelper.showErrorDialog(this, ex);
                 }
+
+                // record changes to a new plan if the file couldn't be loaded
+                setJournal(new EditJournal(EditJournal.getJournalFile(null), 0));
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * recover(File) Method:
+     * Offers to recover the changes to a plan that weren't saved when the program last exited.
+     *
+     * Input: Stage plan file.
+     *
+     * Process: If the plan's edit journal contains changes, asks the user whether to recover them. If so, replays the
+     * journal & shows the result, which keeps being recorded in the same journal. Otherwise deletes the journal.
+     *
+     * Output: Whether changes were recovered.
+     *
+     * @param planFile Stage plan file (null for the untitled plan)
+     * @return Whether changes were recovered
+     */
+    private boolean recover(File planFile) {
+
+        // nothing to do if the journal is empty
+        if (!EditJournal.hasChanges(planFile))
+            return false;
+
+        // ask the user
+        String name = planFile == null ? "an untitled plan" : planFile.getName();
+        int result = JOptionPane.showConfirmDialog(this, "Changes to " + name + " weren't saved when the program last exited. Would you like to recover them?", "Recover changes", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
+
+        try {
+
+            // recover changes
+            if (result == JOptionPane.YES_OPTION) {
+                EditJournal recovered = EditJournal.recover(planFile);
+
+                // show recovered plan without recording it again
+                setJournal(null);
+                stagePlanner.getDrawingPane().removeAll();
+                stagePlanner.setStagePlan(new StagePlan(recovered.getStageElements()));
+                stagePlanner.setHasUnsavedChanges(true);
+                stagePlanner.repaint();
+                setJournal(recovered);
+                loadedFile = planFile;
+                loadedFileModified = planFile != null ? planFile.lastModified() : 0;
+
+                return true;
             }
+
+            // otherwise drop them
+            EditJournal.delete(planFile);
+
+        } catch (InvalidFileVersionException ex) {
+            JOptionPane.showMessageDialog(this, "The changes were recorded by a different version of the program and cannot be recovered.", "Unable to recover changes", JOptionPane.WARNING_MESSAGE);
+        } catch (Exception ex) {
+            ExceptionHelper.showErrorDialog(this, ex);
         }
 
         return false;
+
+    }
+
+    /**
+     * setJournal(EditJournal) Method:
+     * Sets the edit journal in which changes to the plan are recorded.
+     *
+     * Input: Edit journal.
+     *
+     * Process: Discards the current journal, whose changes are dropped, and sets the new one.
+     *
+     * Output: None.
+     *
+     * @param journal Edit journal (null to stop recording changes)
+     */
+    private void setJournal(EditJournal journal) {
+
+        // discard current journal
+        if (this.journal != null) {
+            try {
+                this.journal.discard();
+            } catch (IOException ex) {
+                ExceptionHelper.showErrorDialog(this, ex);
+            }
+        }
+
+        // set new journal
+        this.journal = journal;
+        stagePlanner.setJournal(journal);
+
     }
 
     /**
@@ -335,11 +514,11 @@ public class PlannerWindow extends JFrame implements WindowListener {
      *
      * Input: None.
      *
-     * Process: Saves the stage plan if loaded file exists, prompts user to save as if not.
+     * Process: Saves the stage plan in the background if loaded file exists, prompts user to save as if not.
      *
-     * Output: Whether the operation succeeded or not.
+     * Output: Whether the save was started or not.
      * 
-     * @return Whether the operation succeeded or not.
+     * @return Whether the save was started or not.
      */
     private boolean save() {
 
@@ -350,18 +529,11 @@ public class PlannerWindow extends JFrame implements WindowListener {
 
         } else {
 
-            // try to save stage plan to loaded file
-            try {
-                FileHelper.saveStagePlan(stagePlanner.getStagePlan(), loadedFile);
-                stagePlanner.setHasUnsavedChanges(false);
-                return true;
-            } catch (Exception ex) {
-                ExceptionHelper.showErrorDialog(this, ex);
-            }
+            // save stage plan to loaded file, only writing what changed
+            return saveInBackground(loadedFile, true);
 
         }
 
-        return false;
     }
 
     /**
@@ -385,17 +557,13 @@ public class PlannerWindow extends JFrame implements WindowListener {
         // prompt user to select a target location
         if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
 
-            // get target location
-            File saveTo = fileChooser.getSelectedFile();
+            // get target location (with the extension)
+            File saveTo = FileHelper.getStagePlanFile(fileChooser.getSelectedFile());
 
-            // try to save file to selected location
-            try {
-                FileHelper.saveStagePlan(stagePlanner.getStagePlan(), saveTo);
-                stagePlanner.setHasUnsavedChanges(false);
+            // save stage plan to selected location
+            if (saveInBackground(saveTo, false)) {
                 loadedFile = saveTo;
                 return true;
-            } catch (Exception ex) {
-                ExceptionHelper.showErrorDialog(this, ex);
             }
 
         }
@@ -403,6 +571,192 @@ public class PlannerWindow extends JFrame implements WindowListener {
         return false;
     }
 
+    /**
+     * saveInBackground(File, boolean) Method:
+     * Takes a snapshot of the current stage plan & saves it on a background thread.
+     *
+     * Input: Target file, whether to only write the sections that changed.
+     *
+     * Process: Copies the values of the stage plan, which is quick as unchanged sections are reused as they are (the
+     * parts of the loaded file that are still mapped are copied to the heap first if that file is saved over),
+     * records a checkpoint in the edit journal, and starts encoding & writing them to the file. If a save is already
+     * being written, the snapshot is queued after it. It replaces the last queued snapshot if that one is for the same
+     * file, so saves made in quick succession are merged into one, while saves to other files are all written in
+     * order.
+     *
+     * Output: Whether the save was started or queued.
+     *
+     * @param file Target file.
+     * @param incremental Whether to only write the sections that changed.
+     * @return Whether the save was started or queued.
+     */
+    private boolean saveInBackground(File file, boolean incremental) {
+
+        // take snapshot, after copying the plan to the heap if its file is replaced (which some systems don't allow
+        // while the file is mapped)
+        SaveWorker save;
+
+        try {
+            if (loadedFile != null && FileHelper.getStagePlanFile(file).getAbsoluteFile().equals(loadedFile.getAbsoluteFile()))
+                stagePlanner.copyMappedPlanToHeap();
+
+            StagePlanSnapshot snapshot = stagePlanner.createSnapshot();
+            long journalPosition = journal != null ? journal.checkpoint(snapshot.getId()) : 0;
+
+            // the replaced save may have been writing the whole file, which this one then has to do
+            SaveWorker replaced = pendingSaves.peekLast();
+
+            if (replaced != null && replaced.file.equals(file))
+                incremental &= replaced.incremental;
+            else
+                replaced = null;
+
+            save = new SaveWorker(snapshot, file, incremental, journal, journalPosition);
+
+            if (replaced != null)
+                pendingSaves.removeLast();
+        } catch (Exception ex) {
+            ExceptionHelper.showErrorDialog(this, ex);
+            return false;
+        }
+
+        // changes made from now on aren't in the snapshot
+        stagePlanner.setHasUnsavedChanges(false);
+
+        // start save, or queue it if another one is being written
+        if (currentSave == null) {
+            startSave(save);
+        } else {
+            pendingSaves.addLast(save);
+            statusLabel.setText("Waiting for the previous save to finish...");
+        }
+
+        return true;
+
+    }
+
+    /**
+     * startSave(SaveWorker) Method:
+     * Starts writing a save.
+     *
+     * Input: Save to start.
+     *
+     * Process: Sets it as the current save, shows its progress in the status bar & executes it. Sections that look
+     * unchanged are only read back to be compared if the file was changed by something else since it was loaded or
+     * saved.
+     *
+     * Output: None.
+     *
+     * @param save Save to start.
+     */
+    private void startSave(SaveWorker save) {
+
+        // set current save
+        currentSave = save;
+
+        // show progress
+        statusLabel.setText("Saving " + save.file.getName() + "...");
+        saveProgressBar.setValue(0);
+        saveProgressBar.setVisible(true);
+        save.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName()))
+                saveProgressBar.setValue((Integer) e.getNewValue());
+        });
+
+        // write in the background
+        save.verify = !save.file.equals(loadedFile) || save.file.lastModified() != loadedFileModified;
+        save.execute();
+
+    }
+
+    /**
+     * finishSave(SaveWorker) Method:
+     * Handles the end of a save & starts the pending one, if any.
+     *
+     * Input: Finished save.
+     *
+     * Process: Shows the result in the status bar & removes the saved changes from the edit journal, or shows an
+     * error dialog if it failed (in which case the plan is marked as changed again). Then starts the next pending save.
+     *
+     * Output: Whether the save succeeded.
+     *
+     * @param save Finished save.
+     * @return Whether the save succeeded.
+     */
+    private boolean finishSave(SaveWorker save) {
+
+        // ignore saves that were already handled
+        if (save != currentSave)
+            return true;
+
+        // clear current save & hide progress
+        currentSave = null;
+        saveProgressBar.setVisible(false);
+
+        // get result
+        boolean succeeded;
+
+        try {
+            save.get();
+            statusLabel.setText("Saved " + save.file.getName());
+            succeeded = true;
+
+            if (save.file.equals(loadedFile))
+                loadedFileModified = save.file.lastModified();
+
+            if (save.journal != null)
+                save.journal.compact(save.journalPosition, EditJournal.getJournalFile(save.file), save.snapshot.getId());
+        } catch (IOException ex) {
+            ExceptionHelper.showErrorDialog(this, ex);
+            succeeded = true;
+        } catch (InterruptedException | ExecutionException ex) {
+            statusLabel.setText("Failed to save " + save.file.getName());
+            stagePlanner.setHasUnsavedChanges(true);
+            ExceptionHelper.showErrorDialog(this, ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex);
+            succeeded = false;
+        }
+
+        // start next pending save
+        if (!pendingSaves.isEmpty())
+            startSave(pendingSaves.removeFirst());
+
+        return succeeded;
+
+    }
+
+    /**
+     * waitForSaves() Method:
+     * Waits until the current & pending saves are written.
+     *
+     * Input: None.
+     *
+     * Process: Blocks until the current save is done, handles it, and repeats while saves are left.
+     *
+     * Output: Whether all saves succeeded.
+     *
+     * @return Whether all saves succeeded.
+     */
+    private boolean waitForSaves() {
+
+        // wait for every save
+        boolean succeeded = true;
+
+        while (currentSave != null) {
+            SaveWorker save = currentSave;
+
+            try {
+                save.get();
+            } catch (InterruptedException | ExecutionException ignored) {
+                // handled by finishSave
+            }
+
+            succeeded &= finishSave(save);
+        }
+
+        return succeeded;
+
+    }
+
     /**
      * shutdown() Method:
      * Triggers a window closing event.
@@ -423,7 +777,8 @@ public class PlannerWindow extends JFrame implements WindowListener {
      *
      * Input: Window event.
      *
-     * Process: Checks if there are unsaved changes, asks the user if he/she wants to save, and saves if so.
+     * Process: Checks if there are unsaved changes, asks the user if he/she wants to save, and saves if so. Then
+     * closes the edit journal, which is deleted unless it still holds changes.
      *
      * Output: None.
      *
@@ -433,16 +788,32 @@ public class PlannerWindow extends JFrame implements WindowListener {
     public void windowClosing(WindowEvent e) {
 
         // check if we have unsaved changes
+        int result = JOptionPane.YES_OPTION;
+
         if (stagePlanner.hasUnsavedChanges()) {
 
             // show confirmation dialog
-            int result = JOptionPane.showConfirmDialog(this, "There are unsaved changes. Would you like to save before exiting?", "Unsaved changes", JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.INFORMATION_MESSAGE);
+            result = JOptionPane.showConfirmDialog(this, "There are unsaved changes. Would you like to save before exiting?", "Unsaved changes", JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.INFORMATION_MESSAGE);
 
             // if the user wants to save and it fails or if he cancels, return
             if ((result == JOptionPane.YES_OPTION && !save()) || result == JOptionPane.CANCEL_OPTION)
                 return;
         }
 
+        // wait for saves that are still being written, and stay open if one failed
+        if (!waitForSaves())
+            return;
+
+        // close the edit journal, dropping its changes if the user doesn't want them
+        try {
+            if (journal != null && result == JOptionPane.NO_OPTION)
+                journal.discard();
+            else if (journal != null)
+                journal.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+
         // dispose of the window (close the program)
         dispose();
     }
@@ -453,7 +824,9 @@ public class PlannerWindow extends JFrame implements WindowListener {
      *
      * Input: Window event.
      *
-     * Process: Attempts to save light definitions to file.
+     * Process: Gives the light definitions to the fixture store & closes it, which writes them to the file. Nothing is
+     * written if the fixtures are still loading or failed to load, since the list doesn't hold the file then, or if
+     * they were never decoded for the fixture editor, since they haven't changed.
      *
      * Output: None.
      *
@@ -461,15 +834,124 @@ public class PlannerWindow extends JFrame implements WindowListener {
      */
     @Override
     public void windowClosed(WindowEvent e) {
+
+        // don't replace the file with the part of the fixtures that was loaded
+        if (fixtureLoader != null) {
+            fixtureLoader.cancel(true);
+            return;
+        }
+
+        if (fixturesLoadFailed || lightDefinitions == null)
+            return;
+
+        // an earlier write that failed doesn't matter, closing writes the fixtures again
+        try {
+            fixtureStore.markChanged(lightDefinitions);
+        } catch (IOException ignored) { }
+
         try {
-            FileHelper.saveLightDefinitions(lightDefinitions, new File("fixtures.slpfd"));
+            fixtureStore.close();
         } catch (Exception ex) {
             ex.printStackTrace();
         }
+
     }
 
+    /**
+     * windowOpened(WindowEvent) Method:
+     * Records when the window is first shown.
+     *
+     * Input: Window event.
+     *
+     * Process: Logs the startup timing.
+     *
+     * Output: None.
+     *
+     * @param e Window event.
+     */
     @Override
-    public void windowOpened(WindowEvent e) { }
+    public void windowOpened(WindowEvent e) {
+        logStartupTiming("Window shown");
+    }
+
+    /**
+     * logStartupTiming(String) Method:
+     * Logs how long after the window started being created an event of the startup happened.
+     *
+     * Input: Event.
+     *
+     * Process: Logs the event & the time elapsed since the window started being created at the FINE level, so it's
+     * only shown when the logging configuration asks for it.
+     *
+     * Output: Timing logged.
+     *
+     * @param event Event
+     */
+    private void logStartupTiming(String event) {
+        if (logger.isLoggable(Level.FINE))
+            logger.fine(String.format("Startup: %s after %.1f ms", event, (System.nanoTime() - startTime) / 1e6));
+    }
+
+    /**
+     * waitForFixtures() Method:
+     * Waits until the fixtures file is read, so the fixture library can look its fixtures up.
+     *
+     * Input: None.
+     *
+     * Process: Waits for the fixture loader to finish if it is still running. Errors are reported once the loader is
+     * done.
+     *
+     * Output: None.
+     */
+    private void waitForFixtures() {
+        if (fixtureLoader == null)
+            return;
+
+        try {
+            fixtureLoader.get();
+        } catch (InterruptedException | ExecutionException ex) {
+            // shown by finishLoadingFixtures()
+        }
+    }
+
+    /**
+     * finishLoadingFixtures() Method:
+     * Handles the end of the fixtures loading.
+     *
+     * Input: None.
+     *
+     * Process: Shows an error dialog if it failed, otherwise gives the indexed fixtures to the fixture library & to
+     * the fixture list, which decode them as they're looked up or shown, shows the amount of fixtures loaded & logs
+     * the startup timing. Enables the fixture editor only if the fixtures were loaded, since saving an empty list
+     * would replace the file.
+     *
+     * Output: None.
+     */
+    private void finishLoadingFixtures() {
+
+        // get result
+        try {
+            fixtures = fixtureLoader.get();
+            lightDefinitions = null;
+            FixtureLibrary.getLocal().setLightDefinitions(fixtures);
+            fixtureList.setLights(fixtures);
+            statusLabel.setText("Loaded " + fixtures.size() + " fixtures");
+            logStartupTiming(fixtures.size() + " fixtures loaded");
+        } catch (InterruptedException | ExecutionException ex) {
+            fixturesLoadFailed = true;
+            statusLabel.setText("Failed to load fixtures");
+
+            if (ex.getCause() instanceof InvalidFileVersionException)
+                JOptionPane.showMessageDialog(this, "Failed to load fixtures file: File created in different version.", "Oops!", JOptionPane.ERROR_MESSAGE);
+            else
+                ExceptionHelper.showErrorDialog(this, ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex);
+        }
+
+        // loading is over
+        fixtureLoader = null;
+        fixtureEditorItem.setEnabled(!fixturesLoadFailed);
+
+    }
 
     @Override
     public void windowIconified(WindowEvent e) { }
@@ -482,4 +964,114 @@ public class PlannerWindow extends JFrame implements WindowListener {
 
     @Override
     public void windowDeactivated(WindowEvent e) { }
+
+    /**
+     * SaveWorker Class:
+     * Encodes a snapshot of a stage plan & writes it to a file on a background thread.
+     *
+     * Date: 2026-10-19
+     *
+     * @author Nicolas Gnyra
+     * @version 1.2
+     */
+    private class SaveWorker extends SwingWorker<Void, Void> {
+
+        private final StagePlanSnapshot snapshot;   // values of the stage plan
+        private final File file;                    // target file
+        private final boolean incremental;          // whether to only write the sections that changed
+        private final EditJournal journal;          // journal in which the save was recorded (null if none)
+        private final long journalPosition;         // end of the save's checkpoint in the journal
+        private boolean verify = true;              // whether to read back sections that look unchanged (set before it starts)
+
+        /**
+         * SaveWorker(StagePlanSnapshot, File, boolean, EditJournal, long) Constructor:
+         * Creates a new instance of the SaveWorker class.
+         *
+         * Input: Snapshot, target file, whether to only write the sections that changed, edit journal, position of the
+         * checkpoint in the journal.
+         *
+         * Process: Sets values.
+         *
+         * Output: A new instance of the SaveWorker class.
+         *
+         * @param snapshot Values of the stage plan
+         * @param file Target file
+         * @param incremental Whether to only write the sections that changed
+         * @param journal Journal in which the save was recorded (null if none)
+         * @param journalPosition End of the save's checkpoint in the journal
+         */
+        SaveWorker(StagePlanSnapshot snapshot, File file, boolean incremental, EditJournal journal, long journalPosition) {
+            this.snapshot = snapshot;
+            this.file = file;
+            this.incremental = incremental;
+            this.journal = journal;
+            this.journalPosition = journalPosition;
+        }
+
+        @Override
+        protected Void doInBackground() throws Exception {
+            FileHelper.saveStagePlanSnapshot(FileHelper.encodeStagePlanSnapshot(snapshot), file, incremental, verify, this::setProgress);
+            return null;
+        }
+
+        @Override
+        protected void done() {
+            finishSave(this);
+        }
+    }
+
+    /**
+     * FixtureLoader Class:
+     * Reads the fixtures file & its index on a background thread. Fixtures are only decoded as they're shown or looked
+     * up.
+     *
+     * Date: 2026-10-19
+     *
+     * @author Nicolas Gnyra
+     * @version 1.1
+     */
+    private class FixtureLoader extends SwingWorker<MappedLightDefinitions, Void> {
+
+        private final File file;    // fixtures file
+
+        /**
+         * FixtureLoader(File) Constructor:
+         * Creates a new instance of the FixtureLoader class.
+         *
+         * Input: Fixtures file.
+         *
+         * Process: Sets values.
+         *
+         * Output: A new instance of the FixtureLoader class.
+         *
+         * @param file Fixtures file
+         */
+        FixtureLoader(File file) {
+            this.file = file;
+        }
+
+        /**
+         * doInBackground() Method:
+         * Reads the fixtures file.
+         *
+         * Input: None.
+         *
+         * Process: Reads the file & its block & name tables, without decoding any fixture.
+         *
+         * Output: Indexed fixtures.
+         *
+         * @return Indexed fixtures
+         * @throws Exception Thrown when the file can't be loaded.
+         */
+        @Override
+        protected MappedLightDefinitions doInBackground() throws Exception {
+            return FileHelper.mapLightDefinitions(file);
+        }
+
+        @Override
+        protected void done() {
+            if (!isCancelled())
+                finishLoadingFixtures();
+        }
+    }
 }